@@ -39,6 +39,7 @@ import spiralcraft.log.Level;
 import spiralcraft.sax.Node;
 import spiralcraft.sax.ParseTreeFactory;
 import spiralcraft.sax.ParseTree;
+import spiralcraft.sax.XmlEventCache;
 import spiralcraft.sax.Element;
 import spiralcraft.sax.Characters;
 import spiralcraft.sax.Attribute;
@@ -450,7 +451,10 @@ public class AssemblyLoader
     map.push();
     try
     {
-      ParseTree parseTree=ParseTreeFactory.fromURI(resourceUri);
+      ParseTree parseTree
+        =XmlEventCache.getDefault()!=null
+        ?ParseTreeFactory.fromResource(resource,XmlEventCache.getDefault())
+        :ParseTreeFactory.fromURI(resourceUri);
 
       if (parseTree==null)
       { return null;
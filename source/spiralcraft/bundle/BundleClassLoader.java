@@ -22,6 +22,9 @@ import spiralcraft.vfs.file.FileResource;
 public class BundleClassLoader
   extends Loader
 {
+  static
+  { ClassLoader.registerAsParallelCapable();
+  }
 
   public BundleClassLoader(String[] classBundles,String[] jarLibraryBundles) 
     throws IOException
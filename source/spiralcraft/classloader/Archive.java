@@ -18,8 +18,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import spiralcraft.vfs.Resource;
 import spiralcraft.vfs.file.FileResource;
@@ -79,11 +79,16 @@ public abstract class Archive
   }
   
   
-  private final HashMap<String,Entry> entries
-    =new HashMap<String,Entry>();
+  private final ConcurrentHashMap<String,Entry> entries
+    =new ConcurrentHashMap<String,Entry>();
   
-  private final HashSet<String> negativePaths
-    =new HashSet<String>();
+  private final Set<String> negativePaths
+    =ConcurrentHashMap.newKeySet();
+  
+  private final ArrayList<Loader> loaders
+    =new ArrayList<Loader>(1);
+  
+  private volatile boolean closed;
   
   /**
    * Represents a single class or resource in an archive
@@ -143,16 +148,85 @@ public abstract class Archive
   protected abstract Entry loadEntry(String path)
     throws IOException;
   
+  /**
+   * <p>Provide the set of package paths in this archive, for use by a
+   *   Loader to determine which archives to search for a given path without
+   *   probing each one.
+   * </p>
+   * 
+   * <p>A package path is the portion of an entry path up to and including
+   *   the last '/' (eg. "a/b/" for "a/b/C.class"), or "" for entries at the
+   *   root. The set must include the package paths of every entry and of
+   *   every enclosing directory. It may include package paths that contain
+   *   no entries.
+   * </p>
+   * 
+   * @return The set of package paths, or null if this archive cannot 
+   *   enumerate its contents and must always be searched.
+   */
+  public Set<String> getPackages()
+    throws IOException
+  { return null;
+  }
+  
   public abstract void open()
     throws IOException;
   
+  /**
+   * Close the archive. A closed archive is not searched by a Loader until it
+   *   is opened again.
+   */
   public void close()
   { 
+    closed=true;
+    changed();
+  }
+  
+  /**
+   * @return Whether the archive has been closed and not opened since
+   */
+  public boolean isClosed()
+  { return closed;
+  }
+  
+  /**
+   * Called by open() to make a closed archive available to its Loaders 
+   *   again
+   */
+  protected void reopened()
+  {
+    if (closed)
+    { 
+      closed=false;
+      changed();
+    }
+  }
+  
+  /**
+   * Discard cached entries and notify the Loaders that use this archive that
+   *   its contents may have changed.
+   */
+  protected void changed()
+  {
     entries.clear();
     negativePaths.clear();
+    Loader[] loaders;
+    synchronized (this.loaders)
+    { loaders=this.loaders.toArray(new Loader[this.loaders.size()]);
+    }
+    for (Loader loader:loaders)
+    { loader.archiveChanged();
+    }
+  }
+  
+  void addLoader(Loader loader)
+  { 
+    synchronized (loaders)
+    { loaders.add(loader);
+    }
   }
   
-  protected synchronized void addEntry(String path,Entry entry)
+  protected void addEntry(String path,Entry entry)
   { entries.put(path,entry);
   }
 }
@@ -14,20 +14,29 @@
 //
 package spiralcraft.classloader;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import spiralcraft.vfs.file.FileResource;
-import spiralcraft.vfs.util.ByteArrayResource;
 
 /**
- * An archive contained in a Jar file
+ * <p>An archive contained in a Jar file
+ * </p>
+ * 
+ * <p>A single JarFile is opened when the archive is first used and retained
+ *   until the archive is closed. The set of packages in the Jar is read from
+ *   its directory when it is opened. A closed archive is not reopened until
+ *   open() is called.
+ * </p>
  * 
  * @author mike
  *
@@ -36,7 +45,8 @@ public class JarArchive
   extends Archive
 {
   private FileResource resource;
-  private JarFile jarFile;
+  private volatile JarFile jarFile;
+  private volatile Set<String> packages;
   
   public JarArchive(FileResource resource)
   { this.resource=resource;
@@ -46,32 +56,34 @@ public class JarArchive
   public void open()
     throws IOException
   {
-    jarFile
-      =new JarFile(resource.getFile(),false,JarFile.OPEN_READ);
-
+    reopened();
+    get();
+    changed();
+  }
+  
+  @Override
+  public Set<String> getPackages()
+    throws IOException
+  { 
+    Set<String> packages=this.packages;
+    if (packages==null)
+    { 
+      get();
+      packages=this.packages;
+    }
+    return packages;
   }
   
   @Override
   protected Entry loadEntry(String path)
     throws IOException
   {
-    JarFile jarFile=get();
-    
-    try
-    {
-      JarEntry jarEntry=jarFile.getJarEntry(path);
-      if (jarEntry!=null)
-      { return new JarFileEntry(jarEntry);
-      }
-      else
-      { return null;
-      }
+    JarEntry jarEntry=get().getJarEntry(path);
+    if (jarEntry!=null)
+    { return new JarFileEntry(jarEntry);
     }
-    finally
-    { 
-      if (jarFile!=this.jarFile)
-      { jarFile.close();
-      }
+    else
+    { return null;
     }
   }
 
@@ -83,33 +95,71 @@ public class JarArchive
   @Override
   public void close()
   {
-    if (jarFile!=null)
+    // Mark the archive closed first, so it is not reopened by a lookup
+    super.close();
+    synchronized (this)
     {
-      //ClassLog.getInstance(getClass()).fine("Closing "+resource.getURI());
-      try
-      { jarFile.close();
+      if (jarFile!=null)
+      {
+        //ClassLog.getInstance(getClass()).fine("Closing "+resource.getURI());
+        try
+        { jarFile.close();
+        }
+        catch (IOException x)
+        { }
+        
+        jarFile=null;
+        packages=null;
       }
-      catch (IOException x)
-      { }
-      
-      jarFile=null;
     }
-    super.close();
   }  
 
+  /**
+   * Return the retained JarFile, opening it if it is not already open
+   */
   private JarFile get()
     throws IOException
   {
-    JarFile jarFile=JarArchive.this.jarFile;
+    JarFile jarFile=this.jarFile;
     if (jarFile==null)
     { 
-      //ClassLog.getInstance(getClass()).fine("Reopening "+resource.getURI());
-      jarFile
-        =new JarFile(resource.getFile(),false,JarFile.OPEN_READ);
+      synchronized (this)
+      {
+        jarFile=this.jarFile;
+        if (jarFile==null)
+        {
+          if (isClosed())
+          { throw new IOException("Archive is closed: "+resource.getURI());
+          }
+          //ClassLog.getInstance(getClass()).fine("Opening "+resource.getURI());
+          jarFile
+            =new JarFile(resource.getFile(),false,JarFile.OPEN_READ);
+          packages=readPackages(jarFile);
+          this.jarFile=jarFile;
+        }
+      }
     }
     return jarFile;
   }
   
+  private static Set<String> readPackages(JarFile jarFile)
+  {
+    HashSet<String> packages=new HashSet<String>();
+    packages.add("");
+    Enumeration<JarEntry> entries=jarFile.entries();
+    while (entries.hasMoreElements())
+    {
+      String name=entries.nextElement().getName();
+      int slash=name.lastIndexOf('/');
+      
+      // Add the package and any enclosing directories not already seen
+      while (slash>0 && packages.add(name.substring(0,slash+1)))
+      { slash=name.lastIndexOf('/',slash-1);
+      }
+    }
+    return Collections.unmodifiableSet(packages);
+  }
+  
   public class JarFileEntry
     extends Entry
   {
@@ -128,35 +178,20 @@ public class JarArchive
     public byte[] getData()
       throws IOException
     {
-      JarFile jarFile=get();
-
-      BufferedInputStream in=null;
-      try
+      try (InputStream in=get().getInputStream(jarEntry))
       {
-        in = new BufferedInputStream(jarFile.getInputStream(jarEntry));
-
-        byte[] data = new byte[(int) jarEntry.getSize()];
-        in.read(data);
-        in.close();
-        return data;
-      }
-      catch (IOException x)
-      {  
-        if (in!=null)
-        {
-          try
-          { in.close();
-          }
-          catch (IOException y)
-          { }
+        long size=jarEntry.getSize();
+        if (size<0)
+        { return in.readAllBytes();
         }
-        throw x;
-      }     
-      finally
-      {
-        if (jarFile!=JarArchive.this.jarFile)
-        { jarFile.close();
+        
+        byte[] data=in.readNBytes((int) size);
+        if (data.length!=size)
+        { 
+          throw new IOException
+            ("Truncated entry "+jarEntry.getName()+" in "+resource.getURI());
         }
+        return data;
       }
     }
 
@@ -177,27 +212,7 @@ public class JarArchive
     @Override
     public InputStream getResourceAsStream()
       throws IOException
-    { 
-      JarFile jarFile=get();
-      try
-      { 
-        InputStream in=jarFile.getInputStream(jarEntry);
-        if (jarFile!=JarArchive.this.jarFile)
-        {
-          return ByteArrayResource
-            .copyOf(jarFile.getInputStream(jarEntry))
-            .getInputStream();
-        }
-        else
-        { return in;
-        }
-      }
-      finally
-      { 
-        if (jarFile!=JarArchive.this.jarFile)
-        { jarFile.close();
-        }
-      }
+    { return get().getInputStream(jarEntry);
     }
     
   }
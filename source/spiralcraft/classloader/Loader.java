@@ -19,7 +19,10 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
 
 import spiralcraft.common.Lifecycle;
 import spiralcraft.common.LifecycleException;
@@ -30,10 +33,34 @@ import spiralcraft.util.IteratorEnumeration;
 import spiralcraft.vfs.Resource;
 import spiralcraft.vfs.file.FileResource;
 
+/**
+ * <p>A ClassLoader that loads classes and resources from a set of Archives.
+ * </p>
+ * 
+ * <p>Precedent archives are searched before the parent ClassLoader, and 
+ *   local archives after it.
+ * </p>
+ * 
+ * <p>To avoid probing every archive for every lookup, the Loader maps each
+ *   package path to the archives that contain it, using the package sets
+ *   provided by Archive.getPackages(). Archives that cannot enumerate their
+ *   packages are searched for every path. The index is rebuilt after an 
+ *   archive is added or reports a change. Closed archives are left out of
+ *   the index until they are opened again.
+ * </p>
+ * 
+ * <p>The Loader is parallel capable: classes with different names are loaded
+ *   concurrently.
+ * </p>
+ */
 public class Loader
   extends ClassLoader
   implements Lifecycle
 {
+  static
+  { ClassLoader.registerAsParallelCapable();
+  }
+  
   private static final ClassLog log
     =ClassLog.getInstance(Loader.class);
 
@@ -43,6 +70,8 @@ public class Loader
   
   private final ArrayList<Archive> archives=new ArrayList<Archive>();
   private final ArrayList<Archive> precedentArchives=new ArrayList<Archive>();
+  private final Object indexLock=new Object();
+  private volatile Index index;
   private boolean started;
   private boolean debug;
   private ClassLoader contextClassLoader
@@ -127,7 +156,12 @@ public class Loader
   public void addArchive(Archive archive)
   { 
     assertNotStarted();
-    archives.add(archive);
+    synchronized (indexLock)
+    {
+      archives.add(archive);
+      index=null;
+    }
+    archive.addLoader(this);
   }
   
   /**
@@ -139,9 +173,49 @@ public class Loader
   public void addPrecedentArchive(Archive archive)
   { 
     assertNotStarted();
-    precedentArchives.add(archive);
+    synchronized (indexLock)
+    {
+      precedentArchives.add(archive);
+      index=null;
+    }
+    archive.addLoader(this);
   }
 
+  /**
+   * Called by an Archive when its contents may have changed
+   */
+  void archiveChanged()
+  { 
+    synchronized (indexLock)
+    { index=null;
+    }
+  }
+  
+  /**
+   * Return the package index, building it if the set of archives or their
+   *   contents have changed.
+   */
+  private Index index()
+  {
+    Index index=this.index;
+    if (index==null)
+    {
+      synchronized (indexLock)
+      {
+        index=this.index;
+        if (index==null)
+        {
+          index=new Index
+            (new PackageIndex(precedentArchives)
+            ,new PackageIndex(archives)
+            );
+          this.index=index;
+        }
+      }
+    }
+    return index;
+  }
+  
   @Override
   protected Class<?> loadClass(String formalName,boolean resolve)
     throws ClassNotFoundException
@@ -149,36 +223,38 @@ public class Loader
     if (logLevel.isTrace())
     { log.trace(formalName);
     }
-    Class<?> clazz=findLoadedClass(formalName);
-    if (clazz==null)
-    { clazz=findClass(formalName,precedentArchives);
-    }
-    if (clazz==null)
-    { 
-      try
-      {
-        if (getParent()!=null)
-        { clazz=getParent().loadClass(formalName);
+    synchronized (getClassLoadingLock(formalName))
+    {
+      Class<?> clazz=findLoadedClass(formalName);
+      if (clazz==null)
+      { clazz=findClass(formalName,index().precedent);
+      }
+      if (clazz==null)
+      { 
+        try
+        {
+          if (getParent()!=null)
+          { clazz=getParent().loadClass(formalName);
+          }
+          else
+          { clazz=ClassLoader.getSystemClassLoader().loadClass(formalName);
+          }
         }
-        else
-        { clazz=ClassLoader.getSystemClassLoader().loadClass(formalName);
+        catch (ClassNotFoundException x)
+        {
         }
       }
-      catch (ClassNotFoundException x)
-      {
+      if (clazz==null)
+      { clazz=findClass(formalName);
       }
+      if (debug || logLevel.isFine())
+      { log.fine( (clazz!=null?"FOUND":"FAIL")+":"+formalName );
+      }
+      if (resolve && clazz!=null)
+      { this.resolveClass(clazz);
+      }
+      return clazz;
     }
-    if (clazz==null)
-    { clazz=findClass(formalName);
-    }
-    if (debug || logLevel.isFine())
-    { log.fine( (clazz!=null?"FOUND":"FAIL")+":"+formalName );
-    }
-    if (resolve && clazz!=null)
-    { this.resolveClass(clazz);
-    }
-    return clazz;
-    
   }
 
   /**
@@ -194,7 +270,7 @@ public class Loader
   protected Class<?> findClass(String formalName)
     throws ClassNotFoundException
   { 
-    Class<?> clazz=findClass(formalName,archives);
+    Class<?> clazz=findClass(formalName,index().local);
     if (clazz==null)
     { throw new ClassNotFoundException(formalName);
     }
@@ -221,7 +297,7 @@ public class Loader
    *@throws ClassNotFoundException if the class was not loadable by this
    *  ClassLoader.
    */
-  private Class<?> findClass(String formalName,ArrayList<Archive> archives)
+  private Class<?> findClass(String formalName,PackageIndex archives)
   { 
     ClassLoader oldCl=pushClassLoader();
     try
@@ -247,7 +323,7 @@ public class Loader
     }
   }
 
-  private URL findResource(String path,ArrayList<Archive> archives)
+  private URL findResource(String path,PackageIndex archives)
   {
     ClassLoader oldCl=pushClassLoader();
     try
@@ -284,11 +360,11 @@ public class Loader
    */
   @Override
   public URL findResource(String path)
-  { return findResource(path,archives);
+  { return findResource(path,index().local);
   }
 
   private URL findPrecedentResource(String path)
-  { return findResource(path,precedentArchives);
+  { return findResource(path,index().precedent);
   }
   
   @Override
@@ -327,7 +403,8 @@ public class Loader
       { log.trace(path);
       }
       LinkedList<URL> resources=new LinkedList<URL>();
-      for (Archive archive: precedentArchives)
+      Index index=index();
+      for (Archive archive: index.precedent.candidates(path))
       {
         try
         {
@@ -363,7 +440,7 @@ public class Loader
       
       }
           
-      for (Archive archive: archives)
+      for (Archive archive: index.local.candidates(path))
       {
         try
         {
@@ -384,7 +461,7 @@ public class Loader
     }
   }
   
-  private InputStream findStream(String path,ArrayList<Archive> archives)
+  private InputStream findStream(String path,PackageIndex archives)
   {
     try
     {
@@ -404,11 +481,11 @@ public class Loader
   }
   
   private InputStream findStream(String path)
-  { return findStream(path,archives);
+  { return findStream(path,index().local);
   }
 
   private InputStream findPrecedentStream(String path)
-  { return findStream(path,precedentArchives);
+  { return findStream(path,index().precedent);
   }
 
   @Override
@@ -451,10 +528,10 @@ public class Loader
    * Find an entry with the specified path in the specified set of archives
    *
    */
-  private Archive.Entry findEntry(String path,ArrayList<Archive> archives)
+  private Archive.Entry findEntry(String path,PackageIndex archives)
     throws IOException
   {
-    for (Archive archive : archives)
+    for (Archive archive : archives.candidates(path))
     { 
       Archive.Entry entry=archive.getEntry(path);
       if (entry!=null)
@@ -540,4 +617,101 @@ public class Loader
   }
   
   
+  private static final Archive[] NO_ARCHIVES=new Archive[0];
+  
+  private static class Index
+  {
+    final PackageIndex precedent;
+    final PackageIndex local;
+    
+    Index(PackageIndex precedent,PackageIndex local)
+    { 
+      this.precedent=precedent;
+      this.local=local;
+    }
+  }
+  
+  /**
+   * Maps package paths to the archives, in search order, that may contain
+   *   entries in the package
+   */
+  private static class PackageIndex
+  {
+    private final HashMap<String,Archive[]> byPackage
+      =new HashMap<String,Archive[]>();
+    
+    /**
+     * The archives that cannot enumerate their packages, which are searched
+     *   for paths in packages not found in any indexed archive
+     */
+    private final Archive[] unindexed;
+    
+    PackageIndex(ArrayList<Archive> archives)
+    {
+      HashMap<String,ArrayList<Archive>> lists
+        =new HashMap<String,ArrayList<Archive>>();
+      ArrayList<Archive> unindexed=new ArrayList<Archive>();
+      
+      for (Archive archive:archives)
+      {
+        if (archive.isClosed())
+        { continue;
+        }
+        
+        Set<String> packages;
+        try
+        { packages=archive.getPackages();
+        }
+        catch (IOException x)
+        { 
+          log.warning("Could not index "+archive+": "+x);
+          packages=null;
+        }
+        
+        if (packages==null)
+        {
+          // Searched for every path, in order
+          unindexed.add(archive);
+          for (ArrayList<Archive> list:lists.values())
+          { list.add(archive);
+          }
+        }
+        else
+        {
+          for (String pkg:packages)
+          {
+            ArrayList<Archive> list=lists.get(pkg);
+            if (list==null)
+            { 
+              list=new ArrayList<Archive>(unindexed);
+              lists.put(pkg,list);
+            }
+            list.add(archive);
+          }
+        }
+      }
+      
+      for (Map.Entry<String,ArrayList<Archive>> entry:lists.entrySet())
+      { 
+        ArrayList<Archive> list=entry.getValue();
+        byPackage.put(entry.getKey(),list.toArray(new Archive[list.size()]));
+      }
+      this.unindexed
+        =unindexed.isEmpty()
+        ?NO_ARCHIVES
+        :unindexed.toArray(new Archive[unindexed.size()]);
+    }
+    
+    /**
+     * @return The archives that may contain the specified path, in search
+     *   order
+     */
+    Archive[] candidates(String path)
+    {
+      Archive[] archives
+        =byPackage.get(path.substring(0,path.lastIndexOf('/')+1));
+      return archives!=null?archives:unindexed;
+    }
+  }
+
 }
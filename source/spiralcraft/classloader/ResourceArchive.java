@@ -84,7 +84,7 @@ public class ResourceArchive
     if (rootResource.asContainer()==null)
     { throw new IOException("Resource is not a directory "+rootResource.getURI());
     }
-    
+    reopened();
   }
   
   @Override
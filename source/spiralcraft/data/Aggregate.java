@@ -81,4 +81,34 @@ public interface Aggregate<T>
     
     public T getFirst(KeyTuple key);
   }
+  
+  /**
+   * <p>An Index which maintains its keys in ascending order, and can
+   *   retrieve the elements whose keys fall within a range.
+   * </p>
+   */
+  interface RangeIndex<T>
+    extends Index<T>
+  {
+    /**
+     * <p>Retrieve the elements with keys between the specified bounds, in
+     *   ascending key order. Keys containing null values are never 
+     *   included.
+     * </p>
+     * 
+     * @param lower The lower bound, or null if there is no lower bound
+     * @param lowerInclusive Whether elements with keys equal to the lower
+     *   bound are included
+     * @param upper The upper bound, or null if there is no upper bound
+     * @param upperInclusive Whether elements with keys equal to the upper
+     *   bound are included
+     * @return The matching elements, which may be empty
+     */
+    public Aggregate<T> range
+      (KeyTuple lower
+      ,boolean lowerInclusive
+      ,KeyTuple upper
+      ,boolean upperInclusive
+      );
+  }
 }
\ No newline at end of file
@@ -69,6 +69,10 @@ public class Order
   { this.elements=elements;
   }
   
+  public OrderElement<?>[] getElements()
+  { return elements;
+  }
+  
   public void setDebug(boolean debug)
   { this.debug=debug;
   }
@@ -19,6 +19,10 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.lang.ref.WeakReference;
 
@@ -66,6 +70,21 @@ import spiralcraft.log.Level;
  * - Load reflective Type based on POJO class <namespace-classpath>.<name>
  * - Load generic Scheme based type from <namespace>/<name>.scheme.xml
  * - Defer to UDF loader mechanism (custom scheme:)
+ *
+ * Types are loaded concurrently. A request for a Type that is not yet
+ *   loaded claims a TypeLoad for its URI, and other threads that request
+ *   the same URI wait for that load instead of repeating it. The Types
+ *   created or pre-registered while a thread is loading remain visible only
+ *   to that thread until its outermost load completes, at which point they
+ *   are published together. This preserves the pre-registration used to
+ *   resolve recursive references without exposing partially loaded Types
+ *   to other threads. If threads end up waiting for each other's 
+ *   partially loaded Types, the youngest load in the cycle discards its
+ *   unpublished Types and is retried once the others have published.
+ *
+ * A declared set of Types can be loaded in parallel with preload(), or
+ *   at startup by listing their URIs, separated by commas, in the
+ *   spiralcraft.data.TypeResolver.preload system property.
  * 
  */
 public class TypeResolver
@@ -81,8 +100,28 @@ public class TypeResolver
   private static final URI TYPE_TYPE_URI 
     =URIPool.create("class:/spiralcraft/data/Type");
   
+  private static final String[] PRELOAD_URIS
+    =split(System.getProperty("spiralcraft.data.TypeResolver.preload"));
+  
+  /**
+   * The TypeLoad each thread is currently waiting for, to detect cycles
+   */
+  private static final ConcurrentHashMap<Thread,TypeLoad> waits
+    =new ConcurrentHashMap<>();
+  
+  /**
+   * The innermost LoadGroup of the current thread, across resolvers
+   */
+  private static final ThreadLocal<LoadGroup> activeGroup
+    =new ThreadLocal<>();
+  
   protected final TypeResolver parent;
-  private final HashMap<URI,Type<?>> map=new HashMap<URI,Type<?>>();
+  private final ConcurrentHashMap<URI,Type<?>> map
+    =new ConcurrentHashMap<>();
+  private final Set<Type<?>> linkedTypes=ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<URI,TypeLoad> loads
+    =new ConcurrentHashMap<>();
+  private final ThreadLocal<LoadGroup> currentGroup=new ThreadLocal<>();
   private final WeakReference<ClassLoader> classLoaderRef;
 
   private final ArrayList<TypeFactory> factories=new ArrayList<TypeFactory>();
@@ -96,19 +135,53 @@ public class TypeResolver
   { postDelegatedSchemes.add("file"); 
   }
   
-  public static synchronized final TypeResolver getTypeResolver()
+  public static final TypeResolver getTypeResolver()
   { 
-    TypeResolver resolver=classLoaderLocal.getContextInstance();
-    if (resolver==null)
-    { 
-      resolver=new TypeResolver
-        (classLoaderLocal.getParentContextInstance());
-      classLoaderLocal.setContextInstance(resolver);
-      
+    TypeResolver resolver;
+    synchronized (TypeResolver.class)
+    {
+      resolver=classLoaderLocal.getContextInstance();
+      if (resolver==null)
+      { 
+        resolver=new TypeResolver
+          (classLoaderLocal.getParentContextInstance());
+        classLoaderLocal.setContextInstance(resolver);
+        if (resolver.parent==null)
+        { resolver.getMetaType();
+        }
+      }
+      else
+      { return resolver;
+      }
+    }
+    
+    // Outside the lock, because the loading threads need to obtain
+    //   the new resolver
+    if (PRELOAD_URIS!=null)
+    { resolver.preloadDeclared();
     }
     return resolver;
   }
   
+  /**
+   * <p>Register an action that reverses a side effect of loading a Type
+   *   outside of the TypeResolver, such as an entry in a static registry.
+   * </p>
+   * 
+   * <p>If the current thread's load is abandoned to resolve a concurrent
+   *   cycle, the action is run when the Types it loaded are discarded. The
+   *   action is dropped when the load is published, or if no load is in
+   *   progress.
+   * </p>
+   */
+  public static final void onAbandon(Runnable undo)
+  {
+    LoadGroup group=activeGroup.get();
+    if (group!=null)
+    { group.undos.add(undo);
+    }
+  }
+  
   /**
    * Remove the specified suffix from the specified URI
    */
@@ -172,10 +245,6 @@ public class TypeResolver
 //    factories.add(new CoreTypeFactory());
 //    factories.add(new BuilderTypeFactory());
 //    factories.add(new ReflectionTypeFactory());
-
-    if (parent==null)
-    { getMetaType();
-    }
     
   }
 
@@ -385,22 +454,34 @@ public class TypeResolver
     return type;
   }
 
+  /**
+   * Return a Type that has been published, or that has been loaded or
+   *   pre-registered by the current thread's outstanding loads
+   */
   private Type<?> checkCache(URI typeURI)
+  {
+    Type<?> type=checkPublished(typeURI);
+    if (type==null)
+    { 
+      LoadGroup group=currentGroup.get();
+      if (group!=null)
+      { type=group.types.get(typeURI);
+      }
+    }
+    return type;
+  }
+  
+  private Type<?> checkPublished(URI typeURI)
   {
     Type<?> type=map.get(typeURI);
 
     // Check whether type is stale and eject if so
     if (type!=null && type.isStale())
     { 
-      synchronized (this)
-      { 
-        type=map.get(typeURI);
-        if (type!=null && type.isStale())
-        { 
-          map.remove(typeURI);
-          type=null;
-        }
+      if (map.remove(typeURI,type))
+      { linkedTypes.remove(type);
       }
+      type=null;
     }
     return type;
   }
@@ -479,15 +560,29 @@ public class TypeResolver
    * @param type
    * @throws DataException
    */
-  public synchronized void register(URI uri,Type<?> type)
+  public void register(URI uri,Type<?> type)
     throws DataException
   { 
-    if (checkCache(uri)!=null)
+    Type<?> existing=checkCache(uri);
+    if (existing!=null)
     { 
       throw new DataException
-        ("Type "+uri+" already registered as "+map.get(uri));
+        ("Type "+uri+" already registered as "+existing);
+    }
+    
+    LoadGroup group=currentGroup.get();
+    if (group!=null)
+    { group.types.put(uri,type);
+    }
+    else
+    { 
+      existing=map.putIfAbsent(uri,type);
+      if (existing!=null)
+      {
+        throw new DataException
+          ("Type "+uri+" already registered as "+existing);
+      }
     }
-    map.put(uri,type);
     
     if (debugLevel.canLog(Level.FINE))
     { 
@@ -498,17 +593,22 @@ public class TypeResolver
     // Type may not be ready to be linked
   }
   
-  public synchronized void unregister(URI uri,Type<?> type)
+  public void unregister(URI uri,Type<?> type)
   {
-    if (checkCache(uri)!=type)
+    LoadGroup group=currentGroup.get();
+    if (group!=null && group.types.remove(uri,type))
+    { return;
+    }
+    
+    if (!map.remove(uri,type))
     { log.fine(logMessage("Unregister non-registered type"+type));
     }
     else
-    { map.remove(uri);
+    { linkedTypes.remove(type);
     }
   }
 
-  private synchronized Type<?> putMap(URI uri,Type<?> type,boolean link)
+  private Type<?> putMap(URI uri,Type<?> type,boolean link)
     throws DataException
   {
     Type<?> existing=checkCache(uri);
@@ -527,7 +627,18 @@ public class TypeResolver
     {
       
       // Standard case
-      map.put(uri,type);
+      LoadGroup group=currentGroup.get();
+      if (group!=null)
+      { group.types.put(uri,type);
+      }
+      else
+      { 
+        existing=map.putIfAbsent(uri,type);
+        if (existing!=null)
+        { return existing;
+        }
+      }
+      
       if (link)
       {
         type.link();
@@ -554,7 +665,7 @@ public class TypeResolver
       URI baseTypeUri=desuffix(typeUri,".array");
 
       // Recurse to resolve baseType
-      Type baseType=findTypeExtended(baseTypeUri,link);
+      Type baseType=claim(baseTypeUri,link,true);
       if (baseType!=null)
       { return loadArrayType(baseType,typeUri,link);
       }
@@ -564,7 +675,7 @@ public class TypeResolver
       URI baseTypeUri=desuffix(typeUri,".list");
 
       // Recurse to resolve baseType
-      Type baseType=findTypeExtended(baseTypeUri,link);
+      Type baseType=claim(baseTypeUri,link,true);
       if (baseType!=null)
       { return loadListType(baseType,typeUri,link);
       }
@@ -574,7 +685,7 @@ public class TypeResolver
       URI baseTypeUri=desuffix(typeUri,".buffer");
 
       // Recurse to resolve baseType
-      Type baseType=findTypeExtended(baseTypeUri,link);
+      Type baseType=claim(baseTypeUri,link,true);
       if (baseType!=null)
       { return loadBufferType(baseType,typeUri,link);
       }
@@ -584,7 +695,7 @@ public class TypeResolver
       URI baseTypeUri=desuffix(typeUri,".delta");
 
       // Recurse to resolve baseType
-      Type baseType=findTypeExtended(baseTypeUri,link);
+      Type baseType=claim(baseTypeUri,link,true);
       if (baseType!=null)
       { return loadDeltaType(baseType,typeUri,link);
       }
@@ -594,7 +705,7 @@ public class TypeResolver
       URI baseTypeUri=desuffix(typeUri,".type");
 
       // Recurse to resolve baseType
-      Type baseType=findTypeExtended(baseTypeUri,link);
+      Type baseType=claim(baseTypeUri,link,true);
       if (baseType!=null)
       { return loadMetaType(baseType,typeUri,link);
       }
@@ -617,7 +728,109 @@ public class TypeResolver
    *   within the specified namespace.
    */
   @SuppressWarnings("rawtypes")
-  synchronized final Type load(URI typeUri,boolean link)
+  final Type load(URI typeUri,boolean link)
+    throws DataException
+  { return claim(typeUri,link,false);
+  }
+  
+  /**
+   * <p>Load a Type under a TypeLoad for its URI, or wait for another 
+   *   thread's TypeLoad for the same URI.
+   * </p>
+   * 
+   * @param local Only look for the Type in this resolver's ClassLoader
+   */
+  private Type<?> claim(URI typeUri,boolean link,boolean local)
+    throws DataException
+  { 
+    long age=0;
+    while (true)
+    {
+      // Published and linked Types are read without locking
+      Type<?> type=checkPublished(typeUri);
+      if (type!=null && (!link || linkedTypes.contains(type)))
+      { return type;
+      }
+      
+      LoadGroup group=currentGroup.get();
+      if (group!=null)
+      { 
+        if (group.abandoned)
+        { throw new DataException(abandonMessage(group,typeUri));
+        }
+        
+        type=group.types.get(typeUri);
+        if (type!=null)
+        { 
+          if (link)
+          { type.link();
+          }
+          return type;
+        }
+      }
+      
+      if (group==null)
+      { 
+        group=new LoadGroup(Thread.currentThread(),age);
+        age=group.age;
+      }
+      TypeLoad typeLoad=new TypeLoad(typeUri,group);
+      TypeLoad existing=loads.putIfAbsent(typeUri,typeLoad);
+      if (existing==null)
+      { 
+        boolean outermost=beginLoad(group);
+        group.loads.add(typeLoad);
+        try
+        { 
+          type=local
+            ?findTypeExtended(typeUri,link)
+            :loadType(typeUri,link);
+          if (type!=null && link)
+          { typeLoad.linked=true;
+          }
+        }
+        catch (DataException | RuntimeException | Error x)
+        { 
+          if (!outermost || !group.abandoned)
+          { throw x;
+          }
+        }
+        finally
+        { endLoad(group);
+        }
+        
+        if (outermost && group.abandoned)
+        { 
+          // Start over once the conflicting thread has published
+          if (debugLevel.canLog(Level.FINE))
+          { log.fine(logMessage("Retrying abandoned load of "+typeUri));
+          }
+          continue;
+        }
+        return type;
+      }
+      else if (existing.group==currentGroup.get())
+      { 
+        // Recursive request for a Type this thread is already loading,
+        //   which is resolved by pre-registration, if at all
+        return local
+          ?findTypeExtended(typeUri,link)
+          :loadType(typeUri,link);
+      }
+      else
+      { await(existing,currentGroup.get());
+      }
+      
+      // The existing load was published or abandoned- pick up its result
+      //   or load the Type here
+    }
+  }
+
+  /**
+   * Load a Type within the current thread's LoadGroup
+   */
+  @SuppressWarnings("rawtypes")
+  private final Type loadType(URI typeUri,boolean link)
     throws DataException
   { 
     Type<?> type=this.findLoadedType(typeUri,link);
@@ -686,6 +899,297 @@ public class TypeResolver
   { return map.values().toArray(new Type<?>[map.values().size()]);
   }
 
+  /**
+   * <p>Load the specified Types in parallel, using up to one thread per
+   *   available processor, and return when all have been loaded and
+   *   linked.
+   * </p>
+   * 
+   * @throws DataException The first error encountered, with any other
+   *   errors attached as suppressed exceptions
+   */
+  public void preload(final URI ... typeURIs)
+    throws DataException
+  {
+    final AtomicInteger next=new AtomicInteger();
+    final ArrayList<DataException> errors=new ArrayList<>();
+    Runnable worker
+      =new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        int i;
+        while ((i=next.getAndIncrement())<typeURIs.length)
+        {
+          try
+          { resolve(typeURIs[i]);
+          }
+          catch (DataException x)
+          { 
+            synchronized (errors)
+            { errors.add(x);
+            }
+          }
+        }
+      }
+    };
+    
+    int threadCount
+      =Math.min(typeURIs.length,Runtime.getRuntime().availableProcessors());
+    Thread[] threads=new Thread[Math.max(threadCount-1,0)];
+    for (int i=0;i<threads.length;i++)
+    { 
+      threads[i]=new Thread(worker,"TypeResolver#"+id+" preload "+i);
+      threads[i].setContextClassLoader(classLoaderRef.get());
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    
+    // The calling thread works too
+    worker.run();
+    for (Thread thread:threads)
+    { 
+      try
+      { thread.join();
+      }
+      catch (InterruptedException x)
+      { 
+        Thread.currentThread().interrupt();
+        throw new DataException("Interrupted preloading types",x);
+      }
+    }
+    
+    if (!errors.isEmpty())
+    {
+      DataException x=errors.get(0);
+      for (int i=1;i<errors.size();i++)
+      { x.addSuppressed(errors.get(i));
+      }
+      throw x;
+    }
+  }
+  
+  private void preloadDeclared()
+  {
+    URI[] typeURIs=new URI[PRELOAD_URIS.length];
+    for (int i=0;i<typeURIs.length;i++)
+    { typeURIs[i]=URIPool.create(PRELOAD_URIS[i]);
+    }
+    
+    long time=System.nanoTime();
+    try
+    { preload(typeURIs);
+    }
+    catch (DataException x)
+    { log.log(Level.WARNING,logMessage("Error preloading types"),x);
+    }
+    
+    if (debugLevel.canLog(Level.FINE))
+    { 
+      log.fine
+        (logMessage("Preloaded "+typeURIs.length+" types in "
+          +(System.nanoTime()-time)/1000000+" ms"
+          )
+        );
+    }
+  }
+  
+  private static String[] split(String list)
+  {
+    if (list==null || list.trim().isEmpty())
+    { return null;
+    }
+    
+    ArrayList<String> uris=new ArrayList<>();
+    for (String uri:list.split(","))
+    { 
+      if (!uri.trim().isEmpty())
+      { uris.add(uri.trim());
+      }
+    }
+    return uris.toArray(new String[uris.size()]);
+  }
+  
+  /**
+   * @return Whether this is the outermost load in the LoadGroup
+   */
+  private boolean beginLoad(LoadGroup group)
+  {
+    if (group.depth++==0)
+    { 
+      currentGroup.set(group);
+      group.outer=activeGroup.get();
+      activeGroup.set(group);
+      return true;
+    }
+    return false;
+  }
+  
+  /**
+   * <p>Complete a load in the current thread. When the outermost load
+   *   completes, publish the Types loaded by the LoadGroup, or discard them
+   *   if the group was abandoned, and release waiting threads.
+   * </p>
+   */
+  private void endLoad(LoadGroup group)
+  {
+    if (--group.depth>0)
+    { return;
+    }
+    currentGroup.remove();
+    if (group.outer!=null)
+    { activeGroup.set(group.outer);
+    }
+    else
+    { activeGroup.remove();
+    }
+    
+    if (group.abandoned)
+    { 
+      // Reverse the side effects of the discarded loads, most recent first
+      for (int i=group.undos.size()-1;i>=0;i--)
+      { 
+        try
+        { group.undos.get(i).run();
+        }
+        catch (RuntimeException x)
+        { 
+          log.log
+            (Level.WARNING
+            ,logMessage("Error undoing abandoned load in "
+              +group.thread.getName()
+              )
+            ,x
+            );
+        }
+      }
+    }
+    else
+    {
+      for (URI uri:group.types.keySet())
+      { map.putIfAbsent(uri,group.types.get(uri));
+      }
+      for (Type<?> type:group.types.values())
+      { 
+        if (type.isLinked())
+        { linkedTypes.add(type);
+        }
+      }
+    }
+    
+    for (TypeLoad typeLoad:group.loads)
+    { 
+      if (!group.abandoned)
+      { 
+        Type<?> type=map.get(typeLoad.uri);
+        if (type!=null && (typeLoad.linked || type.isLinked()))
+        { linkedTypes.add(type);
+        }
+      }
+      loads.remove(typeLoad.uri,typeLoad);
+      synchronized (typeLoad)
+      { 
+        typeLoad.done=true;
+        typeLoad.notifyAll();
+      }
+    }
+  }
+  
+  /**
+   * <p>Wait for a TypeLoad owned by another thread to be published or
+   *   abandoned.
+   * </p>
+   * 
+   * <p>If the owner is itself waiting, directly or through other threads,
+   *   for a load in the specified group, the youngest group in the cycle
+   *   is abandoned: its Types are discarded, its waiters are released and
+   *   it is retried after the others publish. Because the Types loaded by
+   *   a group are not visible outside of its thread until published,
+   *   abandoning a group has no effect on other threads, once any side
+   *   effects registered with onAbandon() are reversed.
+   * </p>
+   * 
+   * <p>The abandoned load is unwound with a DataException, which the 
+   *   TypeFactories involved handle as they would any failure to resolve
+   *   a referenced Type.
+   * </p>
+   */
+  private void await(TypeLoad typeLoad,LoadGroup group)
+    throws DataException
+  {
+    Thread thread=Thread.currentThread();
+    waits.put(thread,typeLoad);
+    try
+    {
+      synchronized (typeLoad)
+      {
+        while (!typeLoad.done)
+        {
+          if (group!=null && isYoungestInCycle(group,typeLoad.group))
+          { 
+            if (debugLevel.canLog(Level.FINE))
+            { 
+              log.fine
+                (logMessage("Abandoning load waiting for "+typeLoad.uri
+                  +" from "+typeLoad.group.thread.getName()
+                  )
+                );
+            }
+            group.abandoned=true;
+            throw new DataException(abandonMessage(group,typeLoad.uri));
+          }
+          
+          try
+          { 
+            // Time out to re-check for cycles that form while waiting
+            typeLoad.wait(50);
+          }
+          catch (InterruptedException x)
+          { 
+            Thread.currentThread().interrupt();
+            throw new DataException("Interrupted waiting for "+typeLoad.uri,x);
+          }
+        }
+      }
+    }
+    finally
+    { waits.remove(thread);
+    }
+  }
+  
+  /**
+   * Determine whether the owner of a TypeLoad is waiting, through a chain
+   *   of TypeLoads, for the specified group, and the specified group is 
+   *   the youngest in that chain.
+   */
+  private static boolean isYoungestInCycle(LoadGroup group,LoadGroup owner)
+  {
+    for (int hops=0;owner!=null && hops<64;hops++)
+    {
+      if (owner==group)
+      { return true;
+      }
+      if (owner.age>group.age)
+      { return false;
+      }
+      TypeLoad waiting=waits.get(owner.thread);
+      if (waiting==null)
+      { return false;
+      }
+      owner=waiting.group;
+    }
+    return false;
+  }
+  
+  private String abandonMessage(LoadGroup group,URI typeUri)
+  { 
+    return logMessage
+      ("Load in "+group.thread.getName()+" abandoned at "+typeUri
+      +" to resolve a concurrent cycle"
+      );
+  }
+  
   private String logMessage(String message)
   { return "#"+id+": "+message;
   }
@@ -733,4 +1237,47 @@ public class TypeResolver
   }
 
   
-}
\ No newline at end of file
+  /**
+   * A claim by one thread to load and link a Type
+   */
+  private static class TypeLoad
+  {
+    final URI uri;
+    final LoadGroup group;
+    volatile boolean done;
+    boolean linked;
+    
+    TypeLoad(URI uri,LoadGroup group)
+    { 
+      this.uri=uri;
+      this.group=group;
+    }
+  }
+  
+  /**
+   * The Types loaded by a thread's outermost load, including any that are
+   *   pre-registered, which are published together
+   */
+  private static class LoadGroup
+  {
+    private static final AtomicLong NEXT_AGE=new AtomicLong();
+    
+    final Thread thread;
+    final long age;
+    final HashMap<URI,Type<?>> types=new HashMap<>();
+    final ArrayList<TypeLoad> loads=new ArrayList<>();
+    final ArrayList<Runnable> undos=new ArrayList<>();
+    LoadGroup outer;
+    int depth;
+    volatile boolean abandoned;
+    
+    /**
+     * @param age The age of a previous attempt at the same load, or 0
+     */
+    LoadGroup(Thread thread,long age)
+    { 
+      this.thread=thread;
+      this.age=age!=0?age:NEXT_AGE.incrementAndGet();
+    }
+  }
+}
@@ -14,8 +14,8 @@
 //
 package spiralcraft.data.access.cache;
 
-import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
 
 import spiralcraft.data.Aggregate;
 import spiralcraft.data.DataException;
@@ -32,7 +32,13 @@ import spiralcraft.log.Level;
 import spiralcraft.util.KeyFunction;
 
 /**
- * A set of CacheEntries associated with a particular keying scheme 
+ * <p>A set of CacheEntries associated with a particular keying scheme 
+ * </p>
+ * 
+ * <p>Cache hits are served without locking. A miss locks only the entry
+ *   being loaded, so that concurrent misses for the same key share one
+ *   backing store fetch.
+ * </p>
  * 
  * @author mike
  *
@@ -44,8 +50,8 @@ public class CacheIndex
   private final EntityCache cache;
   private final Projection<Tuple> key;
   private final KeyFunction<KeyTuple,Tuple> keyFunction;
-  private final HashMap<KeyTuple,IndexEntry> map
-    =new HashMap<KeyTuple,IndexEntry>();
+  private final ConcurrentHashMap<KeyTuple,IndexEntry> map
+    =new ConcurrentHashMap<KeyTuple,IndexEntry>();
   private final PrimarySet primary;
 
   public CacheIndex(EntityCache cache,Projection<Tuple> key,PrimarySet primary)
@@ -60,22 +66,28 @@ public class CacheIndex
   { return cache.getAggregateType();
   }
   
+  EntityCache getCache()
+  { return cache;
+  }
+  
   
   private IndexEntry entry(KeyTuple keyTuple)
   {
-    synchronized (map)
+    IndexEntry entry=map.get(keyTuple);
+    if (entry==null)
     { 
-      IndexEntry entry=map.get(keyTuple);
-      if (entry==null)
-      { 
-        if (logLevel.isFine())
-        { log.fine("New cache entry for "+key.getType().getURI()+" "+keyTuple);
-        }
-        entry=new IndexEntry(this);
-        map.put(keyTuple,entry);
-      }
-      return entry;
+      entry=map.computeIfAbsent
+        (keyTuple
+        ,k -> 
+          {
+            if (logLevel.isFine())
+            { log.fine("New cache entry for "+key.getType().getURI()+" "+k);
+            }
+            return new IndexEntry(this,k);
+          }
+        );
     }
+    return entry;
   }
   
   
@@ -93,17 +105,28 @@ public class CacheIndex
     { return branch.fetch(key,keyTuple,backing);
     }
     
+    IndexEntry entry=entry(keyTuple);
+    Aggregate<JournalTuple> data=entry.get();
+    if (data!=null)
+    { 
+      if (logLevel.isFine())
+      { log.fine("Cache hit for "+key.getType().getURI()+" "+keyTuple);
+      }
+      cache.recordHit(entry);
+      return new ListCursor<JournalTuple>(data);
+    }
+    
     try
     {
-      IndexEntry entry=entry(keyTuple);
       synchronized (entry)
       {
-        Aggregate<JournalTuple> data=entry.get();
+        data=entry.get();
         if (data==null)
         {
           if (logLevel.isTrace())
           { log.fine("Cache miss for "+key.getType().getURI()+" "+keyTuple);
           }
+          cache.recordMiss();
           SerialCursor<Tuple> cursor=backing.fetch(keyTuple);
           try
           {
@@ -131,6 +154,7 @@ public class CacheIndex
           if (logLevel.isFine())
           { log.fine("Cache hit for "+key.getType().getURI()+" "+keyTuple);
           }
+          cache.recordHit(entry);
         }
         return new ListCursor<JournalTuple>(data);
       }
@@ -142,20 +166,39 @@ public class CacheIndex
 
 
     
+  /**
+   * Remove an entry that was evicted, unless it has already been replaced
+   */
+  void removeEntry(KeyTuple keyTuple,IndexEntry entry)
+  { map.remove(keyTuple,entry);
+  }
+  
+  /**
+   * Discard all entries
+   */
+  void clear()
+  { map.clear();
+  }
+  
+  private IndexEntry existingEntry(KeyTuple keyTuple)
+  { return map.get(keyTuple);
+  }
+    
   void inserted(JournalTuple newValue)
   {
-    KeyTuple newKey=keyFunction.key(newValue);
-    IndexEntry entry=entry(newKey);
-    entry.movedIn(newValue);
-    
+    // Entries that have not been fetched have nothing to update
+    IndexEntry entry=existingEntry(keyFunction.key(newValue));
+    if (entry!=null)
+    { entry.movedIn(newValue);
+    }
   }
 
   void deleted(JournalTuple oldValue)
   {
-    KeyTuple newKey=keyFunction.key(oldValue);
-    IndexEntry entry=entry(newKey);
-    entry.movedOut(oldValue);
-    
+    IndexEntry entry=existingEntry(keyFunction.key(oldValue));
+    if (entry!=null)
+    { entry.movedOut(oldValue);
+    }
   }
   
   void updated(JournalTuple oldValue,JournalTuple newValue)
@@ -164,19 +207,19 @@ public class CacheIndex
     KeyTuple newKey=keyFunction.key(newValue);
     if (oldKey.equals(newKey))
     { 
-      IndexEntry entry=map.get(oldKey);
+      IndexEntry entry=existingEntry(oldKey);
       if (entry!=null)
       { entry.updated(oldValue,newValue);
       }
     }
     else
     {
-      IndexEntry entry=map.get(oldKey);
+      IndexEntry entry=existingEntry(oldKey);
       if (entry!=null)
       { entry.movedOut(oldValue);
       }
       
-      entry=map.get(newKey);
+      entry=existingEntry(newKey);
       if (entry!=null)
       { entry.movedIn(newValue);
       }
@@ -185,6 +228,4 @@ public class CacheIndex
   
   
   
-}
-
-
+}
\ No newline at end of file
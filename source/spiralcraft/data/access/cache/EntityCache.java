@@ -14,7 +14,8 @@
 //
 package spiralcraft.data.access.cache;
 
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import spiralcraft.data.DataException;
 import spiralcraft.data.DeltaTuple;
@@ -30,6 +31,10 @@ import spiralcraft.data.transaction.WorkException;
 import spiralcraft.data.transaction.WorkUnit;
 import spiralcraft.log.ClassLog;
 import spiralcraft.log.Level;
+import spiralcraft.meter.Meter;
+import spiralcraft.meter.MeterContext;
+import spiralcraft.meter.Register;
+import spiralcraft.time.Clock;
 
 
 
@@ -40,6 +45,17 @@ import spiralcraft.log.Level;
  * <p>An EntityCache manages a CacheIndex for each key in the Entity
  * </p>
  * 
+ * <p>By default, the query results held by the CacheIndexes are softly
+ *   referenced and are discarded at the discretion of the garbage collector.
+ *   When a capacity is configured, results are strongly referenced and the
+ *   number of cached results is bounded by a frequency-aware eviction
+ *   policy. Results can also be expired by age.
+ * </p>
+ * 
+ * <p>Reads do not acquire a cache-wide lock. Transactions that modify the
+ *   cache are applied one at a time.
+ * </p>
+ * 
  * @author mike
  *
  */
@@ -52,12 +68,26 @@ public class EntityCache
     =new CacheResourceManager(this);
   
   final PrimarySet primary;
-  final HashMap<Projection<?>,CacheIndex> indices
-    =new HashMap<Projection<?>,CacheIndex>();
-  Object monitor=new Object();
+  final ConcurrentHashMap<Projection<?>,CacheIndex> indices
+    =new ConcurrentHashMap<Projection<?>,CacheIndex>();
+  
+  // Serializes transactions applying changes to the cache. Readers do not
+  //   acquire it.
+  final Object monitor=new Object();
 
   private Level logLevel=Level.INFO;
   
+  private TinyLfuPolicy<IndexEntry> policy;
+  private long maxAgeMs;
+  
+  private Meter meter;
+  private Register hitsRegister;
+  private Register missesRegister;
+  private Register evictionsRegister;
+  private Register expirationsRegister;
+  private Register purgesRegister;
+  private Register sizeRegister;
+  
   public EntityCache(Type<?> t) 
     throws DataException
   { 
@@ -66,6 +96,158 @@ public class EntityCache
     this.primary=new PrimarySet(this);
   }
   
+  /**
+   * <p>The maximum number of query results to retain across all the indexes
+   *   of this cache. When set, results are no longer softly referenced and
+   *   are instead evicted by a W-TinyLFU style policy that favors frequently
+   *   accessed results.
+   * </p>
+   * 
+   * <p>A capacity of 0 (the default) reverts to softly referenced results.
+   * </p>
+   */
+  public void setCapacity(int capacity)
+  {
+    synchronized (monitor)
+    {
+      if (policy!=null)
+      { 
+        // Cached results are held by soft or strong references depending on
+        //   the policy, so start over
+        for (CacheIndex index: indices.values())
+        { index.clear();
+        }
+      }
+      policy=capacity>0?new TinyLfuPolicy<IndexEntry>(capacity):null;
+    }
+  }
+  
+  public int getCapacity()
+  { 
+    TinyLfuPolicy<IndexEntry> policy=this.policy;
+    return policy!=null?policy.getCapacity():0;
+  }
+  
+  /**
+   * The maximum age, in milliseconds, of a cached query result before it is
+   *   re-fetched from the backing store, or 0 for no expiration.
+   */
+  public void setMaxAgeMs(long maxAgeMs)
+  { this.maxAgeMs=maxAgeMs;
+  }
+  
+  public long getMaxAgeMs()
+  { return maxAgeMs;
+  }
+  
+  /**
+   * <p>Report the hits, misses, evictions, expirations and purges of this
+   *   cache, and the number of results retained by a bounded cache, in a 
+   *   Meter named for the cached Type within an "entityCache" subcontext
+   *   of the specified MeterContext.
+   * </p>
+   * 
+   * <p>Called by the owner of the cache from its own meter setup.
+   * </p>
+   */
+  public void installMeter(MeterContext meterContext)
+  {
+    meter=meterContext.subcontext("entityCache")
+      .meter(type.getURI().toString());
+    hitsRegister=meter.stripedRegister("hits");
+    missesRegister=meter.stripedRegister("misses");
+    evictionsRegister=meter.register("evictions");
+    expirationsRegister=meter.register("expirations");
+    purgesRegister=meter.register("purges");
+    sizeRegister=meter.register("size");
+  }
+  
+  boolean isBounded()
+  { return policy!=null;
+  }
+  
+  /**
+   * Whether a result fetched at the specified time has expired
+   */
+  boolean isExpired(long fetchTime)
+  { 
+    return maxAgeMs>0 
+      && Clock.instance().approxTimeMillis()-fetchTime>maxAgeMs;
+  }
+  
+  void recordHit(IndexEntry entry)
+  { 
+    TinyLfuPolicy<IndexEntry> policy=this.policy;
+    if (policy!=null)
+    { policy.onAccess(entry);
+    }
+    if (meter!=null)
+    { hitsRegister.inc();
+    }
+  }
+  
+  void recordMiss()
+  {
+    if (meter!=null)
+    { missesRegister.inc();
+    }
+  }
+  
+  void recordExpiration()
+  {
+    if (meter!=null)
+    { expirationsRegister.inc();
+    }
+  }
+  
+  void recordPurges(int count)
+  {
+    if (meter!=null)
+    { purgesRegister.adj(count);
+    }
+  }
+  
+  /**
+   * Register a newly fetched result with the eviction policy, and evict
+   *   any results displaced by it.
+   */
+  void admit(IndexEntry entry)
+  {
+    TinyLfuPolicy<IndexEntry> policy=this.policy;
+    if (policy==null)
+    { return;
+    }
+    
+    List<IndexEntry> evicted=policy.onInsert(entry);
+    if (evicted!=null)
+    {
+      for (IndexEntry victim: evicted)
+      { 
+        victim.evict();
+        if (logLevel.isFine())
+        { log.fine("Evicted "+victim);
+        }
+      }
+      if (meter!=null)
+      { evictionsRegister.adj(evicted.size());
+      }
+    }
+    if (meter!=null)
+    { sizeRegister.setValue(policy.size());
+    }
+  }
+  
+  /**
+   * Stop tracking a result that was discarded
+   */
+  void discarded(IndexEntry entry)
+  {
+    TinyLfuPolicy<IndexEntry> policy=this.policy;
+    if (policy!=null)
+    { policy.onRemove(entry);
+    }
+  }
+  
   Type<?> getAggregateType()
   { return aggregateType;
   }
@@ -81,10 +263,7 @@ public class EntityCache
     if (branch!=null)
     { return branch.cache(tuple);
     }
-    
-    synchronized (monitor)
-    { return primary.cache(tuple);
-    }
+    return primary.cache(tuple);
   }
   
   public SerialCacheCursor cache(SerialCursor<?> cursor)
@@ -95,21 +274,21 @@ public class EntityCache
   public CacheIndex getIndex(Projection<Tuple> key)
     throws DataException
   { 
-    synchronized (monitor)
-    {
-      CacheIndex ret=indices.get(key);
-      if (ret==null)
-      { 
-        if (logLevel.isFine())
-        { log.fine("Creating cache index for "+key);
-        }
-        ret
-          =new CacheIndex
-            (this,key,primary);
-        indices.put(key,ret);
-      }
-      return ret;
+    CacheIndex ret=indices.get(key);
+    if (ret==null)
+    { 
+      ret=indices.computeIfAbsent
+        (key
+        ,k -> 
+          {
+            if (logLevel.isFine())
+            { log.fine("Creating cache index for "+key);
+            }
+            return new CacheIndex(this,key,primary);
+          }
+        );
     }
+    return ret;
   }
 
   
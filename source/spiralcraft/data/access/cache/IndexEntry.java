@@ -16,33 +16,57 @@ package spiralcraft.data.access.cache;
 
 import java.lang.ref.Reference;
 import java.lang.ref.SoftReference;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import spiralcraft.data.Aggregate;
 import spiralcraft.data.DataException;
-import spiralcraft.data.EditableAggregate;
 import spiralcraft.data.JournalTuple;
-import spiralcraft.data.spi.EditableListAggregate;
+import spiralcraft.data.KeyTuple;
+import spiralcraft.data.spi.ListAggregate;
+import spiralcraft.time.Clock;
 
 /**
  * <p>Holds the set of Tuples that match a given key value.
  * </p>
  * 
+ * <p>The data is softly referenced unless the EntityCache is bounded by a
+ *   capacity, in which case it is strongly referenced until the eviction
+ *   policy evicts this entry.
+ * </p>
+ * 
+ * <p>The published data is immutable and is read without locking. Updates
+ *   copy the data and publish the modified copy.
+ * </p>
+ * 
  * @author mike
  *
  */
-//XXX: Upgrade from using SoftReferences to something more predictable
 public class IndexEntry
 {
 
   private final CacheIndex index;
-  private volatile Reference<EditableListAggregate<JournalTuple>> ref;
+  private final KeyTuple key;
+  private volatile Reference<ListAggregate<JournalTuple>> ref;
+  private volatile ListAggregate<JournalTuple> data;
+  private volatile long fetchTime;
+  private volatile boolean evicted;
   
-  IndexEntry(CacheIndex index)
-  { this.index=index;
+  IndexEntry(CacheIndex index,KeyTuple key)
+  { 
+    this.index=index;
+    this.key=key;
   }
   
+  private ListAggregate<JournalTuple> data()
+  {
+    ListAggregate<JournalTuple> data=this.data;
+    if (data!=null)
+    { return data;
+    }
+    Reference<ListAggregate<JournalTuple>> ref=this.ref;
+    return ref!=null?ref.get():null;
+  }
   
   /**
    * 
@@ -50,53 +74,53 @@ public class IndexEntry
    * @param newValue
    */
   void updated(JournalTuple oldValue,JournalTuple newValue)
-  {
-    if (ref==null)
-    { 
-      // Not yet initialized
-      return;
-    }
-    
-    EditableAggregate<JournalTuple> data=ref.get();
-    if (data==null)
-    { 
-      // This reference has expired
-      return;
-    }
-    data.remove(oldValue);
-    data.add(newValue);
+  { modify(oldValue,newValue);
   }
   
   void movedOut(JournalTuple oldValue)
+  { modify(oldValue,null);
+  }
+
+  void movedIn(JournalTuple newValue)
+  { modify(null,newValue);
+  }
+  
+  /**
+   * Publish a copy of the data with the old value removed and the new value
+   *   added. Writers are serialized by the EntityCache, so only readers can
+   *   run concurrently.
+   */
+  private void modify(JournalTuple oldValue,JournalTuple newValue)
   {
-    if (ref==null)
-    { 
-      // Not yet initialized
-      return;
-    }
-    EditableAggregate<JournalTuple> data=ref.get();
+    ListAggregate<JournalTuple> data=data();
     if (data==null)
     { 
-      // This reference has expired
+      // Not yet initialized, or this reference has expired
       return;
     }
-    data.remove(oldValue);
+    
+    ArrayList<JournalTuple> list
+      =new ArrayList<JournalTuple>(data.size()+1);
+    for (JournalTuple tuple: data)
+    { list.add(tuple);
+    }
+    if (oldValue!=null)
+    { list.remove(oldValue);
+    }
+    if (newValue!=null)
+    { list.add(newValue);
+    }
+    publish(new ListAggregate<JournalTuple>(data.getType(),list));
   }
-
-  void movedIn(JournalTuple newValue)
+  
+  private void publish(ListAggregate<JournalTuple> data)
   {
-    if (ref==null)
-    { 
-      // Not yet initialized
-      return;
+    if (this.data!=null)
+    { this.data=data;
     }
-    EditableAggregate<JournalTuple> data=ref.get();
-    if (data==null)
-    { 
-      // This reference has expired
-      return;
+    else
+    { ref=new SoftReference<ListAggregate<JournalTuple>>(data);
     }
-    data.add(newValue);
   }
   
   /**
@@ -109,30 +133,60 @@ public class IndexEntry
   Aggregate<JournalTuple> fetched(List<JournalTuple> cursor)
     throws DataException
   { 
-    EditableListAggregate<JournalTuple> data
-      =new EditableListAggregate<JournalTuple>
+    ListAggregate<JournalTuple> data
+      =new ListAggregate<JournalTuple>
         (index.getAggregateType()
-        ,new LinkedList<JournalTuple>()
+        ,new ArrayList<JournalTuple>(cursor)
         );
-    data.addAll(cursor.iterator());
-    ref=new SoftReference<EditableListAggregate<JournalTuple>>(data);
-    return data.snapshot();
+    if (!evicted)
+    {
+      EntityCache cache=index.getCache();
+      fetchTime=Clock.instance().approxTimeMillis();
+      if (cache.isBounded())
+      { 
+        this.data=data;
+        cache.admit(this);
+      }
+      else
+      { ref=new SoftReference<ListAggregate<JournalTuple>>(data);
+      }
+    }
+    return data;
   }
   
-
-
+  /**
+   * Discard the data and remove this entry from its index
+   */
+  void evict()
+  {
+    evicted=true;
+    data=null;
+    ref=null;
+    index.removeEntry(key,this);
+  }
     
   Aggregate<JournalTuple> get()
     throws DataException
   { 
-    if (ref==null)
-    { return null;
-    }
-    Aggregate<JournalTuple> data=ref.get();
+    Aggregate<JournalTuple> data=data();
     if (data==null)
     { return null;
     }
-    return data.snapshot();
+    
+    EntityCache cache=index.getCache();
+    if (cache.isExpired(fetchTime))
+    { 
+      this.data=null;
+      this.ref=null;
+      cache.discarded(this);
+      cache.recordExpiration();
+      return null;
+    }
+    return data;
   }
   
-}
+  @Override
+  public String toString()
+  { return super.toString()+": key="+key;
+  }
+}
\ No newline at end of file
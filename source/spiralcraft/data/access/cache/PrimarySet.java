@@ -14,8 +14,11 @@
 //
 package spiralcraft.data.access.cache;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import spiralcraft.data.DataException;
 import spiralcraft.data.Identifier;
@@ -26,8 +29,19 @@ import spiralcraft.log.ClassLog;
 import spiralcraft.log.Level;
 
 /**
- * Holds canonical references to Tuples referenced in 
+ * <p>Holds canonical references to Tuples referenced in 
  *   app memory.
+ * </p>
+ * 
+ * <p>Tuples are weakly referenced. Entries for Tuples that have been
+ *   garbage collected are purged from the set via a ReferenceQueue as the
+ *   set is accessed.
+ * </p>
+ * 
+ * <p>Lookups do not lock. Each entry replaces its reference with a
+ *   compare-and-set, so concurrent threads normalizing the same Tuple
+ *   agree on a single canonical instance.
+ * </p>
  * 
  * @author mike
  *
@@ -37,8 +51,10 @@ public class PrimarySet
   final ClassLog log=ClassLog.getInstance(getClass());
   Level logLevel=Level.INFO;
   private final EntityCache cache;
-  private final HashMap<Identifier,TupleReference> map
-    =new HashMap<Identifier,TupleReference>();
+  private final ConcurrentHashMap<Identifier,TupleReference> map
+    =new ConcurrentHashMap<Identifier,TupleReference>();
+  final ReferenceQueue<JournalTuple> queue
+    =new ReferenceQueue<JournalTuple>();
   
   PrimarySet(EntityCache cache)
   { this.cache=cache;
@@ -46,19 +62,22 @@ public class PrimarySet
   
   private TupleReference entry(Identifier id)
   {
-    synchronized (map)
+    purge();
+    TupleReference entry=map.get(id);
+    if (entry==null)
     { 
-      TupleReference entry=map.get(id);
-      if (entry==null)
-      { 
-        if (logLevel.isFine())
-        { log.fine("New tuple reference for "+cache.getType().getURI()+" "+id);
-        }
-        entry=new TupleReference(this);
-        map.put(id,entry);
-      }
-      return entry;
+      entry=map.computeIfAbsent
+        (id
+        ,k -> 
+          {
+            if (logLevel.isFine())
+            { log.fine("New tuple reference for "+cache.getType().getURI()+" "+k);
+            }
+            return new TupleReference(this,k);
+          }
+        );
     }
+    return entry;
   }  
   
   /**
@@ -71,41 +90,96 @@ public class PrimarySet
    */
   JournalTuple cache(Tuple tuple)
     throws DataException
-  { return entry(tuple.getId()).cache(tuple);
+  { 
+    JournalTuple ret;
+    // Retry if the entry was purged concurrently
+    while ((ret=entry(tuple.getId()).cache(tuple))==null)
+    { 
+    }
+    return ret;
   }  
   
   JournalTuple get(Identifier id)
   {
-    synchronized (map)
-    {
-      TupleReference entry=map.get(id);
-      if (entry==null)
-      { return null;
-      }
-      else
-      { return entry.get();
-      }
+    TupleReference entry=map.get(id);
+    if (entry==null)
+    { return null;
+    }
+    else
+    { return entry.get();
     }
-    
   }
   
   JournalTuple replace(Identifier id,JournalTuple data)
-  { return entry(id).replace(data);
+  { 
+    while (true)
+    {
+      TupleWeakReference previous=entry(id).replace(data);
+      if (previous!=TupleReference.REMOVED)
+      { return previous!=null?previous.get():null;
+      }
+      // Entry was purged concurrently- retry with a fresh one
+    }
   }
     
   void removeEntry(Identifier id)
   { map.remove(id);
   }
   
+  int size()
+  { 
+    purge();
+    return map.size();
+  }
+  
+  /**
+   * Remove the entries whose Tuples have been collected. An entry is only
+   *   removed if it still refers to the collected reference.
+   */
+  private void purge()
+  {
+    int count=0;
+    Reference<? extends JournalTuple> ref;
+    while ((ref=queue.poll())!=null)
+    {
+      TupleWeakReference dead=(TupleWeakReference) ref;
+      TupleReference entry=map.get(dead.id);
+      if (entry!=null && entry.isCleared(dead) && map.remove(dead.id,entry))
+      { count++;
+      }
+    }
+    if (count>0)
+    { 
+      cache.recordPurges(count);
+      if (logLevel.isFine())
+      { log.fine("Purged "+count+" collected entries for "+cache.getType().getURI());
+      }
+    }
+  }
+  
 }
 
 class TupleReference
 {
+  private static final AtomicReferenceFieldUpdater
+    <TupleReference,TupleWeakReference> REF
+    =AtomicReferenceFieldUpdater.newUpdater
+      (TupleReference.class,TupleWeakReference.class,"ref");
+  
+  /**
+   * Marks an entry that has been purged from the set
+   */
+  static final TupleWeakReference REMOVED
+    =new TupleWeakReference(null,null,null);
+  
   final PrimarySet set;
-  volatile WeakReference<JournalTuple> ref;
+  final Identifier id;
+  volatile TupleWeakReference ref;
   
-  TupleReference(PrimarySet set)
-  { this.set=set;
+  TupleReference(PrimarySet set,Identifier id)
+  { 
+    this.set=set;
+    this.id=id;
   }
   
   /**
@@ -113,49 +187,97 @@ class TupleReference
    *   normalized version
    *   
    * @param foreign
-   * @return
+   * @return The normalized Tuple, or null if this entry has been purged
    * @throws DataException
    */
-  synchronized JournalTuple cache(Tuple foreign)
+  JournalTuple cache(Tuple foreign)
     throws DataException
   { 
-    JournalTuple data;
-    if (ref!=null)
+    JournalTuple normal=null;
+    while (true)
     {
-      data=ref.get();
-      if (data!=null)
-      { return data;
+      TupleWeakReference current=ref;
+      if (current==REMOVED)
+      { return null;
+      }
+      if (current!=null)
+      {
+        JournalTuple data=current.get();
+        if (data!=null)
+        { return data;
+        }
       }
-    }
     
-    JournalTuple normal;
-    if (!(foreign instanceof JournalTuple))
-    { normal=new ArrayJournalTuple(foreign);
-    }
-    else
-    { normal=(JournalTuple) foreign;
+      if (normal==null)
+      {
+        if (!(foreign instanceof JournalTuple))
+        { normal=new ArrayJournalTuple(foreign);
+        }
+        else
+        { normal=(JournalTuple) foreign;
+        }
+      }
+      if (REF.compareAndSet(this,current,newRef(normal)))
+      { return normal;
+      }
+      // Lost a race with another thread- use its value
     }
-    ref=new WeakReference<JournalTuple>(normal);
-    return normal;
   }  
   
-  synchronized JournalTuple get()
+  JournalTuple get()
   {
-    if (ref==null)
+    TupleWeakReference current=ref;
+    if (current==null || current==REMOVED)
     { return null;
     }
-    return ref.get();
+    return current.get();
   }
   
-  synchronized JournalTuple replace(JournalTuple newData)
+  /**
+   * Replace the referenced Tuple
+   * 
+   * @return The displaced reference, or REMOVED if this entry has been
+   *   purged and the replacement did not take place
+   */
+  TupleWeakReference replace(JournalTuple newData)
   { 
-    JournalTuple ret=ref!=null?ref.get():null;
-    replaceRef(newData);
-    return ret;
+    TupleWeakReference newRef=newRef(newData);
+    while (true)
+    {
+      TupleWeakReference current=ref;
+      if (current==REMOVED
+          || REF.compareAndSet(this,current,newRef)
+         )
+      { return current;
+      }
+    }
   }
   
-  private void replaceRef(JournalTuple newValue)
-  { ref=new WeakReference<JournalTuple>(newValue);
+  /**
+   * Whether the specified collected reference is still the current one, ie.
+   *   the entry no longer refers to a live Tuple. If so, the entry is marked
+   *   as removed.
+   */
+  boolean isCleared(TupleWeakReference dead)
+  { return REF.compareAndSet(this,dead,REMOVED);
   }
+
   
+  private TupleWeakReference newRef(JournalTuple newValue)
+  { return new TupleWeakReference(newValue,id,set.queue);
+  }
+  
+}
+
+class TupleWeakReference
+  extends WeakReference<JournalTuple>
+{
+  final Identifier id;
+  
+  TupleWeakReference
+    (JournalTuple referent,Identifier id,ReferenceQueue<JournalTuple> queue)
+  { 
+    super(referent,queue);
+    this.id=id;
+  }
 }
@@ -0,0 +1,376 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.access.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>A size-bounded admission and eviction policy in the style of
+ *   W-TinyLFU.
+ * </p>
+ * 
+ * <p>New keys enter a small LRU window. Keys leaving the window compete for
+ *   a place in the main space against the least recently used key of its
+ *   probation segment, and the key with the higher estimated access 
+ *   frequency is retained. Keys accessed while on probation are promoted to
+ *   a protected segment. Access frequencies are estimated by a count-min
+ *   sketch that is periodically halved so that the policy adapts to changes
+ *   in popularity.
+ * </p>
+ * 
+ * <p>The policy only tracks keys. The caller retains the values and discards
+ *   those whose keys are returned as evicted.
+ * </p>
+ * 
+ * <p>Accesses are recorded in a set of small per-thread-striped buffers
+ *   without locking, and applied to the policy in batches by whichever 
+ *   reader fills a buffer and can acquire the policy lock without waiting.
+ *   The buffers are lossy: an access may be overwritten before it is 
+ *   applied, which only makes the frequency estimates slightly less 
+ *   precise. Inserts and removals take the policy lock and apply any
+ *   buffered accesses first.
+ * </p>
+ * 
+ * @author mike
+ *
+ * @param <K>
+ */
+public class TinyLfuPolicy<K>
+{
+  private final int capacity;
+  private final int windowCapacity;
+  private final int protectedCapacity;
+  
+  private final LinkedHashMap<K,Boolean> window
+    =new LinkedHashMap<K,Boolean>(16,0.75f,true);
+  private final LinkedHashMap<K,Boolean> probation
+    =new LinkedHashMap<K,Boolean>(16,0.75f,true);
+  private final LinkedHashMap<K,Boolean> protectedSegment
+    =new LinkedHashMap<K,Boolean>(16,0.75f,true);
+  private final FrequencySketch sketch;
+  
+  private final ReentrantLock lock=new ReentrantLock();
+  private final ReadBuffer[] readBuffers;
+  private final int readBufferMask;
+  
+  public TinyLfuPolicy(int capacity)
+  {
+    if (capacity<1)
+    { throw new IllegalArgumentException("Capacity must be at least 1");
+    }
+    this.capacity=capacity;
+    this.windowCapacity=Math.max(1,capacity/100);
+    this.protectedCapacity=(int) ((capacity-windowCapacity)*0.8);
+    this.sketch=new FrequencySketch(capacity);
+    
+    int stripes
+      =Integer.highestOneBit
+        (Math.min(16,Runtime.getRuntime().availableProcessors()*2));
+    readBuffers=new ReadBuffer[stripes];
+    for (int i=0;i<stripes;i++)
+    { readBuffers[i]=new ReadBuffer();
+    }
+    readBufferMask=stripes-1;
+  }
+  
+  public int getCapacity()
+  { return capacity;
+  }
+  
+  public int size()
+  { 
+    lock.lock();
+    try
+    { return window.size()+probation.size()+protectedSegment.size();
+    }
+    finally
+    { lock.unlock();
+    }
+  }
+  
+  /**
+   * <p>Record an access to a resident key.
+   * </p>
+   * 
+   * <p>The access is buffered, and is applied when the buffer fills if the
+   *   policy lock is free. The caller never waits for the lock.
+   * </p>
+   */
+  public void onAccess(K key)
+  {
+    ReadBuffer buffer
+      =readBuffers[(int) Thread.currentThread().threadId() & readBufferMask];
+    if (buffer.offer(key) && lock.tryLock())
+    { 
+      try
+      { drainReadBuffers();
+      }
+      finally
+      { lock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Apply the buffered accesses. Must be called with the lock held.
+   */
+  @SuppressWarnings("unchecked")
+  private void drainReadBuffers()
+  {
+    for (ReadBuffer buffer:readBuffers)
+    {
+      for (int i=0;i<ReadBuffer.SIZE;i++)
+      {
+        Object key=buffer.slots.getAndSet(i,null);
+        if (key!=null)
+        { applyAccess((K) key);
+        }
+      }
+    }
+  }
+  
+  private void applyAccess(K key)
+  {
+    sketch.increment(key);
+    if (window.get(key)!=null || protectedSegment.get(key)!=null)
+    { 
+      // LinkedHashMap.get() moved it to the MRU position
+      return;
+    }
+    
+    if (probation.remove(key)!=null)
+    { 
+      protectedSegment.put(key,Boolean.TRUE);
+      if (protectedSegment.size()>protectedCapacity)
+      { 
+        // Demote the LRU protected key
+        K demoted=removeEldest(protectedSegment);
+        probation.put(demoted,Boolean.TRUE);
+      }
+    }
+  }
+  
+  /**
+   * Admit a new key.
+   * 
+   * @return The keys that were evicted as a result, which may include the
+   *   new key itself
+   */
+  public List<K> onInsert(K key)
+  {
+    lock.lock();
+    try
+    { 
+      drainReadBuffers();
+      return insert(key);
+    }
+    finally
+    { lock.unlock();
+    }
+  }
+  
+  private List<K> insert(K key)
+  {
+    sketch.increment(key);
+    window.put(key,Boolean.TRUE);
+    if (window.size()<=windowCapacity)
+    { return null;
+    }
+    
+    List<K> evicted=new ArrayList<K>(1);
+    K candidate=removeEldest(window);
+    int mainSize=probation.size()+protectedSegment.size();
+    if (mainSize<capacity-windowCapacity)
+    { probation.put(candidate,Boolean.TRUE);
+    }
+    else if (mainSize==0)
+    { 
+      // The window takes the whole capacity, so there is nothing for the
+      //   candidate to compete with
+      evicted.add(candidate);
+    }
+    else
+    {
+      LinkedHashMap<K,Boolean> victimSegment
+        =!probation.isEmpty()?probation:protectedSegment;
+      K victim=victimSegment.keySet().iterator().next();
+      if (sketch.frequency(candidate)>sketch.frequency(victim))
+      { 
+        victimSegment.remove(victim);
+        probation.put(candidate,Boolean.TRUE);
+        evicted.add(victim);
+      }
+      else
+      { evicted.add(candidate);
+      }
+    }
+    return evicted;
+  }
+  
+  /**
+   * Stop tracking a key that was removed by the caller
+   */
+  public void onRemove(K key)
+  {
+    lock.lock();
+    try
+    {
+      drainReadBuffers();
+      if (window.remove(key)==null && probation.remove(key)==null)
+      { protectedSegment.remove(key);
+      }
+    }
+    finally
+    { lock.unlock();
+    }
+  }
+  
+  public void clear()
+  {
+    lock.lock();
+    try
+    {
+      for (ReadBuffer buffer:readBuffers)
+      { 
+        for (int i=0;i<ReadBuffer.SIZE;i++)
+        { buffer.slots.set(i,null);
+        }
+      }
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+    }
+    finally
+    { lock.unlock();
+    }
+  }
+  
+  private K removeEldest(LinkedHashMap<K,Boolean> segment)
+  {
+    Iterator<K> it=segment.keySet().iterator();
+    K eldest=it.next();
+    it.remove();
+    return eldest;
+  }
+  
+  /**
+   * <p>A fixed size ring of recent accesses for a stripe of threads. 
+   *   Writers claim slots with an atomic counter and overwrite entries that
+   *   have not yet been drained.
+   * </p>
+   */
+  static class ReadBuffer
+  {
+    static final int SIZE=16;
+    
+    final AtomicReferenceArray<Object> slots
+      =new AtomicReferenceArray<Object>(SIZE);
+    private final AtomicInteger writes=new AtomicInteger();
+    
+    /**
+     * @return true if this write filled the buffer, and it should be
+     *   drained
+     */
+    boolean offer(Object key)
+    {
+      int index=writes.getAndIncrement() & (SIZE-1);
+      slots.lazySet(index,key);
+      return index==SIZE-1;
+    }
+  }
+  
+  /**
+   * <p>A count-min sketch of 4-bit counters which estimates how often a key
+   *   has been seen. All counters are halved after a sample period
+   *   proportional to the capacity.
+   * </p>
+   */
+  static class FrequencySketch
+  {
+    private static final int[] SEEDS
+      ={0x97cb3127,0xb9a31a5b,0xf4e8ecd9,0x8b1b9e7f};
+    private static final int MAX_COUNT=15;
+    
+    private final byte[][] table;
+    private final int mask;
+    private final int samplePeriod;
+    private int additions;
+    
+    FrequencySketch(int capacity)
+    {
+      int width=Integer.highestOneBit(Math.max(capacity,8)-1)<<1;
+      table=new byte[SEEDS.length][width];
+      mask=width-1;
+      samplePeriod=Math.max(capacity,8)*10;
+    }
+    
+    void increment(Object key)
+    {
+      int hash=spread(key.hashCode());
+      boolean added=false;
+      for (int i=0;i<SEEDS.length;i++)
+      { 
+        int index=indexOf(hash,i);
+        if (table[i][index]<MAX_COUNT)
+        { 
+          table[i][index]++;
+          added=true;
+        }
+      }
+      if (added && ++additions>=samplePeriod)
+      { reset();
+      }
+    }
+    
+    int frequency(Object key)
+    {
+      int hash=spread(key.hashCode());
+      int min=MAX_COUNT;
+      for (int i=0;i<SEEDS.length;i++)
+      { min=Math.min(min,table[i][indexOf(hash,i)]);
+      }
+      return min;
+    }
+    
+    private int indexOf(int hash,int row)
+    { 
+      int h=(hash+SEEDS[row])*SEEDS[row];
+      return (h^(h>>>16)) & mask;
+    }
+    
+    private void reset()
+    {
+      for (byte[] row: table)
+      {
+        for (int i=0;i<row.length;i++)
+        { row[i]=(byte) (row[i]>>>1);
+        }
+      }
+      additions=additions/2;
+    }
+    
+    private static int spread(int hash)
+    { 
+      hash=((hash>>>16)^hash)*0x45d9f3b;
+      return (hash>>>16)^hash;
+    }
+  }
+}
@@ -0,0 +1,477 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.access.kit;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Field;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.Type;
+import spiralcraft.data.access.Entity;
+import spiralcraft.data.access.EntityField;
+import spiralcraft.data.access.IndexableText;
+import spiralcraft.data.types.standard.StringType;
+
+/**
+ * <p>An in-memory inverted index over the text fields of a set of Tuples,
+ *   which resolves a TextSearch without visiting Tuples that don't match.
+ * </p>
+ * 
+ * <p>Field text is split into terms at spaces and lower-cased, in the same
+ *   way as TextSearch keywords. A keyword matches a Tuple field when it
+ *   occurs anywhere within one of the field's terms, which is equivalent to
+ *   the substring match performed by a scanning TextSearch. Keywords are 
+ *   resolved to terms through a sorted map of term suffixes.
+ * </p>
+ * 
+ * <p>Each field contributes its IndexableText factor to the score of a Tuple
+ *   for each keyword found in it. Tuples with equal scores are ranked in the
+ *   order they were added to the index.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class TextIndex
+{
+  
+  /**
+   * @return A TextIndex for the fields of the specified Entity which carry
+   *   the IndexableText attribute, or null if there are none
+   */
+  @SuppressWarnings("unchecked")
+  public static TextIndex forEntity(Entity entity)
+  {
+    ArrayList<Field<String>> fields=new ArrayList<Field<String>>();
+    ArrayList<Float> factors=new ArrayList<Float>();
+    EntityField[] entityFields=entity.getFields();
+    if (entityFields!=null)
+    {
+      for (EntityField entityField:entityFields)
+      {
+        IndexableText indexable=entityField.getAttribute(IndexableText.class);
+        if (indexable!=null)
+        { 
+          fields.add((Field<String>) entityField.getTypeField());
+          factors.add(indexable.getFactor());
+        }
+      }
+    }
+    if (fields.isEmpty())
+    { return null;
+    }
+    
+    float[] factorArray=new float[factors.size()];
+    for (int i=0;i<factorArray.length;i++)
+    { factorArray[i]=factors.get(i);
+    }
+    return new TextIndex
+      (fields.toArray((Field<String>[]) new Field<?>[fields.size()])
+      ,factorArray
+      );
+  }
+  
+  private final Field<String>[] fields;
+  private final float[] factors;
+  private final ReentrantReadWriteLock lock=new ReentrantReadWriteLock();
+  
+  private final IdentityHashMap<Tuple,Document> documents
+    =new IdentityHashMap<Tuple,Document>();
+  private final HashMap<String,Term> terms
+    =new HashMap<String,Term>();
+  private final TreeMap<String,Set<String>> suffixes
+    =new TreeMap<String,Set<String>>();
+  private long nextSequence;
+  
+  public TextIndex(Field<String>[] fields,float[] factors)
+  { 
+    if (fields.length>Long.SIZE)
+    { 
+      throw new IllegalArgumentException
+        ("Cannot index more than "+Long.SIZE+" fields");
+    }
+    this.fields=fields;
+    this.factors=factors;
+  }
+  
+  /**
+   * @return Whether the index can resolve a TextSearch over the specified
+   *   fields of the specified Type. A null array refers to all the String
+   *   fields of the Type, as it does for a scanning TextSearch, and is only
+   *   covered if every one of them is indexed.
+   */
+  public boolean covers(Type<?> type,String[] fieldNames)
+  { 
+    if (fieldNames==null)
+    { 
+      for (Field<?> field:type.getFieldSet().fieldIterable())
+      {
+        if (field.getType() instanceof StringType
+            && fieldIndex(field.getName())<0
+            )
+        { return false;
+        }
+      }
+      return true;
+    }
+    for (String fieldName:fieldNames)
+    { 
+      if (fieldIndex(fieldName)<0)
+      { return false;
+      }
+    }
+    return true;
+  }
+  
+  public int getDocumentCount()
+  { 
+    lock.readLock().lock();
+    try
+    { return documents.size();
+    }
+    finally
+    { lock.readLock().unlock();
+    }
+  }
+
+  public int getTermCount()
+  { 
+    lock.readLock().lock();
+    try
+    { return terms.size();
+    }
+    finally
+    { lock.readLock().unlock();
+    }
+  }
+  
+  /**
+   * Remove all Tuples from the index
+   */
+  public void clear()
+  {
+    lock.writeLock().lock();
+    try
+    { 
+      documents.clear();
+      terms.clear();
+      suffixes.clear();
+    }
+    finally
+    { lock.writeLock().unlock();
+    }
+  }
+  
+  public void add(Tuple tuple)
+    throws DataException
+  {
+    lock.writeLock().lock();
+    try
+    { index(new Document(tuple,nextSequence++));
+    }
+    finally
+    { lock.writeLock().unlock();
+    }
+  }
+  
+  public void remove(Tuple tuple)
+    throws DataException
+  {
+    lock.writeLock().lock();
+    try
+    { unindex(tuple);
+    }
+    finally
+    { lock.writeLock().unlock();
+    }
+  }
+  
+  /**
+   * Replace a Tuple, retaining its rank among Tuples with equal scores
+   */
+  public void replace(Tuple oldTuple,Tuple newTuple)
+    throws DataException
+  {
+    lock.writeLock().lock();
+    try
+    { 
+      Document old=unindex(oldTuple);
+      index(new Document(newTuple,old!=null?old.sequence:nextSequence++));
+    }
+    finally
+    { lock.writeLock().unlock();
+    }
+  }
+  
+  /**
+   * <p>Find the Tuples that contain the space separated keywords in the 
+   *   query string, in order of descending score.
+   * </p>
+   * 
+   * @param queryString The keywords
+   * @param fieldNames The fields to search, or null to search all indexed 
+   *   fields
+   * @param matchAll Whether all keywords must be found for a Tuple to be
+   *   returned
+   * @param limit The maximum number of Tuples to return, or 0 for no limit
+   */
+  public List<Tuple> search
+    (String queryString
+    ,String[] fieldNames
+    ,boolean matchAll
+    ,int limit
+    )
+  {
+    if (queryString==null)
+    { return Collections.emptyList();
+    }
+    
+    long fieldMask=-1;
+    if (fieldNames!=null)
+    { 
+      fieldMask=0;
+      for (String fieldName:fieldNames)
+      { 
+        int index=fieldIndex(fieldName);
+        if (index>=0)
+        { fieldMask|=1L<<index;
+        }
+      }
+    }
+    
+    ArrayList<String> keywords=new ArrayList<String>();
+    for (String keyword:queryString.toLowerCase().split(" "))
+    { 
+      if (!keyword.isEmpty())
+      { keywords.add(keyword);
+      }
+    }
+    
+    ArrayList<Match> matches=new ArrayList<Match>();
+    lock.readLock().lock();
+    try
+    {
+      HashMap<Document,Match> matchMap=new HashMap<Document,Match>();
+      HashMap<Document,Long> keywordMasks=new HashMap<Document,Long>();
+      for (int k=0;k<keywords.size();k++)
+      {
+        keywordMasks.clear();
+        String keyword=keywords.get(k);
+        HashSet<String> matchedTerms=new HashSet<String>();
+        for (Set<String> termSet
+              :suffixes.subMap(keyword,true,keyword+Character.MAX_VALUE,false)
+                .values()
+            )
+        { matchedTerms.addAll(termSet);
+        }
+        
+        for (String termText:matchedTerms)
+        {
+          for (Map.Entry<Document,Long> posting
+                :terms.get(termText).postings.entrySet()
+              )
+          { 
+            long mask=posting.getValue() & fieldMask;
+            if (mask!=0)
+            { keywordMasks.merge(posting.getKey(),mask,(a,b) -> a | b);
+            }
+          }
+        }
+        
+        for (Map.Entry<Document,Long> entry:keywordMasks.entrySet())
+        {
+          Match match=matchMap.get(entry.getKey());
+          if (match==null)
+          { 
+            if (matchAll && k>0)
+            { continue;
+            }
+            match=new Match(entry.getKey());
+            matchMap.put(entry.getKey(),match);
+          }
+          match.keywords.set(k);
+          long mask=entry.getValue();
+          for (int i=0;i<fields.length;i++)
+          { 
+            if ((mask & (1L<<i))!=0)
+            { match.score+=factors[i];
+            }
+          }
+        }
+      }
+      
+      for (Match match:matchMap.values())
+      { 
+        if (!matchAll || match.keywords.cardinality()==keywords.size())
+        { matches.add(match);
+        }
+      }
+    }
+    finally
+    { lock.readLock().unlock();
+    }
+    
+    Collections.sort(matches);
+    int count=limit>0?Math.min(limit,matches.size()):matches.size();
+    ArrayList<Tuple> result=new ArrayList<Tuple>(count);
+    for (int i=0;i<count;i++)
+    { result.add(matches.get(i).document.tuple);
+    }
+    return result;
+  }
+  
+  private int fieldIndex(String fieldName)
+  {
+    for (int i=0;i<fields.length;i++)
+    { 
+      if (fields[i].getName().equals(fieldName))
+      { return i;
+      }
+    }
+    return -1;
+  }
+  
+  private void index(Document document)
+    throws DataException
+  {
+    documents.put(document.tuple,document);
+    for (int i=0;i<fields.length;i++)
+    { 
+      for (String termText:terms(document.tuple,i))
+      {
+        Term term=terms.get(termText);
+        if (term==null)
+        { 
+          term=new Term();
+          terms.put(termText,term);
+          for (int j=0;j<termText.length();j++)
+          { 
+            String suffix=termText.substring(j);
+            Set<String> termSet=suffixes.get(suffix);
+            if (termSet==null)
+            { 
+              termSet=new HashSet<String>(2);
+              suffixes.put(suffix,termSet);
+            }
+            termSet.add(termText);
+          }
+        }
+        term.postings.merge(document,1L<<i,(a,b) -> a | b);
+      }
+    }
+  }
+  
+  private Document unindex(Tuple tuple)
+    throws DataException
+  {
+    Document document=documents.remove(tuple);
+    if (document==null)
+    { return null;
+    }
+    
+    for (int i=0;i<fields.length;i++)
+    { 
+      for (String termText:terms(tuple,i))
+      {
+        Term term=terms.get(termText);
+        if (term!=null 
+            && term.postings.remove(document)!=null
+            && term.postings.isEmpty()
+           )
+        {
+          terms.remove(termText);
+          for (int j=0;j<termText.length();j++)
+          { 
+            String suffix=termText.substring(j);
+            Set<String> termSet=suffixes.get(suffix);
+            if (termSet!=null)
+            {
+              termSet.remove(termText);
+              if (termSet.isEmpty())
+              { suffixes.remove(suffix);
+              }
+            }
+          }
+        }
+      }
+    }
+    return document;
+  }
+  
+  private Set<String> terms(Tuple tuple,int fieldIndex)
+    throws DataException
+  {
+    String text=fields[fieldIndex].getValue(tuple);
+    if (text==null)
+    { return Collections.emptySet();
+    }
+    
+    HashSet<String> ret=new HashSet<String>();
+    for (String term:text.toLowerCase().split(" "))
+    { 
+      if (!term.isEmpty())
+      { ret.add(term);
+      }
+    }
+    return ret;
+  }
+  
+  private static class Document
+  {
+    final Tuple tuple;
+    final long sequence;
+    
+    Document(Tuple tuple,long sequence)
+    { 
+      this.tuple=tuple;
+      this.sequence=sequence;
+    }
+  }
+  
+  private static class Term
+  {
+    final HashMap<Document,Long> postings=new HashMap<Document,Long>(4);
+  }
+  
+  private static class Match
+    implements Comparable<Match>
+  {
+    final Document document;
+    final BitSet keywords=new BitSet();
+    float score;
+    
+    Match(Document document)
+    { this.document=document;
+    }
+    
+    @Override
+    public int compareTo(Match o)
+    { 
+      int ret=-Float.compare(score,o.score);
+      return ret!=0?ret:Long.compare(document.sequence,o.document.sequence);
+    }
+  }
+}
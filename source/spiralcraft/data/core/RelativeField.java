@@ -16,14 +16,23 @@ package spiralcraft.data.core;
 
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 import spiralcraft.lang.AccessException;
 import spiralcraft.lang.Expression;
 import spiralcraft.lang.Focus;
+import spiralcraft.lang.IterationCursor;
 import spiralcraft.lang.Channel;
 import spiralcraft.lang.BindException;
 import spiralcraft.lang.spi.AbstractChannel;
+import spiralcraft.lang.reflect.BeanReflector;
 import spiralcraft.lang.spi.ClosureFocus;
+import spiralcraft.lang.spi.ThreadLocalChannel;
 import spiralcraft.util.string.StringUtil;
 import spiralcraft.common.ContextualException;
 import spiralcraft.data.DataComposite;
@@ -38,7 +47,11 @@ import spiralcraft.data.access.SerialCursor;
 import spiralcraft.data.query.BoundQuery;
 import spiralcraft.data.query.Query;
 import spiralcraft.data.query.Queryable;
+import spiralcraft.data.query.Scan;
+import spiralcraft.data.query.SetFilter;
+import spiralcraft.data.lang.AggregateIteration;
 import spiralcraft.data.lang.DataReflector;
+import spiralcraft.data.spi.ListAggregate;
 
 /**
  * A Field which provides a reference to an entity related to this one by
@@ -61,6 +74,12 @@ public class RelativeField<T extends DataComposite>
   private boolean child;
   private DeletionConstraint deletionConstraint;
   private boolean importKey;
+  private boolean prefetch;
+  private int prefetchWindow=DEFAULT_PREFETCH_WINDOW;
+  private final LongAdder queryCount=new LongAdder();
+  private final LongAdder prefetchCount=new LongAdder();
+  
+  public static final int DEFAULT_PREFETCH_WINDOW=100;
   
   { this.setTransient(true);
   }
@@ -124,6 +143,8 @@ public class RelativeField<T extends DataComposite>
        { referencedFieldNames=rfield.referencedFieldNames;
        }
        child=rfield.child;
+       prefetch=rfield.prefetch;
+       prefetchWindow=rfield.prefetchWindow;
      }
    }
   
@@ -131,6 +152,57 @@ public class RelativeField<T extends DataComposite>
   { this.child=child;
   }
   
+  /**
+   * <p>When the containing Tuple is visited as part of an iteration through
+   *   an Aggregate, resolve this field for the current Tuple and the Tuples
+   *   that follow it in a single query, instead of issuing one query per
+   *   Tuple. Results are kept for the duration of the iteration.
+   * </p>
+   * 
+   * <p>Only applies to relationships with a single key field. Navigation
+   *   outside of an iteration is not affected.
+   * </p>
+   * 
+   * @param prefetch
+   */
+  public void setPrefetch(boolean prefetch)
+  { this.prefetch=prefetch;
+  }
+  
+  public boolean isPrefetch()
+  { return prefetch;
+  }
+  
+  /**
+   * The maximum number of Tuples in an iteration whose related data will
+   *   be resolved by a single prefetch query. Defaults to 100.
+   * 
+   * @param prefetchWindow
+   */
+  public void setPrefetchWindow(int prefetchWindow)
+  { this.prefetchWindow=prefetchWindow;
+  }
+  
+  public int getPrefetchWindow()
+  { return prefetchWindow;
+  }
+  
+  /**
+   * The number of queries executed to resolve this field, including
+   *   prefetch queries
+   */
+  public long getQueryCount()
+  { return queryCount.sum();
+  }
+  
+  /**
+   * The number of queries executed to resolve this field for a window of
+   *   Tuples in an iteration
+   */
+  public long getPrefetchCount()
+  { return prefetchCount.sum();
+  }
+  
   public void setDeletionConstraint(DeletionConstraint deletionConstraint)
   { this.deletionConstraint=deletionConstraint;
   }
@@ -175,6 +247,8 @@ public class RelativeField<T extends DataComposite>
     super.constructExtension(copy);
     copy.fieldNames=fieldNames;
     copy.referencedFieldNames=referencedFieldNames;
+    copy.prefetch=prefetch;
+    copy.prefetchWindow=prefetchWindow;
   }
 
   @SuppressWarnings({ "unchecked", "rawtypes" }) // Key.getForeignType() is not generic
@@ -478,6 +552,7 @@ public class RelativeField<T extends DataComposite>
             ,boundQuery
             ,keyFocus.getSubject()
             ,sourceFocus
+            ,prefetch?bindPrefetch(argFocus,sourceFocus,queryable):null
             );
           
         }
@@ -502,6 +577,7 @@ public class RelativeField<T extends DataComposite>
           ,boundQuery
           ,keyFocus.getSubject()
           ,sourceFocus
+          ,prefetch?bindPrefetch(argFocus,sourceFocus,null):null
           );
       }
       catch (DataException x)
@@ -512,6 +588,258 @@ public class RelativeField<T extends DataComposite>
   }
   
   
+  /**
+   * Bind the query that resolves this field for a set of key values, or
+   *   return null if the relationship does not support prefetch or the
+   *   field is not navigated from within an iteration.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private Prefetch bindPrefetch
+    (Focus<?> iterationContext
+    ,Focus<?> context
+    ,Queryable queryable
+    )
+    throws DataException
+  {
+    // The cursor of the iteration visiting the Tuple, if the navigation is
+    //   expressed within one
+    Focus<IterationCursor> cursorFocus
+      =iterationContext!=null
+      ?iterationContext.<IterationCursor>findFocus(IterationCursor.FOCUS_URI)
+      :null;
+    if (cursorFocus==null)
+    { 
+      if (debug)
+      { log.fine("Not prefetching "+getURI()+" outside of an iteration");
+      }
+      return null;
+    }
+    
+    String[] localNames=key.getFieldNames();
+    String[] foreignNames=key.getImportedKey().getFieldNames();
+    if (localNames.length!=1 || foreignNames.length!=1)
+    { 
+      log.warning
+        ("Prefetch not supported for compound key in "+getURI()
+        +", resolving individually"
+        );
+      return null;
+    }
+    
+    Type<?> foreignType=key.getForeignType();
+    Field localField=getScheme().getType().getField(localNames[0]);
+    Field foreignField=foreignType.getField(foreignNames[0]);
+    if (localField==null 
+        || foreignField==null
+        || localField.getType().getContentType()
+          !=foreignField.getType().getContentType()
+       )
+    {
+      log.warning
+        ("Prefetch requires key fields of the same type in "+getURI()
+        +", resolving individually"
+        );
+      return null;
+    }
+    
+    ThreadLocalChannel<Set<Object>> keySetChannel
+      =new ThreadLocalChannel<Set<Object>>
+        (BeanReflector.<Set<Object>>getInstance(Set.class));
+    Focus<Set<Object>> keySetFocus=context.chain(keySetChannel);
+    
+    Query query
+      =new SetFilter
+        (new Scan(foreignType)
+        ,Expression.create(".")
+        ,Expression.create("."+foreignNames[0])
+        );
+    BoundQuery boundQuery
+      =queryable!=null
+      ?queryable.query(query,keySetFocus)
+      :query.bind(keySetFocus)
+      ;
+    if (boundQuery==null)
+    {
+      throw new DataException
+        ("Got null query from "+queryable+" for query "+query);
+    }
+    boundQuery.resolve();
+    return new Prefetch
+      (localNames[0]
+      ,foreignNames[0]
+      ,cursorFocus.getSubject()
+      ,keySetChannel
+      ,boundQuery
+      );
+  }
+  
+  /**
+   * <p>Resolves this field for a window of the Tuples in the Aggregate
+   *   iteration that is visiting the Tuple being navigated from, and
+   *   associates the results with the iteration.
+   * </p>
+   */
+  @SuppressWarnings({"unchecked","rawtypes"})
+  class Prefetch
+  {
+    private final String localFieldName;
+    private final String foreignFieldName;
+    private final Channel<IterationCursor> cursorChannel;
+    private final ThreadLocalChannel<Set<Object>> keySetChannel;
+    private final BoundQuery query;
+    
+    Prefetch
+      (String localFieldName
+      ,String foreignFieldName
+      ,Channel<IterationCursor> cursorChannel
+      ,ThreadLocalChannel<Set<Object>> keySetChannel
+      ,BoundQuery query
+      )
+    { 
+      this.localFieldName=localFieldName;
+      this.foreignFieldName=foreignFieldName;
+      this.cursorChannel=cursorChannel;
+      this.keySetChannel=keySetChannel;
+      this.query=query;
+    }
+    
+    /**
+     * Return the value of this field for the specified key value, or MISS if
+     *   the Tuple is not being visited by an iteration.
+     */
+    Object fetch(Object tuple,Object keyValue)
+      throws DataException
+    {
+      AggregateIteration iteration
+        =AggregateIteration.find(cursorChannel.get(),tuple);
+      if (iteration==null)
+      { return MISS;
+      }
+      
+      PrefetchState state=(PrefetchState) iteration.getAttribute(this);
+      if (state==null)
+      { 
+        state=new PrefetchState();
+        iteration.setAttribute(this,state);
+      }
+      
+      if (state.results.containsKey(keyValue))
+      { return state.results.get(keyValue);
+      }
+      
+      int index=iteration.getIndex();
+      if (index<state.fetchedTo)
+      { 
+        // Key value not present when the window was fetched
+        return MISS;
+      }
+      
+      List<?> following=iteration.lookahead(prefetchWindow-1);
+      Set<Object> keys=new HashSet<Object>();
+      keys.add(keyValue);
+      for (Object element:following)
+      { 
+        if (element instanceof Tuple)
+        {
+          Object value=getValue((Tuple) element,localFieldName);
+          if (value!=null && !state.results.containsKey(value))
+          { keys.add(value);
+          }
+        }
+      }
+      state.fetchedTo=index+1+following.size();
+      
+      if (debug)
+      { 
+        log.fine
+          ("Prefetching "+getURI()+" for "+keys.size()+" keys at index "
+          +index
+          );
+      }
+      
+      queryCount.increment();
+      prefetchCount.increment();
+      HashMap<Object,Object> batch=new HashMap<Object,Object>();
+      keySetChannel.push(keys);
+      try
+      {
+        SerialCursor<Tuple> cursor=query.execute();
+        try
+        {
+          while (cursor.next())
+          {
+            Tuple result=cursor.getTuple();
+            if (result==null)
+            { continue;
+            }
+            if (result.isVolatile())
+            { result=result.snapshot();
+            }
+            
+            Object value=getValue(result,foreignFieldName);
+            if (getType().isAggregate())
+            {
+              List<Tuple> list=(List<Tuple>) batch.get(value);
+              if (list==null)
+              { 
+                list=new ArrayList<Tuple>();
+                batch.put(value,list);
+              }
+              list.add(result);
+            }
+            else if (batch.put(value,result)!=null)
+            {
+              throw new AccessException
+                (getURI()+": Cardinality violation: non-aggregate query returned"
+                +" more than one result for key "+value
+                );
+            }
+          }
+        }
+        finally
+        { cursor.close();
+        }
+      }
+      finally
+      { keySetChannel.pop();
+      }
+      
+      for (Object key:keys)
+      { 
+        if (getType().isAggregate())
+        { 
+          List<Tuple> list=(List<Tuple>) batch.get(key);
+          state.results.put
+            (key
+            ,new ListAggregate
+              (getType()
+              ,list!=null?list:new ArrayList<Tuple>(0)
+              )
+            );
+        }
+        else
+        { state.results.put(key,batch.get(key));
+        }
+      }
+      return state.results.get(keyValue);
+    }
+    
+    private Object getValue(Tuple tuple,String fieldName)
+      throws DataException
+    { 
+      Field field=tuple.getFieldSet().getFieldByName(fieldName);
+      return field!=null?field.getValue(tuple):null;
+    }
+  }
+  
+  private static final Object MISS=new Object();
+  
+  private static class PrefetchState
+  {
+    final HashMap<Object,Object> results=new HashMap<Object,Object>();
+    int fetchedTo;
+  }
+  
   @SuppressWarnings({"unchecked","rawtypes"})
   public class KeyFieldChannel
     extends AbstractChannel<T>
@@ -520,6 +848,7 @@ public class RelativeField<T extends DataComposite>
     
     private final ClosureFocus<Tuple> closure;
     private Channel<Tuple> keyChannel;
+    private final Prefetch prefetch;
     
     public KeyFieldChannel
       (Type<T> type
@@ -528,9 +857,21 @@ public class RelativeField<T extends DataComposite>
       ,ClosureFocus<Tuple> closure
       )
       throws BindException
+    { this(type,query,keyChannel,closure,null);
+    }
+    
+    KeyFieldChannel
+      (Type<T> type
+      ,BoundQuery query
+      ,Channel<Tuple> keyChannel
+      ,ClosureFocus<Tuple> closure
+      ,Prefetch prefetch
+      )
+      throws BindException
     { 
       super(DataReflector.<T>getInstance(type));
       this.query=query;
+      this.prefetch=prefetch;
       this.keyChannel=keyChannel;
       this.closure=closure;
       this.context=closure;
@@ -604,7 +945,20 @@ public class RelativeField<T extends DataComposite>
 
         try
         { 
+          if (prefetch!=null)
+          { 
+            Object val=prefetch.fetch(closure.getSubject().get(),keyVal.get(0));
+            if (val!=MISS)
+            { 
+              if (debug)
+              { log.fine("RelativeField "+getURI()+" returning prefetched "+val);
+              }
+              return (T) val;
+            }
+          }
+          
           //        log.fine("KeyField "+getURI()+" retrieving...");
+          queryCount.increment();
           if (getType().isAggregate())
           { 
             SerialCursor cursor=query.execute();
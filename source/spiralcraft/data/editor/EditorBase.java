@@ -300,7 +300,18 @@ public abstract class EditorBase<Tbuffer extends Buffer>
   { 
     localChannel.push();
   }
-  
+
+  /**
+   * <p>Push a buffer that was previously obtained from this Editor, without
+   *   re-evaluating the buffer source
+   * </p>
+   *
+   * @param buffer
+   */
+  public void push(Tbuffer buffer)
+  { localChannel.push(buffer);
+  }
+
 
   
   
@@ -0,0 +1,191 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.lang;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import spiralcraft.data.Aggregate;
+import spiralcraft.lang.IterationCursor;
+
+/**
+ * <p>An iteration through an Aggregate, which exposes the Aggregate and
+ *   state associated with the iteration to navigation from the current
+ *   element (e.g. to prefetch related data for a batch of elements in a
+ *   single query).
+ * </p>
+ * 
+ * <p>The AggregateListDecorator iterates Aggregates with an
+ *   AggregateIteration. Consumers reach it through the IterationCursor
+ *   published in the Focus of the expression that drives the iteration, so
+ *   it is only visible while that expression is visiting the element, and
+ *   is released along with the cursor when the iteration completes or is
+ *   abandoned.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class AggregateIteration<I>
+  implements Iterator<I>
+{
+  
+  /**
+   * <p>Return the AggregateIteration driving the specified cursor if the
+   *   cursor is positioned at the specified element, or null if the element
+   *   is not being visited by an iteration through an Aggregate.
+   * </p>
+   */
+  public static AggregateIteration<?> find
+    (IterationCursor<?> cursor,Object element)
+  { 
+    if (cursor==null || element==null || cursor.getValue()!=element)
+    { return null;
+    }
+    Iterator<?> iterator=cursor.getIterator();
+    return iterator instanceof AggregateIteration
+      ?(AggregateIteration<?>) iterator
+      :null;
+  }
+  
+  /**
+   * <p>Provide an Iterator for the Aggregate which exposes the Aggregate
+   *   to consumers of the iteration.
+   * </p>
+   */
+  static <I> Iterator<I> iterator(Aggregate<I> aggregate)
+  { 
+    Iterator<I> iterator=aggregate.iterator();
+    if (iterator==null)
+    { return null;
+    }
+    return new AggregateIteration<I>(aggregate,iterator);
+  }
+  
+  private final Aggregate<I> aggregate;
+  private final Iterator<I> iterator;
+  private int index=-1;
+  private HashMap<Object,Object> attributes;
+  private LinkedList<I> lookahead;
+  
+  private AggregateIteration(Aggregate<I> aggregate,Iterator<I> iterator)
+  { 
+    this.aggregate=aggregate;
+    this.iterator=iterator;
+  }
+  
+  /**
+   * The Aggregate being iterated
+   */
+  public Aggregate<I> getAggregate()
+  { return aggregate;
+  }
+  
+  /**
+   * The index of the current element
+   */
+  public int getIndex()
+  { return index;
+  }
+  
+  /**
+   * Retrieve state associated with this iteration by a consumer
+   */
+  public Object getAttribute(Object key)
+  { return attributes!=null?attributes.get(key):null;
+  }
+  
+  /**
+   * Associate state with this iteration, which will be discarded with the
+   *   iteration.
+   */
+  public void setAttribute(Object key,Object value)
+  { 
+    if (attributes==null)
+    { attributes=new HashMap<Object,Object>();
+    }
+    attributes.put(key,value);
+  }
+  
+  /**
+   * <p>Read ahead up to the specified number of elements that follow the
+   *   current element, without advancing the iteration. The elements are
+   *   read from the underlying Iterator and returned by next() in turn, so
+   *   elements are never retrieved by index.
+   * </p>
+   * 
+   * @return The elements that follow the current element, which may be
+   *   fewer than requested at the end of the iteration
+   */
+  public List<I> lookahead(int count)
+  {
+    if (lookahead==null)
+    { lookahead=new LinkedList<I>();
+    }
+    while (lookahead.size()<count && iterator.hasNext())
+    { lookahead.add(iterator.next());
+    }
+    
+    List<I> elements
+      =new ArrayList<I>(Math.max(0,Math.min(count,lookahead.size())));
+    for (I element:lookahead)
+    { 
+      if (elements.size()>=count)
+      { break;
+      }
+      elements.add(element);
+    }
+    return elements;
+  }
+  
+  @Override
+  public boolean hasNext()
+  { 
+    boolean hasNext
+      =(lookahead!=null && !lookahead.isEmpty()) || iterator.hasNext();
+    if (!hasNext)
+    { attributes=null;
+    }
+    return hasNext;
+  }
+    
+  @Override
+  public I next()
+  { 
+    I next
+      =lookahead!=null && !lookahead.isEmpty()
+      ?lookahead.poll()
+      :iterator.next();
+    index++;
+    return next;
+  }
+    
+  @Override
+  public void remove()
+  { 
+    if (lookahead!=null && !lookahead.isEmpty())
+    { 
+      // The underlying Iterator has moved past the current element
+      throw new IllegalStateException
+        ("Cannot remove an element once the iteration has read ahead");
+    }
+    iterator.remove();
+    // Keep the index aligned with the following element
+    index--;
+  }
+}
@@ -408,7 +408,7 @@ class AggregateListDecorator<T extends Aggregate<I>,I>
   { 
     Aggregate<I> aggregate=source.get();
     if (aggregate!=null)
-    { return aggregate.iterator();
+    { return AggregateIteration.iterator(aggregate);
     } 
     else
     { return null;
@@ -17,6 +17,7 @@ package spiralcraft.data.query;
 import spiralcraft.data.Aggregate;
 import spiralcraft.data.FieldSet;
 import spiralcraft.data.Identifier;
+import spiralcraft.data.Order;
 import spiralcraft.data.Tuple;
 import spiralcraft.data.DataException;
 import spiralcraft.data.Type;
@@ -191,6 +192,22 @@ public abstract class BoundQuery<Tq extends Query,Tt extends Tuple>
   protected abstract SerialCursor<Tt> doExecute()
     throws DataException;
 
+  /**
+   * <p>Indicate whether the results of this BoundQuery are already sorted
+   *   according to the specified Order, which permits a downstream Sort to
+   *   be elided. 
+   * </p>
+   * 
+   * <p>This method is called after resolve().
+   * </p>
+   * 
+   * @param order
+   * @return true if the result order is known to match, false by default
+   */
+  public boolean isOrderedBy(Order order)
+  { return false;
+  }
+
   protected void assertUnresolved()
   { 
     if (resolved)
@@ -0,0 +1,208 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.query;
+
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.Focus;
+import spiralcraft.lang.parser.ContextIdentifierNode;
+import spiralcraft.lang.parser.CurrentFocusNode;
+import spiralcraft.lang.parser.Node;
+import spiralcraft.lang.parser.ResolveNode;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.FieldSet;
+
+/**
+ * <p>A Query that selects the items whose value for a single field falls
+ *   between an optional lower bound and an optional upper bound.
+ * </p>
+ * 
+ * <p>The field expression is relative to the item being searched and is
+ *   normally in the form ".field". The bound expressions reside in the 
+ *   parameter context, in the same manner as the RHS expressions of an
+ *   EquiJoin. The equivalent expression is a conjunction of relational 
+ *   expressions (".price&gt;=minPrice &amp;&amp; .price&lt;maxPrice").
+ * </p>
+ * 
+ * <p>A Range is produced when a Selection factors relational terms out of
+ *   its constraints, and permits a Queryable to use an ordered index to
+ *   retrieve the result in ascending field order.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class Range
+  extends Query
+{
+  
+  private Expression<?> fieldExpression;
+  private Expression<?> lowerBound;
+  private boolean lowerInclusive;
+  private Expression<?> upperBound;
+  private boolean upperInclusive;
+  
+  { mergeable=true;
+  }
+  
+  public Range()
+  { 
+  }
+  
+  public void setSource(Query source)
+  { 
+    type=source.getType();
+    addSource(source);
+  }
+  
+  @Override
+  public FieldSet getFieldSet()
+  { 
+    if (sources.size()>0)
+    { return sources.get(0).getFieldSet();
+    }
+    else
+    { return null;
+    }
+  }
+  
+  /**
+   * The field being constrained, normally in the form ".field"
+   */
+  public void setFieldExpression(Expression<?> fieldExpression)
+  { this.fieldExpression=fieldExpression;
+  }
+  
+  public Expression<?> getFieldExpression()
+  { return fieldExpression;
+  }
+  
+  /**
+   * The name of the field being constrained, if the field expression
+   *   directly references a field of the item being searched.
+   */
+  public String getFieldName()
+  { return getFieldName(fieldExpression);
+  }
+  
+  /**
+   * @return The name of the field referenced by an expression in the form
+   *   ".field" or "field", or null if the expression is not in that form.
+   */
+  public static String getFieldName(Expression<?> expression)
+  {
+    Node node=expression!=null?expression.getRootNode():null;
+    if (node instanceof ResolveNode<?>
+        && ((ResolveNode<?>) node).getSource() instanceof CurrentFocusNode
+        )
+    { return ((ResolveNode<?>) node).getIdentifierName();
+    }
+    else if (node instanceof ContextIdentifierNode
+             && ((ContextIdentifierNode) node).getSource()==null
+             )
+    { return ((ContextIdentifierNode) node).getIdentifier();
+    }
+    return null;
+  }
+  
+  /**
+   * The lower bound of the range, evaluated in the parameter context
+   */
+  public void setLowerBound(Expression<?> lowerBound)
+  { this.lowerBound=lowerBound;
+  }
+  
+  public Expression<?> getLowerBound()
+  { return lowerBound;
+  }
+  
+  public void setLowerInclusive(boolean lowerInclusive)
+  { this.lowerInclusive=lowerInclusive;
+  }
+  
+  public boolean isLowerInclusive()
+  { return lowerInclusive;
+  }
+
+  /**
+   * The upper bound of the range, evaluated in the parameter context
+   */
+  public void setUpperBound(Expression<?> upperBound)
+  { this.upperBound=upperBound;
+  }
+  
+  public Expression<?> getUpperBound()
+  { return upperBound;
+  }
+  
+  public void setUpperInclusive(boolean upperInclusive)
+  { this.upperInclusive=upperInclusive;
+  }
+  
+  public boolean isUpperInclusive()
+  { return upperInclusive;
+  }
+  
+  /**
+   * @return The conjunction of relational expressions that is equivalent
+   *   to this Range
+   */
+  public Expression<Boolean> getConstraints()
+  {
+    String fieldName=getFieldName();
+    Node field
+      =fieldName!=null
+      ?new ResolveNode<Object>(new CurrentFocusNode(),fieldName)
+      :fieldExpression.getRootNode();
+    
+    Node result=null;
+    if (lowerBound!=null)
+    { 
+      result=lowerInclusive
+        ?field.greaterThanOrEquals(lowerBound.getRootNode())
+        :field.greaterThan(lowerBound.getRootNode());
+    }
+    if (upperBound!=null)
+    {
+      Node upper=upperInclusive
+        ?field.lessThanOrEquals(upperBound.getRootNode())
+        :field.lessThan(upperBound.getRootNode());
+      result=result!=null?result.and(upper):upper;
+    }
+    return Expression.<Boolean>create(result);
+  }
+  
+  @Override
+  public <T extends Tuple> BoundQuery<?,T> getDefaultBinding
+    (Focus<?> focus,Queryable<?> store)
+    throws DataException
+  { 
+    Selection selection=new Selection(getSources().get(0),getConstraints());
+    selection.setDebugLevel(debugLevel);
+    return new SelectionBinding<Selection,T>(selection,focus,store);
+  }
+  
+  @Override
+  public String toString()
+  { 
+    return super.toString()
+      +"[field="+fieldExpression
+      +(lowerBound!=null?",lower"+(lowerInclusive?"[":"(")+lowerBound:"")
+      +(upperBound!=null?",upper"+(upperInclusive?"]":")")+upperBound:"")
+      +"]: sources="
+      +getSources().toString();
+  }
+}
@@ -19,15 +19,13 @@ import java.util.List;
 
 import spiralcraft.lang.Expression;
 import spiralcraft.lang.Focus;
-import spiralcraft.lang.Channel;
-import spiralcraft.lang.BindException;
-import spiralcraft.lang.TeleFocus;
 import spiralcraft.lang.parser.CurrentFocusNode;
 import spiralcraft.lang.parser.EqualityNode;
 import spiralcraft.lang.parser.LiteralNode;
 import spiralcraft.lang.parser.LogicalAndNode;
 import spiralcraft.lang.parser.Node;
 import spiralcraft.lang.parser.ParentFocusNode;
+import spiralcraft.lang.parser.RelationalNode;
 import spiralcraft.lang.parser.ContextIdentifierNode;
 import spiralcraft.lang.parser.ResolveNode;
 import spiralcraft.log.ClassLog;
@@ -39,8 +37,6 @@ import spiralcraft.data.Tuple;
 import spiralcraft.data.FieldSet;
 import spiralcraft.data.Type;
 import spiralcraft.data.TypeMismatchException;
-import spiralcraft.data.access.ScrollableCursor;
-import spiralcraft.data.access.SerialCursor;
 
 /**
  * A Query operation which constrains the result of another Query
@@ -240,51 +236,7 @@ public class Selection
       ResolveNode<?> lhsResolve=(ResolveNode<?>) lhs;
       if (lhsResolve.getSource() instanceof CurrentFocusNode)
       { 
-        // Test right hand side for legal expressions
-          
-        // We're doing this by inclusion right now to be safe
-        
-        // What cannot be allowed is a CurrentFocusNode on the RHS, because
-        //  that is the variant node. 
-          
-        Node rhs=equalityNode.getRightOperand();
-        Node validRhs=null;
-        if (rhs instanceof ContextIdentifierNode)
-        {
-          ContextIdentifierNode rhsIdent=(ContextIdentifierNode) rhs;
-          if (rhsIdent.getSource()==null
-              || rhsIdent.getSource() instanceof CurrentFocusNode
-              )
-          { validRhs=rhsIdent;
-          }
-          else
-          { 
-            if (debugLevel.canLog(Level.DEBUG))
-            { 
-              log.debug
-                ("Ident node source is not current focus "
-                +rhsIdent.getSource()+" "+rhsIdent.getSource().reconstruct()
-                );
-            }
-          }
-        }
-        else if (rhs instanceof LiteralNode<?>)
-        { validRhs=rhs;
-        }
-        else if (!referencesCurrentFocus(rhs))
-        { validRhs=rhs;
-        }
-        else
-        { 
-          if (debugLevel.canLog(Level.DEBUG))
-          { 
-            log.debug
-              ("Not a valid RHS for refactoring "
-              +rhs.reconstruct()
-              + " ("+rhs.toString()+")"
-              );
-          }
-        }
+        Node validRhs=validateRhs(equalityNode.getRightOperand());
 
         // XXX Some logic in Expressions to determine grounding is in
         //   order.
@@ -329,6 +281,150 @@ public class Selection
   }
   
   
+  /**
+   * Determine whether the specified node can supply a parameter to a factored
+   *   operation, ie. it does not vary with the current focus (the item being
+   *   searched).
+   * 
+   * @return The node, or null if it is not a valid parameter
+   */
+  private Node validateRhs(Node rhs)
+  {
+    // Test right hand side for legal expressions
+      
+    // We're doing this by inclusion right now to be safe
+    
+    // What cannot be allowed is a CurrentFocusNode on the RHS, because
+    //  that is the variant node. 
+    if (rhs instanceof ContextIdentifierNode)
+    {
+      ContextIdentifierNode rhsIdent=(ContextIdentifierNode) rhs;
+      if (rhsIdent.getSource()==null
+          || rhsIdent.getSource() instanceof CurrentFocusNode
+          )
+      { return rhsIdent;
+      }
+      else
+      { 
+        if (debugLevel.canLog(Level.DEBUG))
+        { 
+          log.debug
+            ("Ident node source is not current focus "
+            +rhsIdent.getSource()+" "+rhsIdent.getSource().reconstruct()
+            );
+        }
+      }
+    }
+    else if (rhs instanceof LiteralNode<?>)
+    { return rhs;
+    }
+    else if (!referencesCurrentFocus(rhs))
+    { return rhs;
+    }
+    else
+    { 
+      if (debugLevel.canLog(Level.DEBUG))
+      { 
+        log.debug
+          ("Not a valid RHS for refactoring "
+          +rhs.reconstruct()
+          + " ("+rhs.toString()+")"
+          );
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Recursively factor a node into the bounds of a Range on a single field
+   *   and a remainder.
+   * 
+   * @return The remainder
+   */
+  private Node factorRangeNode(Node original,RangeBounds bounds)
+  {
+    if (original instanceof LogicalAndNode)
+    {
+      LogicalAndNode andNode=(LogicalAndNode) original;
+      Node lhsRemainder
+        =factorRangeNode(andNode.getLeftOperand(),bounds);
+      Node rhsRemainder
+        =factorRangeNode(andNode.getRightOperand(),bounds);
+      
+      if (lhsRemainder!=null && rhsRemainder!=null)
+      { return lhsRemainder.and(rhsRemainder);
+      }
+      else if (lhsRemainder!=null)
+      { return lhsRemainder;
+      }
+      else
+      { return rhsRemainder;
+      }
+    }
+    else if (original instanceof RelationalNode<?,?>)
+    {
+      RelationalNode<?,?> relationalNode=(RelationalNode<?,?>) original;
+      
+      // Normalize to the form ".field op value"
+      Node field=relationalNode.getLeftOperand();
+      Node value=relationalNode.getRightOperand();
+      boolean greaterThan=relationalNode.isGreaterThan();
+      if (!isFocusField(field) && isFocusField(value))
+      { 
+        field=relationalNode.getRightOperand();
+        value=relationalNode.getLeftOperand();
+        greaterThan=!greaterThan;
+      }
+      
+      if (!isFocusField(field))
+      { return original;
+      }
+      
+      String fieldName=((ResolveNode<?>) field).getIdentifierName();
+      if (bounds.field!=null 
+          && !bounds.field.getIdentifierName().equals(fieldName)
+          )
+      { return original;
+      }
+      
+      if ( (greaterThan && bounds.lower!=null)
+           || (!greaterThan && bounds.upper!=null)
+         )
+      { return original;
+      }
+      
+      Node validRhs=validateRhs(value);
+      if (validRhs==null)
+      { return original;
+      }
+      
+      bounds.field=(ResolveNode<?>) field;
+      if (greaterThan)
+      { 
+        bounds.lower=validRhs;
+        bounds.lowerInclusive=relationalNode.isEqual();
+      }
+      else
+      { 
+        bounds.upper=validRhs;
+        bounds.upperInclusive=relationalNode.isEqual();
+      }
+      if (debugLevel.canLog(Level.DEBUG))
+      { log.debug("Factored range term "+original.reconstruct());
+      }
+      return null;
+    }
+    else
+    { return original;
+    }
+  }
+  
+  private boolean isFocusField(Node node)
+  { 
+    return node instanceof ResolveNode<?>
+      && ((ResolveNode<?>) node).getSource() instanceof CurrentFocusNode;
+  }
+  
   /**
    * <p>Factor a base Query into a downstream Query (returned) and 
    *   one or more upstream Queries (from getSources()) that achieve the same
@@ -364,8 +460,41 @@ public class Selection
       
       if (lhsExpressions.isEmpty())
       { 
-        // We didn't find anything to refactor
-        return null;
+        // No equality terms- try to factor relational terms on a single
+        //   field into a Range
+        RangeBounds bounds=new RangeBounds();
+        remainder=factorRangeNode(constraints.getRootNode(),bounds);
+        if (bounds.field==null)
+        {
+          // We didn't find anything to refactor
+          return null;
+        }
+        
+        Range range=new Range();
+        range.setFieldExpression(Expression.<Object>create(bounds.field));
+        if (bounds.lower!=null)
+        { 
+          range.setLowerBound(Expression.<Object>create(bounds.lower));
+          range.setLowerInclusive(bounds.lowerInclusive);
+        }
+        if (bounds.upper!=null)
+        {
+          range.setUpperBound(Expression.<Object>create(bounds.upper));
+          range.setUpperInclusive(bounds.upperInclusive);
+        }
+        range.setSource(getSources().get(0));
+        
+        Query result;
+        if (remainder==null)
+        { result=range;
+        }
+        else
+        { result=new Selection(range,Expression.<Boolean>create(remainder));
+        }
+        
+        result.setDebugLevel(debugLevel);
+        result.setLogStatistics(logStatistics);
+        return result;
       }
       else
       {
@@ -407,167 +536,14 @@ public class Selection
   
 }
 
-class SelectionBinding<Tq extends Selection,Tt extends Tuple>
-  extends UnaryBoundQuery<Tq,Tt,Tt>
+/**
+ * The bounds collected while factoring relational terms into a Range
+ */
+class RangeBounds
 {
-  private Focus<Tt> focus;
-  private Channel<Boolean> filter;
-  private boolean resolved;
-  
-  public SelectionBinding
-    (Tq query
-    ,Focus<?> paramFocus
-    ,Queryable<?> store
-    )
-    throws DataException
-  { 
-    super(query,query.getSources(),paramFocus,store);    
-  }
-
-  @Override
-  public void resolve() throws DataException
-  { 
-    if (resolved)
-    { return;
-    }
-    resolved=true;
-
-    super.resolve();
-    
-    focus= new TeleFocus<Tt>(paramFocus,sourceChannel);
-      
-    if (debugLevel.canLog(Level.DEBUG))
-    { log.debug("Binding constraints "+getQuery().getConstraints());
-    }
-      
-    try
-    { 
-      filter=focus.<Boolean>bind(getQuery().getConstraints());
-      if (debugLevel.canLog(Level.FINE))
-      { filter.setDebug(true);
-      }
-    }
-    catch (BindException x)
-    { throw new DataException("Error binding constraints "+x,x);
-    }
-  }
-  
-
-  @Override
-  protected SerialCursor<Tt> newSerialCursor(SerialCursor<Tt> source)
-    throws DataException
-  { return new SelectionSerialCursor(source);
-  }
-  
-  @Override
-  protected ScrollableCursor<Tt> 
-    newScrollableCursor(ScrollableCursor<Tt> source)
-    throws DataException
-  { return new SelectionScrollableCursor(source);
-  }
-
-  protected class SelectionSerialCursor
-    extends UnaryBoundQuerySerialCursor
-  {
-    public SelectionSerialCursor(SerialCursor<Tt> source)
-      throws DataException
-    { super(source);
-    }
-  
-    @Override
-    protected boolean integrate()
-    { 
-      Tt t=sourceChannel.get();
-      if (t==null)
-      { 
-        if (debugFine)
-        { log.fine(toString()+"BoundSelection: eod ");
-        }
-        return false;
-      }
-    
-      if (filter.get())
-      {  
-        if (debugFine)
-        { log.fine(toString()+"BoundSelection: passed "+t);
-        }
-        dataAvailable(t);
-        return true;
-      }
-      else
-      { 
-        if (debugFine)
-        { log.fine(toString()+"BoundSelection: filtered "+t);
-        }
-        return false;
-      }
-    }
-    
-    @Override
-    public Type<?> getResultType()
-    { 
-      Type<?> ret=sourceCursor.getResultType();
-      if (ret!=null)
-      { return ret;
-      }
-      else
-      { 
-        log.fine("Source cursor result type is null "+sourceCursor);
-        return null;
-      }
-    }
-
-  }
-
-  protected class SelectionScrollableCursor
-    extends UnaryBoundQueryScrollableCursor
-  {
-    public SelectionScrollableCursor(ScrollableCursor<Tt> source)
-      throws DataException
-    { super(source);
-    }
-
-    @Override
-    protected boolean integrate()
-    { 
-      Tt t=sourceChannel.get();
-      if (t==null)
-      { 
-        if (debugFine)
-        { log.fine("BoundSelection: eod ");
-        }
-        return false;
-      }
-
-      if (Boolean.TRUE.equals(filter.get()))
-      {  
-        if (debugFine)
-        { log.fine("BoundSelection: passed "+t);
-        }
-        dataAvailable(t);
-        return true;
-      }
-      else
-      { 
-        if (debugFine)
-        { log.fine("BoundSelection: filtered "+t);
-        }
-        return false;
-      }
-    }
-
-    @Override
-    public Type<?> getResultType()
-    { 
-      Type<?> ret=scrollableSourceCursor.getResultType();
-      if (ret!=null)
-      { return ret;
-      }
-      else
-      { 
-        log.fine("Source cursor result type is null "+scrollableSourceCursor);
-        return null;
-      }
-    }
-  }
-}
\ No newline at end of file
+  ResolveNode<?> field;
+  Node lower;
+  boolean lowerInclusive;
+  Node upper;
+  boolean upperInclusive;
+}
@@ -0,0 +1,206 @@
+//
+// Copyright (c) 1998,2007 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.query;
+
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.BindException;
+import spiralcraft.lang.Focus;
+import spiralcraft.lang.TeleFocus;
+import spiralcraft.log.Level;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Order;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.Type;
+import spiralcraft.data.access.ScrollableCursor;
+import spiralcraft.data.access.SerialCursor;
+
+/**
+ * <p>Filters the results of the source of a Selection with its
+ *   constraints
+ * </p>
+ */
+class SelectionBinding<Tq extends Selection,Tt extends Tuple>
+  extends UnaryBoundQuery<Tq,Tt,Tt>
+{
+  private Focus<Tt> focus;
+  private Channel<Boolean> filter;
+  private boolean resolved;
+  
+  public SelectionBinding
+    (Tq query
+    ,Focus<?> paramFocus
+    ,Queryable<?> store
+    )
+    throws DataException
+  { 
+    super(query,query.getSources(),paramFocus,store);    
+  }
+
+  @Override
+  public void resolve() throws DataException
+  { 
+    if (resolved)
+    { return;
+    }
+    resolved=true;
+
+    super.resolve();
+    
+    focus= new TeleFocus<Tt>(paramFocus,sourceChannel);
+      
+    if (debugLevel.canLog(Level.DEBUG))
+    { log.debug("Binding constraints "+getQuery().getConstraints());
+    }
+      
+    try
+    { 
+      filter=focus.<Boolean>bind(getQuery().getConstraints());
+      if (debugLevel.canLog(Level.FINE))
+      { filter.setDebug(true);
+      }
+    }
+    catch (BindException x)
+    { throw new DataException("Error binding constraints "+x,x);
+    }
+  }
+  
+
+  /**
+   * A Selection preserves the order of its source
+   */
+  @Override
+  public boolean isOrderedBy(Order order)
+  { return source.isOrderedBy(order);
+  }
+
+  @Override
+  protected SerialCursor<Tt> newSerialCursor(SerialCursor<Tt> source)
+    throws DataException
+  { return new SelectionSerialCursor(source);
+  }
+  
+  @Override
+  protected ScrollableCursor<Tt> 
+    newScrollableCursor(ScrollableCursor<Tt> source)
+    throws DataException
+  { return new SelectionScrollableCursor(source);
+  }
+
+  protected class SelectionSerialCursor
+    extends UnaryBoundQuerySerialCursor
+  {
+    public SelectionSerialCursor(SerialCursor<Tt> source)
+      throws DataException
+    { super(source);
+    }
+  
+    @Override
+    protected boolean integrate()
+    { 
+      Tt t=sourceChannel.get();
+      if (t==null)
+      { 
+        if (debugFine)
+        { log.fine(toString()+"BoundSelection: eod ");
+        }
+        return false;
+      }
+    
+      if (filter.get())
+      {  
+        if (debugFine)
+        { log.fine(toString()+"BoundSelection: passed "+t);
+        }
+        dataAvailable(t);
+        return true;
+      }
+      else
+      { 
+        if (debugFine)
+        { log.fine(toString()+"BoundSelection: filtered "+t);
+        }
+        return false;
+      }
+    }
+    
+    @Override
+    public Type<?> getResultType()
+    { 
+      Type<?> ret=sourceCursor.getResultType();
+      if (ret!=null)
+      { return ret;
+      }
+      else
+      { 
+        log.fine("Source cursor result type is null "+sourceCursor);
+        return null;
+      }
+    }
+
+  }
+
+  protected class SelectionScrollableCursor
+    extends UnaryBoundQueryScrollableCursor
+  {
+    public SelectionScrollableCursor(ScrollableCursor<Tt> source)
+      throws DataException
+    { super(source);
+    }
+
+    @Override
+    protected boolean integrate()
+    { 
+      Tt t=sourceChannel.get();
+      if (t==null)
+      { 
+        if (debugFine)
+        { log.fine("BoundSelection: eod ");
+        }
+        return false;
+      }
+
+      if (Boolean.TRUE.equals(filter.get()))
+      {  
+        if (debugFine)
+        { log.fine("BoundSelection: passed "+t);
+        }
+        dataAvailable(t);
+        return true;
+      }
+      else
+      { 
+        if (debugFine)
+        { log.fine("BoundSelection: filtered "+t);
+        }
+        return false;
+      }
+    }
+
+    @Override
+    public Type<?> getResultType()
+    { 
+      Type<?> ret=scrollableSourceCursor.getResultType();
+      if (ret!=null)
+      { return ret;
+      }
+      else
+      { 
+        log.fine("Source cursor result type is null "+scrollableSourceCursor);
+        return null;
+      }
+    }
+  }
+}
@@ -14,10 +14,12 @@
 //
 package spiralcraft.data.query;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 import spiralcraft.lang.Focus;
 import spiralcraft.lang.BindException;
@@ -33,6 +35,7 @@ import spiralcraft.data.FieldSet;
 import spiralcraft.data.Type;
 
 import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.spi.ExternalSorter;
 import spiralcraft.data.spi.ListCursor;
 import spiralcraft.data.spi.OrderComparator;
 
@@ -48,6 +51,8 @@ public class Sort
   private Order order;
   private String[] names;
   private boolean resolved;
+  private int limit;
+  private int spillThreshold;
   
   public Sort()
   { 
@@ -89,6 +94,35 @@ public class Sort
   { this.order=order;
   }
   
+  /**
+   * <p>The maximum number of results to return, or 0 for no limit. A 
+   *   limited Sort retains only the first "limit" results in a bounded heap
+   *   instead of sorting the entire source. 
+   * </p>
+   */
+  public void setLimit(int limit)
+  { this.limit=limit;
+  }
+  
+  public int getLimit()
+  { return limit;
+  }
+  
+  /**
+   * <p>The number of Tuples to sort in memory before spilling sorted runs
+   *   to temporary files and merging them, or 0 (the default) to always 
+   *   sort in memory. Results read back from spilled runs are copies of the
+   *   source Tuples.
+   * </p>
+   */
+  public void setSpillThreshold(int spillThreshold)
+  { this.spillThreshold=spillThreshold;
+  }
+  
+  public int getSpillThreshold()
+  { return spillThreshold;
+  }
+  
   @Override
   public void resolve()
     throws DataException
@@ -140,7 +174,7 @@ public class Sort
   @Override
   public String toString()
   { return super.toString()
-      +"[order="+order+"]: sources="
+      +"[order="+order+(limit>0?",limit="+limit:"")+"]: sources="
       +getSources().toString();
   }
     
@@ -151,6 +185,7 @@ class SortBinding<Tq extends Sort,T extends Tuple>
 {
   private OrderComparator comparator;
   private boolean resolved;
+  private boolean presorted;
   private BoundQuery<?,T> source;
   
   @SuppressWarnings("unchecked")
@@ -215,6 +250,11 @@ class SortBinding<Tq extends Sort,T extends Tuple>
         ,fieldSet
         ,paramFocus
           );
+      
+      presorted=source.isOrderedBy(getQuery().getOrder());
+      if (presorted && debugLevel.canLog(Level.DEBUG))
+      { log.debug("Eliding sort of pre-ordered source "+source);
+      }
 
     }
     catch (BindException x)
@@ -229,41 +269,155 @@ class SortBinding<Tq extends Sort,T extends Tuple>
     throws DataException
   {
     SerialCursor<T> sourceCursor=source.execute();
+    int limit=getQuery().getLimit();
+    if (presorted && limit<=0)
+    { return sourceCursor;
+    }
+    
     try
-    { return new SortScrollableCursor(sourceCursor);
+    { 
+      if (presorted)
+      { return new SortScrollableCursor(sourceCursor,readFirst(sourceCursor,limit));
+      }
+      else if (limit>0)
+      { return new SortScrollableCursor(sourceCursor,topN(sourceCursor,limit));
+      }
+      
+      ExternalSorter<T> sorter
+        =new ExternalSorter<T>
+          (sourceCursor.getResultType()!=null
+            ?sourceCursor.getResultType()
+            :getType()
+          ,sourceCursor.getFieldSet()
+          ,comparator
+          ,getQuery().getSpillThreshold()
+          );
+      boolean merging=false;
+      try
+      {
+        while (sourceCursor.next())
+        { sorter.add(nextTuple(sourceCursor));
+        }
+      
+        if (sorter.isSpilled())
+        { 
+          // The merge cursor owns the runs from here on
+          merging=true;
+          return sorter.merge();
+        }
+        else
+        { return new SortScrollableCursor(sourceCursor,sorter.sortBuffer());
+        }
+      }
+      finally
+      {
+        if (!merging)
+        { sorter.discard();
+        }
+      }
     }
     finally
     { sourceCursor.close();
     }
   }
   
-
-  protected class SortScrollableCursor
-    extends ListCursor<T>
+  @SuppressWarnings("unchecked")
+  private T nextTuple(SerialCursor<T> sourceCursor)
+    throws DataException
   {
-    
-    { data=new LinkedList<T>();
+    T tuple=sourceCursor.getTuple();
+    if (tuple.isVolatile())
+    { tuple=(T) tuple.snapshot();
     }
+    if (debugLevel.canLog(Level.FINE))
+    { log.fine("Adding to collection: "+tuple);
+    }
+    return tuple;
+  }
+  
+  private List<T> readFirst(SerialCursor<T> sourceCursor,int limit)
+    throws DataException
+  {
+    ArrayList<T> result=new ArrayList<T>(Math.min(limit,1024));
+    while (result.size()<limit && sourceCursor.next())
+    { result.add(nextTuple(sourceCursor));
+    }
+    return result;
+  }
+  
+  /**
+   * Retain the first "limit" tuples in sort order using a bounded heap
+   *   whose head is the greatest retained tuple. Ties are broken by arrival
+   *   order so the result is the same as a stable sort.
+   */
+  private List<T> topN(SerialCursor<T> sourceCursor,final int limit)
+    throws DataException
+  {
+    final Comparator<Ranked<T>> rankOrder
+      =new Comparator<Ranked<T>>()
+    {
+      @Override
+      public int compare(Ranked<T> r1,Ranked<T> r2)
+      { 
+        int result=comparator.compare(r1.tuple,r2.tuple);
+        return result!=0?result:Long.compare(r1.seq,r2.seq);
+      }
+    };
     
-    
-      
-    @SuppressWarnings("unchecked")
-    public SortScrollableCursor(SerialCursor<T> source)
-      throws DataException
+    PriorityQueue<Ranked<T>> heap
+      =new PriorityQueue<Ranked<T>>
+        (Math.min(limit,1024)+1,Collections.reverseOrder(rankOrder));
+    long seq=0;
+    while (sourceCursor.next())
     { 
-      super(source.getFieldSet());
-      while (source.next())
+      T tuple=sourceCursor.getTuple();
+      if (heap.size()==limit)
       { 
-        T tuple=source.getTuple();
-        if (tuple.isVolatile())
-        { tuple=(T) tuple.snapshot();
-        }
-        data.add(tuple);
-        if (debugLevel.canLog(Level.FINE))
-        { log.fine("Adding to collection: "+tuple);
+        // Skip without snapshotting if it would be evicted immediately
+        if (comparator.compare(tuple,heap.peek().tuple)>=0)
+        { 
+          seq++;
+          continue;
         }
       }
-      Collections.sort(data,comparator);
+      heap.add(new Ranked<T>(nextTuple(sourceCursor),seq++));
+      if (heap.size()>limit)
+      { heap.poll();
+      }
+    }
+    
+    Ranked<T>[] ranked=heap.toArray(Ranked.<T>newArray(heap.size()));
+    Arrays.sort(ranked,rankOrder);
+    ArrayList<T> result=new ArrayList<T>(ranked.length);
+    for (Ranked<T> r: ranked)
+    { result.add(r.tuple);
+    }
+    return result;
+  }
+  
+  private static class Ranked<T>
+  {
+    final T tuple;
+    final long seq;
+    
+    Ranked(T tuple,long seq)
+    { 
+      this.tuple=tuple;
+      this.seq=seq;
+    }
+    
+    @SuppressWarnings("unchecked")
+    static <T> Ranked<T>[] newArray(int size)
+    { return (Ranked<T>[]) new Ranked<?>[size];
+    }
+  }
+
+  protected class SortScrollableCursor
+    extends ListCursor<T>
+  {
+    
+    public SortScrollableCursor(SerialCursor<T> source,List<T> sorted)
+    { super(source.getFieldSet(),sorted);
     }
   
     
@@ -50,6 +50,7 @@ import java.util.Date;
 import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import spiralcraft.time.Instant;
@@ -72,8 +73,8 @@ public class ReflectionType<T>
   
   public static final String INNER_CLASS_SEPARATOR="-";
   
-  private static final HashMap<Class<?>,URI> CANONICAL_MAP
-    =new HashMap<Class<?>,URI>();
+  private static final ConcurrentHashMap<Class<?>,URI> CANONICAL_MAP
+    =new ConcurrentHashMap<Class<?>,URI>();
   {
     
     mapStandardClass
@@ -179,8 +180,32 @@ public class ReflectionType<T>
 //  }  
   
   
-  public static void registerCanonicalType(Class<?> clazz,URI typeURI)
-  { CANONICAL_MAP.put(clazz,typeURI);
+  /**
+   * Map a Class to the URI of the Type that represents it. A mapping made
+   *   by a Type load that is later abandoned is reversed.
+   */
+  public static void registerCanonicalType
+    (final Class<?> clazz,final URI typeURI)
+  { 
+    final URI previous=CANONICAL_MAP.put(clazz,typeURI);
+    if (!typeURI.equals(previous))
+    {
+      TypeResolver.onAbandon
+        (new Runnable()
+        {
+          @Override
+          public void run()
+          { 
+            if (previous==null)
+            { CANONICAL_MAP.remove(clazz,typeURI);
+            }
+            else
+            { CANONICAL_MAP.replace(clazz,typeURI,previous);
+            }
+          }
+        }
+        );
+    }
   }
 
   private static boolean checkAggregate(Class<?> clazz)
@@ -14,6 +14,7 @@
 //
 package spiralcraft.data.sax;
 
+import spiralcraft.sax.XmlEventCache;
 import spiralcraft.util.string.StringPool;
 import spiralcraft.vfs.Resolver;
 import spiralcraft.vfs.Resource;
@@ -52,6 +53,7 @@ public class DataReader
   private boolean contextAware;
   private StringPool stringPool;
   private boolean debug;
+  private XmlEventCache eventCache;
   
   /**
    * <p>Provide a DataConsumer to receive a stream of Tuples from the outermost
@@ -76,6 +78,18 @@ public class DataReader
   { this.debug=debug;
   }
   
+  /**
+   * <p>Provide an XmlEventCache to replay the SAX events of unchanged
+   *   resources read via readFromResource() or readFromURI() instead of
+   *   parsing them.
+   * </p>
+   * 
+   * @param eventCache
+   */
+  public void setEventCache(XmlEventCache eventCache)
+  { this.eventCache=eventCache;
+  }
+  
   /**
    * <p>Provide a DataFactory to create appropriate DataComposite
    *   instances given mapped Types.
@@ -148,6 +162,18 @@ public class DataReader
     if (!resource.exists())
     { throw new IOException("Resource not found: "+resource.getURI());
     }
+    if (eventCache!=null)
+    { 
+      DataHandlerBase handler=createHandler(formalType,resource.getURI());
+      try
+      { eventCache.parse(resource,handler);
+      }
+      catch (SAXException x)
+      { throw wrapException(x,handler);
+      }
+      return handler.getCurrentObject();
+    }
+    
     InputStream in=resource.getInputStream();
     try
     { return readFromInputStream(in,formalType,resource.getURI());
@@ -197,6 +223,19 @@ public class DataReader
       throw new IOException(x.toString());
     }
     
+    DataHandlerBase handler=createHandler(formalType,resourceURI);
+    try
+    { parser.parse(in,handler);
+    }
+    catch (SAXException x)
+    { throw wrapException(x,handler);
+    }
+    return handler.getCurrentObject();
+
+  }  
+  
+  private DataHandlerBase createHandler(Type<?> formalType,URI resourceURI)
+  {
     DataHandlerBase handler;
     if (frameHandler==null)
     { handler=new DataHandler(formalType,resourceURI);
@@ -224,21 +263,16 @@ public class DataReader
     }
     
     handler.setContextAware(contextAware);
-    
-    try
-    { parser.parse(in,handler);
+    return handler;
+  }
+  
+  private SAXException wrapException(SAXException x,DataHandlerBase handler)
+  {
+    if (x instanceof DataSAXException)
+    { return x;
     }
-    catch (SAXException x)
-    {
-      if (x instanceof DataSAXException)
-      { throw x;
-      }
-      else
-      { throw new DataSAXException(x.getMessage()+handler.formatPosition(),x);
-      }
+    else
+    { return new DataSAXException(x.getMessage()+handler.formatPosition(),x);
     }
-    return handler.getCurrentObject();
-
-  }  
-  
+  }
 }
\ No newline at end of file
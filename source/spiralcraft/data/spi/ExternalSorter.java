@@ -0,0 +1,411 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.spi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.xml.sax.SAXException;
+
+import spiralcraft.data.Aggregate;
+import spiralcraft.data.DataException;
+import spiralcraft.data.FieldSet;
+import spiralcraft.data.Identifier;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.Type;
+import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.lang.CursorBinding;
+import spiralcraft.data.sax.DataReader;
+import spiralcraft.data.sax.DataWriter;
+import spiralcraft.lang.BindException;
+import spiralcraft.lang.Channel;
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+
+/**
+ * <p>Sorts a stream of Tuples that may not fit in memory.
+ * </p>
+ * 
+ * <p>Tuples are accumulated in an array-backed buffer. When the buffer
+ *   reaches the run size, it is sorted and written to a temporary run file
+ *   as a sequence of blocks, each encoded with the DataWriter. The sorted
+ *   result is produced by a k-way merge of the runs which holds one block
+ *   per run in memory.
+ * </p>
+ * 
+ * <p>The sort is stable. Tuples read back from runs are copies of the
+ *   originals.
+ * </p>
+ * 
+ * @author mike
+ */
+public class ExternalSorter<T extends Tuple>
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(ExternalSorter.class);
+  private static final Level logLevel
+    =ClassLog.getInitialDebugLevel(ExternalSorter.class,Level.INFO);
+  
+  private static final int BLOCK_SIZE=256;
+  
+  private final Type<?> type;
+  private final FieldSet fieldSet;
+  private final Comparator<? super T> comparator;
+  private final int runSize;
+  private final ArrayList<File> runs=new ArrayList<File>();
+  private ArrayList<T> buffer;
+  private long count;
+  
+  /**
+   * 
+   * @param type The Type of the Tuples being sorted, required to spill
+   * @param fieldSet The FieldSet of the Tuples being sorted
+   * @param comparator The sort order
+   * @param runSize The number of Tuples to hold in memory before spilling a
+   *   sorted run to disk, or 0 to sort entirely in memory
+   */
+  public ExternalSorter
+    (Type<?> type
+    ,FieldSet fieldSet
+    ,Comparator<? super T> comparator
+    ,int runSize
+    )
+  {
+    this.type=type;
+    this.fieldSet=fieldSet;
+    this.comparator=comparator;
+    if (runSize>0 && type==null)
+    { 
+      log.warning
+        ("Cannot spill Tuples of unknown type- sorting "+fieldSet
+        +" in memory"
+        );
+      runSize=0;
+    }
+    this.runSize=runSize;
+    this.buffer=new ArrayList<T>(runSize>0?Math.min(runSize,1024):16);
+  }
+  
+  public void add(T tuple)
+    throws DataException
+  {
+    buffer.add(tuple);
+    count++;
+    if (runSize>0 && buffer.size()>=runSize)
+    { spill();
+    }
+  }
+  
+  /**
+   * @return Whether any runs have been written to disk
+   */
+  public boolean isSpilled()
+  { return !runs.isEmpty();
+  }
+  
+  /**
+   * @return The in-memory buffer, sorted. Only valid when the sorter has
+   *   not spilled.
+   */
+  public List<T> sortBuffer()
+  { 
+    if (isSpilled())
+    { throw new IllegalStateException("Sort has spilled to disk");
+    }
+    Collections.sort(buffer,comparator);
+    return buffer;
+  }
+  
+  /**
+   * Complete the sort and return a SerialCursor which merges the runs. The
+   *   run files are deleted when the cursor is closed, or if the merge
+   *   fails to start.
+   */
+  public SerialCursor<T> merge()
+    throws DataException
+  {
+    if (!buffer.isEmpty())
+    { spill();
+    }
+    buffer=null;
+    if (logLevel.isFine())
+    { log.fine("Merging "+runs.size()+" runs of "+count+" tuples");
+    }
+    return new MergeCursor();
+  }
+  
+  /**
+   * Delete any run files. Callers which do not obtain a cursor from
+   *   merge() must call this to release the runs.
+   */
+  public void discard()
+  {
+    for (File run: runs)
+    { 
+      if (!run.delete() && run.exists())
+      { log.warning("Unable to delete sort run "+run);
+      }
+    }
+    runs.clear();
+  }
+  
+  private void spill()
+    throws DataException
+  {
+    Collections.sort(buffer,comparator);
+    File file=null;
+    boolean written=false;
+    try
+    {
+      file=File.createTempFile("spiralcraft-sort",".run");
+      DataOutputStream out
+        =new DataOutputStream
+          (new BufferedOutputStream(new FileOutputStream(file)));
+      try
+      {
+        Type<?> aggregateType=Type.getAggregateType(type);
+        EditableArrayListAggregate<T> block
+          =new EditableArrayListAggregate<T>(aggregateType);
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        DataWriter writer=new DataWriter();
+        for (int i=0;i<buffer.size();i++)
+        {
+          block.add(buffer.get(i));
+          if (block.size()==BLOCK_SIZE || i==buffer.size()-1)
+          { 
+            bytes.reset();
+            writer.writeToOutputStream(bytes,block);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            block.clear();
+          }
+        }
+      }
+      finally
+      { out.close();
+      }
+      written=true;
+    }
+    catch (IOException x)
+    { throw new DataException("Error writing sort run",x);
+    }
+    finally
+    {
+      if (!written)
+      { 
+        // Don't leave a partial run, or the runs already written, behind
+        if (file!=null && !file.delete() && file.exists())
+        { log.warning("Unable to delete sort run "+file);
+        }
+        discard();
+      }
+    }
+    
+    runs.add(file);
+    if (logLevel.isFine())
+    { log.fine("Spilled run #"+runs.size()+" of "+buffer.size()+" tuples");
+    }
+    buffer.clear();
+  }
+  
+  /**
+   * Reads the blocks of a single run in sequence
+   */
+  private class RunReader
+  {
+    final int index;
+    private final DataInputStream in;
+    private Iterator<T> block;
+    T head;
+    
+    RunReader(int index)
+      throws IOException
+    { 
+      this.index=index;
+      this.in=new DataInputStream
+        (new BufferedInputStream(new FileInputStream(runs.get(index))));
+    }
+    
+    /**
+     * Advance to the next Tuple in the run
+     */
+    @SuppressWarnings("unchecked")
+    boolean advance()
+      throws DataException
+    { 
+      try
+      {
+        while (block==null || !block.hasNext())
+        {
+          int len;
+          try
+          { len=in.readInt();
+          }
+          catch (EOFException x)
+          { 
+            head=null;
+            return false;
+          }
+          byte[] data=new byte[len];
+          in.readFully(data);
+          Aggregate<T> aggregate
+            =(Aggregate<T>) new DataReader().readFromInputStream
+              (new ByteArrayInputStream(data)
+              ,Type.getAggregateType(type)
+              ,runs.get(index).toURI()
+              );
+          block=aggregate.iterator();
+        }
+        head=block.next();
+        return true;
+      }
+      catch (IOException x)
+      { throw new DataException("Error reading sort run",x);
+      }
+      catch (SAXException x)
+      { throw new DataException("Error reading sort run",x);
+      }
+    }
+    
+    void close()
+    { 
+      try
+      { in.close();
+      }
+      catch (IOException x)
+      { log.log(Level.WARNING,"Error closing sort run",x);
+      }
+    }
+  }
+  
+  private class MergeCursor
+    implements SerialCursor<T>
+  {
+    private final PriorityQueue<RunReader> queue;
+    private final ArrayList<RunReader> readers=new ArrayList<RunReader>();
+    private T tuple;
+    
+    MergeCursor()
+      throws DataException
+    { 
+      queue=new PriorityQueue<RunReader>
+        (runs.size()
+        ,new Comparator<RunReader>()
+        {
+          @Override
+          public int compare(RunReader r1,RunReader r2)
+          {
+            int result=comparator.compare(r1.head,r2.head);
+            // Earlier runs hold earlier tuples, which keeps the merge stable
+            return result!=0?result:r1.index-r2.index;
+          }
+        }
+        );
+      boolean primed=false;
+      try
+      {
+        for (int i=0;i<runs.size();i++)
+        { 
+          RunReader reader=new RunReader(i);
+          readers.add(reader);
+          if (reader.advance())
+          { queue.add(reader);
+          }
+        }
+        primed=true;
+      }
+      catch (IOException x)
+      { throw new DataException("Error opening sort run",x);
+      }
+      finally
+      {
+        if (!primed)
+        { 
+          // Release the readers opened so far and delete the runs
+          close();
+        }
+      }
+    }
+
+    @Override
+    public boolean next()
+      throws DataException
+    {
+      RunReader reader=queue.poll();
+      if (reader==null)
+      { 
+        tuple=null;
+        return false;
+      }
+      tuple=reader.head;
+      if (reader.advance())
+      { queue.add(reader);
+      }
+      return true;
+    }
+    
+    @Override
+    public Type<?> getResultType()
+    { return type;
+    }
+
+    @Override
+    public Identifier getRelationId()
+    { return null;
+    }
+
+    @Override
+    public FieldSet getFieldSet()
+    { return fieldSet;
+    }
+
+    @Override
+    public T getTuple()
+    { return tuple;
+    }
+
+    @Override
+    public Channel<T> bind()
+      throws BindException
+    { return new CursorBinding<T,MergeCursor>(this);
+    }
+
+    @Override
+    public void close()
+    {
+      for (RunReader reader: readers)
+      { reader.close();
+      }
+      readers.clear();
+      queue.clear();
+      discard();
+    }
+  }
+}
@@ -25,10 +25,13 @@ import spiralcraft.util.KeyedList;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 /**
  * Holds a aggregation of objects of a common type.
@@ -45,6 +48,7 @@ public class KeyedListAggregate<T>
   protected final KeyedList<T> list;
   
   private Map<Projection<T>,Index<T>> indexMap;
+  private Map<Projection<T>,RangeIndex<T>> rangeIndexMap;
   
   /**
    * <p>Create a new ListAggregate backed by the specified List
@@ -183,6 +187,47 @@ public class KeyedListAggregate<T>
     return index;
   }
 
+  /**
+   * <p>Return the ordered RangeIndex associated with the specified
+   *   Projection, optionally creating it. RangeIndexes are maintained 
+   *   separately from the hashed Indexes returned by getIndex(), and
+   *   require the Projection's field values to be mutually Comparable.
+   * </p>
+   * 
+   * @param projection
+   * @param create
+   * @return The RangeIndex, or null if it does not exist and create is false
+   */
+  public synchronized RangeIndex<T> getRangeIndex
+    (Projection<T> projection,boolean create)
+  {
+    if (list==null)
+    { return null;
+    }
+    
+    if (rangeIndexMap==null)
+    { 
+      if (!create)
+      { return null;
+      }
+      rangeIndexMap=new HashMap<Projection<T>,RangeIndex<T>>();
+    }
+    
+    RangeIndex<T> index=rangeIndexMap.get(projection);
+    if (index==null && create)
+    {
+      if (logLevel.canLog(Level.DEBUG))
+      { 
+        log.debug
+          ("Creating range index on "+projection+" for "+getType().getURI());
+      }
+      index=new RangeListIndex
+        (new TreeMap<KeyTuple,List<T>>(KeyComparator.INSTANCE),projection);
+      rangeIndexMap.put(projection,index);
+    }
+    return index;
+  }
+  
   @Override
   public Index<T> getIndex(Projection<T> projection,boolean create)
     throws DataException
@@ -222,7 +267,7 @@ public class KeyedListAggregate<T>
     implements Index<T>
   {
     
-    private final KeyedList<T>.Index<KeyTuple,T> backingIndex;
+    protected final KeyedList<T>.Index<KeyTuple,T> backingIndex;
     
     public ListIndex(Map<KeyTuple,List<T>> mapImpl,Projection<T> projection)
     { 
@@ -249,4 +294,117 @@ public class KeyedListAggregate<T>
     { return backingIndex.getFirst(key);
     }
   }
-}
\ No newline at end of file
+  
+  class RangeListIndex
+    extends ListIndex
+    implements RangeIndex<T>
+  {
+    
+    public RangeListIndex
+      (NavigableMap<KeyTuple,List<T>> mapImpl,Projection<T> projection)
+    { super(mapImpl,projection);
+    }
+
+    @Override
+    public Aggregate<T> range
+      (KeyTuple lower
+      ,boolean lowerInclusive
+      ,KeyTuple upper
+      ,boolean upperInclusive
+      )
+    {
+      NavigableMap<KeyTuple,List<T>> map=backingIndex.navigableMap();
+      if (lower!=null && upper!=null)
+      { 
+        if (KeyComparator.INSTANCE.compare(lower,upper)>0)
+        { return new ListAggregate<T>(getType(),new ArrayList<T>(0));
+        }
+        map=map.subMap(lower,lowerInclusive,upper,upperInclusive);
+      }
+      else if (lower!=null)
+      { map=map.tailMap(lower,lowerInclusive);
+      }
+      else if (upper!=null)
+      { map=map.headMap(upper,upperInclusive);
+      }
+      
+      ArrayList<T> result=new ArrayList<T>();
+      for (Map.Entry<KeyTuple,List<T>> entry : map.entrySet())
+      { 
+        if (!KeyComparator.hasNull(entry.getKey()))
+        { result.addAll(entry.getValue());
+        }
+      }
+      return new ListAggregate<T>(getType(),result);
+    }
+  }
+}
+
+/**
+ * <p>Orders KeyTuples field by field, placing nulls first and comparing 
+ *   Numbers of different classes by value.
+ * </p>
+ */
+class KeyComparator
+  implements Comparator<KeyTuple>
+{
+  static final KeyComparator INSTANCE=new KeyComparator();
+  
+  static boolean hasNull(KeyTuple key)
+  { 
+    for (Object o: key.getData())
+    { 
+      if (o==null)
+      { return true;
+      }
+    }
+    return false;
+  }
+  
+  @Override
+  public int compare(KeyTuple k1,KeyTuple k2)
+  {
+    Object[] d1=k1.getData();
+    Object[] d2=k2.getData();
+    int len=Math.min(d1.length,d2.length);
+    for (int i=0;i<len;i++)
+    { 
+      int result=compareValues(d1[i],d2[i]);
+      if (result!=0)
+      { return result;
+      }
+    }
+    return d1.length-d2.length;
+  }
+  
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private int compareValues(Object o1,Object o2)
+  {
+    if (o1==null)
+    { return o2==null?0:-1;
+    }
+    else if (o2==null)
+    { return 1;
+    }
+    else if (o1.getClass()!=o2.getClass()
+              && o1 instanceof Number
+              && o2 instanceof Number
+              )
+    {
+      if (isIntegral(o1) && isIntegral(o2))
+      { return Long.compare(((Number) o1).longValue(),((Number) o2).longValue());
+      }
+      return Double.compare
+        (((Number) o1).doubleValue(),((Number) o2).doubleValue());
+    }
+    return ((Comparable) o1).compareTo(o2);
+  }
+  
+  private boolean isIntegral(Object o)
+  { 
+    return o instanceof Integer 
+      || o instanceof Long 
+      || o instanceof Short 
+      || o instanceof Byte;
+  }
+}
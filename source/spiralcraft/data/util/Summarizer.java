@@ -14,6 +14,10 @@
 //
 package spiralcraft.data.util;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
 import spiralcraft.common.ContextualException;
 import spiralcraft.data.DataConsumer;
 import spiralcraft.data.DataException;
@@ -24,18 +28,32 @@ import spiralcraft.data.editor.TupleEditor;
 import spiralcraft.data.lang.DataReflector;
 import spiralcraft.data.session.BufferTuple;
 import spiralcraft.data.session.KeyBufferChannel;
+import spiralcraft.data.spi.KeyIdentifier;
 import spiralcraft.data.transaction.Transaction;
 import spiralcraft.data.transaction.Transaction.Nesting;
+import spiralcraft.lang.Channel;
 import spiralcraft.lang.Contextual;
 import spiralcraft.lang.Expression;
 import spiralcraft.lang.Focus;
 import spiralcraft.lang.spi.BindingChannel;
 import spiralcraft.lang.spi.ThreadLocalChannel;
 import spiralcraft.lang.spi.ViewCache;
+import spiralcraft.lang.spi.ViewState;
 import spiralcraft.log.ClassLog;
 
 /**
- * Summarizes incoming data to persistent storage
+ * <p>Summarizes incoming data to persistent storage
+ * </p>
+ * 
+ * <p>By default, each fact is applied to its stored summary Tuple and the
+ *   summary is saved as the fact arrives. When preAggregate is set, the
+ *   accumulated summary values are held in memory for each summary key
+ *   (the values of the summaryKeyBindings). Each fact is reduced into the
+ *   values for its key as it arrives, and the values are merged into the
+ *   stored summaries, with one save per key, when the data is finalized or
+ *   when batchSize facts are pending. Memory use grows with the number of
+ *   keys rather than with the number of facts.
+ * </p>
  * 
  * @author mike
  *
@@ -52,7 +70,22 @@ public class Summarizer<T extends Tuple>
   private Expression<?>[] summaryKeyBindings;
   private Expression<?>[] summaryDataBindings;
   private BindingChannel<?>[] summaryDataChannels;
+  private Channel<?>[] summaryDataSources;
+  private Channel<?>[] summaryKeyChannels;
+  
+  private boolean preAggregate;
+  private int batchSize;
+  private int parallelism=1;
+  private int parallelThreshold=64;
   
+  /**
+   * The number of facts reduced at a time in parallel when no batchSize 
+   *   is set
+   */
+  public static final int DEFAULT_PARALLEL_BATCH_SIZE=4096;
+  
+  private final ThreadLocal<Aggregation<T>> aggregation
+    =new ThreadLocal<Aggregation<T>>();
 
   private ThreadLocalChannel<T> fact;
   private KeyBufferChannel<T,BufferTuple> summaryBuffer;
@@ -85,6 +118,68 @@ public class Summarizer<T extends Tuple>
   { this.summaryDataBindings=summaryDataBindings;
   }
   
+  /**
+   * <p>Reduce facts in memory per summary key and merge the accumulated
+   *   values into the stored summaries in batches, instead of saving the
+   *   summary for every fact.
+   * </p>
+   * 
+   * @param preAggregate
+   */
+  public void setPreAggregate(boolean preAggregate)
+  { this.preAggregate=preAggregate;
+  }
+  
+  public boolean isPreAggregate()
+  { return preAggregate;
+  }
+  
+  /**
+   * <p>When pre-aggregating, the number of pending facts that triggers a
+   *   merge into the stored summaries. Zero (the default) merges only
+   *   when the data is finalized.
+   * </p>
+   * 
+   * @param batchSize
+   */
+  public void setBatchSize(int batchSize)
+  { this.batchSize=batchSize;
+  }
+  
+  /**
+   * <p>When pre-aggregating, the maximum number of threads used to reduce
+   *   the pending facts. Defaults to 1.
+   * </p>
+   * 
+   * <p>When greater than 1, facts are reduced in batches of batchSize 
+   *   (or DEFAULT_PARALLEL_BATCH_SIZE if no batchSize is set). The facts in
+   *   a batch are partitioned by summary key and the partitions are
+   *   reduced concurrently.
+   * </p>
+   * 
+   * <p>Worker threads inherit the context of the calling thread, but
+   *   the summaryDataBindings should depend only on the fact when
+   *   parallelism is greater than 1. Reading and saving the stored
+   *   summaries always happens on the calling thread.
+   * </p>
+   * 
+   * @param parallelism
+   */
+  public void setParallelism(int parallelism)
+  { this.parallelism=parallelism;
+  }
+  
+  /**
+   * <p>The minimum number of summary keys per thread in a batch for the
+   *   reduction to be spread across threads. Defaults to 64.
+   * </p>
+   * 
+   * @param parallelThreshold
+   */
+  public void setParallelThreshold(int parallelThreshold)
+  { this.parallelThreshold=parallelThreshold;
+  }
+  
   @Override
   public Focus<?> bind(
     Focus<?> focusChain)
@@ -114,6 +209,12 @@ public class Summarizer<T extends Tuple>
     summaryDataChannels=BindingChannel.bind(summaryDataBindings,factFocus);
     summaryEditor.setPreSaveBindings
       (summaryDataChannels);
+    summaryDataSources=BindingChannel.sources(summaryDataChannels);
+    
+    summaryKeyChannels=new Channel<?>[summaryKeyBindings.length];
+    for (int i=0;i<summaryKeyBindings.length;i++)
+    { summaryKeyChannels[i]=factFocus.bind(summaryKeyBindings[i]);
+    }
     
     summaryEditor.bind(focusChain);
     
@@ -127,12 +228,22 @@ public class Summarizer<T extends Tuple>
     throws DataException
   {
     Transaction.startContextTransaction(Nesting.PROPOGATE);
+    if (preAggregate)
+    { aggregation.set(new Aggregation<T>());
+    }
   }
 
   @Override
   public void dataAvailable(T factItem)
     throws DataException
   {
+    Aggregation<T> pending=preAggregate?aggregation.get():null;
+    if (pending!=null)
+    { 
+      aggregate(pending,factItem);
+      return;
+    }
+    
     fact.push(factItem);
     summaryEditor.push();
     try
@@ -177,7 +288,292 @@ public class Summarizer<T extends Tuple>
   @Override
   public void dataFinalize()
     throws DataException
-  { Transaction.getContextTransaction().complete();
+  { 
+    Aggregation<T> pending=aggregation.get();
+    aggregation.remove();
+    try
+    {
+      if (pending!=null)
+      { merge(pending);
+      }
+    }
+    finally
+    { Transaction.getContextTransaction().complete();
+    }
+  }
+  
+  /**
+   * Reduce the fact into the accumulated values for its summary key, or
+   *   queue it for a parallel reduction
+   */
+  private void aggregate(Aggregation<T> pending,T factItem)
+    throws DataException
+  {
+    try
+    {
+      pending.factCount++;
+      if (parallelism>1)
+      { 
+        pending.facts.add(factItem);
+        if (pending.factCount
+              >=(batchSize>0?batchSize:DEFAULT_PARALLEL_BATCH_SIZE)
+            )
+        { merge(pending);
+        }
+      }
+      else
+      {
+        reduce(group(pending,factItem),factItem);
+        if (batchSize>0 && pending.factCount>=batchSize)
+        { merge(pending);
+        }
+      }
+    }
+    catch (DataException x)
+    { 
+      Transaction.getContextTransaction().rollbackOnComplete();
+      throw x;
+    }
+  }
+  
+  /**
+   * Find the group for the fact's summary key, seeding a new group from
+   *   the stored summary the first time the key is seen.
+   */
+  private Group<T> group(Aggregation<T> pending,T factItem)
+    throws DataException
+  {
+    KeyIdentifier<?> key;
+    fact.push(factItem);
+    try
+    { key=KeyIdentifier.read(summaryType,summaryKeyChannels);
+    }
+    finally
+    { fact.pop();
+    }
+    
+    Group<T> group=pending.groups.get(key);
+    if (group==null)
+    { 
+      group=new Group<T>();
+      seed(group,factItem);
+      pending.groups.put(key,group);
+    }
+    group.lastFact=factItem;
+    return group;
+  }
+  
+  /**
+   * <p>Merge the accumulated values of each pending group into its stored
+   *   summary, and start over with no groups.
+   * </p>
+   */
+  private void merge(Aggregation<T> pending)
+    throws DataException
+  {
+    try
+    {
+      if (!pending.facts.isEmpty())
+      { reduceParallel(pending);
+      }
+      
+      for (Group<T> group: pending.groups.values())
+      { save(group);
+      }
+    }
+    catch (DataException x)
+    { 
+      Transaction.getContextTransaction().rollbackOnComplete();
+      throw x;
+    }
+    finally
+    {
+      pending.groups.clear();
+      pending.facts.clear();
+      pending.factCount=0;
+    }
+  }
+  
+  /**
+   * Read the stored summary into the group's buffer and accumulator state
+   */
+  private void seed(Group<T> group,T factItem)
+    throws DataException
+  {
+    fact.push(factItem);
+    summaryEditor.push();
+    try
+    {
+      summaryEditor.initBuffer();
+      group.buffer=summaryEditor.getBuffer();
+      
+      viewCache.push();
+      try
+      {
+        viewCache.init();
+        BindingChannel.applyReverse(summaryDataChannels);
+        group.states=viewCache.get();
+      }
+      finally
+      { viewCache.pop();
+      }
+    }
+    finally
+    {
+      summaryEditor.pop();
+      fact.pop();
+    }
+  }
+  
+  /**
+   * Run a fact through the accumulators of its group
+   */
+  private void reduce(Group<T> group,T factItem)
+  {
+    viewCache.push();
+    fact.push(factItem);
+    try
+    { 
+      viewCache.set(group.states);
+      viewCache.touch();
+      for (Channel<?> source: summaryDataSources)
+      { source.get();
+      }
+    }
+    finally
+    { 
+      fact.pop();
+      viewCache.pop();
+    }
+  }
+  
+  /**
+   * Run the facts of every stride'th group, starting at offset, through 
+   *   the accumulators of the group
+   */
+  private void reduce(List<Group<T>> groups,int offset,int stride)
+  {
+    for (int i=offset;i<groups.size();i+=stride)
+    {
+      Group<T> group=groups.get(i);
+      for (T factItem: group.facts)
+      { reduce(group,factItem);
+      }
+      group.facts.clear();
+    }
+  }
+  
+  /**
+   * <p>Partition the pending facts by summary key and reduce the partitions
+   *   on up to parallelism threads. New groups are seeded on the calling
+   *   thread first.
+   * </p>
+   */
+  private void reduceParallel(Aggregation<T> pending)
+    throws DataException
+  {
+    for (T factItem: pending.facts)
+    { group(pending,factItem).facts.add(factItem);
+    }
+    pending.facts.clear();
+    
+    final List<Group<T>> groups
+      =new ArrayList<Group<T>>(pending.groups.values());
+    final int threads
+      =Math.min(parallelism,groups.size()/Math.max(1,parallelThreshold));
+    if (threads<=1)
+    { 
+      reduce(groups,0,1);
+      return;
+    }
+    
+    final Throwable[] errors=new Throwable[threads];
+    Thread[] workers=new Thread[threads-1];
+    try
+    {
+      for (int i=0;i<workers.length;i++)
+      {
+        final int offset=i+1;
+        workers[i]
+          =new Thread("Summarizer "+summaryType.getURI()+" worker "+offset)
+        {
+          @Override
+          public void run()
+          {
+            try
+            { reduce(groups,offset,threads);
+            }
+            catch (Throwable x)
+            { errors[offset]=x;
+            }
+          }
+        };
+        workers[i].start();
+      }
+      reduce(groups,0,threads);
+    }
+    finally
+    { join(workers);
+    }
+    
+    for (Throwable error: errors)
+    {
+      if (error!=null)
+      { throw new DataException("Error reducing summaries",error);
+      }
+    }
+  }
+  
+  /**
+   * Wait for the started workers to finish, re-asserting any interrupt
+   *   received while waiting
+   */
+  private void join(Thread[] workers)
+  {
+    boolean interrupted=false;
+    for (Thread worker: workers)
+    {
+      while (worker!=null && worker.isAlive())
+      {
+        try
+        { worker.join();
+        }
+        catch (InterruptedException x)
+        { interrupted=true;
+        }
+      }
+    }
+    if (interrupted)
+    { Thread.currentThread().interrupt();
+    }
+  }
+  
+  /**
+   * Write the reduced summary values back to the group's summary Tuple
+   */
+  private void save(Group<T> group)
+    throws DataException
+  {
+    fact.push(group.lastFact);
+    summaryEditor.push(group.buffer);
+    try
+    {
+      viewCache.push();
+      try
+      {
+        viewCache.set(group.states);
+        viewCache.checkpoint();
+        summaryEditor.save(false);
+      }
+      finally
+      { viewCache.pop();
+      }
+    }
+    finally
+    {
+      summaryEditor.pop();
+      fact.pop();
+    }
   }
 
   @Override
@@ -187,6 +583,33 @@ public class Summarizer<T extends Tuple>
     
   }
 
-
+  /**
+   * The groups pending a merge into the stored summaries
+   */
+  static class Aggregation<T>
+  {
+    final LinkedHashMap<KeyIdentifier<?>,Group<T>> groups
+      =new LinkedHashMap<KeyIdentifier<?>,Group<T>>();
+    
+    /**
+     * Facts waiting for a parallel reduction
+     */
+    final ArrayList<T> facts=new ArrayList<T>();
+    int factCount;
+  }
   
+  /**
+   * The summary buffer and accumulator state for a summary key
+   */
+  static class Group<T>
+  {
+    BufferTuple buffer;
+    ViewState<?>[] states;
+    T lastFact;
+    
+    /**
+     * Facts partitioned to this group for a parallel reduction
+     */
+    final ArrayList<T> facts=new ArrayList<T>(0);
+  }
 }
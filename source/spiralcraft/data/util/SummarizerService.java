@@ -58,6 +58,50 @@ public class SummarizerService<Tsummary extends Tuple,Tfact extends Tuple>
   { summarizer.setSummaryDataBindings(summaryDataBindings);
   }
   
+  /**
+   * <p>Reduce the facts in each batch in memory per summary key, and merge
+   *   them into the stored summaries with one save per key.
+   * </p>
+   * 
+   * @param preAggregate
+   */
+  public void setPreAggregate(boolean preAggregate)
+  { summarizer.setPreAggregate(preAggregate);
+  }
+  
+  /**
+   * <p>When pre-aggregating, merge into the stored summaries every
+   *   batchSize facts instead of once per batch.
+   * </p>
+   * 
+   * @param batchSize
+   */
+  public void setSummaryBatchSize(int batchSize)
+  { summarizer.setBatchSize(batchSize);
+  }
+  
+  /**
+   * <p>When pre-aggregating, the maximum number of threads used to reduce
+   *   each batch of facts.
+   * </p>
+   * 
+   * @param parallelism
+   */
+  public void setParallelism(int parallelism)
+  { summarizer.setParallelism(parallelism);
+  }
+  
+  /**
+   * <p>When pre-aggregating in parallel, the minimum number of summary keys
+   *   per thread in a batch for the reduction to be spread across threads.
+   * </p>
+   * 
+   * @param parallelThreshold
+   */
+  public void setParallelThreshold(int parallelThreshold)
+  { summarizer.setParallelThreshold(parallelThreshold);
+  }
+  
   /**
    * The type of fact being summarized
    * 
@@ -0,0 +1,216 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.xml;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Field;
+import spiralcraft.data.KeyTuple;
+import spiralcraft.data.Order;
+import spiralcraft.data.OrderElement;
+import spiralcraft.data.Projection;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.Type;
+import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.query.BoundQuery;
+import spiralcraft.data.query.Range;
+import spiralcraft.lang.BindException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.Focus;
+import spiralcraft.lang.Reflector;
+import spiralcraft.lang.TeleFocus;
+import spiralcraft.log.Level;
+import spiralcraft.util.lang.ClassUtil;
+
+/**
+ * <p>Retrieves a Range of an XmlQueryable through an ordered index on the
+ *   constrained field. Results are returned in ascending field order, which
+ *   permits a downstream Sort on the same field to be elided.
+ * </p>
+ * 
+ * <p>The index excludes null values, so a null bound is evaluated by
+ *   scanning, with the semantics of the equivalent Selection. 
+ * </p>
+ * 
+ * @author mike
+ */
+public class BoundRangeScan
+  extends BoundQuery<Range,Tuple>
+{
+  
+  /**
+   * @return Whether the Range constrains a single field of the specified
+   *   Type with naturally ordered values that can be maintained in an 
+   *   ordered index. 
+   */
+  static boolean isIndexable(Range range,Type<?> type)
+  {
+    String fieldName=range.getFieldName();
+    if (fieldName==null || type.getFieldSet()==null)
+    { return false;
+    }
+    Field<?> field=type.getFieldSet().getFieldByName(fieldName);
+    if (field==null || field.getContentReflector()==null)
+    { return false;
+    }
+    Class<?> contentType
+      =ClassUtil.boxedEquivalent(field.getContentReflector().getContentType());
+    return contentType!=null && Comparable.class.isAssignableFrom(contentType);
+  }
+  
+  private final XmlQueryable source;
+  private final Projection<Tuple> projection;
+  private final Channel<?> lower;
+  private final Channel<?> upper;
+  private final BoundQuery<?,Tuple> scan;
+  private final boolean debugTrace;
+  
+  public BoundRangeScan(Range range,Focus<?> context,XmlQueryable source)
+    throws DataException
+  { 
+    super(range,context);
+    this.source=source;
+    // Create a focus to resolve the bound expressions
+    Focus<?> focus=new TeleFocus<Void>(context,null);
+    
+    projection
+      =source.getResultType().getScheme().getProjection
+        (new Expression<?>[] {Expression.create(range.getFieldName())});
+    
+    lower=bindBound(focus,range.getLowerBound());
+    upper=bindBound(focus,range.getUpperBound());
+    scan=range.<Tuple>getDefaultBinding(context,source);
+    debugTrace=debugLevel.canLog(Level.TRACE);
+  }
+  
+  @Override
+  public void resolve()
+    throws DataException
+  { 
+    super.resolve();
+    scan.resolve();
+  }
+  
+  private Channel<?> bindBound(Focus<?> focus,Expression<?> expr)
+    throws DataException
+  {
+    if (expr==null)
+    { return null;
+    }
+    
+    Channel<?> channel;
+    try
+    { channel=focus.bind(expr);
+    }
+    catch (BindException x)
+    { 
+      throw new DataException
+        ("Error binding Range bound expression "+expr,x);
+    }
+    
+    Reflector<?> paramReflector=channel.getReflector();
+    Reflector<?> fieldReflector
+      =projection.getFieldByIndex(0).getContentReflector();
+    if (paramReflector!=fieldReflector
+        && paramReflector!=null
+        && fieldReflector!=null
+        && !paramReflector.isAssignableFrom(fieldReflector)
+        && !fieldReflector.isAssignableFrom(paramReflector)
+        && !(Number.class.isAssignableFrom
+              (ClassUtil.boxedEquivalent(paramReflector.getContentType()))
+            && Number.class.isAssignableFrom
+              (ClassUtil.boxedEquivalent(fieldReflector.getContentType()))
+            )
+        )
+    { 
+      throw new DataException
+        ("Types are not comparable: "
+          +expr.toString()+"("+paramReflector.getTypeURI()+")"
+          +" cannot be compared to "
+          +projection.getFieldByIndex(0).getURI()
+          +"("+fieldReflector.getTypeURI()+")"
+        );
+    }
+    return channel;
+  }
+  
+  /**
+   * The index is in ascending natural order of the field, and excludes
+   *   null values. Results for a null bound can only contain null values
+   *   for the field, which are trivially in order.
+   */
+  @Override
+  public boolean isOrderedBy(Order order)
+  {
+    OrderElement<?>[] elements=order!=null?order.getElements():null;
+    if (elements==null || elements.length!=1)
+    { return false;
+    }
+    
+    OrderElement<?> element=elements[0];
+    return !element.getReverse()
+      && element.getComparator()==null
+      && projection.getFieldByIndex(0).getType().getComparator()==null
+      && getQuery().getFieldName().equals
+        (Range.getFieldName(element.getExpression()));
+  }
+  
+  @Override
+  public String toString()
+  { return super.toString()+" projection="+projection.toString();
+  }
+  
+  @Override
+  public SerialCursor<Tuple> doExecute() throws DataException
+  { 
+    Object lowerValue=lower!=null?lower.get():null;
+    Object upperValue=upper!=null?upper.get():null;
+    if ( (lower!=null && lowerValue==null)
+         || (upper!=null && upperValue==null)
+       )
+    { 
+      if (debugTrace)
+      { log.trace(toString()+": Scanning for null bound");
+      }
+      return scan.execute();
+    }
+    
+    KeyTuple lowerKey
+      =lower!=null
+      ?new KeyTuple(projection,new Object[] {lowerValue},true)
+      :null;
+    KeyTuple upperKey
+      =upper!=null
+      ?new KeyTuple(projection,new Object[] {upperValue},true)
+      :null;
+    
+    if (debugTrace)
+    { 
+      log.trace
+        (toString()+": Executing BoundRangeScan of "+getType().getURI()+"#"
+          +projection.toString()
+          +" with "+(lowerKey!=null?lowerKey.getData()[0]:"*")
+          +" to "+(upperKey!=null?upperKey.getData()[0]:"*")
+        );
+    }      
+    return source.getCursor
+      (projection
+      ,lowerKey
+      ,getQuery().isLowerInclusive()
+      ,upperKey
+      ,getQuery().isUpperInclusive()
+      );
+  } 
+}
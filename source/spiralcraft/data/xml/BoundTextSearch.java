@@ -0,0 +1,97 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.xml;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.query.BoundQuery;
+import spiralcraft.data.query.TextSearch;
+import spiralcraft.lang.BindException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.Focus;
+import spiralcraft.log.Level;
+
+/**
+ * <p>Resolves a TextSearch against the TextIndex of an XmlQueryable, 
+ *   returning results in rank order without scanning the data.
+ * </p>
+ * 
+ * <p>Within a transaction that has uncommitted changes to the data, 
+ *   the search falls back to the default scanning binding so the changes 
+ *   are reflected in the results.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class BoundTextSearch
+  extends BoundQuery<TextSearch,Tuple>
+{
+  private final XmlQueryable source;
+  private final Channel<String> queryString;
+  private BoundQuery<?,Tuple> scanBinding;
+  
+  public BoundTextSearch(TextSearch query,Focus<?> context,XmlQueryable source)
+    throws DataException
+  { 
+    super(query,context);
+    this.source=source;
+    try
+    { this.queryString=context.bind(query.getQueryStringX());
+    }
+    catch (BindException x)
+    { throw new DataException("Error binding query string",x);
+    }
+  }
+  
+  @Override
+  public SerialCursor<Tuple> doExecute() throws DataException
+  { 
+    String queryString=this.queryString.get();
+    if (debugLevel.canLog(Level.TRACE))
+    { 
+      log.trace
+        (toString()+": Executing indexed TextSearch of "+getType().getURI()
+          +" for ["+queryString+"]"
+        );
+    }
+    
+    SerialCursor<Tuple> cursor
+      =source.getTextSearchCursor
+        (queryString
+        ,getQuery().getFields()
+        ,getQuery().getMatchAll()
+        ,getQuery().getLimit()
+        );
+    if (cursor!=null)
+    { return cursor;
+    }
+    return getScanBinding().execute();
+  } 
+  
+  private synchronized BoundQuery<?,Tuple> getScanBinding()
+    throws DataException
+  {
+    if (scanBinding==null)
+    { 
+      BoundQuery<?,Tuple> binding
+        =getQuery().getDefaultBinding(paramFocus,source);
+      binding.resolve();
+      scanBinding=binding;
+    }
+    return scanBinding;
+  }
+}
@@ -66,6 +66,11 @@ public class XmlBranch
   private LinkedHashSet<Identifier> wroteList
     =new LinkedHashSet<Identifier>();
   
+  private ArrayList<Tuple[]> journalChanges
+    =new ArrayList<Tuple[]>();
+  
+  private byte[] journalRecord;
+  
   private EditableKeyedListAggregate<ArrayJournalTuple> txCopy;
   private KeyFunction<KeyTuple,Tuple> primaryKeyFn;
   private KeyedListAggregate.Index<ArrayJournalTuple> txPrimaryIndex;
@@ -266,6 +271,46 @@ public class XmlBranch
     
   }
   
+  SerialCursor<Tuple> getCursor
+    (Projection<Tuple> projection
+    ,KeyTuple lower
+    ,boolean lowerInclusive
+    ,KeyTuple upper
+    ,boolean upperInclusive
+    )
+    throws DataException
+  {
+    if (deltaList.isEmpty())
+    { 
+      return queryable.getPublicCursor
+        (projection,lower,lowerInclusive,upper,upperInclusive);
+    }
+    
+    // Updates in this transaction may move tuples into or out of the range,
+    //   so order the transactional view of the data in a temporary index 
+    EditableKeyedListAggregate<Tuple> data
+      =new EditableKeyedListAggregate<Tuple>(queryable.getResultType());
+    SerialCursor<Tuple> cursor=getCursor();
+    try
+    {
+      while (cursor.next())
+      { data.add(cursor.getTuple());
+      }
+    }
+    finally
+    { cursor.close();
+    }
+    
+    if (logLevel.isFine())
+    { log.fine("Branch range query for "+projection.toString());
+    }
+    return new ListCursor<Tuple>
+      (queryable.getResultType().getFieldSet()
+      ,data.getRangeIndex(projection,true)
+        .range(lower,lowerInclusive,upper,upperInclusive)
+      );
+  }
+  
   void addResource(String suffix)
   { resources.add(suffix);
   }
@@ -688,6 +733,16 @@ public class XmlBranch
         }
       }
       
+      if (journalRecord!=null)
+      {
+        try
+        { queryable.commitJournal(journalRecord,txId);
+        }
+        catch (IOException x)
+        { throw new TransactionException("Error journaling tx"+txId,x);
+        }
+      }
+      
       for (JournalTuple jt: preparedUpdates)
       { jt.commit();
       }
@@ -847,6 +902,7 @@ public class XmlBranch
           queryable.replace(ot,nt);
           undoList.add(ot);
           wrote(dt);
+          journalChanges.add(new Tuple[] {ot,nt});
           notifyBuffer(dt.getId(),nt);
         }
         else
@@ -854,6 +910,7 @@ public class XmlBranch
           queryable.remove(ot);
           undoList.add(ot);
           wrote(dt);
+          journalChanges.add(new Tuple[] {ot,null});
           notifyBuffer(dt.getId(),null);
         }
       }
@@ -868,6 +925,7 @@ public class XmlBranch
           queryable.add(at);
           preparedAdds.add(at);
           wrote(dt);
+          journalChanges.add(new Tuple[] {null,at});
           notifyBuffer(dt.getId(),at);
           
         }
@@ -886,7 +944,12 @@ public class XmlBranch
       
     try
     { 
-      queryable.flushResource();
+      if (queryable.isJournalActive())
+      { journalRecord=queryable.prepareJournalRecord(txId,journalChanges);
+      }
+      else
+      { queryable.flushResource();
+      }
     }
     catch (DataException x)
     { throw new TransactionException("Error flushing resource .tx"+txId,x);
@@ -0,0 +1,317 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.xml;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+
+/**
+ * <p>An append-only log of committed changes that sits beside the base XML
+ *   document of an XmlQueryable, so that a commit writes only the changed
+ *   Tuples instead of the whole document.
+ * </p>
+ * 
+ * <p>The journal starts with a header that identifies the version of the
+ *   base document it applies to, by last-modified time and size. A journal
+ *   whose header does not match the base document is stale (the base was
+ *   rewritten after the journal was started) and is not replayed.
+ * </p>
+ * 
+ * <p>Each record is framed with its length and a CRC32 of its content, and
+ *   is forced to disk before the commit returns. A torn or corrupt record
+ *   at the end of the journal is treated as an incomplete commit and is
+ *   truncated.
+ * </p>
+ * 
+ * <p>The content of a record is opaque to the journal.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+class XmlJournal
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(XmlJournal.class);
+  
+  private static final int MAGIC=0x534A524E;
+  private static final int HEADER_SIZE=4+8+8;
+  private static final int RECORD_OVERHEAD=4+8+8;
+  
+  private final File file;
+  private FileChannel channel;
+  private int recordCount;
+  
+  XmlJournal(File baseFile)
+  { this.file=new File(baseFile.getPath()+".journal");
+  }
+  
+  File getFile()
+  { return file;
+  }
+  
+  /**
+   * The number of records appended since the base document was written
+   */
+  synchronized int getRecordCount()
+  { return recordCount;
+  }
+  
+  /**
+   * <p>Open the journal for the current version of the base document and
+   *   return the content of the records to replay, in commit order.
+   * </p>
+   * 
+   * <p>If the journal does not exist, or was started for a different
+   *   version of the base document, an empty journal is started and the
+   *   stale journal, if any, is returned in <code>stale</code> so it can
+   *   be archived.
+   * </p>
+   */
+  synchronized List<byte[]> open(File baseFile,List<File> stale)
+    throws IOException
+  {
+    close();
+    ArrayList<byte[]> records=new ArrayList<byte[]>();
+    recordCount=0;
+    
+    if (file.exists())
+    {
+      channel=FileChannel.open
+        (file.toPath(),StandardOpenOption.READ,StandardOpenOption.WRITE);
+      
+      ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE);
+      boolean current
+        =readFully(header,0) 
+        && header.getInt(0)==MAGIC
+        && header.getLong(4)==baseFile.lastModified()
+        && header.getLong(12)==baseFile.length()
+        ;
+      
+      if (current)
+      { 
+        long position=HEADER_SIZE;
+        long size=channel.size();
+        while (position<size)
+        {
+          byte[] record=readRecord(position,size);
+          if (record==null)
+          {
+            log.warning
+              ("Truncating incomplete journal record at "+position+" in "
+              +file+" ("+(size-position)+" bytes)"
+              );
+            channel.truncate(position);
+            channel.force(true);
+            break;
+          }
+          records.add(record);
+          position+=RECORD_OVERHEAD+record.length;
+        }
+        recordCount=records.size();
+        channel.position(channel.size());
+        return records;
+      }
+      else
+      {
+        channel.close();
+        channel=null;
+        File staleFile
+          =new File(file.getPath()+".stale"+System.currentTimeMillis());
+        Files.move(file.toPath(),staleFile.toPath());
+        stale.add(staleFile);
+      }
+    }
+    reset(baseFile);
+    return records;
+  }
+  
+  /**
+   * Start an empty journal for the current version of the base document
+   */
+  synchronized void reset(File baseFile)
+    throws IOException
+  {
+    close();
+    
+    File newFile=new File(file.getPath()+".new");
+    ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putLong(baseFile.lastModified());
+    header.putLong(baseFile.length());
+    header.flip();
+    
+    FileChannel newChannel
+      =FileChannel.open
+        (newFile.toPath()
+        ,StandardOpenOption.CREATE
+        ,StandardOpenOption.TRUNCATE_EXISTING
+        ,StandardOpenOption.WRITE
+        );
+    try
+    {
+      while (header.hasRemaining())
+      { newChannel.write(header);
+      }
+      newChannel.force(true);
+    }
+    finally
+    { newChannel.close();
+    }
+    Files.move
+      (newFile.toPath()
+      ,file.toPath()
+      ,StandardCopyOption.REPLACE_EXISTING
+      ,StandardCopyOption.ATOMIC_MOVE
+      );
+    
+    channel=FileChannel.open
+      (file.toPath(),StandardOpenOption.READ,StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    recordCount=0;
+  }
+  
+  /**
+   * Frame a record for the specified transaction. Done ahead of the 
+   *   commit so that the commit itself only writes and forces the bytes.
+   */
+  static byte[] frame(long txId,byte[] content)
+  {
+    ByteArrayOutputStream bytes
+      =new ByteArrayOutputStream(RECORD_OVERHEAD+content.length);
+    DataOutputStream out=new DataOutputStream(bytes);
+    try
+    {
+      out.writeInt(content.length);
+      out.writeLong(txId);
+      out.write(content);
+      out.writeLong(checksum(txId,content));
+      out.flush();
+    }
+    catch (IOException x)
+    { throw new RuntimeException("Unexpected exception writing to memory",x);
+    }
+    return bytes.toByteArray();
+  }
+  
+  /**
+   * Append a framed record and force it to disk
+   */
+  synchronized void append(byte[] framedRecord)
+    throws IOException
+  {
+    if (channel==null)
+    { throw new IOException("Journal "+file+" is not open");
+    }
+    
+    long position=channel.size();
+    ByteBuffer buffer=ByteBuffer.wrap(framedRecord);
+    try
+    {
+      while (buffer.hasRemaining())
+      { channel.write(buffer,position+buffer.position());
+      }
+      channel.force(false);
+    }
+    catch (IOException x)
+    { 
+      // Don't leave a partial record in front of the next one
+      channel.truncate(position);
+      throw x;
+    }
+    recordCount++;
+    if (log.canLog(Level.FINE))
+    { log.fine("Appended "+framedRecord.length+" bytes to "+file);
+    }
+  }
+  
+  synchronized void close()
+    throws IOException
+  {
+    if (channel!=null)
+    { 
+      channel.close();
+      channel=null;
+    }
+  }
+  
+  private byte[] readRecord(long position,long size)
+    throws IOException
+  {
+    if (size-position<RECORD_OVERHEAD)
+    { return null;
+    }
+    
+    ByteBuffer prefix=ByteBuffer.allocate(12);
+    if (!readFully(prefix,position))
+    { return null;
+    }
+    int length=prefix.getInt(0);
+    long txId=prefix.getLong(4);
+    if (length<0 || size-position-RECORD_OVERHEAD<length)
+    { return null;
+    }
+    
+    ByteBuffer content=ByteBuffer.allocate(length);
+    ByteBuffer crc=ByteBuffer.allocate(8);
+    if (!readFully(content,position+12) 
+        || !readFully(crc,position+12+length)
+        )
+    { return null;
+    }
+    
+    byte[] data=content.array();
+    if (crc.getLong(0)!=checksum(txId,data))
+    { return null;
+    }
+    return data;
+  }
+  
+  private boolean readFully(ByteBuffer buffer,long position)
+    throws IOException
+  {
+    while (buffer.hasRemaining())
+    {
+      int count=channel.read(buffer,position+buffer.position());
+      if (count<0)
+      { return false;
+      }
+    }
+    return true;
+  }
+  
+  private static long checksum(long txId,byte[] content)
+  {
+    CRC32 crc=new CRC32();
+    for (int i=0;i<8;i++)
+    { crc.update((int) (txId>>>(56-i*8)));
+    }
+    crc.update(content,0,content.length);
+    return crc.getValue();
+  }
+}
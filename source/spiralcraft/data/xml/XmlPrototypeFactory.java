@@ -133,7 +133,7 @@ public class XmlPrototypeFactory
     }
   }
   
-  private synchronized Type<?> loadType(final TypeResolver resolver,final URI uri)
+  private Type<?> loadType(final TypeResolver resolver,final URI uri)
     throws DataException
   {
 //    log.fine("loadType "+uri);
@@ -16,15 +16,19 @@ package spiralcraft.data.xml;
 
 import spiralcraft.data.access.EntityAccessor;
 import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.access.kit.TextIndex;
 import spiralcraft.data.core.ProjectionImpl;
 import spiralcraft.data.lang.DataReflector;
 import spiralcraft.data.query.BoundQuery;
 import spiralcraft.data.query.EquiJoin;
 import spiralcraft.data.query.Query;
 import spiralcraft.data.query.Queryable;
+import spiralcraft.data.query.Range;
 import spiralcraft.data.query.Scan;
+import spiralcraft.data.query.TextSearch;
 import spiralcraft.data.spi.AbstractAggregateQueryable;
 import spiralcraft.data.spi.ArrayJournalTuple;
+import spiralcraft.data.spi.EditableArrayListAggregate;
 import spiralcraft.data.spi.EditableKeyedListAggregate;
 import spiralcraft.data.spi.KeyedListAggregate;
 import spiralcraft.data.spi.ListCursor;
@@ -51,6 +55,7 @@ import spiralcraft.vfs.Container;
 import spiralcraft.vfs.Resolver;
 import spiralcraft.vfs.Resource;
 import spiralcraft.vfs.UnresolvableURIException;
+import spiralcraft.vfs.file.FileResource;
 import spiralcraft.vfs.filters.PatternFilter;
 import spiralcraft.vfs.util.RetentionPolicy;
 import spiralcraft.vfs.watcher.ResourceWatcher;
@@ -60,9 +65,16 @@ import java.net.URI;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 
 import org.xml.sax.SAXException;
@@ -84,6 +96,13 @@ import spiralcraft.log.Level;
  * <p>The document is polled for updates
  * </p>
  * 
+ * <p>In journaled mode, a commit appends only the changed Tuples to an 
+ *   XmlJournal beside the document instead of rewriting the document. The
+ *   journal is replayed when the document is loaded, and the document is
+ *   rewritten (compacted) periodically by the XmlStore, or whenever the
+ *   whole Aggregate is replaced.
+ * </p>
+ * 
  * @author mike
  */
 public class XmlQueryable
@@ -151,6 +170,12 @@ public class XmlQueryable
   
   private XmlStore store;
   
+  private boolean journaled;
+  private int journalCompactThreshold=1000;
+  private XmlJournal journal;
+  private volatile boolean fullFlushPending;
+  private TextIndex textIndex;
+  
   private Queryable<Tuple> backingQueryable
     =new AbstractAggregateQueryable<Tuple>()
   {
@@ -179,6 +204,36 @@ public class XmlQueryable
   { return lastTransactionId;
   }
   
+  /**
+   * <p>Append the changes made by each transaction to a journal instead of
+   *   rewriting the whole document on every commit. Requires a file based
+   *   resource.
+   * </p>
+   * 
+   * @param journaled
+   */
+  public void setJournaled(boolean journaled)
+  { this.journaled=journaled;
+  }
+  
+  public boolean isJournaled()
+  { return journaled;
+  }
+  
+  /**
+   * The number of journal records after which the XmlStore will rewrite
+   *   the document at its next compaction check. Defaults to 1000.
+   * 
+   * @param journalCompactThreshold
+   */
+  public void setJournalCompactThreshold(int journalCompactThreshold)
+  { this.journalCompactThreshold=journalCompactThreshold;
+  }
+  
+  public int getJournalCompactThreshold()
+  { return journalCompactThreshold;
+  }
+  
   private WatcherHandler handler
     =new WatcherHandler()
     {
@@ -353,6 +408,20 @@ public class XmlQueryable
             
         Resource resource=Resolver.getInstance().resolve(qualifiedURI);
         setResource(resource);
+        if (journaled)
+        {
+          FileResource fileResource=resource.unwrap(FileResource.class);
+          if (fileResource!=null)
+          { journal=new XmlJournal(fileResource.getFile());
+          }
+          else
+          { 
+            log.warning
+              ("Journaling requires a file resource, rewriting "
+              +qualifiedURI+" on each commit"
+              );
+          }
+        }
         emptyCursor=new ListCursor<Tuple>
           (getResultType().getScheme(),new LinkedList<Tuple>());
         try
@@ -438,11 +507,17 @@ public class XmlQueryable
         }
 
         aggregate=new EditableKeyedListAggregate<Tuple>(orig.getType());
+        if (textIndex!=null)
+        { textIndex.clear();
+        }
         for (Tuple t: orig)
         {
           ArrayJournalTuple nt=new ArrayJournalTuple(t);
           add(nt);
         }
+        if (journal!=null)
+        { replayJournal();
+        }
         if (store!=null)
         { store.onReload(new Type<?>[] {getResultType()});
         }
@@ -538,6 +613,28 @@ public class XmlQueryable
     return getPublicCursor(projection,key);
   }
   
+  /**
+   * Return a cursor over the data in the specified key range that
+   *   incorporates data from the current transaction
+   */
+  SerialCursor<Tuple> getCursor
+    (Projection<Tuple> projection
+    ,KeyTuple lower
+    ,boolean lowerInclusive
+    ,KeyTuple upper
+    ,boolean upperInclusive
+    )
+    throws DataException
+  {
+    XmlBranch branch=resourceManager.getBranch();
+    if (branch!=null)
+    { 
+      return branch.getCursor
+        (projection,lower,lowerInclusive,upper,upperInclusive);
+    }
+    return getPublicCursor(projection,lower,lowerInclusive,upper,upperInclusive);
+  }
+  
   SerialCursor<Tuple> getPublicCursor()
     throws DataException
   {
@@ -574,10 +671,67 @@ public class XmlQueryable
     
   }
     
+  /**
+   * Return a cursor over the ranked results of a text search against the 
+   *   TextIndex, or null if the current transaction has uncommitted changes
+   *   which the TextIndex does not reflect.
+   */
+  SerialCursor<Tuple> getTextSearchCursor
+    (String queryString
+    ,String[] fields
+    ,boolean matchAll
+    ,int limit
+    )
+    throws DataException
+  {
+    if (resourceManager.getBranch()!=null)
+    { return null;
+    }
+    
+    if (getAggregate()==null)
+    { throw new DataException("Aggregate is null- cannot perform query");
+    }
+    return new ListCursor<Tuple>
+      (getResultType().getFieldSet()
+      ,textIndex.search(queryString,fields,matchAll,limit)
+      );
+  }
+  
+  SerialCursor<Tuple> getPublicCursor
+    (Projection<Tuple> projection
+    ,KeyTuple lower
+    ,boolean lowerInclusive
+    ,KeyTuple upper
+    ,boolean upperInclusive
+    )
+    throws DataException
+  {
+    KeyedListAggregate<Tuple> aggregate=getAggregate();
+    if (aggregate==null)
+    { throw new DataException("Aggregate is null- cannot perform query");
+    }
+    return new ListCursor<Tuple>
+      (aggregate.getRangeIndex(projection,true)
+        .range(lower,lowerInclusive,upper,upperInclusive)
+      );
+  }
+    
   public void setResultType(Type<?> type)
   { this.type=Type.getAggregateType(type);
   }
   
+  /**
+   * Maintain a TextIndex over the live data, which will be used to
+   *   resolve TextSearch queries against the fields it covers.
+   */
+  void setTextIndex(TextIndex textIndex)
+  { this.textIndex=textIndex;
+  }
+  
+  TextIndex getTextIndex()
+  { return textIndex;
+  }
+  
   
   public void setAutoCreate(boolean val)
   { autoCreate=val;
@@ -715,11 +869,15 @@ public class XmlQueryable
     try
     {
       aggregate=new EditableKeyedListAggregate<Tuple>(snapshot.getType());
+      if (textIndex!=null)
+      { textIndex.clear();
+      }
       for (Tuple t: snapshot)
       {
         ArrayJournalTuple nt=new ArrayJournalTuple(t);
         add(nt);
       }
+      requestFullFlush();
       if (logLevel.isFine())
       { log.fine("Updated base cache for "+resource.getURI()+" from snapshot");
       }
@@ -873,6 +1031,7 @@ public class XmlQueryable
     if (transaction!=null)
     { this.lastTransactionId=txId;
     }
+    resetJournal();
     watcher.reset();
     if (logLevel.isFine())
     { 
@@ -883,6 +1042,247 @@ public class XmlQueryable
     }
   }
   
+  /**
+   * Whether commits are currently being appended to the journal instead of
+   *   rewriting the document
+   */
+  boolean isJournalActive()
+  { return journal!=null && !fullFlushPending;
+  }
+  
+  /**
+   * Whether the journal has grown enough to rewrite the document
+   */
+  boolean needsCompaction(int threshold)
+  { return journal!=null && journal.getRecordCount()>=Math.max(1,threshold);
+  }
+  
+  /**
+   * Rewrite the whole document at the next commit, which also starts a new
+   *   journal
+   */
+  void requestFullFlush()
+  { fullFlushPending=true;
+  }
+  
+  /**
+   * <p>Encode the changes made by a transaction into a journal record.
+   *   Each change is a pair of the original and updated versions of a
+   *   Tuple, where the original is null for an insert and the updated 
+   *   version is null for a delete.
+   * </p>
+   * 
+   * <p>The record is read back before it is returned, in the same way the
+   *   whole document is verified when it is rewritten.
+   * </p>
+   * 
+   * @return The framed record, or null if there are no changes
+   */
+  byte[] prepareJournalRecord(long txId,List<Tuple[]> changes)
+    throws DataException,IOException
+  {
+    if (changes.isEmpty())
+    { return null;
+    }
+    
+    EditableArrayListAggregate<Tuple> originals
+      =new EditableArrayListAggregate<Tuple>(type);
+    EditableArrayListAggregate<Tuple> updates
+      =new EditableArrayListAggregate<Tuple>(type);
+    
+    ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+    DataOutputStream out=new DataOutputStream(bytes);
+    out.writeInt(changes.size());
+    for (Tuple[] change: changes)
+    { 
+      out.writeByte((change[0]!=null?1:0) | (change[1]!=null?2:0));
+      if (change[0]!=null)
+      { originals.add(change[0]);
+      }
+      if (change[1]!=null)
+      { updates.add(change[1]);
+      }
+    }
+    writeJournalAggregate(out,originals);
+    writeJournalAggregate(out,updates);
+    out.flush();
+    byte[] content=bytes.toByteArray();
+    
+    // Verify
+    readJournalRecord(content,false);
+    return XmlJournal.frame(txId,content);
+  }
+  
+  synchronized void commitJournal(byte[] record,long txId)
+    throws IOException
+  {
+    journal.append(record);
+    Transaction transaction=Transaction.getContextTransaction();
+    if (transaction!=null)
+    { this.lastTransactionId=txId;
+    }
+    if (logLevel.isFine())
+    { 
+      log.fine
+        ("Journaled commit for "+resource.getURI()+" in "+txId
+        +" ("+journal.getRecordCount()+" records)"
+        );
+    }
+  }
+  
+  private void writeJournalAggregate
+    (DataOutputStream out,Aggregate<Tuple> data)
+    throws DataException,IOException
+  {
+    ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+    new DataWriter().writeToOutputStream(bytes,data);
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+  }
+  
+  @SuppressWarnings("unchecked")
+  private Aggregate<Tuple> readJournalAggregate(DataInputStream in)
+    throws DataException,IOException
+  {
+    byte[] data=new byte[in.readInt()];
+    in.readFully(data);
+    DataReader reader=new DataReader();
+    reader.setStringPool(store!=null?store.getStringPool():null);
+    try
+    {
+      return (Aggregate<Tuple>) reader.readFromInputStream
+        (new ByteArrayInputStream(data)
+        ,type
+        ,resource.getURI()
+        );
+    }
+    catch (SAXException x)
+    { throw new DataException("Error reading journal record",x);
+    }
+  }
+  
+  /**
+   * Decode a journal record, and optionally apply the changes it contains
+   *   to the Aggregate.
+   * 
+   * @return The number of changes in the record
+   */
+  private int readJournalRecord(byte[] content,boolean apply)
+    throws DataException,IOException
+  {
+    DataInputStream in=new DataInputStream(new ByteArrayInputStream(content));
+    int count=in.readInt();
+    byte[] flags=new byte[count];
+    in.readFully(flags);
+    Iterator<Tuple> originals=readJournalAggregate(in).iterator();
+    Iterator<Tuple> updates=readJournalAggregate(in).iterator();
+    if (apply)
+    {
+      for (int i=0;i<count;i++)
+      {
+        applyJournalChange
+          ((flags[i] & 1)!=0?originals.next():null
+          ,(flags[i] & 2)!=0?updates.next():null
+          );
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * Apply a journaled change. A change that has already been applied 
+   *   to the document (eg. when the journal outlived a rewrite of the 
+   *   document) is applied as an update of the stored Tuple.
+   */
+  private void applyJournalChange(Tuple original,Tuple updated)
+    throws DataException
+  {
+    Tuple stored=original!=null?findStored(original):null;
+    if (stored==null && updated!=null)
+    { stored=findStored(updated);
+    }
+    
+    if (updated==null)
+    {
+      if (stored!=null)
+      { remove(stored);
+      }
+    }
+    else if (stored!=null)
+    { replace(stored,new ArrayJournalTuple(updated));
+    }
+    else
+    { add(new ArrayJournalTuple(updated));
+    }
+  }
+  
+  @SuppressWarnings("unchecked")
+  private Tuple findStored(Tuple tuple)
+    throws DataException
+  {
+    Key<Tuple> primaryKey=(Key<Tuple>) getResultType().getPrimaryKey();
+    if (primaryKey!=null)
+    {
+      return aggregate.getIndex(primaryKey,true)
+        .getFirst(primaryKey.getKeyFunction().key(tuple));
+    }
+    
+    for (Tuple stored: aggregate)
+    { 
+      if (stored.equals(tuple))
+      { return stored;
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Apply the journal records that were committed since the document was
+   *   last written
+   */
+  private void replayJournal()
+    throws DataException,IOException
+  {
+    File baseFile=resource.unwrap(FileResource.class).getFile();
+    ArrayList<File> stale=new ArrayList<File>();
+    List<byte[]> records=journal.open(baseFile,stale);
+    
+    int changes=0;
+    for (byte[] record: records)
+    { 
+      changes+=readJournalRecord(record,true);
+    }
+    if (!records.isEmpty() && logLevel.isFine())
+    { 
+      log.fine
+        ("Replayed "+changes+" changes in "+records.size()+" journal records"
+        +" for "+resource.getURI()
+        );
+    }
+    
+    for (File file: stale)
+    { 
+      log.info("Archiving stale journal "+file);
+      Resource staleResource=Resolver.getInstance().resolve(file.toURI());
+      Container history
+        =resource.getParent().asContainer().ensureChildContainer("history");
+      staleResource.moveTo(history);
+    }
+  }
+  
+  /**
+   * Start a new journal for the document that was just written 
+   */
+  private void resetJournal()
+    throws IOException
+  {
+    if (journal!=null)
+    { 
+      journal.reset(resource.unwrap(FileResource.class).getFile());
+      fullFlushPending=false;
+    }
+  }
+  
   void cleanHistory(RetentionPolicy storePolicy) 
     throws DataException
   {
@@ -959,6 +1359,15 @@ public class XmlQueryable
     { log.fine("Adding live "+t);
     }
     ((EditableKeyedListAggregate<Tuple>) this.aggregate).add(t);
+    if (textIndex!=null)
+    { 
+      try
+      { textIndex.add(t);
+      }
+      catch (DataException x)
+      { throw new RuntimeDataException("Error indexing "+t,x);
+      }
+    }
   }
   
   synchronized void remove(Tuple t)
@@ -967,6 +1376,15 @@ public class XmlQueryable
     { log.fine("Removing live "+t);
     }
     ((EditableKeyedListAggregate<Tuple>) this.aggregate).remove(t);
+    if (textIndex!=null)
+    { 
+      try
+      { textIndex.remove(t);
+      }
+      catch (DataException x)
+      { throw new RuntimeDataException("Error unindexing "+t,x);
+      }
+    }
   }
   
   synchronized void replace(Tuple ot,Tuple nt)
@@ -975,6 +1393,15 @@ public class XmlQueryable
     { log.fine("Replacing live "+ot+" with "+nt);
     }
     ((EditableKeyedListAggregate<Tuple>) this.aggregate).replace(ot,nt);
+    if (textIndex!=null)
+    { 
+      try
+      { textIndex.replace(ot,nt);
+      }
+      catch (DataException x)
+      { throw new RuntimeDataException("Error indexing "+nt,x);
+      }
+    }
   }
   
   public synchronized void freeze()
@@ -1064,6 +1491,21 @@ public class XmlQueryable
         )
     { ret=new BoundIndexScan((EquiJoin) q,context,this);
     }
+    else if ( (q instanceof Range)
+        && (q.getSources().get(0) instanceof Scan)
+        && q.getType().isAssignableFrom(getResultType())
+        && BoundRangeScan.isIndexable((Range) q,getResultType())
+        )
+    { ret=new BoundRangeScan((Range) q,context,this);
+    }
+    else if ( (q instanceof TextSearch)
+        && textIndex!=null
+        && (q.getSources().get(0) instanceof Scan)
+        && q.getType().isAssignableFrom(getResultType())
+        && textIndex.covers(getResultType(),((TextSearch) q).getFields())
+        )
+    { ret=new BoundTextSearch((TextSearch) q,context,this);
+    }
     return ret;
   }
 
@@ -39,6 +39,7 @@ import spiralcraft.data.access.Entity;
 import spiralcraft.data.access.kit.AbstractStore;
 import spiralcraft.data.access.kit.AbstractStoreSequence;
 import spiralcraft.data.access.kit.EntityBinding;
+import spiralcraft.data.access.kit.TextIndex;
 
 import spiralcraft.data.query.BoundQuery;
 import spiralcraft.data.query.Query;
@@ -120,6 +121,20 @@ public class XmlStore
       }
     );
   
+  private final CommandScheduler compactor
+    =new CommandScheduler
+    (60*1000
+    ,new Runnable()
+      {
+        @Override
+        public void run()
+        { XmlStore.this.compactJournals(false);
+        }
+      }
+    );
+  
+  private boolean journaled;
+  
   private final StringPool stringPool
     =StringPool.INSTANCE;
   
@@ -173,6 +188,8 @@ public class XmlStore
           queryable.setResultType(entity.getType());
           queryable.setResourceURI(URIPool.create(entity.getName()+".data.xml"));
           queryable.setAutoCreate(true);
+          queryable.setJournaled(journaled);
+          queryable.setTextIndex(TextIndex.forEntity(entity));
           xmlQueryables.add(queryable);
           EntityBinding binding=createEntityBinding(entity);
           binding.setAuthoritative(true);
@@ -229,6 +246,35 @@ public class XmlStore
   { historyCleaner.setPeriod(seconds*1000);
   }
   
+  /**
+   * <p>Append the changes made by each transaction to a journal beside
+   *   each data file, instead of rewriting the data file on every commit.
+   *   Applies to the Entities defined by the schema and to the sequence
+   *   store.
+   * </p>
+   * 
+   * <p>Journals are compacted into the data files periodically and when the
+   *   store is stopped.
+   * </p>
+   * 
+   * @param journaled
+   */
+  public void setJournaled(boolean journaled)
+  { 
+    this.journaled=journaled;
+    sequenceQueryable.setJournaled(journaled);
+  }
+  
+  /**
+   * The frequency that the store will check whether journals have reached
+   *   their compaction threshold.
+   * 
+   * @param seconds
+   */
+  public void setJournalCompactSeconds(int seconds)
+  { compactor.setPeriod(seconds*1000);
+  }
+  
   public void setBaseResourceURI(URI uri)
   { baseResourceURI=URIUtil.ensureTrailingSlash(uri);
   }
@@ -351,12 +397,16 @@ public class XmlStore
       updater.start();
     }
     historyCleaner.start();
+    compactor.setDelay(true);
+    compactor.start();
   }
 
   @Override
   public void stop()
     throws LifecycleException
   { 
+    compactor.stop();
+    compactJournals(true);
     historyCleaner.stop();
     if (subscriber!=null)
     { updater.stop();
@@ -399,6 +449,53 @@ public class XmlStore
   }
   
   
+  /**
+   * Rewrite the data files of queryables whose journal has reached its
+   *   compaction threshold, or of all journaled queryables with any
+   *   journal records.
+   */
+  private void compactJournals(boolean all)
+  {
+    for (XmlQueryable queryable:xmlQueryables)
+    { compactJournal(queryable,all);
+    }
+    compactJournal(sequenceQueryable,all);
+  }
+  
+  private void compactJournal(XmlQueryable queryable,boolean all)
+  {
+    if (!queryable.needsCompaction
+          (all?1:queryable.getJournalCompactThreshold())
+       )
+    { return;
+    }
+    
+    Transaction transaction
+      =Transaction.startContextTransaction(Nesting.PROPOGATE);
+    try
+    {
+      StoreBranch tx=joinTransaction();
+      queryable.joinTransaction().setStoreBranch(tx);
+      queryable.requestFullFlush();
+      transaction.commit();
+      if (debugLevel.isDebug())
+      { log.debug("Compacted journal for "+queryable.getResultType().getURI());
+      }
+    }
+    catch (TransactionException x)
+    { 
+      log.log
+        (Level.WARNING
+        ,"Error compacting journal for "+queryable.getResultType().getURI()
+        ,x
+        );
+      transaction.rollbackOnComplete();
+    }
+    finally
+    { transaction.complete();
+    }
+  }
+  
   private void triggerSubscriber()
   { 
     if (subscriber!=null)
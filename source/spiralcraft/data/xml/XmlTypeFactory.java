@@ -38,6 +38,7 @@ import spiralcraft.data.util.ConstructorInstanceResolver;
 import spiralcraft.data.util.StaticInstanceResolver;
 import spiralcraft.log.ClassLog;
 import spiralcraft.log.Level;
+import spiralcraft.sax.XmlEventCache;
 
 import spiralcraft.vfs.Resolver;
 import spiralcraft.vfs.Resource;
@@ -131,7 +132,7 @@ public class XmlTypeFactory
   }
   
   @SuppressWarnings({ "unchecked", "rawtypes" })
-  private synchronized Type<?> loadType(final TypeResolver resolver,final URI uri)
+  private Type<?> loadType(final TypeResolver resolver,final URI uri)
     throws DataException
   {
 //    log.fine("loadType "+uri);
@@ -146,6 +147,7 @@ public class XmlTypeFactory
     try
     {
       DataReader dataReader=new DataReader();
+      dataReader.setEventCache(XmlEventCache.getDefault());
       dataReader.setDataFactory
         (
           new DataFactory()
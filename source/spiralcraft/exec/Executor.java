@@ -94,6 +94,7 @@ public class Executor
   private EventHandler logHandler;
   private EventHandler consoleHandler;
   private boolean consoleLog;
+  private boolean asyncLog;
   private URI altContextURI;
   private URI configURI;
   private URI logURI;
@@ -225,6 +226,9 @@ public class Executor
             consoleHandler=new ConsoleHandler();
             GlobalLog.instance().addHandler(consoleHandler);
           }
+          if (asyncLog)
+          { GlobalLog.instance().setAsync(true);
+          }
           logStarted=true;
         }
         catch (LifecycleException x)
@@ -314,6 +318,9 @@ public class Executor
         
         try
         { 
+          if (asyncLog)
+          { GlobalLog.instance().setAsync(false);
+          }
           GlobalLog.instance().removeHandler(logHandler);
           if (consoleLog)
           { GlobalLog.instance().removeHandler(consoleHandler);
@@ -674,6 +681,9 @@ public class Executor
           else if (option.equals("-consoleLog"))
           { Executor.this.consoleLog=true;
           }
+          else if (option.equals("-asyncLog"))
+          { Executor.this.asyncLog=true;
+          }
           else if (option.equals("-context"))
           { 
             URI contextUri=URIPool.create(nextArgument());
@@ -702,7 +712,7 @@ public class Executor
             ExecutionContext.getInstance().err()
               .println("Unrecognized Executor option '-"+option+"'");
             ExecutionContext.getInstance().err()
-              .println("Valid options: -D,--log,--consoleLog,--context,--config");
+              .println("Valid options: -D,--log,--consoleLog,--asyncLog,--context,--config");
             
             throw new IllegalArgumentException
               ("Unrecognized Executor option '-"+option+"'"    
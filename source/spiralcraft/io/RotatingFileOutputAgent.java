@@ -17,10 +17,13 @@ package spiralcraft.io;
 import spiralcraft.common.LifecycleException;
 import spiralcraft.log.Level;
 import spiralcraft.time.Clock;
+import spiralcraft.time.Scheduler;
 
 import java.io.IOException;
 
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import java.util.Calendar;
 import java.util.Date;
@@ -31,15 +34,63 @@ import java.io.File;
  * <p>An OutputAgent that manages a file that rotates daily or when it exceeds
  *   a given size
  * </p>
+ * 
+ * <p>Output is accumulated in a direct buffer and written through a 
+ *   FileChannel. The durability setting determines how often the file
+ *   is synced to the storage device. With RECORD durability (the default),
+ *   every output is written and synced immediately. With PERIODIC
+ *   durability, buffered output is written and synced as a group once
+ *   syncIntervalMs has elapsed or syncThresholdKB has accumulated. With
+ *   NONE, buffered output is written on the same schedule but is only 
+ *   synced when the file is closed.
+ * </p>
  */
 public class RotatingFileOutputAgent
   extends OutputAgent
 {
-
+  
+  public enum Durability
+  {
+    /**
+     * Leave syncing to the operating system
+     */
+    NONE
+    
+    /**
+     * Sync groups of records on a size or time threshold
+     */
+    ,PERIODIC
+    
+    /**
+     * Sync every record before returning
+     */
+    ,RECORD
+  }
   
   private FileSequence fileSequence;
   
-  private RandomAccessFile _file;
+  private FileChannel _channel;
+  private ByteBuffer _buffer;
+  private long _length;
+  private final Object _channelLock=new Object();
+  
+  private Durability durability=Durability.RECORD;
+  private long syncIntervalMs=1000;
+  private int syncThresholdKB=256;
+  private int bufferKB=64;
+  private long lastSync;
+  private long unsyncedBytes;
+  private boolean syncScheduled;
+  private volatile long syncCount;
+  
+  private final Runnable syncTask
+    =new Runnable()
+    {
+      @Override
+      public void run()
+      { scheduledSync();
+      }
+    };
   
   private long _maxLengthKB=16384;
   private Calendar calendar=Calendar.getInstance();
@@ -52,6 +103,62 @@ public class RotatingFileOutputAgent
   { _maxLengthKB=maxLengthKB;
   }
 
+  /**
+   * <p>How often output is synced to the storage device. Defaults to
+   *   RECORD.
+   * </p>
+   * 
+   * @param durability
+   */
+  public void setDurability(Durability durability)
+  { this.durability=durability;
+  }
+  
+  public Durability getDurability()
+  { return durability;
+  }
+  
+  /**
+   * <p>The maximum time buffered output waits to be written (and synced,
+   *   for PERIODIC durability). Defaults to 1000ms.
+   * </p>
+   * 
+   * @param syncIntervalMs
+   */
+  public void setSyncIntervalMs(long syncIntervalMs)
+  { this.syncIntervalMs=syncIntervalMs;
+  }
+  
+  /**
+   * <p>The amount of output that triggers an early write and sync in 
+   *   PERIODIC and NONE durability modes. Defaults to 256KB.
+   * </p>
+   * 
+   * @param syncThresholdKB
+   */
+  public void setSyncThresholdKB(int syncThresholdKB)
+  { this.syncThresholdKB=syncThresholdKB;
+  }
+  
+  /**
+   * <p>The size of the direct buffer used to accumulate output. Defaults
+   *   to 64KB.
+   * </p>
+   * 
+   * @param bufferKB
+   */
+  public void setBufferKB(int bufferKB)
+  { this.bufferKB=bufferKB;
+  }
+  
+  /**
+   * @return The number of times output has been synced to the storage
+   *   device
+   */
+  public long getSyncCount()
+  { return syncCount;
+  }
+  
   public void setFileSequence(FileSequence fileSequence)
   { this.fileSequence=fileSequence;
   }
@@ -79,16 +186,18 @@ public class RotatingFileOutputAgent
   @Override
   protected void destroy()
   {
-    if (_file!=null)
-    { 
-      try
-      { _file.close();
+    synchronized (_channelLock)
+    {
+      if (_channel!=null)
+      { 
+        try
+        { closeFile();
+        }
+        catch (IOException x)
+        { log.log(Level.WARNING,getLogPrefix()+": Error closing file",x);
+        }
       }
-      catch (IOException x)
-      { }
-      
     }
-    _file=null;
     return;    
   }
   
@@ -96,69 +205,220 @@ public class RotatingFileOutputAgent
   protected void prepare()
     throws IOException
   {
-    if (_file==null)
-    { 
-      File targetFile
-        =fileSequence.getActiveFile();
-      
-
-      if (targetFile.exists())
-      { 
-        calendar.setTime(new Date(targetFile.lastModified()));
-        periodId=calendar.get(Calendar.DAY_OF_YEAR);
+    synchronized (_channelLock)
+    {
+      if (_channel==null)
+      { openFile();
       }
-        
-      _file=new RandomAccessFile
-        (targetFile
-        ,"rw"
-        );
     }
-    if (_file.length()==0)
+  }
+  
+  /**
+   * Open the active file for appending, writing the header if the file is
+   *   new
+   */
+  private void openFile()
+    throws IOException
+  {
+    File targetFile
+      =fileSequence.getActiveFile();
+
+    if (targetFile.exists())
+    { 
+      calendar.setTime(new Date(targetFile.lastModified()));
+      periodId=calendar.get(Calendar.DAY_OF_YEAR);
+    }
+    
+    _channel=FileChannel.open
+      (targetFile.toPath()
+      ,StandardOpenOption.CREATE
+      ,StandardOpenOption.WRITE
+      ,StandardOpenOption.APPEND
+      );
+    _length=_channel.size();
+    if (_buffer==null)
+    { _buffer=ByteBuffer.allocateDirect(Math.max(1,bufferKB)*1024);
+    }
+    lastSync=Clock.instance().approxTimeMillis();
+    
+    if (_length==0)
     {
       byte[] header=header();
       if (header!=null)
-      { _file.write(header);
+      { append(header);
       }
     }
-    else
-    { _file.skipBytes((int) _file.length());
-    }
   }
   
   @Override
   protected void output(byte[] bytes)
     throws IOException
   { 
-    // TODO: Make sure we're not shutting down or we'll throw an NPE when
-    //   _file disappears
-    _file.write(bytes);
-    _file.getFD().sync();
-    if (periodChanged() || _file.length()>=_maxLengthKB*1024)
+    synchronized (_channelLock)
     {
-      if (Clock.instance().approxTimeMillis()-lastRotate 
-          > minRotateIntervalSeconds * 1000
-          )
+      if (_channel==null)
+      { 
+        // The file was closed by destroy() or a failed rotation after
+        //   prepare() was called
+        openFile();
+      }
+      append(bytes);
+      commit();
+      if (periodChanged() || _length>=_maxLengthKB*1024)
       {
-        lastRotate=Clock.instance().approxTimeMillis();
-        log.info(getLogPrefix()+": Rotating output file");
-        _file.close();
+        if (Clock.instance().approxTimeMillis()-lastRotate 
+            > minRotateIntervalSeconds * 1000
+            )
+        {
+          lastRotate=Clock.instance().approxTimeMillis();
+          log.info(getLogPrefix()+": Rotating output file");
+          closeFile();
         
+          try
+          {
+            fileSequence.rotate();
+            updatePeriod();
+          }
+          catch (IOException x)
+          { 
+            log.log(Level.WARNING
+                    ,x.getMessage()
+                    );
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Add data to the buffer, writing the buffer to the channel as it fills
+   */
+  private void append(byte[] bytes)
+    throws IOException
+  {
+    if (bytes.length>_buffer.remaining())
+    { 
+      writeBuffer();
+      if (bytes.length>_buffer.capacity())
+      { write(ByteBuffer.wrap(bytes));
+      }
+      else
+      { _buffer.put(bytes);
+      }
+    }
+    else
+    { _buffer.put(bytes);
+    }
+    _length+=bytes.length;
+    unsyncedBytes+=bytes.length;
+  }
+  
+  /**
+   * Write and sync the buffered data as required by the durability setting
+   */
+  private void commit()
+    throws IOException
+  {
+    if (unsyncedBytes==0)
+    { return;
+    }
+    
+    if (durability==Durability.RECORD)
+    { sync(true);
+    }
+    else
+    {
+      if (unsyncedBytes>=syncThresholdKB*1024L
+          || Clock.instance().approxTimeMillis()-lastSync>=syncIntervalMs
+         )
+      { sync(false);
+      }
+      else if (!syncScheduled)
+      { 
+        // Make sure the data is committed if no more output arrives
+        syncScheduled=true;
+        Scheduler.instance().scheduleIn(syncTask,syncIntervalMs);
+      }
+    }
+  }
+  
+  private void scheduledSync()
+  {
+    synchronized (_channelLock)
+    {
+      syncScheduled=false;
+      if (_channel!=null && unsyncedBytes>0)
+      { 
         try
-        {
-          fileSequence.rotate();
-          updatePeriod();
+        { sync(false);
         }
         catch (IOException x)
-        { 
-          log.log(Level.WARNING
-                  ,x.getMessage()
-                  );
+        { log.log(Level.WARNING,getLogPrefix()+": Error syncing file",x);
         }
-        _file=null;
       }
     }
   }
   
+  /**
+   * Write the buffered data and sync the channel unless durability is NONE
+   */
+  private void sync(boolean metaData)
+    throws IOException
+  {
+    writeBuffer();
+    if (durability!=Durability.NONE)
+    { force(metaData);
+    }
+    lastSync=Clock.instance().approxTimeMillis();
+    unsyncedBytes=0;
+  }
+  
+  private void writeBuffer()
+    throws IOException
+  {
+    if (_buffer.position()>0)
+    {
+      _buffer.flip();
+      write(_buffer);
+      _buffer.clear();
+    }
+  }
+  
+  private void write(ByteBuffer data)
+    throws IOException
+  {
+    while (data.hasRemaining())
+    { _channel.write(data);
+    }
+  }
+  
+  private void force(boolean metaData)
+    throws IOException
+  { 
+    _channel.force(metaData);
+    syncCount++;
+  }
+  
+  /**
+   * Write, sync and close the current file
+   */
+  private void closeFile()
+    throws IOException
+  {
+    try
+    { 
+      writeBuffer();
+      force(true);
+      unsyncedBytes=0;
+    }
+    finally
+    {
+      _channel.close();
+      _channel=null;
+      _buffer.clear();
+    }
+  }
+  
   private void updatePeriod()
   {
     calendar.setTime(new Date(Clock.instance().approxTimeMillis()));
@@ -36,6 +36,14 @@ public class AccessException
   { super(cause);
   }
   
+  /**
+   * For pre-allocated instances used to signal conditions rather than
+   *   errors
+   */
+  protected AccessException(String message,boolean writableStackTrace)
+  { super(message,null,false,writableStackTrace);
+  }
+  
   public Throwable unwrapCause()
   {
     if (getCause() instanceof AccessException)
@@ -52,6 +52,8 @@ public class Expression<T>
 
   private static final ReferencePool<Expression<?>> POOL
     =new ReferencePool<Expression<?>>();
+  
+  private static final ExpressionCache CACHE=new ExpressionCache();
 
   private static final Focus<Void> intrinsicFocus = new SimpleFocus<Void>();
   
@@ -150,6 +152,13 @@ public class Expression<T>
     }
   }
   
+  /**
+   * The cache of parsed Expressions consulted by parse(String)
+   */
+  public static ExpressionCache getCache()
+  { return CACHE;
+  }
+  
   /**
    * Create an Expression by parsing an expression language String. This is
    *   the preferred way to create an expression as it utilizes a cache to
@@ -164,9 +173,20 @@ public class Expression<T>
   public static <X> Expression<X> parse(String text)
     throws ParseException
   { 
-    Expression<X> expr=new ExpressionParser().<X>parse(text);
-    return (Expression<X>) POOL.get(expr);
+    if (text==null)
+    { return (Expression<X>) POOL.get(new ExpressionParser().<X>parse(text));
+    }
     
+    Expression<X> expr=(Expression<X>) CACHE.get(text);
+    if (expr==null)
+    { 
+      ExpressionParser parser=new ExpressionParser();
+      expr=(Expression<X>) POOL.get(parser.<X>parse(text));
+      if (parser.isCacheable())
+      { CACHE.put(text,expr,parser.getPrefixBindings());
+      }
+    }
+    return expr;
   }
   
   /**
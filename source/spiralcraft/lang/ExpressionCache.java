@@ -0,0 +1,250 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import spiralcraft.lang.parser.ExpressionParser;
+
+/**
+ * <p>A bounded cache of parsed Expressions keyed by expression text, which
+ *   allows Expression.parse() to return the canonical Expression for 
+ *   previously parsed text without invoking the ExpressionParser.
+ * </p>
+ * 
+ * <p>Qualified names in expression text are resolved against the
+ *   NamespaceContext when parsed. An entry records the bindings of the
+ *   prefixes its Expression depends on, and is only returned when those
+ *   prefixes are bound to the same namespaces in the current context.
+ * </p>
+ * 
+ * <p>Lookups are lock-free. When the number of entries exceeds the capacity,
+ *   entries are evicted using the CLOCK (second-chance) algorithm: an entry
+ *   that has been read since the clock hand last passed it is spared once.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class ExpressionCache
+{
+  public static final int DEFAULT_CAPACITY=4096;
+
+  private final ConcurrentHashMap<String,Entry> map
+    =new ConcurrentHashMap<String,Entry>();
+  private final AtomicBoolean evicting=new AtomicBoolean();
+  private final LongAdder hits=new LongAdder();
+  private final LongAdder misses=new LongAdder();
+  private final LongAdder evictions=new LongAdder();
+  
+  private volatile int capacity;
+  private Iterator<Map.Entry<String,Entry>> hand;
+  
+  public ExpressionCache()
+  { this(DEFAULT_CAPACITY);
+  }
+  
+  public ExpressionCache(int capacity)
+  { this.capacity=capacity;
+  }
+  
+  /**
+   * The maximum number of Expressions retained. A capacity of 0 disables
+   *   the cache.
+   * 
+   * @param capacity
+   */
+  public void setCapacity(int capacity)
+  { 
+    this.capacity=capacity;
+    evict();
+  }
+  
+  public int getCapacity()
+  { return capacity;
+  }
+  
+  /**
+   * @return The canonical Expression previously parsed from the specified 
+   *   text, or null if the text is not in the cache or was parsed with 
+   *   different prefix bindings.
+   */
+  public Expression<?> get(String text)
+  {
+    Entry entry=map.get(text);
+    if (entry!=null && entry.isValid())
+    { 
+      if (!entry.referenced)
+      { entry.referenced=true;
+      }
+      hits.increment();
+      return entry.expression;
+    }
+    misses.increment();
+    return null;
+  }
+  
+  /**
+   * Associate the canonical Expression parsed from the specified text
+   *   with the prefix bindings that the parse depended on, replacing 
+   *   any existing entry.
+   * 
+   * @param prefixBindings The value of ExpressionParser.getPrefixBindings()
+   *   after parsing the text, or null
+   */
+  public void put
+    (String text
+    ,Expression<?> expression
+    ,Map<String,Object> prefixBindings
+    )
+  { 
+    if (capacity<=0)
+    { return;
+    }
+    if (map.put(text,new Entry(expression,prefixBindings))==null
+        && map.size()>capacity
+        )
+    { evict();
+    }
+  }
+  
+  /**
+   * Remove all entries and reset the statistics
+   */
+  public void clear()
+  { 
+    map.clear();
+    hits.reset();
+    misses.reset();
+    evictions.reset();
+  }
+  
+  public int getSize()
+  { return map.size();
+  }
+  
+  public long getHits()
+  { return hits.sum();
+  }
+  
+  public long getMisses()
+  { return misses.sum();
+  }
+
+  public long getEvictions()
+  { return evictions.sum();
+  }
+  
+  /**
+   * @return The fraction of lookups that were satisfied from the cache
+   */
+  public double getHitRatio()
+  { 
+    long hits=this.hits.sum();
+    long total=hits+misses.sum();
+    return total>0?(double) hits/total:0;
+  }
+  
+  private void evict()
+  {
+    // A single thread advances the clock. Concurrent inserts may briefly
+    //   exceed the capacity.
+    if (!evicting.compareAndSet(false,true))
+    { return;
+    }
+    
+    try
+    {
+      while (map.size()>Math.max(capacity,0))
+      {
+        if (hand==null || !hand.hasNext())
+        { 
+          hand=map.entrySet().iterator();
+          if (!hand.hasNext())
+          { break;
+          }
+        }
+        
+        Map.Entry<String,Entry> mapEntry=hand.next();
+        Entry entry=mapEntry.getValue();
+        if (entry.referenced)
+        { entry.referenced=false;
+        }
+        else if (map.remove(mapEntry.getKey(),entry))
+        { evictions.increment();
+        }
+      }
+    }
+    finally
+    { evicting.set(false);
+    }
+  }
+  
+  @Override
+  public String toString()
+  { 
+    return super.toString()
+      +"[size="+map.size()+", capacity="+capacity
+      +", hits="+hits.sum()+", misses="+misses.sum()
+      +", evictions="+evictions.sum()+"]";
+  }
+  
+  private static class Entry
+  {
+    final Expression<?> expression;
+    final String[] prefixes;
+    final Object[] bindings;
+    volatile boolean referenced;
+    
+    Entry(Expression<?> expression,Map<String,Object> prefixBindings)
+    { 
+      this.expression=expression;
+      if (prefixBindings!=null && !prefixBindings.isEmpty())
+      {
+        prefixes=prefixBindings.keySet().toArray(new String[0]);
+        bindings=new Object[prefixes.length];
+        for (int i=0;i<prefixes.length;i++)
+        { bindings[i]=prefixBindings.get(prefixes[i]);
+        }
+      }
+      else
+      { 
+        prefixes=null;
+        bindings=null;
+      }
+    }
+    
+    boolean isValid()
+    {
+      if (prefixes!=null)
+      {
+        for (int i=0;i<prefixes.length;i++)
+        { 
+          if (!Objects.equals
+                (ExpressionParser.getPrefixBinding(prefixes[i]),bindings[i])
+             )
+          { return false;
+          }
+        }
+      }
+      return true;
+    }
+  }
+}
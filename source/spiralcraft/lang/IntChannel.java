@@ -0,0 +1,34 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang;
+
+/**
+ * <p>Implemented by a Channel that can deliver its content as an int
+ *   without boxing.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public interface IntChannel
+{
+  /**
+   * Return the content of the Channel as an int.
+   * 
+   * @throws NullValueException if the content is null
+   */
+  int getInt()
+    throws AccessException;
+}
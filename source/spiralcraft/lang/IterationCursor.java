@@ -50,6 +50,13 @@ public class IterationCursor<I>
   { return value;
   }
   
+  /**
+   * The Iterator which provides the values for this cursor
+   */
+  public Iterator<I> getIterator()
+  { return iterator;
+  }
+  
   @Override
   public boolean hasNext()
   { 
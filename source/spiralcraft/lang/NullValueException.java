@@ -0,0 +1,42 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang;
+
+/**
+ * <p>Thrown by the primitive accessors of IntChannel, LongChannel and
+ *   DoubleChannel when the content of the Channel is null, so that 
+ *   primitive expression trees can propagate a null result without 
+ *   boxing.
+ * </p>
+ * 
+ * <p>A single stackless instance is used, as this signals a condition
+ *   to be handled by the caller rather than an error.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class NullValueException
+  extends AccessException
+{
+  private static final long serialVersionUID=1;
+
+  public static final NullValueException INSTANCE
+    =new NullValueException();
+  
+  private NullValueException()
+  { super("Value is null",false);
+  }
+}
@@ -0,0 +1,49 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.functions;
+
+import spiralcraft.lang.BindException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.ChannelFactory;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.Focus;
+import spiralcraft.lang.spi.ChannelCompiler;
+
+/**
+ * <p>Compiles the bound source expression with the ChannelCompiler, for
+ *   hot expressions that are evaluated repeatedly.
+ * </p>
+ *
+ * <p>Usage: <code>customer.address.city.[*fn:Compile]</code>
+ * </p>
+ *
+ * @author mike
+ *
+ * @param <T>
+ */
+public class Compile<T>
+  implements ChannelFactory<T,T>
+{
+
+  @Override
+  public Channel<T> bindChannel(
+    Channel<T> source,
+    Focus<?> focus,
+    Expression<?>[] arguments)
+    throws BindException
+  { return ChannelCompiler.compile(source);
+  }
+
+}
@@ -62,6 +62,7 @@ public class AbstractChainableContext
   private boolean chainable;
   protected DeclarationInfo declarationInfo;
   private Channel<ProfilerAgent> profilerChannel;
+  private ProfileFrame profileFrame;
   
   private static final CycleDetector<AbstractChainableContext> cycleDetector
   =new CycleDetector<AbstractChainableContext>();
@@ -322,7 +323,7 @@ public class AbstractChainableContext
       :null;
       
     if (profilerAgent!=null)  
-    { profilerAgent.enter(getClass().getName()+"#"+actionId,declarationInfo);
+    { profilerAgent.enter(profileFrameName(actionId),declarationInfo);
     }
   }
 
@@ -334,7 +335,34 @@ public class AbstractChainableContext
       :null;
     
     if (profilerAgent!=null)  
-    { profilerAgent.exit(getClass().getName()+"#"+actionId,declarationInfo,error);
+    { profilerAgent.exit(profileFrameName(actionId),declarationInfo,error);
+    }
+  }
+  
+  /**
+   * The name under which the profiler records the specified action, built
+   *   once rather than on every call
+   */
+  private String profileFrameName(String actionId)
+  {
+    ProfileFrame frame=profileFrame;
+    if (frame==null || !frame.actionId.equals(actionId))
+    { 
+      frame=new ProfileFrame(actionId,getClass().getName()+"#"+actionId);
+      profileFrame=frame;
+    }
+    return frame.name;
+  }
+  
+  private static final class ProfileFrame
+  {
+    final String actionId;
+    final String name;
+    
+    ProfileFrame(String actionId,String name)
+    { 
+      this.actionId=actionId;
+      this.name=name;
     }
   }
 }
@@ -533,6 +533,12 @@ class NumberBindingHelper
 
     Reflector<Tret> reflector=BeanReflector.<Tret>getInstance(promotedType);
     
+    Channel<Tret> primitive
+      =PrimitiveArithmeticChannel.bind(reflector,op1,op2,operator);
+    if (primitive!=null)
+    { return primitive;
+    }
+    
     HashMap<Class<?>,NumericTranslator<?,?,?>> translatorMap=null;
     switch (operator)
     {
@@ -55,6 +55,40 @@ public class EqualityNode<X>
   { return reconstruct(_negate?"!=":"==");
   }
 
+  @Override
+  protected Channel<Boolean> bindPrimitive
+    (Channel<X> op1Channel,Channel<X> op2Channel)
+  {
+    if (!PrimitiveComparisonChannel.canCompare(op1Channel,op2Channel))
+    { return null;
+    }
+    
+    return new PrimitiveComparisonChannel
+      (BOOLEAN_REFLECTOR
+      ,op1Channel
+      ,op2Channel
+      ,op1Channel.isConstant() && op2Channel.isConstant()
+      )
+    {
+      @Override
+      protected Boolean result(int result)
+      { return toResult(result==0);
+      }
+      
+      @Override
+      protected Boolean nullResult(boolean null1,boolean null2)
+      { return toResult(null1 && null2);
+      }
+    };
+  }
+  
+  private Boolean toResult(boolean value)
+  { 
+    return value
+        ?(_negate?Boolean.FALSE:Boolean.TRUE)
+        :(_negate?Boolean.TRUE:Boolean.FALSE);
+  }
+  
   @Override
   protected LogicalTranslator 
     newTranslator(final Reflector<X> r1,final Reflector<X> r2)
@@ -133,13 +167,6 @@ public class EqualityNode<X>
         return toResult(false);
       }
       
-      private Boolean toResult(boolean value)
-      { 
-        return value
-            ?(_negate?Boolean.FALSE:Boolean.TRUE)
-            :(_negate?Boolean.TRUE:Boolean.FALSE);
-      }
-      
       /**
        * Equality is only a function if both arguments are immutable
        */
@@ -21,6 +21,8 @@ import spiralcraft.log.Level;
 import spiralcraft.util.ContextDictionary;
 import spiralcraft.util.string.StringPool;
 import spiralcraft.common.declare.DeclarationContext;
+import spiralcraft.common.namespace.NamespaceContext;
+import spiralcraft.common.namespace.PrefixResolver;
 import spiralcraft.common.namespace.UnresolvedPrefixException;
 import spiralcraft.io.LookaheadStreamTokenizer;
 
@@ -29,8 +31,10 @@ import java.io.StringReader;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -42,6 +46,46 @@ public class ExpressionParser
   private static boolean debug=false;
   private static final ClassLog log
     =ClassLog.getInstance(ExpressionParser.class);
+  
+  private static final ThreadLocal<ExpressionParser> activeParser
+    =new ThreadLocal<ExpressionParser>();
+  
+  private static final Object NO_RESOLVER=new Object();
+  
+  /**
+   * <p>Return the binding of the specified namespace prefix in the current
+   *   NamespaceContext, in a form that can be compared to the values
+   *   returned by getPrefixBindings()
+   * </p>
+   */
+  public static Object getPrefixBinding(String prefix)
+  { return getPrefixBinding(NamespaceContext.getPrefixResolver(),prefix);
+  }
+  
+  private static Object getPrefixBinding(PrefixResolver resolver,String prefix)
+  { 
+    if (resolver==null)
+    { return NO_RESOLVER;
+    }
+    return resolver.resolvePrefix(prefix!=null?prefix:"");
+  }
+  
+  /**
+   * Called by Nodes when a qualified name is resolved against the contextual
+   *   PrefixResolver while being parsed.
+   */
+  static void prefixResolved(String prefix,PrefixResolver resolver)
+  { 
+    ExpressionParser parser=activeParser.get();
+    if (parser!=null)
+    { 
+      if (parser.prefixBindings==null)
+      { parser.prefixBindings=new HashMap<String,Object>();
+      }
+      parser.prefixBindings.put
+        (prefix!=null?prefix:"",getPrefixBinding(resolver,prefix));
+    }
+  }
 
   private StringBuffer _progressBuffer;
   private LookaheadStreamTokenizer _tokenizer;
@@ -55,21 +99,56 @@ public class ExpressionParser
         ,"false"
         )
       );
+  private HashMap<String,Object> prefixBindings;
+  private boolean cacheable=true;
   
   public <X> Expression<X> parse(String text)
     throws ParseException
   { 
-    createTokenizer(text);
-    _text=text;
-    consumeToken();
-    Node ret=parseBindingExpression();
-    if (ret==null)
-    { throwUnexpected();
+    ExpressionParser prior=activeParser.get();
+    activeParser.set(this);
+    try
+    {
+      createTokenizer(text);
+      _text=text;
+      consumeToken();
+      Node ret=parseBindingExpression();
+      if (ret==null)
+      { throwUnexpected();
+      }
+      if (_tokenizer.ttype!=StreamTokenizer.TT_EOF)
+      { throwUnexpected();
+      }
+      return Expression.create(ret,text);
     }
-    if (_tokenizer.ttype!=StreamTokenizer.TT_EOF)
-    { throwUnexpected();
+    finally
+    { 
+      if (prior!=null)
+      { activeParser.set(prior);
+      }
+      else
+      { activeParser.remove();
+      }
     }
-    return Expression.create(ret,text);    
+  }
+  
+  /**
+   * @return The bindings of the namespace prefixes that were resolved against
+   *   the NamespaceContext by the last parse, keyed by prefix, or null if
+   *   the parse did not depend on the NamespaceContext.
+   */
+  public Map<String,Object> getPrefixBindings()
+  { return prefixBindings;
+  }
+  
+  /**
+   * @return Whether the result of the last parse is a function of the
+   *   expression text and the prefix bindings alone, and can be reused
+   *   without re-parsing. Expressions with deprecated syntax are not 
+   *   cacheable, so that deprecation is reported on every parse.
+   */
+  public boolean isCacheable()
+  { return cacheable;
   }
 
   
@@ -1042,6 +1121,7 @@ public class ExpressionParser
           }
           else
           {
+            cacheable=false;
             log.warning
               ("Deprecated expression syntax '"
               +focusSpec.reconstruct()+" "+_tokenizer.sval
@@ -1505,6 +1585,7 @@ public class ExpressionParser
         }
         else
         {
+          cacheable=false;
           log.warning
             ("Deprecated syntax- struct name must preceed struct definition: "
             +" in: ["+this._text+"]: "+DeclarationContext.printDeclarationStack()
@@ -81,6 +81,13 @@ public abstract class LogicalNode<T1,T2>
       { params=new Channel<?>[] {};
       }
       
+      if (op2Channel!=null)
+      { resultChannel=bindPrimitive(op1Channel,op2Channel);
+      }
+      if (resultChannel!=null)
+      { return resultChannel;
+      }
+      
       resultChannel
         =new TranslatorChannel<Boolean,T1>
           (op1Channel
@@ -145,6 +152,16 @@ public abstract class LogicalNode<T1,T2>
     }
   }
   
+  /**
+   * Bind an implementation of the operator which reads primitive operands
+   *   without boxing, or return null to use the Translator. The default
+   *   implementation returns null.
+   */
+  protected Channel<Boolean> bindPrimitive
+    (Channel<T1> op1Channel,Channel<T2> op2Channel)
+  { return null;
+  }
+  
   protected abstract LogicalTranslator 
     newTranslator(Reflector<T1> r1,Reflector<T2> r2)
       throws BindException;
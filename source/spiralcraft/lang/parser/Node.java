@@ -190,6 +190,7 @@ public abstract class Node
     throws UnresolvedPrefixException
   {
     PrefixResolver resolver=NamespaceContext.getPrefixResolver();
+    ExpressionParser.prefixResolved(prefix,resolver);
     URI ret=null;
     if (resolver!=null)
     { 
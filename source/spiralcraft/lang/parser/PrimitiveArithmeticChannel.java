@@ -0,0 +1,309 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.parser;
+
+import spiralcraft.lang.AccessException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.NullValueException;
+import spiralcraft.lang.Reflector;
+import spiralcraft.lang.spi.NumericAdapter;
+import spiralcraft.lang.spi.NumericChannel;
+
+/**
+ * <p>Evaluates an arithmetic operator on int, long or double operands 
+ *   without boxing intermediate values, so that a tree of arithmetic 
+ *   operators over primitive bean properties only boxes the final
+ *   result.
+ * </p>
+ * 
+ * <p>A null operand results in a null value, signalled between nested
+ *   primitive channels with NullValueException.
+ * </p>
+ * 
+ * @author mike
+ *
+ * @param <T>
+ */
+abstract class PrimitiveArithmeticChannel<T extends Number>
+  extends PrimitiveOperatorChannel<T>
+  implements NumericChannel
+{
+  
+  /**
+   * Bind a primitive implementation of the operator, or return null
+   *   if the operands or the operator must be handled by the boxed
+   *   NumericTranslator.
+   */
+  @SuppressWarnings("unchecked")
+  static <T extends Number> Channel<T> bind
+    (Reflector<T> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,char operator
+    )
+  {
+    Class<?> type=reflector.getContentType();
+    if (type!=Integer.class && type!=Long.class && type!=Double.class)
+    { return null;
+    }
+    
+    switch (operator)
+    {
+      case '+':
+      case '-':
+      case '*':
+      case '/':
+      case '%':
+        break;
+      case '&':
+        if (type==Double.class)
+        { return null;
+        }
+        break;
+      default:
+        return null;
+    }
+    
+    NumericChannel n1=NumericAdapter.adapt(op1);
+    if (n1==null)
+    { return null;
+    }
+    NumericChannel n2=NumericAdapter.adapt(op2);
+    if (n2==null)
+    { return null;
+    }
+    
+    if (type==Integer.class)
+    { 
+      return (Channel<T>) new IntArithmeticChannel
+        ((Reflector<Integer>) reflector,op1,op2,n1,n2,operator);
+    }
+    else if (type==Long.class)
+    { 
+      return (Channel<T>) new LongArithmeticChannel
+        ((Reflector<Long>) reflector,op1,op2,n1,n2,operator);
+    }
+    else
+    { 
+      return (Channel<T>) new DoubleArithmeticChannel
+        ((Reflector<Double>) reflector,op1,op2,n1,n2,operator);
+    }
+  }
+  
+  protected final NumericChannel n1;
+  protected final NumericChannel n2;
+  protected final char operator;
+  
+  PrimitiveArithmeticChannel
+    (Reflector<T> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,NumericChannel n1
+    ,NumericChannel n2
+    ,char operator
+    )
+  { 
+    super(reflector,op1,op2);
+    this.n1=n1;
+    this.n2=n2;
+    this.operator=operator;
+  }
+  
+  @Override
+  public String toString()
+  { return super.toString()+" '"+operator+"'";
+  }
+}
+
+final class IntArithmeticChannel
+  extends PrimitiveArithmeticChannel<Integer>
+{
+  IntArithmeticChannel
+    (Reflector<Integer> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,NumericChannel n1
+    ,NumericChannel n2
+    ,char operator
+    )
+  { super(reflector,op1,op2,n1,n2,operator);
+  }
+  
+  @Override
+  protected Integer retrieve()
+  {
+    try
+    { return getInt();
+    }
+    catch (NullValueException x)
+    { return null;
+    }
+  }
+  
+  @Override
+  public int getInt()
+    throws AccessException
+  {
+    int v1=n1.getInt();
+    int v2=n2.getInt();
+    switch (operator)
+    {
+      case '+':
+        return v1+v2;
+      case '-':
+        return v1-v2;
+      case '*':
+        return v1*v2;
+      case '/':
+        return v1/v2;
+      case '%':
+        return v1%v2;
+      default:
+        return v1&v2;
+    }
+  }
+
+  @Override
+  public long getLong()
+    throws AccessException
+  { return getInt();
+  }
+
+  @Override
+  public double getDouble()
+    throws AccessException
+  { return getInt();
+  }
+}
+
+final class LongArithmeticChannel
+  extends PrimitiveArithmeticChannel<Long>
+{
+  LongArithmeticChannel
+    (Reflector<Long> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,NumericChannel n1
+    ,NumericChannel n2
+    ,char operator
+    )
+  { super(reflector,op1,op2,n1,n2,operator);
+  }
+  
+  @Override
+  protected Long retrieve()
+  {
+    try
+    { return getLong();
+    }
+    catch (NullValueException x)
+    { return null;
+    }
+  }
+  
+  @Override
+  public long getLong()
+    throws AccessException
+  {
+    long v1=n1.getLong();
+    long v2=n2.getLong();
+    switch (operator)
+    {
+      case '+':
+        return v1+v2;
+      case '-':
+        return v1-v2;
+      case '*':
+        return v1*v2;
+      case '/':
+        return v1/v2;
+      case '%':
+        return v1%v2;
+      default:
+        return v1&v2;
+    }
+  }
+
+  @Override
+  public int getInt()
+    throws AccessException
+  { return (int) getLong();
+  }
+
+  @Override
+  public double getDouble()
+    throws AccessException
+  { return getLong();
+  }
+}
+
+final class DoubleArithmeticChannel
+  extends PrimitiveArithmeticChannel<Double>
+{
+  DoubleArithmeticChannel
+    (Reflector<Double> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,NumericChannel n1
+    ,NumericChannel n2
+    ,char operator
+    )
+  { super(reflector,op1,op2,n1,n2,operator);
+  }
+  
+  @Override
+  protected Double retrieve()
+  {
+    try
+    { return getDouble();
+    }
+    catch (NullValueException x)
+    { return null;
+    }
+  }
+  
+  @Override
+  public double getDouble()
+    throws AccessException
+  {
+    double v1=n1.getDouble();
+    double v2=n2.getDouble();
+    switch (operator)
+    {
+      case '+':
+        return v1+v2;
+      case '-':
+        return v1-v2;
+      case '*':
+        return v1*v2;
+      case '/':
+        return v1/v2;
+      default:
+        return v1%v2;
+    }
+  }
+
+  @Override
+  public int getInt()
+    throws AccessException
+  { return (int) getDouble();
+  }
+
+  @Override
+  public long getLong()
+    throws AccessException
+  { return (long) getDouble();
+  }
+}
@@ -0,0 +1,127 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.parser;
+
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.NullValueException;
+import spiralcraft.lang.Reflector;
+import spiralcraft.lang.spi.NumericAdapter;
+import spiralcraft.lang.spi.NumericChannel;
+
+/**
+ * <p>Compares two int, long or double operands without boxing them. 
+ *   The second operand is read at the width of the first, which gives the
+ *   same result as coercing it to the type of the first operand before
+ *   comparing.
+ * </p>
+ * 
+ * @author mike
+ */
+abstract class PrimitiveComparisonChannel
+  extends PrimitiveOperatorChannel<Boolean>
+{
+  
+  /**
+   * Whether a PrimitiveComparisonChannel can be bound to the specified
+   *   operands
+   */
+  static boolean canCompare(Channel<?> op1,Channel<?> op2)
+  {
+    return NumericAdapter.primitiveKind(op1.getContentType())!=null
+      && NumericAdapter.adapt(op1)!=null
+      && NumericAdapter.adapt(op2)!=null;
+  }
+  
+  private final NumericChannel n1;
+  private final NumericChannel n2;
+  private final Class<?> kind;
+  
+  PrimitiveComparisonChannel
+    (Reflector<Boolean> reflector
+    ,Channel<?> op1
+    ,Channel<?> op2
+    ,boolean constant
+    )
+  {
+    super(reflector,op1,op2,constant);
+    n1=NumericAdapter.adapt(op1);
+    n2=NumericAdapter.adapt(op2);
+    kind=NumericAdapter.primitiveKind(op1.getContentType());
+  }
+  
+  /**
+   * The result when both operands are non-null
+   * 
+   * @param comparison negative, zero or positive as the first operand is
+   *   less than, equal to or greater than the second
+   */
+  protected abstract Boolean result(int comparison);
+  
+  /**
+   * The result when one or both operands are null
+   */
+  protected abstract Boolean nullResult(boolean null1,boolean null2);
+  
+  @Override
+  protected Boolean retrieve()
+  {
+    if (kind==double.class)
+    {
+      double v1=0;
+      double v2=0;
+      boolean null1=false;
+      boolean null2=false;
+      try
+      { v1=n1.getDouble();
+      }
+      catch (NullValueException x)
+      { null1=true;
+      }
+      try
+      { v2=n2.getDouble();
+      }
+      catch (NullValueException x)
+      { null2=true;
+      }
+      if (null1 || null2)
+      { return nullResult(null1,null2);
+      }
+      return result(Double.compare(v1,v2));
+    }
+    else
+    {
+      long v1=0;
+      long v2=0;
+      boolean null1=false;
+      boolean null2=false;
+      try
+      { v1=kind==int.class?n1.getInt():n1.getLong();
+      }
+      catch (NullValueException x)
+      { null1=true;
+      }
+      try
+      { v2=kind==int.class?n2.getInt():n2.getLong();
+      }
+      catch (NullValueException x)
+      { null2=true;
+      }
+      if (null1 || null2)
+      { return nullResult(null1,null2);
+      }
+      return result(Long.compare(v1,v2));
+    }
+  }
+}
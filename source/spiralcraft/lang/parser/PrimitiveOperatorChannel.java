@@ -0,0 +1,111 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.parser;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+
+import spiralcraft.lang.AccessException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.Reflector;
+import spiralcraft.lang.spi.AbstractChannel;
+import spiralcraft.util.tree.LinkedTree;
+
+/**
+ * <p>Base class for operators which read their operands through 
+ *   NumericChannel views and only box the final result.
+ * </p>
+ * 
+ * <p>Property changes in either operand are propagated as a change to the
+ *   result, the same as a TranslatorChannel does for its source and
+ *   modifiers.
+ * </p>
+ * 
+ * @author mike
+ *
+ * @param <T>
+ */
+abstract class PrimitiveOperatorChannel<T>
+  extends AbstractChannel<T>
+  implements PropertyChangeListener
+{
+  protected final Channel<?> op1;
+  protected final Channel<?> op2;
+  private boolean listening;
+
+  protected PrimitiveOperatorChannel
+    (Reflector<T> reflector,Channel<?> op1,Channel<?> op2)
+  { this(reflector,op1,op2,op1.isConstant() && op2.isConstant());
+  }
+
+  protected PrimitiveOperatorChannel
+    (Reflector<T> reflector,Channel<?> op1,Channel<?> op2,boolean constant)
+  { 
+    super(reflector,constant);
+    this.op1=op1;
+    this.op2=op2;
+  }
+
+  @Override
+  protected boolean store(T val)
+    throws AccessException
+  { return false;
+  }
+
+  @Override
+  public boolean isWritable()
+  { return false;
+  }
+
+  @Override
+  public synchronized PropertyChangeSupport propertyChangeSupport()
+  {
+    PropertyChangeSupport support=super.propertyChangeSupport();
+    if (support!=null && !listening)
+    {
+      listening=true;
+      PropertyChangeSupport pcs=op1.propertyChangeSupport();
+      if (pcs!=null)
+      { pcs.addPropertyChangeListener(this);
+      }
+      pcs=op2.propertyChangeSupport();
+      if (pcs!=null)
+      { pcs.addPropertyChangeListener(this);
+      }
+    }
+    return support;
+  }
+
+  @Override
+  public void propertyChange(PropertyChangeEvent event)
+  { propertyChangeDetected(null,retrieve());
+  }
+
+  @SuppressWarnings({"unchecked","rawtypes"})
+  @Override
+  public LinkedTree<Channel<?>> trace(Class<Channel<?>> stop)
+  { 
+    return new LinkedTree<Channel<?>>
+      (this
+      ,new LinkedTree[] {op1.trace(stop),op2.trace(stop)}
+      );
+  }
+
+  @Override
+  public String toString()
+  { return super.toString()+"("+op1+","+op2+")";
+  }
+}
@@ -69,6 +69,36 @@ public class RelationalNode<T1 extends Comparable<T1>,T2 extends T1>
     }
   }
   
+  @Override
+  protected Channel<Boolean> bindPrimitive
+    (Channel<T1> op1Channel,Channel<T2> op2Channel)
+  {
+    if (!PrimitiveComparisonChannel.canCompare(op1Channel,op2Channel))
+    { return null;
+    }
+    
+    // Not constant, consistent with RelationalTranslator.isFunction()
+    return new PrimitiveComparisonChannel
+      (BOOLEAN_REFLECTOR,op1Channel,op2Channel,false)
+    {
+      @Override
+      protected Boolean result(int result)
+      {
+        if (_greaterThan)
+        { return _equals?result>=0:result>0;
+        }
+        else
+        { return _equals?result<=0:result<0;
+        }
+      }
+      
+      @Override
+      protected Boolean nullResult(boolean null1,boolean null2)
+      { return null1 && null2 && _equals?Boolean.TRUE:null;
+      }
+    };
+  }
+  
   @SuppressWarnings("unchecked")
   @Override
   protected LogicalTranslator 
@@ -0,0 +1,493 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.reflect;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+
+/**
+ * <p>Generates direct accessors for bean properties, fields and methods
+ *   to replace reflective Method.invoke() calls in the translators
+ *   created by the BeanReflector.
+ * </p>
+ *
+ * <p>Where the target class and the accessor interfaces are visible to a
+ *   suitable Lookup, accessors are spun by the LambdaMetafactory and are
+ *   as cheap to call as a direct interface call. Otherwise they
+ *   are implemented with MethodHandles. A factory method returns null
+ *   when neither is possible, in which case the caller should continue to
+ *   use reflection.
+ * </p>
+ *
+ * <p>Accessors do not wrap exceptions- any exception thrown by the
+ *   target member is propagated as-is.
+ * </p>
+ *
+ * <p>Accessors are held by the Translators, which are cached by the
+ *   BeanReflector, so each is generated once per member.
+ * </p>
+ *
+ * @author mike
+ *
+ */
+public class BeanAccessor
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(BeanAccessor.class);
+  private static final Level debugLevel
+    =ClassLog.getInitialDebugLevel(BeanAccessor.class,Level.INFO);
+
+  private static final boolean disabled
+    ="true".equals
+      (System.getProperty("spiralcraft.lang.reflect.BeanAccessor.disable"));
+
+  public interface Getter
+  { Object get(Object bean) throws Throwable;
+  }
+
+  public interface IntGetter
+  { int getInt(Object bean) throws Throwable;
+  }
+
+  public interface LongGetter
+  { long getLong(Object bean) throws Throwable;
+  }
+
+  public interface DoubleGetter
+  { double getDouble(Object bean) throws Throwable;
+  }
+
+  public interface BooleanGetter
+  { boolean getBoolean(Object bean) throws Throwable;
+  }
+
+  public interface Setter
+  { void set(Object bean,Object value) throws Throwable;
+  }
+
+  public interface Invoker
+  { Object invoke(Object target,Object[] args) throws Throwable;
+  }
+
+  interface UnaryInvoker
+  { Object invoke(Object target,Object arg) throws Throwable;
+  }
+
+  /**
+   * A Getter for a no-arg instance method
+   */
+  public static Getter getter(Method method)
+  {
+    if (!isProperty(method))
+    { return null;
+    }
+
+    Getter ret
+      =spin
+        (method
+        ,"get"
+        ,Getter.class
+        ,MethodType.methodType(Object.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflect(method);
+      if (handle!=null)
+      {
+        MethodHandle generic
+          =handle.asType(MethodType.methodType(Object.class,Object.class));
+        ret=(bean) -> (Object) generic.invokeExact(bean);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * A Getter for an instance or static field
+   */
+  public static Getter getter(Field field)
+  {
+    MethodHandle handle=unreflectGetter(field);
+    if (handle==null)
+    { return null;
+    }
+
+    if (Modifier.isStatic(field.getModifiers()))
+    { handle=MethodHandles.dropArguments(handle,0,Object.class);
+    }
+    MethodHandle generic
+      =handle.asType(MethodType.methodType(Object.class,Object.class));
+    return (bean) -> (Object) generic.invokeExact(bean);
+  }
+
+  /**
+   * An unboxed Getter for a no-arg instance method that returns an int
+   */
+  public static IntGetter intGetter(Method method)
+  {
+    if (method.getReturnType()!=int.class || !isProperty(method))
+    { return null;
+    }
+    IntGetter ret
+      =spin
+        (method
+        ,"getInt"
+        ,IntGetter.class
+        ,MethodType.methodType(int.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflectInstance(method,int.class);
+      if (handle!=null)
+      { ret=(bean) -> (int) handle.invokeExact(bean);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * An unboxed Getter for a no-arg instance method that returns a long
+   */
+  public static LongGetter longGetter(Method method)
+  {
+    if (method.getReturnType()!=long.class || !isProperty(method))
+    { return null;
+    }
+    LongGetter ret
+      =spin
+        (method
+        ,"getLong"
+        ,LongGetter.class
+        ,MethodType.methodType(long.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflectInstance(method,long.class);
+      if (handle!=null)
+      { ret=(bean) -> (long) handle.invokeExact(bean);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * An unboxed Getter for a no-arg instance method that returns a double
+   */
+  public static DoubleGetter doubleGetter(Method method)
+  {
+    if (method.getReturnType()!=double.class || !isProperty(method))
+    { return null;
+    }
+    DoubleGetter ret
+      =spin
+        (method
+        ,"getDouble"
+        ,DoubleGetter.class
+        ,MethodType.methodType(double.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflectInstance(method,double.class);
+      if (handle!=null)
+      { ret=(bean) -> (double) handle.invokeExact(bean);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * An unboxed Getter for a no-arg instance method that returns a boolean
+   */
+  public static BooleanGetter booleanGetter(Method method)
+  {
+    if (method.getReturnType()!=boolean.class || !isProperty(method))
+    { return null;
+    }
+    BooleanGetter ret
+      =spin
+        (method
+        ,"getBoolean"
+        ,BooleanGetter.class
+        ,MethodType.methodType(boolean.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflectInstance(method,boolean.class);
+      if (handle!=null)
+      { ret=(bean) -> (boolean) handle.invokeExact(bean);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * A Setter for a single argument instance method
+   */
+  public static Setter setter(Method method)
+  {
+    if (Modifier.isStatic(method.getModifiers())
+        || method.getParameterCount()!=1
+       )
+    { return null;
+    }
+    Setter ret
+      =spin
+        (method
+        ,"set"
+        ,Setter.class
+        ,MethodType.methodType(void.class,Object.class,Object.class)
+        );
+    if (ret==null)
+    {
+      MethodHandle handle=unreflect(method);
+      if (handle!=null)
+      {
+        MethodHandle generic
+          =handle.asType
+            (MethodType.methodType(void.class,Object.class,Object.class));
+        ret=(bean,value) -> { generic.invokeExact(bean,value); };
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * A Setter for an instance field
+   */
+  public static Setter setter(Field field)
+  {
+    if (Modifier.isStatic(field.getModifiers())
+        || Modifier.isFinal(field.getModifiers())
+       )
+    { return null;
+    }
+    MethodHandle handle;
+    try
+    { handle=MethodHandles.lookup().unreflectSetter(field);
+    }
+    catch (IllegalAccessException x)
+    {
+      trace(field.toString(),x);
+      return null;
+    }
+    MethodHandle generic
+      =handle.asType
+        (MethodType.methodType(void.class,Object.class,Object.class));
+    return (bean,value) -> { generic.invokeExact(bean,value); };
+  }
+
+  /**
+   * An Invoker for an instance or static method of any arity. The target
+   *   is ignored for static methods.
+   */
+  public static Invoker invoker(Method method)
+  {
+    boolean isStatic=Modifier.isStatic(method.getModifiers());
+    int arity=method.getParameterCount();
+    if (!isStatic && !method.isVarArgs())
+    {
+      if (arity==0)
+      {
+        Getter getter=getter(method);
+        if (getter!=null)
+        { return (target,args) -> getter.get(target);
+        }
+      }
+      else if (arity==1)
+      {
+        UnaryInvoker unary
+          =spin
+            (method
+            ,"invoke"
+            ,UnaryInvoker.class
+            ,MethodType.methodType(Object.class,Object.class,Object.class)
+            );
+        if (unary!=null)
+        { return (target,args) -> unary.invoke(target,args[0]);
+        }
+      }
+    }
+
+    MethodHandle handle=unreflect(method);
+    if (handle==null)
+    { return null;
+    }
+    handle=handle.asFixedArity();
+    if (isStatic)
+    { handle=MethodHandles.dropArguments(handle,0,Object.class);
+    }
+    MethodHandle spreader
+      =handle.asType(MethodType.genericMethodType(arity+1))
+        .asSpreader(Object[].class,arity);
+    return (target,args) -> (Object) spreader.invokeExact(target,args);
+  }
+
+  /**
+   * Generate an implementation of the functional interface for the
+   *   instance method via the LambdaMetafactory.
+   */
+  private static <X> X spin
+    (Method method,String name,Class<X> iface,MethodType samType)
+  {
+    if (disabled || Modifier.isStatic(method.getModifiers()))
+    { return null;
+    }
+    
+    for (Class<?> type:method.getParameterTypes())
+    { 
+      if (type.isPrimitive())
+      { 
+        // The metafactory only unboxes the exact wrapper type, whereas
+        //   reflection and MethodHandle.asType() also widen
+        return null;
+      }
+    }
+
+    Class<?> targetClass=method.getDeclaringClass();
+    MethodHandles.Lookup lookup=lookupFor(targetClass,method.getModifiers());
+    if (lookup==null)
+    { return null;
+    }
+
+    try
+    {
+      MethodHandle impl=lookup.unreflect(method);
+      MethodType implType=impl.type();
+      Class<?> returnType
+        =samType.returnType().isPrimitive()
+        ?samType.returnType()
+        :implType.wrap().returnType();
+      MethodType instantiatedType
+        =implType.wrap()
+          .changeParameterType(0,targetClass)
+          .changeReturnType(returnType);
+
+      return iface.cast
+        (LambdaMetafactory.metafactory
+          (lookup
+          ,name
+          ,MethodType.methodType(iface)
+          ,samType
+          ,impl
+          ,instantiatedType
+          ).getTarget().invoke()
+        );
+    }
+    catch (Throwable x)
+    {
+      trace(method.toString(),x);
+      return null;
+    }
+  }
+
+  /**
+   * <p>Find a Lookup that can define a lambda class that links against
+   *   both the target class and the accessor interfaces.
+   * </p>
+   */
+  private static MethodHandles.Lookup lookupFor(Class<?> targetClass,int modifiers)
+  {
+    if (Modifier.isPublic(targetClass.getModifiers())
+        && Modifier.isPublic(modifiers)
+        && isVisible(targetClass,BeanAccessor.class.getClassLoader())
+       )
+    { return MethodHandles.lookup();
+    }
+
+    if (!isVisible(BeanAccessor.class,targetClass.getClassLoader()))
+    { return null;
+    }
+
+    try
+    {
+      MethodHandles.Lookup lookup
+        =MethodHandles.privateLookupIn(targetClass,MethodHandles.lookup());
+      return lookup.hasFullPrivilegeAccess()?lookup:null;
+    }
+    catch (IllegalAccessException x)
+    {
+      trace(targetClass.getName(),x);
+      return null;
+    }
+  }
+
+  private static boolean isProperty(Method method)
+  { 
+    return !Modifier.isStatic(method.getModifiers())
+      && method.getParameterCount()==0;
+  }
+
+  private static boolean isVisible(Class<?> clazz,ClassLoader loader)
+  {
+    if (clazz.getClassLoader()==loader
+        || clazz.getClassLoader()==null
+       )
+    { return true;
+    }
+    try
+    { return Class.forName(clazz.getName(),false,loader)==clazz;
+    }
+    catch (ClassNotFoundException | LinkageError x)
+    { return false;
+    }
+  }
+
+  private static MethodHandle unreflect(Method method)
+  {
+    try
+    { return MethodHandles.lookup().unreflect(method);
+    }
+    catch (IllegalAccessException x)
+    {
+      trace(method.toString(),x);
+      return null;
+    }
+  }
+
+  private static MethodHandle unreflectInstance(Method method,Class<?> returnType)
+  {
+    MethodHandle handle=unreflect(method);
+    return handle!=null
+      ?handle.asType(MethodType.methodType(returnType,Object.class))
+      :null;
+  }
+
+  private static MethodHandle unreflectGetter(Field field)
+  {
+    try
+    { return MethodHandles.lookup().unreflectGetter(field);
+    }
+    catch (IllegalAccessException x)
+    {
+      trace(field.toString(),x);
+      return null;
+    }
+  }
+
+  private static void trace(String member,Throwable x)
+  {
+    if (debugLevel.isDebug())
+    { log.debug("Using fallback access for "+member+": "+x);
+    }
+  }
+}
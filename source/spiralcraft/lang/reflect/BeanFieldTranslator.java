@@ -16,13 +16,17 @@ package spiralcraft.lang.reflect;
 
 import spiralcraft.lang.Channel;
 import spiralcraft.lang.Reflector;
-import spiralcraft.lang.spi.Translator;
+import spiralcraft.lang.spi.ChannelCompiler;
+import spiralcraft.lang.spi.CompilableTranslator;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 class BeanFieldTranslator<Tprop,Tbean>
-  implements Translator<Tprop,Tbean>
+  implements CompilableTranslator<Tprop,Tbean>
 {
   private final Field _field;
   private final Reflector<Tprop> _reflector;
@@ -58,6 +62,29 @@ class BeanFieldTranslator<Tprop,Tbean>
     }
   }
 
+  @Override
+  public MethodHandle getHandle(int modifierCount)
+  {
+    if (modifierCount!=0)
+    { return null;
+    }
+    
+    try
+    { 
+      MethodHandle handle=MethodHandles.lookup().unreflectGetter(_field);
+      if (_staticField)
+      { handle=MethodHandles.dropArguments(handle,0,Object.class);
+      }
+      return ChannelCompiler.guardNulls
+        (handle.asType(MethodType.genericMethodType(1))
+        ,new boolean[] {!_staticField}
+        );
+    }
+    catch (IllegalAccessException x)
+    { return null;
+    }
+  }
+
   @Override
   public Tbean translateForSet(Tprop val,Channel<?>[] modifiers)
   { throw new UnsupportedOperationException();
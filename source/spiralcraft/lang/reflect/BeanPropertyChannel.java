@@ -28,10 +28,14 @@ import spiralcraft.common.Constant;
 import spiralcraft.common.Immutable;
 import spiralcraft.lang.AccessException;
 import spiralcraft.lang.Channel;
+import spiralcraft.lang.NullValueException;
+import spiralcraft.lang.spi.NumericAdapter;
+import spiralcraft.lang.spi.NumericChannel;
 import spiralcraft.lang.spi.TranslatorChannel;
 
 class BeanPropertyChannel<T,S>
   extends TranslatorChannel<T,S>
+  implements NumericChannel
 {
   private static final Object[] EMPTY_PARAMS=new Object[0];
   private final Object[] _params=new Object[1];
@@ -39,9 +43,13 @@ class BeanPropertyChannel<T,S>
   private final Method _readMethod;
   private final Method _writeMethod;
   private final Field _writeField;
+  private final BeanAccessor.Getter _getter;
+  private final BeanAccessor.Setter _setter;
   private final boolean _static;
   private final EventSetDescriptor _propertyChangeEventSetDescriptor;
   private final Object[] _beanPropertyChangeListenerParams;
+  private final BeanPropertyTranslator<T,S> _translator;
+  private final Class<?> _kind;
 
   public BeanPropertyChannel
     (Channel<S> source
@@ -49,6 +57,8 @@ class BeanPropertyChannel<T,S>
     )
   {
     super(source,translator,null);
+    _translator=translator;
+    _kind=NumericAdapter.primitiveKind(translator.getReflector().getContentType());
     _property=translator.getProperty();
     _readMethod=translator.getReadMethod();
     
@@ -77,6 +87,14 @@ class BeanPropertyChannel<T,S>
       ?translator.getPublicField()
       :null;
     
+    _getter=translator.getGetter();
+    _setter
+      =_writeMethod!=null
+      ?translator.getSetter(_writeMethod)
+      :_writeField!=null
+      ?BeanAccessor.setter(_writeField)
+      :null;
+    
 
     _propertyChangeEventSetDescriptor
       =translator.getBeanInfo().getPropertyChangeEventSetDescriptor();
@@ -183,6 +201,40 @@ class BeanPropertyChannel<T,S>
     }
   }
   
+  @Override
+  public int getInt()
+  { return _translator.getInt(bean());
+  }
+  
+  @Override
+  public long getLong()
+  { 
+    S bean=bean();
+    return _kind==int.class
+      ?_translator.getInt(bean)
+      :_translator.getLong(bean);
+  }
+  
+  @Override
+  public double getDouble()
+  { 
+    S bean=bean();
+    return _kind==int.class
+      ?_translator.getInt(bean)
+      :_kind==long.class
+      ?_translator.getLong(bean)
+      :_translator.getDouble(bean);
+  }
+  
+  private S bean()
+  {
+    S bean=getSourceValue();
+    if (bean==null)
+    { throw NullValueException.INSTANCE;
+    }
+    return bean;
+  }
+  
   @Override
   public boolean isWritable()
   {
@@ -222,21 +274,12 @@ class BeanPropertyChannel<T,S>
       {
         Object oldValue=null;
         if (_readMethod!=null)
-        {
-          oldValue
-            =_readMethod.invoke(target,EMPTY_PARAMS);
+        { oldValue=read(target);
         }
       
         if (oldValue!=val || _readMethod==null)
         { 
-          if (_writeMethod!=null)
-          { 
-            _params[0]=val;
-            _writeMethod.invoke(target,_params);
-          }
-          else
-          { _writeField.set(target,val);
-          }
+          write(target,val);
           // System.out.println(toString()+".set: "+val);
           if (_propertyChangeEventSetDescriptor==null)
           { 
@@ -254,15 +297,7 @@ class BeanPropertyChannel<T,S>
       {
 
         // Don't compare values if we're not tracking property changes
-        if (_writeMethod!=null)
-        {
-          _params[0]=val;
-          _writeMethod.invoke(target,_params);
-
-        }
-        else
-        { _writeField.set(target,val);
-        }
+        write(target,val);
         return true;
       }
     }
@@ -293,6 +328,38 @@ class BeanPropertyChannel<T,S>
         +" writing bean property '"+_property.getName()+"'"
         ,x);
     }
+    catch (Throwable x)
+    {
+      // Checked exception or Error propagated by a generated accessor
+      throw new AccessException
+        (x.toString()+" writing bean property '"+_property.getName()+"'"
+        ,x);
+    }
+  }
+  
+  private Object read(Object target)
+    throws Throwable
+  { 
+    if (_getter!=null)
+    { return _getter.get(target);
+    }
+    return _readMethod.invoke(target,EMPTY_PARAMS);
+  }
+  
+  private void write(Object target,Object val)
+    throws Throwable
+  {
+    if (_setter!=null)
+    { _setter.set(target,val);
+    }
+    else if (_writeMethod!=null)
+    { 
+      _params[0]=val;
+      _writeMethod.invoke(target,_params);
+    }
+    else
+    { _writeField.set(target,val);
+    }
   }
 
 
@@ -16,6 +16,9 @@ package spiralcraft.lang.reflect;
 
 import java.beans.PropertyDescriptor;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
@@ -23,9 +26,12 @@ import java.lang.reflect.Modifier;
 
 import spiralcraft.beans.MappedBeanInfo;
 
+import spiralcraft.lang.AccessException;
+import spiralcraft.lang.NullValueException;
 import spiralcraft.lang.Channel;
 import spiralcraft.lang.Reflector;
-import spiralcraft.lang.spi.Translator;
+import spiralcraft.lang.spi.ChannelCompiler;
+import spiralcraft.lang.spi.CompilableTranslator;
 import spiralcraft.log.ClassLog;
 import spiralcraft.log.Level;
 import spiralcraft.util.lang.ClassUtil;
@@ -35,7 +41,7 @@ import spiralcraft.util.lang.ClassUtil;
  *   simply retrieves the value of the property from the supplied bean.
  */
 public class BeanPropertyTranslator<Tprop,Tbean>
-  implements Translator<Tprop,Tbean>
+  implements CompilableTranslator<Tprop,Tbean>
 {
   private static final Object[] EMPTY_PARAMS=new Object[0];
   
@@ -50,6 +56,13 @@ public class BeanPropertyTranslator<Tprop,Tbean>
   private final MappedBeanInfo _beanInfo;
   private final Reflector<Tprop> _reflector;
   private final Field _publicField;
+  private final BeanAccessor.Getter _getter;
+  private final BeanAccessor.IntGetter _intGetter;
+  private final BeanAccessor.LongGetter _longGetter;
+  private final BeanAccessor.DoubleGetter _doubleGetter;
+  private final BeanAccessor.BooleanGetter _booleanGetter;
+  private Method _setterMethod;
+  private BeanAccessor.Setter _setter;
   
   @SuppressWarnings({ "unchecked", "rawtypes" }) // PropertyDescriptor is not generic
   public BeanPropertyTranslator
@@ -161,7 +174,23 @@ public class BeanPropertyTranslator<Tprop,Tbean>
     }
     
     _reflector=reflector;
-
+    
+    if (_readMethod!=null)
+    { 
+      _getter=BeanAccessor.getter(_readMethod);
+      _intGetter=BeanAccessor.intGetter(_readMethod);
+      _longGetter=BeanAccessor.longGetter(_readMethod);
+      _doubleGetter=BeanAccessor.doubleGetter(_readMethod);
+      _booleanGetter=BeanAccessor.booleanGetter(_readMethod);
+    }
+    else
+    { 
+      _getter=_publicField!=null?BeanAccessor.getter(_publicField):null;
+      _intGetter=null;
+      _longGetter=null;
+      _doubleGetter=null;
+      _booleanGetter=null;
+    }
   }
 
   public Field getPublicField()
@@ -172,6 +201,28 @@ public class BeanPropertyTranslator<Tprop,Tbean>
   { return _readMethod;
   }
   
+  /**
+   * The generated read accessor, or null if the property must be read
+   *   reflectively
+   */
+  public BeanAccessor.Getter getGetter()
+  { return _getter;
+  }
+  
+  /**
+   * The generated write accessor for the specified write method, which
+   *   may be more specific than the PropertyDescriptor's write method
+   */
+  synchronized BeanAccessor.Setter getSetter(Method writeMethod)
+  {
+    if (writeMethod!=_setterMethod)
+    { 
+      _setter=writeMethod!=null?BeanAccessor.setter(writeMethod):null;
+      _setterMethod=writeMethod;
+    }
+    return _setter;
+  }
+  
   public MappedBeanInfo getSourceBeanInfo()
   { return _beanInfo;
   }
@@ -188,6 +239,20 @@ public class BeanPropertyTranslator<Tprop,Tbean>
   @SuppressWarnings("unchecked") // Method is not generic
   public Tprop translateForGet(Tbean value,Channel<?>[] modifiers)
   { 
+    if (_getter!=null)
+    { 
+      if (value==null)
+      { return null;
+      }
+      
+      try
+      { return (Tprop) _getter.get(value);
+      }
+      catch (Throwable x)
+      { return readFailed(value,x);
+      }
+    }
+    
     try
     {
       if (_readMethod!=null)
@@ -238,6 +303,169 @@ public class BeanPropertyTranslator<Tprop,Tbean>
     }
   }
 
+  /**
+   * Read an int property without boxing. The caller is responsible for
+   *   checking that the bean is not null.
+   * 
+   * @throws NullValueException if the property value is null
+   */
+  public int getInt(Tbean value)
+  { 
+    if (_intGetter!=null && value!=null)
+    {
+      try
+      { return _intGetter.getInt(value);
+      }
+      catch (Throwable x)
+      { throw readError(value,x);
+      }
+    }
+    return toNumber(translateForGet(value,null)).intValue();
+  }
+
+  /**
+   * Read a long property without boxing. The caller is responsible for
+   *   checking that the bean is not null.
+   * 
+   * @throws NullValueException if the property value is null
+   */
+  public long getLong(Tbean value)
+  { 
+    if (_longGetter!=null && value!=null)
+    {
+      try
+      { return _longGetter.getLong(value);
+      }
+      catch (Throwable x)
+      { throw readError(value,x);
+      }
+    }
+    return toNumber(translateForGet(value,null)).longValue();
+  }
+
+  /**
+   * Read a double property without boxing. The caller is responsible for
+   *   checking that the bean is not null.
+   * 
+   * @throws NullValueException if the property value is null
+   */
+  public double getDouble(Tbean value)
+  { 
+    if (_doubleGetter!=null && value!=null)
+    {
+      try
+      { return _doubleGetter.getDouble(value);
+      }
+      catch (Throwable x)
+      { throw readError(value,x);
+      }
+    }
+    return toNumber(translateForGet(value,null)).doubleValue();
+  }
+
+  /**
+   * Read a boolean property without boxing. The caller is responsible for
+   *   checking that the bean is not null. A null property value reads as
+   *   false.
+   */
+  public boolean getBoolean(Tbean value)
+  { 
+    if (_booleanGetter!=null && value!=null)
+    {
+      try
+      { return _booleanGetter.getBoolean(value);
+      }
+      catch (Throwable x)
+      { throw readError(value,x);
+      }
+    }
+    return Boolean.TRUE.equals(translateForGet(value,null));
+  }
+  
+  private Number toNumber(Object value)
+  {
+    if (value==null)
+    { throw NullValueException.INSTANCE;
+    }
+    return (Number) value;
+  }
+  
+  /**
+   * Handle an exception thrown by a generated accessor the same way as
+   *   the reflective path handles its exceptions
+   */
+  private Tprop readFailed(Tbean value,Throwable x)
+  {
+    if (!isBeanInstance(value))
+    { 
+      throw new IllegalArgumentException
+        ("Invoking method "+_readMethod+" on "+value,x);
+    }
+    x.printStackTrace();
+    return null;
+  }
+
+  private RuntimeException readError(Tbean value,Throwable x)
+  {
+    if (!isBeanInstance(value))
+    { 
+      return new IllegalArgumentException
+        ("Invoking method "+_readMethod+" on "+value,x);
+    }
+    return new AccessException
+      ("Error reading property '"+_property.getName()+"'",x);
+  }
+  
+  private boolean isBeanInstance(Tbean value)
+  {
+    return 
+      (_readMethod!=null
+      ?_readMethod.getDeclaringClass()
+      :_publicField.getDeclaringClass()
+      ).isInstance(value);
+  }
+  
+  @Override
+  public MethodHandle getHandle(int modifierCount)
+  {
+    if (modifierCount!=0)
+    { return null;
+    }
+
+    try
+    {
+      MethodHandle handle;
+      int modifiers;
+      if (_readMethod!=null)
+      { 
+        handle=MethodHandles.lookup().unreflect(_readMethod);
+        modifiers=_readMethod.getModifiers();
+      }
+      else if (_publicField!=null)
+      { 
+        handle=MethodHandles.lookup().unreflectGetter(_publicField);
+        modifiers=_publicField.getModifiers();
+      }
+      else
+      { return null;
+      }
+      if (Modifier.isStatic(modifiers))
+      { handle=MethodHandles.dropArguments(handle,0,Object.class);
+      }
+      return ChannelCompiler.guardNulls
+        (handle.asType(MethodType.genericMethodType(1))
+        ,new boolean[] {true}
+        );
+    }
+    catch (IllegalAccessException x)
+    { 
+      if (debugLevel.canLog(Level.DEBUG))
+      { log.debug("Property "+_property.getName()+" not compilable: "+x);
+      }
+      return null;
+    }
+  }
+
   @Override
   public Tbean translateForSet(Tprop val,Channel<?>[] modifiers)
   { throw new UnsupportedOperationException();
@@ -17,12 +17,16 @@ package spiralcraft.lang.reflect;
 
 import spiralcraft.lang.Channel;
 import spiralcraft.lang.Reflector;
-import spiralcraft.lang.spi.Translator;
+import spiralcraft.lang.spi.ChannelCompiler;
+import spiralcraft.lang.spi.CompilableTranslator;
 import spiralcraft.util.ArrayUtil;
 import spiralcraft.util.lang.ClassUtil;
 
 // import spiralcraft.util.ArrayUtil;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
@@ -30,17 +34,19 @@ import java.lang.reflect.Type;
 
 
 class MethodTranslator<Tprop,Tbean>
-  implements Translator<Tprop,Tbean>
+  implements CompilableTranslator<Tprop,Tbean>
 {
 
   private final Method _method;
   private final Reflector<Tprop> _reflector;
   private final boolean _staticMethod;
+  private final BeanAccessor.Invoker _invoker;
   
   public MethodTranslator(Method method)
   { 
     _method=method;
     _staticMethod=Modifier.isStatic(method.getModifiers());
+    _invoker=BeanAccessor.invoker(method);
     Type returnType=method.getGenericReturnType();
     Class<?> clazz=ClassUtil.getClass(returnType);
     if (clazz!=null)
@@ -105,6 +111,22 @@ class MethodTranslator<Tprop,Tbean>
 //        +"("+ArrayUtil.format(paramValues,",","")+")"
 //        );
       
+      if (_invoker!=null)
+      { 
+        try
+        { return (Tprop) _invoker.invoke(value,paramValues);
+        }
+        catch (Throwable x)
+        { 
+          // The generated invoker propagates exceptions as-is
+          throw new RuntimeException
+            ("Error invoking method "+_method.toString()
+            +" on ["+value+"] with "
+            +"["+ArrayUtil.format(paramValues,",","\"")+"]"
+            ,x
+            );
+        }
+      }
       return (Tprop) _method.invoke(value,paramValues);
       
     }
@@ -135,6 +157,39 @@ class MethodTranslator<Tprop,Tbean>
     }
   }
 
+  @Override
+  public MethodHandle getHandle(int modifierCount)
+  {
+    Class<?>[] parameterTypes=_method.getParameterTypes();
+    if (modifierCount!=parameterTypes.length)
+    { return null;
+    }
+    
+    try
+    {
+      MethodHandle handle
+        =MethodHandles.lookup().unreflect(_method).asFixedArity();
+      if (_staticMethod)
+      { handle=MethodHandles.dropArguments(handle,0,Object.class);
+      }
+      
+      // Like translateForGet(), return null for a null target or a null
+      //   value supplied for a primitive parameter
+      boolean[] nonNull=new boolean[parameterTypes.length+1];
+      nonNull[0]=!_staticMethod;
+      for (int i=0;i<parameterTypes.length;i++)
+      { nonNull[i+1]=parameterTypes[i].isPrimitive();
+      }
+      return ChannelCompiler.guardNulls
+        (handle.asType(MethodType.genericMethodType(parameterTypes.length+1))
+        ,nonNull
+        );
+    }
+    catch (IllegalAccessException x)
+    { return null;
+    }
+  }
+
   @Override
   public Tbean translateForSet(Tprop val,Channel<?>[] modifiers)
   { throw new UnsupportedOperationException();
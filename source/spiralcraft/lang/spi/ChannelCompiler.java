@@ -0,0 +1,213 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.spi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Objects;
+
+import spiralcraft.lang.Channel;
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+
+/**
+ * <p>Compiles the 'get' path of a fully bound Channel graph into a single
+ *   MethodHandle chain, eliminating the virtual Channel.get() hop, the
+ *   debug check and the exception wrapper at each node.
+ * </p>
+ *
+ * <p>TranslatorChannels whose Translator implements CompilableTranslator
+ *   are fused with their source and modifier channels. Channels that
+ *   are constant are folded into their values. Any other Channel is
+ *   called through its interpreted get() method, so a partially
+ *   compilable graph is still evaluated correctly.
+ * </p>
+ *
+ * <p>The resulting Channel delegates set(), property change support and
+ *   further name resolution to the original Channel.
+ * </p>
+ *
+ * @author mike
+ *
+ */
+public class ChannelCompiler
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(ChannelCompiler.class);
+  private static final Level debugLevel
+    =ClassLog.getInitialDebugLevel(ChannelCompiler.class,Level.INFO);
+
+  private static final MethodHandle CHANNEL_GET;
+  private static final MethodHandle NON_NULL;
+
+  static
+  {
+    MethodHandles.Lookup lookup=MethodHandles.publicLookup();
+    try
+    {
+      CHANNEL_GET
+        =lookup.findVirtual
+          (Channel.class,"get",MethodType.methodType(Object.class));
+      NON_NULL
+        =lookup.findStatic
+          (Objects.class
+          ,"nonNull"
+          ,MethodType.methodType(boolean.class,Object.class)
+          );
+    }
+    catch (NoSuchMethodException | IllegalAccessException x)
+    { throw new ExceptionInInitializerError(x);
+    }
+  }
+
+  /**
+   * <p>Compile the specified Channel.
+   * </p>
+   *
+   * @return A CompiledChannel, or the original Channel if no part of the
+   *   Channel graph could be compiled
+   */
+  public static <T> Channel<T> compile(Channel<T> channel)
+  {
+    if (channel instanceof CompiledChannel)
+    { return channel;
+    }
+
+    ChannelCompiler compiler=new ChannelCompiler();
+    MethodHandle handle=compiler.compileNode(channel);
+    if (compiler.compiledCount==0)
+    {
+      if (debugLevel.isDebug())
+      { log.debug("Nothing to compile in "+channel);
+      }
+      return channel;
+    }
+
+    if (debugLevel.isDebug())
+    {
+      log.debug
+        ("Compiled "+compiler.compiledCount+" nodes, "
+        +compiler.fallbackCount+" interpreted in "+channel
+        );
+    }
+    return new CompiledChannel<T>(channel,handle);
+  }
+
+  /**
+   * <p>Adapt a MethodHandle with all Object parameters to return null
+   *   when any argument in a position flagged by nonNull is null, instead
+   *   of invoking the target.
+   * </p>
+   *
+   * <p>Used by CompilableTranslators to reproduce the null handling of
+   *   their interpreted counterparts.
+   * </p>
+   */
+  public static MethodHandle guardNulls(MethodHandle target,boolean[] nonNull)
+  {
+    MethodType type=target.type();
+    List<Class<?>> params=type.parameterList();
+    MethodHandle nullResult
+      =MethodHandles.dropArguments
+        (MethodHandles.constant(type.returnType(),null),0,params);
+
+    MethodHandle ret=target;
+    for (int i=nonNull.length-1;i>=0;i--)
+    {
+      if (nonNull[i])
+      {
+        MethodHandle test
+          =MethodHandles.dropArguments(NON_NULL,0,params.subList(0,i));
+        test
+          =MethodHandles.dropArguments
+            (test,i+1,params.subList(i+1,params.size()));
+        ret=MethodHandles.guardWithTest(test,ret,nullResult);
+      }
+    }
+    return ret;
+  }
+
+  private int compiledCount;
+  private int fallbackCount;
+
+  private ChannelCompiler()
+  {
+  }
+
+  /**
+   * Produce a ()Object MethodHandle that computes the value of the channel
+   */
+  private MethodHandle compileNode(Channel<?> channel)
+  {
+    if (channel instanceof CompiledChannel)
+    { return ((CompiledChannel<?>) channel).getHandle();
+    }
+
+    if (channel instanceof TranslatorChannel)
+    {
+      MethodHandle ret=compileTranslator((TranslatorChannel<?,?>) channel);
+      if (ret!=null)
+      {
+        compiledCount++;
+        return ret;
+      }
+    }
+
+    if (channel.isConstant())
+    {
+      try
+      { return MethodHandles.constant(Object.class,channel.get());
+      }
+      catch (RuntimeException x)
+      {
+        if (debugLevel.isDebug())
+        { log.log(Level.DEBUG,"Could not fold constant "+channel,x);
+        }
+      }
+    }
+
+    fallbackCount++;
+    return CHANNEL_GET.bindTo(channel);
+  }
+
+  private MethodHandle compileTranslator(TranslatorChannel<?,?> channel)
+  {
+    if (channel.debug
+        || !(channel.getTranslator() instanceof CompilableTranslator)
+       )
+    { return null;
+    }
+
+    Channel<?>[] modifiers=channel.getModifiers();
+    int modifierCount=modifiers!=null?modifiers.length:0;
+    MethodHandle handle
+      =((CompilableTranslator<?,?>) channel.getTranslator())
+        .getHandle(modifierCount);
+    if (handle==null)
+    { return null;
+    }
+
+    handle=handle.asType(MethodType.genericMethodType(modifierCount+1));
+
+    // Fold argument producers right to left so positions remain stable
+    for (int i=modifierCount-1;i>=0;i--)
+    { handle=MethodHandles.collectArguments(handle,i+1,compileNode(modifiers[i]));
+    }
+    return MethodHandles.collectArguments(handle,0,compileNode(channel.source));
+
+  }
+}
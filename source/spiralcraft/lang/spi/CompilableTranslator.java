@@ -0,0 +1,43 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.spi;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * <p>A Translator which can supply a direct MethodHandle implementation of
+ *   its 'get' transformation for use by the ChannelCompiler.
+ * </p>
+ *
+ * @author mike
+ *
+ */
+public interface CompilableTranslator<Tderived,Torigin>
+  extends Translator<Tderived,Torigin>
+{
+
+  /**
+   * <p>Return a MethodHandle of type (Object,Object...)Object which
+   *   accepts the source value followed by the value of each modifier and
+   *   performs the same transformation as translateForGet().
+   * </p>
+   *
+   * @param modifierCount The number of modifier channels bound to the
+   *   TranslatorChannel
+   * @return The MethodHandle, or null if this Translator cannot be compiled
+   *   for the specified modifiers
+   */
+  MethodHandle getHandle(int modifierCount);
+}
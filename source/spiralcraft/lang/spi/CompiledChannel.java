@@ -0,0 +1,95 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.spi;
+
+import java.beans.PropertyChangeSupport;
+import java.lang.invoke.MethodHandle;
+
+import spiralcraft.lang.AccessException;
+import spiralcraft.lang.Channel;
+
+/**
+ * <p>A Channel which reads its value through a MethodHandle produced by
+ *   the ChannelCompiler, and otherwise behaves as the interpreted Channel
+ *   it was compiled from.
+ * </p>
+ *
+ * @author mike
+ *
+ * @param <T>
+ */
+public class CompiledChannel<T>
+  extends SourcedChannel<T,T>
+{
+
+  private final MethodHandle handle;
+
+  CompiledChannel(Channel<T> source,MethodHandle handle)
+  {
+    super(source);
+    this.handle=handle;
+  }
+
+  MethodHandle getHandle()
+  { return handle;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  protected T retrieve()
+  {
+    try
+    { return (T) (Object) handle.invokeExact();
+    }
+    catch (RuntimeException | Error x)
+    { throw x;
+    }
+    catch (Throwable x)
+    { throw new AccessException("Error invoking compiled "+source,x);
+    }
+  }
+
+  @Override
+  protected boolean store(T val)
+    throws AccessException
+  { return source.set(val);
+  }
+
+  @Override
+  public boolean set(T val)
+    throws AccessException
+  { return source.set(val);
+  }
+
+  @Override
+  public boolean isWritable()
+  { return source.isWritable();
+  }
+
+  @Override
+  public boolean isConstant()
+  { return source.isConstant();
+  }
+
+  @Override
+  public PropertyChangeSupport propertyChangeSupport()
+  { return source.propertyChangeSupport();
+  }
+
+  @Override
+  public String toString()
+  { return super.toString()+": compiled("+source+")";
+  }
+}
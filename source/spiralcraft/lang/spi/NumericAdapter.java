@@ -0,0 +1,158 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.spi;
+
+import spiralcraft.lang.AccessException;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.NullValueException;
+
+/**
+ * <p>Obtains a NumericChannel view of a Channel whose content is one of
+ *   the primitive number types the expression language can operate on 
+ *   without boxing: int (and the narrower short and byte), long and
+ *   double.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class NumericAdapter
+{
+
+  /**
+   * The primitive type that values of the specified content type are
+   *   widened to for primitive arithmetic, or null if the content type
+   *   must be handled as an Object.
+   */
+  public static Class<?> primitiveKind(Class<?> contentType)
+  {
+    if (contentType==Integer.class || contentType==int.class
+        || contentType==Short.class || contentType==short.class
+        || contentType==Byte.class || contentType==byte.class
+        )
+    { return int.class;
+    }
+    else if (contentType==Long.class || contentType==long.class)
+    { return long.class;
+    }
+    else if (contentType==Double.class || contentType==double.class)
+    { return double.class;
+    }
+    return null;
+  }
+  
+  /**
+   * <p>Return a NumericChannel view of the specified Channel, or null if
+   *   the Channel cannot be read without boxing.
+   * </p>
+   * 
+   * <p>Channels which already implement NumericChannel are returned as-is,
+   *   constants are folded, and other Channels of primitive content type
+   *   are unboxed on each read.
+   * </p>
+   */
+  public static NumericChannel adapt(Channel<?> channel)
+  {
+    if (primitiveKind(channel.getContentType())==null)
+    { return null;
+    }
+    
+    if (channel instanceof NumericChannel)
+    { return (NumericChannel) channel;
+    }
+    
+    if (channel.isConstant())
+    { 
+      Object value=channel.get();
+      if (value instanceof Number)
+      { return new ConstantNumber((Number) value);
+      }
+      return null;
+    }
+    
+    if (channel.getContentType().isPrimitive())
+    { return new UnboxingNumber(channel);
+    }
+    return null;
+  }
+  
+  static final class ConstantNumber
+    implements NumericChannel
+  {
+    private final int intValue;
+    private final long longValue;
+    private final double doubleValue;
+    
+    ConstantNumber(Number value)
+    { 
+      intValue=value.intValue();
+      longValue=value.longValue();
+      doubleValue=value.doubleValue();
+    }
+
+    @Override
+    public int getInt()
+    { return intValue;
+    }
+
+    @Override
+    public long getLong()
+    { return longValue;
+    }
+
+    @Override
+    public double getDouble()
+    { return doubleValue;
+    }
+  }
+  
+  static final class UnboxingNumber
+    implements NumericChannel
+  {
+    private final Channel<?> channel;
+    
+    UnboxingNumber(Channel<?> channel)
+    { this.channel=channel;
+    }
+    
+    private Number read()
+      throws AccessException
+    { 
+      Number value=(Number) channel.get();
+      if (value==null)
+      { throw NullValueException.INSTANCE;
+      }
+      return value;
+    }
+    
+    @Override
+    public int getInt()
+      throws AccessException
+    { return read().intValue();
+    }
+
+    @Override
+    public long getLong()
+      throws AccessException
+    { return read().longValue();
+    }
+
+    @Override
+    public double getDouble()
+      throws AccessException
+    { return read().doubleValue();
+    }
+  }
+}
@@ -0,0 +1,34 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.spi;
+
+import spiralcraft.lang.DoubleChannel;
+import spiralcraft.lang.IntChannel;
+import spiralcraft.lang.LongChannel;
+
+/**
+ * <p>Delivers a numeric value at any of the supported primitive widths
+ *   without boxing. Narrowing follows the Java primitive conversions, the
+ *   same as the Number.xxxValue() methods.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public interface NumericChannel
+  extends IntChannel,LongChannel,DoubleChannel
+{
+
+}
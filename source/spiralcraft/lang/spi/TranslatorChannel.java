@@ -160,6 +160,18 @@ public  class TranslatorChannel<T,S>
   { return source.get();
   }
 
+  public Channel<S> getSource()
+  { return source;
+  }
+
+  public Translator<T,? super S> getTranslator()
+  { return translator;
+  }
+
+  public Channel<?>[] getModifiers()
+  { return _modifiers;
+  }
+
   protected final boolean isSourceConstant()
   { return source.isConstant();
   }
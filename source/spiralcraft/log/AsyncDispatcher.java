@@ -0,0 +1,280 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.log;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import spiralcraft.log.GenericLog.OverflowPolicy;
+
+/**
+ * <p>Buffers events in a bounded ring buffer and delivers them to the
+ *   handlers of a GenericLog from a background thread.
+ * </p>
+ * 
+ * <p>The number of events discarded due to overflow is reported to the 
+ *   handlers in a WARNING event after the batch of events that was being
+ *   delivered when they were discarded.
+ * </p>
+ * 
+ * <p>Once the dispatcher is stopping, and for events logged by the handlers
+ *   themselves, events are delivered synchronously in the logging thread.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+class AsyncDispatcher
+  implements Runnable
+{
+  private static final int BATCH_SIZE=256;
+  
+  private final GenericLog log;
+  private final ArrayBlockingQueue<Event> buffer;
+  private final OverflowPolicy overflowPolicy;
+  private final AtomicLong discarded=new AtomicLong();
+  private final AtomicLong pending=new AtomicLong();
+  private final Object monitor=new Object();
+  
+  /**
+   * The number of threads that have checked the stopping flag and may be
+   *   about to add an event to the buffer
+   */
+  private final AtomicInteger enqueuing=new AtomicInteger();
+  
+  private Thread thread;
+  
+  // Set when no more events will be buffered
+  private volatile boolean stopping;
+  
+  // Set when the background thread should exit once the buffer is empty
+  private volatile boolean closed;
+  
+  AsyncDispatcher(GenericLog log,int bufferSize,OverflowPolicy overflowPolicy)
+  { 
+    this.log=log;
+    this.buffer=new ArrayBlockingQueue<Event>(Math.max(1,bufferSize));
+    this.overflowPolicy=overflowPolicy;
+  }
+  
+  void start()
+  { 
+    thread=new Thread(this,"spiralcraft.log.AsyncDispatcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+  
+  /**
+   * Dispatch all buffered events and stop the background thread
+   */
+  void stop()
+  {
+    stopping=true;
+    
+    // Let callers that saw the dispatcher running finish adding their 
+    //   events. The background thread is still running, so a blocked
+    //   caller will get space in the buffer.
+    boolean interrupted=false;
+    while (enqueuing.get()>0)
+    { 
+      try
+      { Thread.sleep(1);
+      }
+      catch (InterruptedException x)
+      { interrupted=true;
+      }
+    }
+    
+    closed=true;
+    try
+    { thread.join();
+    }
+    catch (InterruptedException x)
+    { interrupted=true;
+    }
+    if (interrupted)
+    { Thread.currentThread().interrupt();
+    }
+    
+    // In case the join was interrupted
+    drain();
+  }
+  
+  void dispatch(Event event)
+  {
+    enqueuing.incrementAndGet();
+    try
+    {
+      if (stopping || Thread.currentThread()==thread)
+      { 
+        // The background thread may have exited, or is the caller and
+        //   cannot wait for itself
+        deliver(event);
+      }
+      else
+      { enqueue(event);
+      }
+    }
+    finally
+    { enqueuing.decrementAndGet();
+    }
+  }
+  
+  private void enqueue(Event event)
+  {
+    switch (overflowPolicy)
+    {
+      case BLOCK:
+        pending.incrementAndGet();
+        try
+        { buffer.put(event);
+        }
+        catch (InterruptedException x)
+        { 
+          Thread.currentThread().interrupt();
+          completed(1);
+          deliver(event);
+        }
+        break;
+      case DISCARD:
+        pending.incrementAndGet();
+        if (!buffer.offer(event))
+        { 
+          completed(1);
+          discarded.incrementAndGet();
+        }
+        break;
+      case DISCARD_OLDEST:
+        pending.incrementAndGet();
+        while (!buffer.offer(event))
+        {
+          if (buffer.poll()!=null)
+          { 
+            completed(1);
+            discarded.incrementAndGet();
+          }
+        }
+        break;
+      case CALLER_RUNS:
+        pending.incrementAndGet();
+        if (!buffer.offer(event))
+        { 
+          completed(1);
+          log.dispatch(event);
+        }
+        break;
+    }
+  }
+  
+  /**
+   * Wait until the events buffered so far have been dispatched
+   */
+  void flush()
+  {
+    synchronized (monitor)
+    {
+      while (pending.get()>0 && thread.isAlive())
+      { 
+        try
+        { monitor.wait(100);
+        }
+        catch (InterruptedException x)
+        { 
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+  
+  private void completed(int count)
+  {
+    if (pending.addAndGet(-count)==0)
+    {
+      synchronized (monitor)
+      { monitor.notifyAll();
+      }
+    }
+  }
+  
+  @Override
+  public void run()
+  {
+    ArrayList<Event> batch=new ArrayList<Event>(BATCH_SIZE);
+    while (!closed || !buffer.isEmpty())
+    {
+      try
+      {
+        Event event=buffer.poll(100,TimeUnit.MILLISECONDS);
+        if (event==null)
+        { continue;
+        }
+        batch.add(event);
+        buffer.drainTo(batch,BATCH_SIZE-1);
+        for (Event next: batch)
+        { deliver(next);
+        }
+        reportDiscarded();
+        completed(batch.size());
+        batch.clear();
+      }
+      catch (InterruptedException x)
+      { 
+      }
+    }
+  }
+  
+  private void drain()
+  {
+    Event event;
+    while ((event=buffer.poll())!=null)
+    { 
+      deliver(event);
+      completed(1);
+    }
+    reportDiscarded();
+  }
+  
+  private void deliver(Event event)
+  {
+    try
+    { log.dispatch(event);
+    }
+    catch (RuntimeException x)
+    { log.dispatchFailed(event,x);
+    }
+  }
+  
+  private void reportDiscarded()
+  {
+    long count=discarded.getAndSet(0);
+    if (count>0)
+    {
+      deliver
+        (new Event
+          ((StackTraceElement) null
+          ,null
+          ,Level.WARNING
+          ,"Log buffer overflow: discarded "+count+" events"
+          ,null
+          ,null
+          )
+        );
+    }
+  }
+}
@@ -68,7 +68,7 @@ public class ContextLog
     { 
       log.log
         (new Event
-          (Thread.currentThread().getStackTrace()[2+traceDepth]
+          (Event.callerFrame(2+traceDepth)
           ,context
           ,level
           ,message
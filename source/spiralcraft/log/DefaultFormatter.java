@@ -49,15 +49,19 @@ public class DefaultFormatter
       out.append("}");
     }
     
-    out.append(" (");
-    out.append(event.getCallSite().getClassName());
-    out.append(".");
-    out.append(event.getCallSite().getMethodName());
-    out.append("(");
-    out.append(event.getCallSite().getFileName());
-    out.append(":"+event.getCallSite().getLineNumber());
-    out.append(")");
-    out.append(")");
+    StackTraceElement callSite=event.getCallSite();
+    if (callSite!=null)
+    {
+      out.append(" (");
+      out.append(callSite.getClassName());
+      out.append(".");
+      out.append(callSite.getMethodName());
+      out.append("(");
+      out.append(callSite.getFileName());
+      out.append(":"+callSite.getLineNumber());
+      out.append(")");
+      out.append(")");
+    }
   
     
     out.append(_cr);
@@ -30,6 +30,11 @@ import java.io.StringWriter;
  * <p>Encapsulates a logged event.
  * </p>
  * 
+ * <p>The call site is captured as a StackWalker frame, which only walks the
+ *   top of the stack. It is converted to a StackTraceElement, with its file
+ *   and line information, the first time a Formatter asks for it.
+ * </p>
+ * 
  */
 public class Event
 {
@@ -38,6 +43,17 @@ public class Event
 
   private static final Path DEFAULT_CONTEXT=new Path("",'/');
   
+  private static final StackWalker WALKER=StackWalker.getInstance();
+  
+  /**
+   * Return the frame at the specified depth of the calling thread's stack,
+   *   where depth has the same meaning as an index into 
+   *   Thread.getStackTrace() called from the same method.
+   */
+  static StackWalker.StackFrame callerFrame(int depth)
+  { return WALKER.walk(s -> s.skip(depth).findFirst().orElse(null));
+  }
+  
   private final Level level;
   private final String message;
   private final String threadName;
@@ -45,7 +61,8 @@ public class Event
   private final long threadId;
   private final long time;
   private final Throwable thrown;
-  private final StackTraceElement callSite;
+  private final StackWalker.StackFrame callerFrame;
+  private volatile StackTraceElement callSite;
 
   public static Event create
     (Path context
@@ -54,7 +71,7 @@ public class Event
     )
   { 
     return new Event
-      (Thread.currentThread().getStackTrace()[2]
+      (callerFrame(2)
       ,context
       ,level
       ,message
@@ -71,7 +88,7 @@ public class Event
     )
   { 
     return new Event
-      (Thread.currentThread().getStackTrace()[2]
+      (callerFrame(2)
       ,context
       ,level
       ,message
@@ -89,7 +106,7 @@ public class Event
     )
   { 
     return new Event
-      ( Thread.currentThread().getStackTrace()[2]
+      (callerFrame(2)
       ,context
       ,level
       ,message
@@ -106,6 +123,19 @@ public class Event
     ,Throwable thrown
     ,Object[] details
     )
+  { 
+    this((StackWalker.StackFrame) null,context,level,message,thrown,details);
+    this.callSite=callSite;
+  }
+  
+  Event
+    (StackWalker.StackFrame callerFrame
+    ,Path context
+    ,Level level
+    ,String message
+    ,Throwable thrown
+    ,Object[] details
+    )
   { 
     this.level=level;
     if (details!=null)
@@ -125,7 +155,7 @@ public class Event
     { this.context=context;
     }
     this.thrown=thrown;
-    this.callSite=callSite;
+    this.callerFrame=callerFrame;
   }
 
   public Level getLevel()
@@ -152,8 +182,19 @@ public class Event
   { return context;
   }
 
+  /**
+   * @return The location of the code that logged this event, or null if 
+   *   it could not be determined
+   */
   public StackTraceElement getCallSite()
-  { return callSite;
+  { 
+    StackTraceElement callSite=this.callSite;
+    if (callSite==null && callerFrame!=null)
+    { 
+      callSite=callerFrame.toStackTraceElement();
+      this.callSite=callSite;
+    }
+    return callSite;
   }
   
   public Throwable getThrown()
@@ -176,9 +217,13 @@ public class Event
     out.append(" ");
     out.append(context.format("/"));
     out.append(" ");
-    out.append(callSite.getClassName())
-      .append("."+callSite.getMethodName())
-      .append(" ("+callSite.getFileName()+":"+callSite.getLineNumber()+")");
+    StackTraceElement callSite=getCallSite();
+    if (callSite!=null)
+    {
+      out.append(callSite.getClassName())
+        .append("."+callSite.getMethodName())
+        .append(" ("+callSite.getFileName()+":"+callSite.getLineNumber()+")");
+    }
     
     if (message!=null)
     { out.append("\r\n    "+message);
@@ -39,6 +39,12 @@ import spiralcraft.util.Path;
  *   with the logging thread.
  * </p>
  * 
+ * <p>In async mode, events are placed in a bounded buffer and dispatched
+ *   to the handlers by a background thread, so that the logging thread does
+ *   not wait for formatting and I/O. The OverflowPolicy determines what 
+ *   happens when the buffer is full.
+ * </p>
+ * 
  * 
  * @author mike
  *
@@ -46,12 +52,42 @@ import spiralcraft.util.Path;
 public class GenericLog
   implements Log,Lifecycle
 {
+  
+  /**
+   * What to do with an event when the async dispatch buffer is full
+   */
+  public enum OverflowPolicy
+  {
+    /**
+     * Wait for space in the buffer
+     */
+    BLOCK
+    
+    /**
+     * Discard the new event
+     */
+    ,DISCARD
+    
+    /**
+     * Discard the oldest buffered event to make room for the new event
+     */
+    ,DISCARD_OLDEST
+    
+    /**
+     * Dispatch the new event synchronously in the logging thread
+     */
+    ,CALLER_RUNS
+  }
+  
   private static EventHandler DEFAULT_HANDLER=new ConsoleHandler();
 
   protected Level level=ALL;
   protected Path context;
   protected LinkedList<EventHandler> handlers=new LinkedList<EventHandler>();
   private Log parent;
+  private int bufferSize=8192;
+  private OverflowPolicy overflowPolicy=OverflowPolicy.BLOCK;
+  private volatile AsyncDispatcher dispatcher;
   
   public GenericLog()
   { 
@@ -83,6 +119,7 @@ public class GenericLog
   public void removeHandler(EventHandler handler)
     throws LifecycleException
   {
+    flush();
     synchronized (handlers)
     {
       Iterator<EventHandler> it=handlers.iterator();
@@ -100,6 +137,57 @@ public class GenericLog
     
   }
   
+  /**
+   * <p>Dispatch events to the handlers from a background thread. Disabling
+   *   async mode dispatches all buffered events before returning.
+   * </p>
+   */
+  public synchronized void setAsync(boolean async)
+  { 
+    if (async && dispatcher==null)
+    { 
+      dispatcher=new AsyncDispatcher(this,bufferSize,overflowPolicy);
+      dispatcher.start();
+    }
+    else if (!async && dispatcher!=null)
+    { 
+      AsyncDispatcher dispatcher=this.dispatcher;
+      this.dispatcher=null;
+      dispatcher.stop();
+    }
+  }
+  
+  public boolean isAsync()
+  { return dispatcher!=null;
+  }
+  
+  /**
+   * The maximum number of events buffered in async mode. Takes effect the 
+   *   next time async mode is enabled. Defaults to 8192.
+   */
+  public void setBufferSize(int bufferSize)
+  { this.bufferSize=bufferSize;
+  }
+  
+  /**
+   * What to do with an event when the async buffer is full. Takes effect 
+   *   the next time async mode is enabled. Defaults to BLOCK.
+   */
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy)
+  { this.overflowPolicy=overflowPolicy;
+  }
+  
+  /**
+   * Wait until all events buffered in async mode have been dispatched
+   */
+  public void flush()
+  { 
+    AsyncDispatcher dispatcher=this.dispatcher;
+    if (dispatcher!=null)
+    { dispatcher.flush();
+    }
+  }
+  
   public void setHandlers(EventHandler ... handlers)
   { 
     this.handlers=new LinkedList<EventHandler>();
@@ -123,7 +211,7 @@ public class GenericLog
     { 
       log
         (new Event
-          (Thread.currentThread().getStackTrace()[2]
+          (Event.callerFrame(2)
           ,context
           ,level
           ,message
@@ -145,7 +233,7 @@ public class GenericLog
     { 
       log
         (new Event
-          (Thread.currentThread().getStackTrace()[2]
+          (Event.callerFrame(2)
           ,context
           ,level
           ,message
@@ -169,7 +257,7 @@ public class GenericLog
     { 
       log
         (new Event
-          (Thread.currentThread().getStackTrace()[2+traceDepth]
+          (Event.callerFrame(2+traceDepth)
           ,context
           ,level
           ,message
@@ -190,17 +278,12 @@ public class GenericLog
 
     if (level.canLog(event.getLevel()))
     {
-      if (handlers!=null && handlers.size()>0)
-      { 
-        synchronized (handlers)
-        {
-          for (EventHandler handler: handlers)
-          { handler.handleEvent(event);
-          }
-        }
+      AsyncDispatcher dispatcher=this.dispatcher;
+      if (dispatcher!=null)
+      { dispatcher.dispatch(event);
       }
-      else if (parent==null)
-      { DEFAULT_HANDLER.handleEvent(event);
+      else
+      { dispatch(event);
       }
     }
     if (parent!=null)
@@ -208,6 +291,43 @@ public class GenericLog
     }
   }
   
+  /**
+   * Deliver an event to the handlers
+   */
+  void dispatch(Event event)
+  {
+    if (handlers!=null && handlers.size()>0)
+    { 
+      synchronized (handlers)
+      {
+        for (EventHandler handler: handlers)
+        { handler.handleEvent(event);
+        }
+      }
+    }
+    else if (parent==null)
+    { DEFAULT_HANDLER.handleEvent(event);
+    }
+  }
+  
+  /**
+   * Report an event that could not be delivered to the handlers via the
+   *   default console handler, which does not route back to this log
+   */
+  void dispatchFailed(Event event,RuntimeException x)
+  {
+    DEFAULT_HANDLER.handleEvent
+      (new Event
+        ((StackTraceElement) null
+        ,context
+        ,Level.SEVERE
+        ,"Error dispatching log event: "+event.getMessage()
+        ,x
+        ,null
+        )
+      );
+  }
+  
   @Override
   public void start()
     throws LifecycleException
@@ -225,6 +345,7 @@ public class GenericLog
   public void stop()
     throws LifecycleException
   { 
+    setAsync(false);
     if (handlers!=null)
     { 
       for (EventHandler handler: handlers)
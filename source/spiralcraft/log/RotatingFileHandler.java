@@ -46,6 +46,13 @@ public class RotatingFileHandler
   { out.setAsyncIO(asyncIO);
   }
   
+  /**
+   * How often the log file is synced to the storage device
+   */
+  public void setDurability(RotatingFileOutputAgent.Durability durability)
+  { out.setDurability(durability);
+  }
+  
   public void setFormatter(Formatter formatter)
   { this.formatter=formatter;
   }
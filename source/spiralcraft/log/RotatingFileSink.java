@@ -28,6 +28,13 @@ public class RotatingFileSink
   { this.location=location;
   }
   
+  /**
+   * How often the log file is synced to the storage device
+   */
+  public void setDurability(RotatingFileOutputAgent.Durability durability)
+  { out.setDurability(durability);
+  }
+  
   public void setBaseFilename(String baseFilename)
   { this.baseFilename=baseFilename;
   }
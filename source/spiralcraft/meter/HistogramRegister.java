@@ -0,0 +1,404 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.meter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A Register which records the distribution of a set of values, such
+ *   as latencies, in a fixed number of log-linear buckets.
+ * </p>
+ * 
+ * <p>Each power of two is divided into 16 equal buckets, so the value
+ *   reported for a percentile is within 1/16th of the recorded value.
+ *   Values from 0 to Long.MAX_VALUE are covered by 960 buckets. Negative
+ *   values are recorded as 0.
+ * </p>
+ * 
+ * <p>Bucket counts are striped by thread to avoid contention between
+ *   concurrent recorders. Histograms can be merged, either directly or via
+ *   Snapshots.
+ * </p>
+ * 
+ * <p>The value of the Register is the number of values recorded. The
+ *   Register methods that set or adjust the value record their argument
+ *   (1 for inc(), -1 for dec()) as a value.
+ * </p>
+ */
+public class HistogramRegister
+  extends Register
+{
+  private static final int SUB_BUCKET_BITS=4;
+  private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+  
+  /**
+   * The number of buckets required to cover all positive long values
+   */
+  public static final int BUCKETS
+    =SUB_BUCKETS+(63-SUB_BUCKET_BITS)*SUB_BUCKETS;
+  
+  private static final int MAX_STRIPES=8;
+  
+  /**
+   * @return The index of the bucket which holds the specified value
+   */
+  public static int bucketIndex(long value)
+  {
+    if (value<SUB_BUCKETS)
+    { return value<0?0:(int) value;
+    }
+    int exponent=63-Long.numberOfLeadingZeros(value);
+    int shift=exponent-SUB_BUCKET_BITS;
+    return SUB_BUCKETS
+      +shift*SUB_BUCKETS
+      +(int) ((value>>>shift)-SUB_BUCKETS);
+  }
+  
+  /**
+   * @return The smallest value that is recorded in the specified bucket
+   */
+  public static long bucketLowerBound(int index)
+  {
+    if (index<SUB_BUCKETS)
+    { return index;
+    }
+    int shift=(index-SUB_BUCKETS)/SUB_BUCKETS;
+    long sub=SUB_BUCKETS+(index-SUB_BUCKETS)%SUB_BUCKETS;
+    return sub<<shift;
+  }
+  
+  /**
+   * @return The largest value that is recorded in the specified bucket
+   */
+  public static long bucketUpperBound(int index)
+  {
+    if (index<SUB_BUCKETS)
+    { return index;
+    }
+    int shift=(index-SUB_BUCKETS)/SUB_BUCKETS;
+    return bucketLowerBound(index)+((1L<<shift)-1);
+  }
+  
+  private final AtomicLongArray[] stripes;
+  private final int stripeMask;
+  private final LongAdder count=new LongAdder();
+  private final LongAdder sum=new LongAdder();
+  private final LongAccumulator min
+    =new LongAccumulator(Math::min,Long.MAX_VALUE);
+  private final LongAccumulator max
+    =new LongAccumulator(Math::max,Long.MIN_VALUE);
+  private volatile long lastReadCount;
+  
+  public HistogramRegister(String name)
+  { 
+    super(name);
+    int stripeCount
+      =Integer.highestOneBit
+        (Math.min(MAX_STRIPES,Runtime.getRuntime().availableProcessors()));
+    stripes=new AtomicLongArray[stripeCount];
+    for (int i=0;i<stripeCount;i++)
+    { stripes[i]=new AtomicLongArray(BUCKETS);
+    }
+    stripeMask=stripeCount-1;
+  }
+  
+  /**
+   * Record a value
+   */
+  public void record(long value)
+  {
+    if (value<0)
+    { value=0;
+    }
+    stripes[(int) Thread.currentThread().threadId() & stripeMask]
+      .incrementAndGet(bucketIndex(value));
+    sum.add(value);
+    min.accumulate(value);
+    max.accumulate(value);
+    count.increment();
+  }
+  
+  /**
+   * Record the time elapsed since the specified System.nanoTime() value,
+   *   in microseconds
+   */
+  public void recordMicrosSince(long startNanos)
+  { record((System.nanoTime()-startNanos)/1000);
+  }
+  
+  /**
+   * Add all the values recorded in the specified Snapshot to this
+   *   histogram
+   */
+  public void merge(Snapshot snapshot)
+  {
+    if (snapshot.count==0)
+    { return;
+    }
+    AtomicLongArray stripe
+      =stripes[(int) Thread.currentThread().threadId() & stripeMask];
+    for (int i=0;i<BUCKETS;i++)
+    { 
+      if (snapshot.counts[i]!=0)
+      { stripe.addAndGet(i,snapshot.counts[i]);
+      }
+    }
+    sum.add(snapshot.sum);
+    min.accumulate(snapshot.min);
+    max.accumulate(snapshot.max);
+    count.add(snapshot.count);
+  }
+  
+  /**
+   * Add all the values recorded in the specified histogram to this
+   *   histogram
+   */
+  public void merge(HistogramRegister other)
+  { merge(other.snapshot());
+  }
+  
+  /**
+   * @return A copy of the distribution. Values recorded 
+   *   concurrently may or may not be included.
+   */
+  public Snapshot snapshot()
+  { 
+    long[] counts=new long[BUCKETS];
+    long total=0;
+    for (AtomicLongArray stripe:stripes)
+    {
+      for (int i=0;i<BUCKETS;i++)
+      { 
+        long c=stripe.get(i);
+        counts[i]+=c;
+        total+=c;
+      }
+    }
+    return new Snapshot
+      (counts
+      ,total
+      ,sum.sum()
+      ,total>0?min.get():0
+      ,total>0?max.get():0
+      );
+  }
+  
+  /**
+   * Records the value
+   */
+  @Override
+  public void setValue(long value)
+  { record(value);
+  }
+
+  /**
+   * Records a value of 1
+   */
+  @Override
+  public void inc()
+  { record(1);
+  }
+  
+  /**
+   * Records a value of 1
+   */
+  @Override
+  public void incrementValue()
+  { record(1);
+  }
+
+  /**
+   * Records a value of -1, which is recorded as 0
+   */
+  @Override
+  public void dec()
+  { record(-1);
+  }
+
+  /**
+   * Records a value of -1, which is recorded as 0
+   */
+  @Override
+  public void decrementValue()
+  { record(-1);
+  }
+
+  /**
+   * Records the increment as a value
+   */
+  @Override
+  public void adj(long increment)
+  { record(increment);
+  }
+  
+  /**
+   * Records the increment as a value
+   */
+  @Override
+  public void adjustValue(long increment)
+  { record(increment);
+  }
+  
+  /**
+   * Return the number of values recorded and reset the changed flag
+   */
+  @Override
+  public long readValue()
+  {
+    long value=count.sum();
+    lastReadCount=value;
+    return value;
+  }
+
+  /**
+   * Return the number of values recorded
+   */
+  @Override
+  public long getValue()
+  { return count.sum();
+  }
+
+  @Override
+  public boolean hasChanged()
+  { return count.sum()!=lastReadCount;
+  }
+  
+  @Override
+  void expose(String metric,Appendable out)
+    throws IOException
+  {
+    Snapshot snapshot=snapshot();
+    out.append("# TYPE ").append(metric).append(" histogram\n");
+    long cumulative=0;
+    for (int i=0;i<BUCKETS;i++)
+    {
+      if (snapshot.counts[i]!=0)
+      {
+        cumulative+=snapshot.counts[i];
+        out.append(metric).append("_bucket{le=\"")
+          .append(Long.toString(bucketUpperBound(i)))
+          .append("\"} ")
+          .append(Long.toString(cumulative))
+          .append('\n');
+      }
+    }
+    out.append(metric).append("_bucket{le=\"+Inf\"} ")
+      .append(Long.toString(snapshot.count)).append('\n');
+    out.append(metric).append("_sum ")
+      .append(Long.toString(snapshot.sum)).append('\n');
+    out.append(metric).append("_count ")
+      .append(Long.toString(snapshot.count)).append('\n');
+  }
+  
+  /**
+   * An immutable copy of the distribution recorded by a HistogramRegister
+   */
+  public static class Snapshot
+  {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+    
+    Snapshot(long[] counts,long count,long sum,long min,long max)
+    { 
+      this.counts=counts;
+      this.count=count;
+      this.sum=sum;
+      this.min=min;
+      this.max=max;
+    }
+    
+    public long getCount()
+    { return count;
+    }
+    
+    public long getSum()
+    { return sum;
+    }
+    
+    public long getMin()
+    { return min;
+    }
+    
+    public long getMax()
+    { return max;
+    }
+    
+    public double getMean()
+    { return count>0?(double) sum/count:0;
+    }
+    
+    /**
+     * @return The number of values recorded in the specified bucket
+     */
+    public long getBucketCount(int index)
+    { return counts[index];
+    }
+    
+    /**
+     * @param percentile A percentile between 0 and 100
+     * @return The upper bound of the bucket that contains the value at the
+     *   specified percentile, limited to the maximum recorded value
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+      if (count==0)
+      { return 0;
+      }
+      long rank=(long) Math.ceil(count*Math.min(100,percentile)/100);
+      if (rank<1)
+      { rank=1;
+      }
+      long seen=0;
+      for (int i=0;i<BUCKETS;i++)
+      {
+        seen+=counts[i];
+        if (seen>=rank)
+        { return Math.max(min,Math.min(max,bucketUpperBound(i)));
+        }
+      }
+      return max;
+    }
+    
+    /**
+     * @return A new Snapshot that combines this Snapshot with another
+     */
+    public Snapshot merge(Snapshot other)
+    {
+      if (other.count==0)
+      { return this;
+      }
+      if (count==0)
+      { return other;
+      }
+      long[] merged=new long[BUCKETS];
+      for (int i=0;i<BUCKETS;i++)
+      { merged[i]=counts[i]+other.counts[i];
+      }
+      return new Snapshot
+        (merged
+        ,count+other.count
+        ,sum+other.sum
+        ,Math.min(min,other.min)
+        ,Math.max(max,other.max)
+        );
+    }
+  }
+}
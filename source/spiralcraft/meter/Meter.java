@@ -1,6 +1,7 @@
 package spiralcraft.meter;
 
 import java.util.LinkedHashMap;
+import java.util.function.Function;
 
 import spiralcraft.log.ClassLog;
 import spiralcraft.util.Path;
@@ -29,22 +30,51 @@ public class Meter
   }
 
   public Register register(String name)
+  { return register(name,Register.class,Register::new);
+  }
+  
+  /**
+   * Obtain a Register for a heavily updated counter, which can be updated
+   *   concurrently without contention.
+   */
+  public StripedRegister stripedRegister(String name)
+  { return register(name,StripedRegister.class,StripedRegister::new);
+  }
+
+  /**
+   * Obtain a Register that records the distribution of values, such as
+   *   latencies.
+   */
+  public HistogramRegister histogram(String name)
+  { return register(name,HistogramRegister.class,HistogramRegister::new);
+  }
+  
+  private <R extends Register> R register
+    (String name,Class<R> registerClass,Function<String,R> constructor)
   { 
   
     Register ret=registers.get(name);
-    if (ret!=null)
-    { return ret;
-    }
-    synchronized (this)
-    {
-      ret=registers.get(name);
-      if (ret!=null)
-      { return ret;
+    if (ret==null)
+    { 
+      synchronized (this)
+      {
+        ret=registers.get(name);
+        if (ret==null)
+        { 
+          ret=constructor.apply(name);
+          registers.put(name,ret);
+        }
       }
-      ret=new Register(name);
-      registers.put(name,ret);
-      return ret;
     }
+    if (!registerClass.isInstance(ret))
+    { 
+      throw new IllegalArgumentException
+        ("Register '"+name+"' in meter "+path.format("/")+" is a "
+        +ret.getClass().getSimpleName()+", not a "
+        +registerClass.getSimpleName()
+        );
+    }
+    return registerClass.cast(ret);
   }
   
   public void update(String name,long value)
@@ -1,10 +1,19 @@
 package spiralcraft.meter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedList;
 
 import spiralcraft.log.ClassLog;
 import spiralcraft.util.ArrayUtil;
 import spiralcraft.util.Path;
+import spiralcraft.vfs.Resolver;
+import spiralcraft.vfs.Resource;
 
 public class MeterContext
 {
@@ -71,6 +80,84 @@ public class MeterContext
     }
   }
   
+  /**
+   * <p>Write the values of all the registers in this context and its
+   *   subcontexts in the plain text exposition format read by metrics
+   *   scrapers.
+   * </p>
+   * 
+   * <p>Each register is named by its Meter path and register name joined
+   *   with underscores, with any characters not permitted in a metric 
+   *   name replaced by underscores.
+   * </p>
+   */
+  public void export(Appendable out)
+    throws IOException
+  {
+    LinkedList<Meter> meterList=new LinkedList<>();
+    readMeters(meterList);
+    for (Meter meter:meterList)
+    {
+      ArrayList<Register> registers;
+      synchronized (meter)
+      { registers=new ArrayList<>(meter.registers.values());
+      }
+      String prefix=metricName(meter.path.format("_"));
+      for (Register register:registers)
+      { register.expose(prefix+"_"+metricName(register.getName()),out);
+      }
+    }
+  }
+  
+  /**
+   * Write the exposition format to the specified stream in UTF-8
+   */
+  public void export(OutputStream out)
+    throws IOException
+  {
+    Writer writer=new OutputStreamWriter(out,StandardCharsets.UTF_8);
+    StringBuilder buffer=new StringBuilder();
+    export(buffer);
+    writer.write(buffer.toString());
+    writer.flush();
+  }
+  
+  /**
+   * Write the exposition format to the specified Resource, via a temporary
+   *   Resource which replaces it once complete, so that readers do not see
+   *   a partial export.
+   */
+  public void export(Resource resource)
+    throws IOException
+  {
+    Resource temp
+      =Resolver.getInstance().resolve(URI.create(resource.getURI()+".tmp"));
+    OutputStream out=temp.getOutputStream();
+    try
+    { export(out);
+    }
+    finally
+    { out.close();
+    }
+    temp.renameTo(resource.getURI());
+  }
+  
+  private static String metricName(String name)
+  {
+    StringBuilder ret=new StringBuilder(name.length());
+    for (int i=0;i<name.length();i++)
+    {
+      char c=name.charAt(i);
+      if ((c>='a' && c<='z') || (c>='A' && c<='Z'))
+      { ret.append(c);
+      }
+      else if (ret.length()>0)
+      { ret.append((c>='0' && c<='9')?c:'_');
+      }
+    }
+    return ret.toString();
+  }
+  
   public String toString()
   { return super.toString()+": path="+path.format("/");
   }
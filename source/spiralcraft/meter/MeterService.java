@@ -1,5 +1,7 @@
 package spiralcraft.meter;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.Date;
 import java.util.LinkedList;
 
@@ -12,6 +14,7 @@ import spiralcraft.log.LogService;
 import spiralcraft.service.Service;
 import spiralcraft.service.ThreadService;
 import spiralcraft.util.string.DateToString;
+import spiralcraft.vfs.Resolver;
 
 public class MeterService
   extends ThreadService
@@ -30,6 +33,24 @@ public class MeterService
   private DateToString dateConverter=new DateToString("yyyy-MM-dd'T'HH:mm:ss");
   private long fullReportIntervalMs=600000;
   private long lastFullReport=0;
+  private URI exportURI;
+  
+  /**
+   * A resource which will be rewritten with the values of all registers
+   *   in the text exposition format on every run, for scraping by an
+   *   external metrics collector.
+   */
+  public void setExportURI(URI exportURI)
+  { this.exportURI=exportURI;
+  }
+  
+  /**
+   * Write the values of all registers in the text exposition format
+   */
+  public void export(Appendable out)
+    throws IOException
+  { rootContext.export(out);
+  }
   
   @Override
   public Focus<?> bindImports(Focus<?> focus) 
@@ -81,6 +102,15 @@ public class MeterService
     out.append("}");
     this.logService.write(this.logName, out.toString());
     
+    if (exportURI!=null)
+    {
+      try
+      { rootContext.export(Resolver.getInstance().resolve(exportURI));
+      }
+      catch (IOException x)
+      { log.warning("Error exporting meters to "+exportURI+": "+x);
+      }
+    }
   }
 
   private String formatMeter(Meter meter,boolean fullReport)
@@ -107,6 +137,17 @@ public class MeterService
           .append(":\"")
           .append(value)
           .append("\"");
+        if (reg instanceof HistogramRegister)
+        { 
+          HistogramRegister.Snapshot snapshot
+            =((HistogramRegister) reg).snapshot();
+          mout.append(",").append(reg.getName()).append(".p50:\"")
+            .append(snapshot.getValueAtPercentile(50)).append("\"");
+          mout.append(",").append(reg.getName()).append(".p99:\"")
+            .append(snapshot.getValueAtPercentile(99)).append("\"");
+          mout.append(",").append(reg.getName()).append(".max:\"")
+            .append(snapshot.getMax()).append("\"");
+        }
       }
     }
     mout.append("}");
@@ -14,6 +14,8 @@
 //
 package spiralcraft.meter;
 
+import java.io.IOException;
+
 /**
  * An object obtained from a meter that allows the application to track a single 
  *   metric. 
@@ -100,4 +102,16 @@ public class Register
   public String getName()
   { return name;
   }
+  
+  /**
+   * Write the current value in the text exposition format read by
+   *   metrics scrapers
+   */
+  void expose(String metric,Appendable out)
+    throws IOException
+  { 
+    out.append("# TYPE ").append(metric).append(" untyped\n");
+    out.append(metric).append(' ').append(Long.toString(getValue()))
+      .append('\n');
+  }
 }
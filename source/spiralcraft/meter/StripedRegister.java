@@ -0,0 +1,93 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.meter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>A Register for heavily updated counters, which accumulates updates in
+ *   a striped LongAdder so that concurrent updates from different threads
+ *   do not contend with each other.
+ * </p>
+ * 
+ * <p>The Register is considered changed when its value differs from the 
+ *   value last returned from readValue(). setValue() is not atomic with
+ *   respect to concurrent increments, and is intended for occasional
+ *   resets.
+ * </p>
+ */
+public class StripedRegister
+  extends Register
+{
+  private final LongAdder adder=new LongAdder();
+  private volatile long lastReadValue;
+  
+  public StripedRegister(String name)
+  { super(name);
+  }
+  
+  @Override
+  public void setValue(long value)
+  { adder.add(value-adder.sum());
+  }
+
+  @Override
+  public void inc()
+  { adder.increment();
+  }
+  
+  @Override
+  public void incrementValue()
+  { adder.increment();
+  }
+
+  @Override
+  public void dec()
+  { adder.decrement();
+  }
+
+  @Override
+  public void decrementValue()
+  { adder.decrement();
+  }
+
+  @Override
+  public void adj(long increment)
+  { adder.add(increment);
+  }
+  
+  @Override
+  public void adjustValue(long increment)
+  { adder.add(increment);
+  }
+
+  @Override
+  public long readValue()
+  {
+    long value=adder.sum();
+    lastReadValue=value;
+    return value;
+  }
+
+  @Override
+  public long getValue()
+  { return adder.sum();
+  }
+
+  @Override
+  public boolean hasChanged()
+  { return adder.sum()!=lastReadValue;
+  }
+}
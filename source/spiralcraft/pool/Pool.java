@@ -29,6 +29,7 @@ import spiralcraft.log.ClassLog;
 import spiralcraft.log.Level;
 import spiralcraft.meter.Meter;
 import spiralcraft.meter.MeterContext;
+import spiralcraft.meter.HistogramRegister;
 import spiralcraft.meter.Register;
 import spiralcraft.time.Clock;
 
@@ -97,6 +98,7 @@ public class Pool<T>
   private Register overdueDiscardsRegister;
   private Register addsRegister;
   private Register removesRegister;
+  private HistogramRegister waitTimeRegister;
 
   /**
    * An identifier to associate with threads and resources to facilitate monitoring
@@ -307,14 +309,15 @@ public class Pool<T>
     meter=meterContext.meter("pool");
     checkedInRegister=meter.register("checkedIn");
     checkedOutRegister=meter.register("checkedOut");
-    checkInsRegister=meter.register("checkIns");
-    checkOutsRegister=meter.register("checkOuts");
+    checkInsRegister=meter.stripedRegister("checkIns");
+    checkOutsRegister=meter.stripedRegister("checkOuts");
     clientDiscardsRegister=meter.register("clientDiscards");
     waitsRegister=meter.register("waits");
     waitingRegister=meter.register("waiting");
     overdueDiscardsRegister=meter.register("overdueDiscards");
     addsRegister=meter.register("adds");
     removesRegister=meter.register("removes");
+    waitTimeRegister=meter.histogram("waitTimeMs");
   }
   
   /**
@@ -364,6 +367,9 @@ public class Pool<T>
             waitOnMonitor();
             waiters.remove(ticket);
             long waitTime=System.currentTimeMillis()-ticket.timestamp;
+            if (meter!=null)
+            { waitTimeRegister.record(waitTime);
+            }
             if (waitTime>10)
             { log.info("Waited "+waitTime+" ms for pool "+tag);
             }
@@ -1,6 +1,7 @@
 package spiralcraft.profiler;
 
 import java.io.IOException;
+import java.util.Objects;
 
 import spiralcraft.common.declare.DeclarationInfo;
 import spiralcraft.log.ClassLog;
@@ -37,7 +38,7 @@ public class Call
   
   Call exit(String classname,DeclarationInfo info,Throwable throwable)
   {
-    if (info!=this.info || classname!=this.classname)
+    if (info!=this.info || !Objects.equals(classname,this.classname))
     { log.fine
         ("Mismatched profile frame: "+classname+":"+info
           +" != "+this.classname+":"+this.info
@@ -48,6 +49,49 @@ public class Call
     return this.getParent();
   }
   
+  /**
+   * The label that identifies a frame in reports and merged trees
+   */
+  static String label
+    (String classname,DeclarationInfo info,String contextIdentifier)
+  {
+    StringBuilder ret=new StringBuilder();
+    if (contextIdentifier!=null)
+    { ret.append("[").append(contextIdentifier).append("] ");
+    }
+    if (classname!=null)
+    { ret.append(classname).append(":");
+    }
+    if (info!=null)
+    { ret.append(info.toString());
+    }
+    return ret.toString();
+  }
+  
+  /**
+   * Add this call and its descendants to a merged tree
+   * 
+   * @param node The merged node corresponding to this call
+   * @param now The time to use for calls that have not exited
+   */
+  void mergeInto(ProfileNode node,long now)
+  {
+    long end=outTime!=0?outTime:now;
+    long subtime=0;
+    for (Call call:this)
+    { 
+      long childEnd=call.outTime!=0?call.outTime:now;
+      subtime+=(childEnd-call.inTime);
+      call.mergeInto
+        (node.child(label(call.classname,call.info,call.contextIdentifier))
+        ,now
+        );
+    }
+    node.count++;
+    node.totalNanos+=(end-inTime);
+    node.selfNanos+=(end-inTime-subtime);
+  }
+  
   void report(Appendable appendable,String prefix,int level)
     throws IOException
   { 
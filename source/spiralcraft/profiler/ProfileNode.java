@@ -0,0 +1,169 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.profiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * <p>A node in a call tree merged from the activity of multiple threads,
+ *   where calls through the same sequence of frames are combined.
+ * </p>
+ * 
+ * <p>Depending on how the profile was collected, the node holds either
+ *   the number of samples taken in the frame, or the number of calls to
+ *   the frame and the time spent in it.
+ * </p>
+ * 
+ * @author mike
+ */
+public class ProfileNode
+{
+  private final String frame;
+  private final LinkedHashMap<String,ProfileNode> children
+    =new LinkedHashMap<String,ProfileNode>();
+  long count;
+  long selfCount;
+  long totalNanos;
+  long selfNanos;
+  
+  ProfileNode(String frame)
+  { this.frame=frame;
+  }
+  
+  /**
+   * The frame label, composed of the class name, action and declaration 
+   *   location of the call
+   */
+  public String getFrame()
+  { return frame;
+  }
+  
+  /**
+   * The number of calls to this frame, or the number of samples in which 
+   *   this frame was on the stack
+   */
+  public long getCount()
+  { return count;
+  }
+  
+  /**
+   * The number of samples in which this frame was the innermost frame
+   */
+  public long getSelfCount()
+  { return selfCount;
+  }
+  
+  public long getTotalNanos()
+  { return totalNanos;
+  }
+  
+  public long getSelfNanos()
+  { return selfNanos;
+  }
+  
+  public Iterable<ProfileNode> getChildren()
+  { return children.values();
+  }
+  
+  ProfileNode child(String frame)
+  {
+    ProfileNode child=children.get(frame);
+    if (child==null)
+    { 
+      child=new ProfileNode(frame);
+      children.put(frame,child);
+    }
+    return child;
+  }
+  
+  /**
+   * Add the content of another merged tree to this one
+   */
+  void merge(ProfileNode other)
+  {
+    count+=other.count;
+    selfCount+=other.selfCount;
+    totalNanos+=other.totalNanos;
+    selfNanos+=other.selfNanos;
+    for (ProfileNode otherChild:other.children.values())
+    { child(otherChild.frame).merge(otherChild);
+    }
+  }
+  
+  /**
+   * <p>Write the tree in the collapsed stack format read by flame graph
+   *   tools, one line per distinct stack consisting of the frames separated
+   *   by semicolons, followed by a space and the weight of the stack.
+   * </p>
+   * 
+   * @param out
+   * @param timed Whether to weight stacks by self time in microseconds 
+   *   instead of by sample count
+   */
+  public void writeCollapsed(Appendable out,boolean timed)
+    throws IOException
+  { writeCollapsed(out,timed,new ArrayList<String>());
+  }
+  
+  private void writeCollapsed
+    (Appendable out,boolean timed,ArrayList<String> path)
+    throws IOException
+  {
+    path.add(frame.replace(';',':').replace('\n',' ').replace('\r',' '));
+    long weight=timed?selfNanos/1000:selfCount;
+    if (weight>0)
+    {
+      boolean first=true;
+      for (String element:path)
+      { 
+        if (!first)
+        { out.append(';');
+        }
+        else
+        { first=false;
+        }
+        out.append(element);
+      }
+      out.append(' ').append(Long.toString(weight)).append('\n');
+    }
+    for (ProfileNode child:children.values())
+    { child.writeCollapsed(out,timed,path);
+    }
+    path.remove(path.size()-1);
+  }
+  
+  void report(Appendable appendable,String prefix,int level,boolean timed)
+    throws IOException
+  {
+    appendable.append(prefix.repeat(level));
+    if (timed)
+    {
+      appendable.append
+        ("S="+Call.timingFormat.toString(selfNanos/1000D/1000D)+"ms : "
+        +"T="+Call.timingFormat.toString(totalNanos/1000D/1000D)+"ms "
+        +"N="+count+" "
+        );
+    }
+    else
+    { appendable.append("S="+selfCount+" : T="+count+" ");
+    }
+    appendable.append(frame).append("\r\n");
+    for (ProfileNode child:children.values())
+    { child.report(appendable,prefix,level+1,timed);
+    }
+  }
+}
@@ -1,29 +1,127 @@
 package spiralcraft.profiler;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import spiralcraft.common.declare.DeclarationInfo;
 // import spiralcraft.log.ClassLog;
 
 /**
- * Records the runtime call tree at an application level 
+ * <p>Records the runtime call tree at an application level 
+ * </p>
+ * 
+ * <p>Each thread maintains its own call stack, so any number of threads 
+ *   can be profiled at once. Frames are identified by the class name and 
+ *   action of the caller along with its DeclarationInfo, so assembly and
+ *   expression declarations appear in the profile.
+ * </p>
+ * 
+ * <p>In INSTRUMENT mode, every call is timed and recorded in a per-thread
+ *   Call tree. In SAMPLE mode, entering and exiting a call only updates
+ *   the current thread's frame stack, and a background thread periodically
+ *   records the stack of every active thread in a merged tree, counting the 
+ *   samples in which each frame was present. The sampler reads stacks 
+ *   without locking, so a sample may occasionally reflect a stack that is 
+ *   being modified.
+ * </p>
+ * 
+ * <p>Nested calls only touch state owned by the calling thread. A thread
+ *   checks whether the profiler has been restarted only when it enters an
+ *   outermost call, so a restart takes effect in each thread once the
+ *   calls in progress have returned.
+ * </p>
+ * 
+ * <p>The profile of all threads can be merged into a single tree and 
+ *   exported in the collapsed stack format used by flame graph tools.
+ * </p>
  * 
  * @author mike
  */
 public class ProfilerAgent
 {
   // private static final ClassLog log=ClassLog.getInstance(ProfilerAgent.class);
-  private Call rootCall;
-  private volatile Call call=rootCall;
+  
+  public enum Mode
+  { 
+    INSTRUMENT
+    ,SAMPLE
+  }
+  
+  private Mode mode=Mode.INSTRUMENT;
+  private long sampleIntervalMs=10;
+  private final Set<CallStack> stacks=ConcurrentHashMap.newKeySet();
+  private final ThreadLocal<CallStack> threadStack
+    =new ThreadLocal<CallStack>();
+  private volatile int generation;
+  private ProfileNode sampleRoot;
+  private long sampleCount;
+  private volatile Thread sampler;
+  private volatile long startTime;
+  private volatile long stopTime;
 
-  public void start()
+  public void setMode(Mode mode)
+  { this.mode=mode;
+  }
+  
+  public Mode getMode()
+  { return mode;
+  }
+  
+  /**
+   * The interval between samples in SAMPLE mode
+   */
+  public void setSampleIntervalMs(long sampleIntervalMs)
+  { this.sampleIntervalMs=sampleIntervalMs;
+  }
+  
+  public long getSampleIntervalMs()
+  { return sampleIntervalMs;
+  }
+
+  public synchronized void start()
   { 
-    rootCall=new Call("ROOT",null);
-    call=rootCall;
+    generation++;
+    stacks.clear();
+    sampleRoot=new ProfileNode("ROOT");
+    sampleCount=0;
+    startTime=System.nanoTime();
+    stopTime=0;
+    if (mode==Mode.SAMPLE)
+    {
+      Thread thread=new Thread(this::runSampler,"profiler-sampler");
+      thread.setDaemon(true);
+      sampler=thread;
+      thread.start();
+    }
   }
 
   public void stop()
-  { rootCall.exit("ROOT", null,null);
+  { 
+    Thread thread=sampler;
+    sampler=null;
+    if (thread!=null)
+    {
+      thread.interrupt();
+      try
+      { thread.join();
+      }
+      catch (InterruptedException x)
+      { Thread.currentThread().interrupt();
+      }
+    }
+    
+    long now=System.nanoTime();
+    for (CallStack stack:stacks)
+    { 
+      if (stack.rootCall!=null && stack.rootCall.outTime==0)
+      { stack.rootCall.outTime=now;
+      }
+    }
+    stopTime=now;
   }
   
   /**
@@ -33,7 +131,11 @@ public class ProfilerAgent
   public void enter(String classname,DeclarationInfo info)
   { 
 //    log.fine(this.toString()+": Entering "+classname+":"+info);
-    call=call.enter(classname,info);
+    CallStack stack=enterStack();
+    if (stack.call!=null)
+    { stack.call=stack.call.enter(classname,info);
+    }
+    stack.push(classname,info);
 //    log.fine(this.toString()+": Entered "+classname+":"+info);
   }
   
@@ -45,7 +147,14 @@ public class ProfilerAgent
   public void exit(String classname,DeclarationInfo info,Throwable throwable)
   { 
 //    log.fine(this.toString()+": Exiting "+classname+":"+info);
-    call=call.exit(classname,info,throwable);
+    CallStack stack=threadStack.get();
+    if (stack==null)
+    { return;
+    }
+    if (stack.call!=null && stack.call!=stack.rootCall)
+    { stack.call=stack.call.exit(classname,info,throwable);
+    }
+    stack.pop();
 //    log.fine(this.toString()+": Exited "+classname+":"+info);
   }
   
@@ -53,7 +162,67 @@ public class ProfilerAgent
    * An identifier that will be associated with future children of the current call
    */
   public void setContextIdentifier(String cid)
-  { call.contextIdentifier=cid;
+  { 
+    CallStack stack=enterStack();
+    if (stack.call!=null)
+    { stack.call.contextIdentifier=cid;
+    }
+    stack.setContextIdentifier(cid);
+  }
+  
+  /**
+   * <p>Merge the profiles of all threads into a single tree.
+   * </p>
+   * 
+   * <p>In INSTRUMENT mode, the root of each thread's tree is identified
+   *   by the name of the thread, unless mergeThreads is true, in which
+   *   case calls through the same frames in different threads are combined.
+   *   In SAMPLE mode, samples are always merged across threads.
+   * </p>
+   */
+  public synchronized ProfileNode getMergedProfile(boolean mergeThreads)
+  {
+    ProfileNode root=new ProfileNode("ROOT");
+    if (mode==Mode.SAMPLE)
+    { 
+      if (sampleRoot!=null)
+      { root.merge(sampleRoot);
+      }
+      return root;
+    }
+    
+    long now=stopTime!=0?stopTime:System.nanoTime();
+    for (CallStack stack:stacks)
+    {
+      if (stack.rootCall!=null)
+      {
+        ProfileNode threadNode=new ProfileNode("ROOT");
+        stack.rootCall.mergeInto(threadNode,now);
+        if (mergeThreads)
+        { root.merge(threadNode);
+        }
+        else
+        { root.child(stack.thread.getName()).merge(threadNode);
+        }
+      }
+    }
+    return root;
+  }
+  
+  /**
+   * Write the merged profile in the collapsed stack format read by flame
+   *   graph tools. Stacks are weighted by self time in microseconds in 
+   *   INSTRUMENT mode and by sample count in SAMPLE mode.
+   */
+  public Appendable exportCollapsed(Appendable appendable)
+    throws IOException
+  { 
+    ProfileNode root=getMergedProfile(mode==Mode.SAMPLE);
+    boolean timed=mode==Mode.INSTRUMENT;
+    for (ProfileNode child:root.getChildren())
+    { child.writeCollapsed(appendable,timed);
+    }
+    return appendable;
   }
   
   public Appendable generateReport(Appendable appendable,String indent)
@@ -62,7 +231,218 @@ public class ProfilerAgent
     if (indent==null)
     { indent="| ";
     }
-    rootCall.report(appendable,indent,0);
+    if (mode==Mode.SAMPLE)
+    { 
+      synchronized (this)
+      { 
+        appendable.append
+          (sampleCount+" samples at "+sampleIntervalMs+"ms intervals\r\n");
+      }
+      getMergedProfile(true).report(appendable,indent,0,false);
+    }
+    else
+    {
+      for (CallStack stack:stacks)
+      { 
+        if (stack.rootCall!=null)
+        { stack.rootCall.report(appendable,indent,0);
+        }
+      }
+    }
     return appendable;
   }
+  
+  /**
+   * The CallStack for the current thread, which is replaced when the
+   *   profiler has been restarted and the thread is not inside a call
+   */
+  private CallStack enterStack()
+  {
+    CallStack stack=threadStack.get();
+    if (stack==null 
+        || (stack.depth==0 && stack.generation!=generation)
+        )
+    {
+      int generation=this.generation;
+      stack=new CallStack(Thread.currentThread(),generation);
+      if (mode==Mode.INSTRUMENT)
+      { 
+        // Identify the thread in the report without labeling every frame
+        //   with it, so frames can be merged across threads
+        stack.rootCall=new Call(stack.thread.getName(),null);
+        stack.call=stack.rootCall;
+      }
+      threadStack.set(stack);
+      stacks.add(stack);
+    }
+    return stack;
+  }
+  
+  private void runSampler()
+  {
+    String[] classnames=new String[0];
+    DeclarationInfo[] infos=new DeclarationInfo[0];
+    String[] contextIds=new String[0];
+    ArrayList<CallStack> dead=new ArrayList<CallStack>();
+    
+    while (sampler==Thread.currentThread())
+    {
+      try
+      { Thread.sleep(sampleIntervalMs);
+      }
+      catch (InterruptedException x)
+      { break;
+      }
+      
+      synchronized (this)
+      {
+        sampleCount++;
+        for (CallStack stack:stacks)
+        {
+          if (!stack.thread.isAlive())
+          { 
+            dead.add(stack);
+            continue;
+          }
+          
+          // Read the depth first- entries below it were published
+          //   before it was written
+          int depth=stack.getDepth();
+          if (depth==0)
+          { continue;
+          }
+          if (classnames.length<depth)
+          { 
+            classnames=new String[depth*2];
+            infos=new DeclarationInfo[depth*2];
+            contextIds=new String[depth*2];
+          }
+          depth=stack.copy(classnames,infos,contextIds,depth);
+          
+          ProfileNode node=sampleRoot;
+          node.count++;
+          for (int i=0;i<depth;i++)
+          { 
+            node=node.child(Call.label(classnames[i],infos[i],contextIds[i]));
+            node.count++;
+          }
+          node.selfCount++;
+        }
+        for (CallStack stack:dead)
+        { stacks.remove(stack);
+        }
+        dead.clear();
+      }
+    }
+  }
+  
+  /**
+   * The frames entered by a single thread
+   */
+  private static class CallStack
+  {
+    private static final VarHandle DEPTH;
+    static
+    {
+      try
+      { 
+        DEPTH=MethodHandles.lookup()
+          .findVarHandle(CallStack.class,"depth",int.class);
+      }
+      catch (ReflectiveOperationException x)
+      { throw new ExceptionInInitializerError(x);
+      }
+    }
+    
+    final Thread thread;
+    final int generation;
+    Call rootCall;
+    Call call;
+    
+    private String[] classnames=new String[16];
+    private DeclarationInfo[] infos=new DeclarationInfo[16];
+    private String[] contextIds=new String[16];
+    private String contextId;
+    
+    // Written with release semantics, so that the sampler sees the frames
+    //   below the depth it reads, without a full fence on every call
+    private int depth;
+    
+    CallStack(Thread thread,int generation)
+    { 
+      this.thread=thread;
+      this.generation=generation;
+    }
+    
+    void push(String classname,DeclarationInfo info)
+    {
+      int d=depth;
+      if (d==classnames.length)
+      { 
+        String[] newClassnames=new String[d*2];
+        DeclarationInfo[] newInfos=new DeclarationInfo[d*2];
+        String[] newContextIds=new String[d*2];
+        System.arraycopy(classnames,0,newClassnames,0,d);
+        System.arraycopy(infos,0,newInfos,0,d);
+        System.arraycopy(contextIds,0,newContextIds,0,d);
+        classnames=newClassnames;
+        infos=newInfos;
+        contextIds=newContextIds;
+      }
+      // A thread usually re-enters the same frames at the same depth, so
+      //   skip stores that would not change the stack and avoid the garbage
+      //   collector's write barrier
+      if (classnames[d]!=classname)
+      { classnames[d]=classname;
+      }
+      if (infos[d]!=info)
+      { infos[d]=info;
+      }
+      if (contextIds[d]!=contextId)
+      { contextIds[d]=contextId;
+      }
+      DEPTH.setRelease(this,d+1);
+    }
+    
+    void pop()
+    { 
+      int d=depth;
+      if (d>0)
+      { 
+        d--;
+        contextId=d>0?contextIds[d]:null;
+        DEPTH.setRelease(this,d);
+      }
+    }
+    
+    int getDepth()
+    { return (int) DEPTH.getAcquire(this);
+    }
+    
+    void setContextIdentifier(String cid)
+    { contextId=cid;
+    }
+    
+    /**
+     * Copy up to the specified number of frames, returning the number 
+     *   copied
+     */
+    int copy
+      (String[] classnamesOut
+      ,DeclarationInfo[] infosOut
+      ,String[] contextIdsOut
+      ,int max
+      )
+    {
+      String[] classnames=this.classnames;
+      DeclarationInfo[] infos=this.infos;
+      String[] contextIds=this.contextIds;
+      int count=Math.min(max,Math.min(classnames.length,infos.length));
+      count=Math.min(count,contextIds.length);
+      System.arraycopy(classnames,0,classnamesOut,0,count);
+      System.arraycopy(infos,0,infosOut,0,count);
+      System.arraycopy(contextIds,0,contextIdsOut,0,count);
+      return count;
+    }
+  }
 }
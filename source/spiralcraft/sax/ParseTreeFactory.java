@@ -97,6 +97,26 @@ public class ParseTreeFactory
     }
   }
 
+  /**
+   * Load a ParseTree from a resource, replaying the resource's SAX events
+   *   from the specified XmlEventCache if it holds a current entry.
+   *
+   *@param cache The cache to use, or null to parse the resource directly
+   *@return The ParseTree
+   */
+  public static ParseTree fromResource(Resource resource,XmlEventCache cache)
+    throws SAXException,IOException
+  { 
+    if (cache==null)
+    { return fromResource(resource);
+    }
+    
+    ParseTree parseTree=new ParseTree();
+    parseTree.setDocumentURI(resource.getURI());
+    cache.parse(resource,parseTree);
+    return parseTree;
+  }
+
   /**
    * Parse fragmentary XML contained in a String. Encapsulates a String within
    *   &lt;_%gt; tags.
@@ -0,0 +1,720 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.sax;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+import spiralcraft.log.ClassLog;
+import spiralcraft.vfs.Resource;
+
+/**
+ * <p>A persistent cache of the SAX event streams produced by parsing XML
+ *   resources, used to avoid running the XML parser over unchanged
+ *   definition files on startup.
+ * </p>
+ * 
+ * <p>The first parse of a resource records every content event, along with
+ *   the parser's line and column at that event, into a compact binary file
+ *   in the cache directory. Later parses of the same resource replay the
+ *   recorded events, and a Locator that reports the recorded positions,
+ *   into the handler. An entry is keyed by resource URI and is only used
+ *   while the SHA-256 digest of the resource's content is unchanged, so an
+ *   edit is detected even if it preserves the size and modification time 
+ *   of the resource. A hit still reads the resource to compute the digest,
+ *   but does not parse it.
+ * </p>
+ * 
+ * <p>The default cache is enabled by setting the
+ *   <code>spiralcraft.sax.XmlEventCache.dir</code> system property to a
+ *   writable directory.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class XmlEventCache
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(XmlEventCache.class);
+  
+  private static final int MAGIC=0x53584532; // "SXE2"
+  
+  private static final int END=0;
+  private static final int START_DOCUMENT=1;
+  private static final int END_DOCUMENT=2;
+  private static final int START_PREFIX_MAPPING=3;
+  private static final int END_PREFIX_MAPPING=4;
+  private static final int START_ELEMENT=5;
+  private static final int END_ELEMENT=6;
+  private static final int CHARACTERS=7;
+  private static final int IGNORABLE_WHITESPACE=8;
+  private static final int PROCESSING_INSTRUCTION=9;
+  private static final int SKIPPED_ENTITY=10;
+  
+  private static final XmlEventCache DEFAULT;
+  
+  static
+  {
+    String dir=System.getProperty("spiralcraft.sax.XmlEventCache.dir");
+    XmlEventCache cache=null;
+    if (dir!=null && !dir.isEmpty())
+    { 
+      try
+      { cache=new XmlEventCache(Paths.get(dir));
+      }
+      catch (IOException x)
+      { log.warning("XML event cache disabled: "+x);
+      }
+    }
+    DEFAULT=cache;
+  }
+  
+  /**
+   * 
+   * @return The cache configured by the 
+   *   <code>spiralcraft.sax.XmlEventCache.dir</code> system property, or
+   *   null if no cache is configured.
+   */
+  public static XmlEventCache getDefault()
+  { return DEFAULT;
+  }
+  
+  private final Path directory;
+  private final AtomicLong hits=new AtomicLong();
+  private final AtomicLong misses=new AtomicLong();
+  
+  public XmlEventCache(Path directory)
+    throws IOException
+  { 
+    this.directory=directory;
+    Files.createDirectories(directory);
+  }
+  
+  public Path getDirectory()
+  { return directory;
+  }
+  
+  /**
+   * The number of parses satisfied from the cache
+   */
+  public long getHits()
+  { return hits.get();
+  }
+  
+  /**
+   * The number of parses that ran the XML parser
+   */
+  public long getMisses()
+  { return misses.get();
+  }
+  
+  /**
+   * <p>Deliver the SAX events for the specified resource to the handler,
+   *   replaying them from the cache if an entry for the current version of
+   *   the resource exists, or parsing the resource and recording a new
+   *   entry otherwise.
+   * </p>
+   */
+  public void parse(Resource resource,DefaultHandler handler)
+    throws SAXException,IOException
+  {
+    URI uri=resource.getURI();
+    byte[] content;
+    InputStream in=resource.getInputStream();
+    if (in==null)
+    { throw new IOException("Resource not found: "+uri);
+    }
+    try
+    { content=in.readAllBytes();
+    }
+    finally
+    { in.close();
+    }
+    byte[] digest=digest(content);
+    
+    Path file=directory.resolve(fileName(uri));
+    byte[] events=read(file,uri,digest);
+    if (events!=null)
+    {
+      hits.incrementAndGet();
+      replay(events,uri,handler);
+      return;
+    }
+
+    misses.incrementAndGet();
+    Recorder recorder=new Recorder(handler);
+    parse(content,recorder);
+    write(file,uri,digest,recorder.toByteArray());
+  }
+  
+  /**
+   * Remove all entries from the cache directory
+   */
+  public void clear()
+    throws IOException
+  {
+    try (DirectoryStream<Path> stream
+          =Files.newDirectoryStream(directory,"*.sxe")
+        )
+    {
+      for (Path file:stream)
+      { Files.deleteIfExists(file);
+      }
+    }
+  }
+  
+  private void parse(byte[] content,DefaultHandler handler)
+    throws SAXException,IOException
+  {
+    SAXParserFactory factory=SAXParserFactory.newInstance();
+    factory.setNamespaceAware(true);
+
+    SAXParser parser; 
+    try
+    { parser = factory.newSAXParser(); 
+    }
+    catch (ParserConfigurationException x)
+    { throw new IOException(x.toString());
+    }
+    
+    parser.parse(new ByteArrayInputStream(content),handler);
+  }
+  
+  private static byte[] digest(byte[] content)
+  {
+    try
+    { return MessageDigest.getInstance("SHA-256").digest(content);
+    }
+    catch (NoSuchAlgorithmException x)
+    { throw new IllegalStateException("SHA-256 is not supported",x);
+    }
+  }
+  
+  private String fileName(URI uri)
+  { 
+    // 64 bit FNV-1a- collisions only cost a re-parse, since the URI is
+    //   verified when the entry is read
+    String key=uri.toString();
+    long hash=0xcbf29ce484222325L;
+    for (int i=0;i<key.length();i++)
+    { 
+      hash^=key.charAt(i);
+      hash*=0x100000001b3L;
+    }
+    return Long.toHexString(hash)+".sxe";
+  }
+  
+  private byte[] read(Path file,URI uri,byte[] digest)
+  {
+    byte[] bytes;
+    try
+    { bytes=Files.readAllBytes(file);
+    }
+    catch (NoSuchFileException x)
+    { return null;
+    }
+    catch (IOException x)
+    { 
+      log.warning("Error reading XML event cache entry "+file+": "+x);
+      return null;
+    }
+    
+    try
+    {
+      DataInputStream in
+        =new DataInputStream(new ByteArrayInputStream(bytes));
+      if (in.readInt()!=MAGIC || !in.readUTF().equals(uri.toString()))
+      { return null;
+      }
+      byte[] entryDigest=new byte[in.readUnsignedByte()];
+      in.readFully(entryDigest);
+      if (!Arrays.equals(entryDigest,digest))
+      { return null;
+      }
+      int length=in.readInt();
+      int crc=in.readInt();
+      byte[] events=new byte[length];
+      in.readFully(events);
+      
+      CRC32 check=new CRC32();
+      check.update(events);
+      if ((int) check.getValue()!=crc)
+      { 
+        log.warning("Discarding corrupt XML event cache entry "+file);
+        return null;
+      }
+      return events;
+    }
+    catch (IOException x)
+    { 
+      log.warning("Discarding unreadable XML event cache entry "+file);
+      return null;
+    }
+  }
+  
+  private void write(Path file,URI uri,byte[] digest,byte[] events)
+  {
+    try
+    {
+      CRC32 crc=new CRC32();
+      crc.update(events);
+      
+      ByteArrayOutputStream bytes=new ByteArrayOutputStream(events.length+256);
+      DataOutputStream out=new DataOutputStream(bytes);
+      out.writeInt(MAGIC);
+      out.writeUTF(uri.toString());
+      out.writeByte(digest.length);
+      out.write(digest);
+      out.writeInt(events.length);
+      out.writeInt((int) crc.getValue());
+      out.write(events);
+      out.flush();
+      
+      Path temp=Files.createTempFile(directory,"entry",".tmp");
+      try
+      {
+        Files.write(temp,bytes.toByteArray());
+        Files.move
+          (temp
+          ,file
+          ,StandardCopyOption.REPLACE_EXISTING
+          ,StandardCopyOption.ATOMIC_MOVE
+          );
+      }
+      finally
+      { Files.deleteIfExists(temp);
+      }
+    }
+    catch (IOException x)
+    { log.warning("Error writing XML event cache entry "+file+": "+x);
+    }
+  }
+  
+  private void replay(byte[] events,URI uri,ContentHandler handler)
+    throws SAXException
+  {
+    EventReader in=new EventReader(events);
+    ReplayLocator locator=new ReplayLocator(uri.toString());
+    handler.setDocumentLocator(locator);
+    
+    AttributesImpl attributes=new AttributesImpl();
+    int op;
+    while ((op=in.readInt())!=END)
+    {
+      locator.line=in.readInt();
+      locator.column=in.readInt();
+      switch (op)
+      {
+        case START_DOCUMENT:
+          handler.startDocument();
+          break;
+        case END_DOCUMENT:
+          handler.endDocument();
+          break;
+        case START_PREFIX_MAPPING:
+          handler.startPrefixMapping(in.readString(),in.readString());
+          break;
+        case END_PREFIX_MAPPING:
+          handler.endPrefixMapping(in.readString());
+          break;
+        case START_ELEMENT:
+        {
+          String elementUri=in.readString();
+          String localName=in.readString();
+          String qName=in.readString();
+          attributes.clear();
+          int count=in.readInt();
+          for (int i=0;i<count;i++)
+          { 
+            attributes.addAttribute
+              (in.readString()
+              ,in.readString()
+              ,in.readString()
+              ,in.readString()
+              ,in.readString()
+              );
+          }
+          handler.startElement(elementUri,localName,qName,attributes);
+          break;
+        }
+        case END_ELEMENT:
+          handler.endElement(in.readString(),in.readString(),in.readString());
+          break;
+        case CHARACTERS:
+        {
+          char[] chars=in.readChars();
+          handler.characters(chars,0,chars.length);
+          break;
+        }
+        case IGNORABLE_WHITESPACE:
+        {
+          char[] chars=in.readChars();
+          handler.ignorableWhitespace(chars,0,chars.length);
+          break;
+        }
+        case PROCESSING_INSTRUCTION:
+          handler.processingInstruction(in.readString(),in.readString());
+          break;
+        case SKIPPED_ENTITY:
+          handler.skippedEntity(in.readString());
+          break;
+        default:
+          throw new SAXException("Corrupt XML event cache entry for "+uri);
+      }
+    }
+  }
+  
+  static class ReplayLocator
+    implements Locator
+  {
+    private final String systemId;
+    int line;
+    int column;
+    
+    ReplayLocator(String systemId)
+    { this.systemId=systemId;
+    }
+    
+    @Override
+    public String getPublicId()
+    { return null;
+    }
+
+    @Override
+    public String getSystemId()
+    { return systemId;
+    }
+
+    @Override
+    public int getLineNumber()
+    { return line;
+    }
+
+    @Override
+    public int getColumnNumber()
+    { return column;
+    }
+  }
+  
+  /**
+   * Decodes the event stream written by a Recorder
+   */
+  static class EventReader
+  {
+    private final byte[] bytes;
+    private final ArrayList<String> strings=new ArrayList<>();
+    private int pos;
+    
+    EventReader(byte[] bytes)
+    { this.bytes=bytes;
+    }
+    
+    int readInt()
+    {
+      int value=0;
+      int shift=0;
+      byte b;
+      do
+      {
+        b=bytes[pos++];
+        value|=(b & 0x7F)<<shift;
+        shift+=7;
+      } while ((b & 0x80)!=0);
+      return value;
+    }
+    
+    char[] readChars()
+    {
+      char[] chars=new char[readInt()];
+      for (int i=0;i<chars.length;i++)
+      { chars[i]=(char) readInt();
+      }
+      return chars;
+    }
+    
+    String readString()
+    {
+      int ref=readInt();
+      if (ref==0)
+      { return null;
+      }
+      else if (ref==1)
+      { 
+        String string=new String(readChars());
+        strings.add(string);
+        return string;
+      }
+      else
+      { return strings.get(ref-2);
+      }
+    }
+  }
+  
+  /**
+   * Forwards parser events to the target handler while encoding them
+   *   for the cache.
+   */
+  static class Recorder
+    extends DefaultHandler
+  {
+    private final DefaultHandler target;
+    private final ByteArrayOutputStream out=new ByteArrayOutputStream(4096);
+    private final HashMap<String,Integer> strings=new HashMap<>();
+    private Locator locator;
+    
+    Recorder(DefaultHandler target)
+    { this.target=target;
+    }
+    
+    byte[] toByteArray()
+    { 
+      writeInt(END);
+      return out.toByteArray();
+    }
+    
+    private void writeInt(int value)
+    {
+      while ((value & ~0x7F)!=0)
+      { 
+        out.write((value & 0x7F) | 0x80);
+        value>>>=7;
+      }
+      out.write(value);
+    }
+    
+    private void writeChars(char[] chars,int start,int length)
+    {
+      writeInt(length);
+      for (int i=start;i<start+length;i++)
+      { writeInt(chars[i]);
+      }
+    }
+    
+    private void writeString(String string)
+    {
+      if (string==null)
+      { 
+        writeInt(0);
+        return;
+      }
+      Integer ref=strings.get(string);
+      if (ref!=null)
+      { writeInt(ref+2);
+      }
+      else
+      {
+        strings.put(string,strings.size());
+        writeInt(1);
+        writeChars(string.toCharArray(),0,string.length());
+      }
+    }
+    
+    private void writeEvent(int op)
+    {
+      writeInt(op);
+      writeInt(locator!=null?Math.max(locator.getLineNumber(),0):0);
+      writeInt(locator!=null?Math.max(locator.getColumnNumber(),0):0);
+    }
+    
+    @Override
+    public void setDocumentLocator(Locator locator)
+    { 
+      this.locator=locator;
+      target.setDocumentLocator(locator);
+    }
+    
+    @Override
+    public void startDocument()
+      throws SAXException
+    { 
+      writeEvent(START_DOCUMENT);
+      target.startDocument();
+    }
+    
+    @Override
+    public void endDocument()
+      throws SAXException
+    { 
+      writeEvent(END_DOCUMENT);
+      target.endDocument();
+    }
+    
+    @Override
+    public void startPrefixMapping(String prefix,String uri)
+      throws SAXException
+    { 
+      writeEvent(START_PREFIX_MAPPING);
+      writeString(prefix);
+      writeString(uri);
+      target.startPrefixMapping(prefix,uri);
+    }
+    
+    @Override
+    public void endPrefixMapping(String prefix)
+      throws SAXException
+    { 
+      writeEvent(END_PREFIX_MAPPING);
+      writeString(prefix);
+      target.endPrefixMapping(prefix);
+    }
+    
+    @Override
+    public void startElement
+      (String uri
+      ,String localName
+      ,String qName
+      ,Attributes attributes
+      )
+      throws SAXException
+    { 
+      writeEvent(START_ELEMENT);
+      writeString(uri);
+      writeString(localName);
+      writeString(qName);
+      int count=attributes.getLength();
+      writeInt(count);
+      for (int i=0;i<count;i++)
+      {
+        writeString(attributes.getURI(i));
+        writeString(attributes.getLocalName(i));
+        writeString(attributes.getQName(i));
+        writeString(attributes.getType(i));
+        writeString(attributes.getValue(i));
+      }
+      target.startElement(uri,localName,qName,attributes);
+    }
+    
+    @Override
+    public void endElement(String uri,String localName,String qName)
+      throws SAXException
+    { 
+      writeEvent(END_ELEMENT);
+      writeString(uri);
+      writeString(localName);
+      writeString(qName);
+      target.endElement(uri,localName,qName);
+    }
+    
+    @Override
+    public void characters(char[] ch,int start,int length)
+      throws SAXException
+    { 
+      writeEvent(CHARACTERS);
+      writeChars(ch,start,length);
+      target.characters(ch,start,length);
+    }
+    
+    @Override
+    public void ignorableWhitespace(char[] ch,int start,int length)
+      throws SAXException
+    { 
+      writeEvent(IGNORABLE_WHITESPACE);
+      writeChars(ch,start,length);
+      target.ignorableWhitespace(ch,start,length);
+    }
+    
+    @Override
+    public void processingInstruction(String piTarget,String data)
+      throws SAXException
+    { 
+      writeEvent(PROCESSING_INSTRUCTION);
+      writeString(piTarget);
+      writeString(data);
+      target.processingInstruction(piTarget,data);
+    }
+    
+    @Override
+    public void skippedEntity(String name)
+      throws SAXException
+    { 
+      writeEvent(SKIPPED_ENTITY);
+      writeString(name);
+      target.skippedEntity(name);
+    }
+    
+    @Override
+    public InputSource resolveEntity(String publicId,String systemId)
+      throws IOException,SAXException
+    { return target.resolveEntity(publicId,systemId);
+    }
+    
+    @Override
+    public void notationDecl(String name,String publicId,String systemId)
+      throws SAXException
+    { target.notationDecl(name,publicId,systemId);
+    }
+    
+    @Override
+    public void unparsedEntityDecl
+      (String name
+      ,String publicId
+      ,String systemId
+      ,String notationName
+      )
+      throws SAXException
+    { target.unparsedEntityDecl(name,publicId,systemId,notationName);
+    }
+    
+    @Override
+    public void warning(SAXParseException x)
+      throws SAXException
+    { target.warning(x);
+    }
+    
+    @Override
+    public void error(SAXParseException x)
+      throws SAXException
+    { target.error(x);
+    }
+    
+    @Override
+    public void fatalError(SAXParseException x)
+      throws SAXException
+    { target.fatalError(x);
+    }
+  }
+}
@@ -17,6 +17,9 @@ package spiralcraft.task;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
 
 import spiralcraft.common.ContextualException;
 import spiralcraft.lang.BindException;
@@ -50,6 +53,14 @@ import spiralcraft.util.MultiException;
  * <p>Results are made available via the completed Command objects.
  * </p>
  * 
+ * <p>In streaming mode, items are pulled from the source as capacity
+ *   becomes available instead of being read up front, at most 
+ *   maxParallelism chunks of chunkSize items run at once, and each
+ *   completed item Command is passed to postItemResult() as it completes.
+ *   Completed Commands are only retained in the Batch result when 
+ *   retainResults is set.
+ * </p>
+ * 
  * @author mike
  *
  * @param <I> The batched item type
@@ -60,6 +71,8 @@ public class Batch<I,R>
     
 {
   
+  private static final long HANDOFF_POLL_MS=100;
+  
   private Expression<?> source;
   
   private Channel<?> sourceChannel;
@@ -69,6 +82,11 @@ public class Batch<I,R>
   
   private boolean parallel;
   
+  private boolean streaming;
+  private int maxParallelism=Runtime.getRuntime().availableProcessors();
+  private int chunkSize=1;
+  private boolean retainResults;
+  
   private Scheduler scheduler;
 
   { this.addChainCommandAsResult=true;
@@ -101,6 +119,52 @@ public class Batch<I,R>
   { this.parallel=parallel;
   }
 
+  /**
+   * <p>Pull items from the source as they are processed, instead of 
+   *   creating a subtask for every item before the batch starts.
+   * </p>
+   * 
+   * @param streaming
+   */
+  public void setStreaming(boolean streaming)
+  { this.streaming=streaming;
+  }
+  
+  /**
+   * <p>The maximum number of chunks that will be processed concurrently
+   *   in parallel streaming mode. The source is not read further until a 
+   *   running chunk completes. Defaults to the number of processors.
+   * </p>
+   * 
+   * @param maxParallelism
+   */
+  public void setMaxParallelism(int maxParallelism)
+  { this.maxParallelism=maxParallelism;
+  }
+  
+  /**
+   * <p>The number of items processed sequentially by a single thread in
+   *   streaming mode. Defaults to 1.
+   * </p>
+   * 
+   * @param chunkSize
+   */
+  public void setChunkSize(int chunkSize)
+  { this.chunkSize=chunkSize;
+  }
+  
+  /**
+   * <p>Whether completed item Commands are added to the Batch result in
+   *   streaming mode. Defaults to false, in which case each completed Command
+   *   is only passed to postItemResult().
+   * </p>
+   * 
+   * @param retainResults
+   */
+  public void setRetainResults(boolean retainResults)
+  { this.retainResults=retainResults;
+  }
+
   
   /**
    * <p>Override to handle the result on completion
@@ -116,10 +180,27 @@ public class Batch<I,R>
     }
   }
   
+  /**
+   * <p>Override to handle the result of an individual item as it completes
+   *   in streaming mode. Called by one thread at a time.
+   * </p>
+   * 
+   * @param completedCommand
+   */
+  protected void postItemResult(TaskCommand<I,R> completedCommand)
+  {
+    if (debug)
+    { log.log(Level.TRACE,""+completedCommand);
+    }
+  }
+  
   @Override
-  protected MultiTask<SubTask> task()
+  protected Task task()
   {
-   
+    if (streaming)
+    { return new StreamTask();
+    }
+    
     final List<SubTask> taskList=taskList();
     if (parallel)
     { return new ParallelTask<SubTask>(taskList);
@@ -164,34 +245,41 @@ public class Batch<I,R>
         @Override
         protected void onTaskCompletion()
         {           
-          List<SubTask> subtasks=((MultiTask) task).getSubtasks();
-          if (debug)
-          { log.log(Level.TRACE,"Launching "+subtasks.size()+" subtasks");
+          List<Exception> exceptionList;
+          if (task instanceof Batch.StreamTask)
+          { exceptionList=((StreamTask) task).exceptionList;
           }
-          
-          List<Exception> exceptionList=new ArrayList<Exception>();
-          for (SubTask subtask: subtasks)
+          else
           { 
-            TaskCommand completedCommand
-              =subtask.getCompletedTaskCommand();
+            List<SubTask> subtasks=((MultiTask) task).getSubtasks();
+            if (debug)
+            { log.log(Level.TRACE,"Launching "+subtasks.size()+" subtasks");
+            }
+          
+            exceptionList=new ArrayList<Exception>();
+            for (SubTask subtask: subtasks)
+            { 
+              TaskCommand completedCommand
+                =subtask.getCompletedTaskCommand();
             
-            if (completedCommand!=null)
-            {
-              if (debug)
-              { log.log(Level.FINE,""+completedCommand.getResult());
-              }
+              if (completedCommand!=null)
+              {
+                if (debug)
+                { log.log(Level.FINE,""+completedCommand.getResult());
+                }
               
-              if (completedCommand.getException()!=null)
-              { 
-                exceptionList.add(completedCommand.getException());
-                log.log
-                  (Level.WARNING,"Command resulted in Exception: "
-                  +completedCommand.getException()
-                  ,completedCommand.getException()
-                  );
-              }
-            } 
+                if (completedCommand.getException()!=null)
+                { 
+                  exceptionList.add(completedCommand.getException());
+                  log.log
+                    (Level.WARNING,"Command resulted in Exception: "
+                    +completedCommand.getException()
+                    ,completedCommand.getException()
+                    );
+                }
+              } 
             
+            }
           }
           if (exceptionList.size()>0)
           { 
@@ -229,11 +317,259 @@ public class Batch<I,R>
     focusChain=focusChain.chain(item);
     
     super.bindChildren(focusChain);
-    if (parallel)
+    if (parallel && !streaming)
     { scheduler=new Scheduler();
     }
   }
  
+  /**
+   * <p>Reads items from the source as capacity becomes available and runs
+   *   them in chunks, either in the current thread or in up to 
+   *   maxParallelism worker threads. Each chunk is handed directly to an
+   *   idle worker, so the source is not read ahead of the workers.
+   * </p>
+   * 
+   * <p>Worker threads are started by the thread running the batch so that
+   *   they inherit its context.
+   * </p>
+   */
+  protected class StreamTask
+    extends AbstractTask
+  {
+    private final List<Exception> exceptionList=new ArrayList<Exception>();
+    private final List<I> end=new ArrayList<I>(0);
+    private int completed;
+    private volatile Throwable failure;
+    
+    @Override
+    protected void work()
+      throws InterruptedException
+    {
+      boolean concurrent=parallel && maxParallelism>1;
+      setOpsInUnit(1);
+      setCurrentUnitTitle("Streaming");
+      
+      SynchronousQueue<List<I>> queue=null;
+      List<Thread> workers=null;
+      if (concurrent)
+      { 
+        queue=new SynchronousQueue<List<I>>();
+        workers=new ArrayList<Thread>(maxParallelism);
+      }
+      
+      IterationCursor<I> cursor=decorator.iterator();
+      try
+      {
+        while (cursor.hasNext() && !isStopRequested() && failure==null)
+        {
+          ArrayList<I> chunk=new ArrayList<I>(Math.max(1,chunkSize));
+          while (chunk.size()<Math.max(1,chunkSize) && cursor.hasNext())
+          { 
+            cursor.next();
+            chunk.add(cursor.getValue());
+          }
+        
+          if (concurrent)
+          {
+            if (!queue.offer(chunk))
+            {
+              // All workers are busy
+              if (workers.size()<maxParallelism)
+              { workers.add(startWorker(queue));
+              }
+              handOff(queue,chunk);
+            }
+          }
+          else
+          { runChunk(chunk);
+          }
+        }
+      }
+      finally
+      {
+        if (concurrent)
+        { stopWorkers(queue,workers);
+        }
+      }
+      
+      Throwable failure=this.failure;
+      if (failure instanceof InterruptedException)
+      { throw (InterruptedException) failure;
+      }
+      else if (failure instanceof RuntimeException)
+      { throw (RuntimeException) failure;
+      }
+      else if (failure instanceof Error)
+      { throw (Error) failure;
+      }
+      else if (failure!=null)
+      { throw new RuntimeException("Batch worker failed",failure);
+      }
+    }
+    
+    /**
+     * Wait for a worker to take the chunk, giving up if a worker fails
+     */
+    private void handOff(SynchronousQueue<List<I>> queue,List<I> chunk)
+      throws InterruptedException
+    {
+      while (failure==null)
+      { 
+        if (queue.offer(chunk,HANDOFF_POLL_MS,TimeUnit.MILLISECONDS))
+        { return;
+        }
+      }
+    }
+    
+    /**
+     * <p>Ends each live worker, waiting for it to finish its current chunk.
+     * </p>
+     * 
+     * <p>If the batch thread is interrupted while waiting, the workers are
+     *   interrupted as well, and the interrupt is re-asserted once they
+     *   have exited.
+     * </p>
+     */
+    private void stopWorkers(SynchronousQueue<List<I>> queue,List<Thread> workers)
+    {
+      boolean interrupted=false;
+      
+      // Each live worker consumes exactly one end marker
+      int pending=workers.size();
+      while (pending>0 && !interrupted && anyAlive(workers))
+      {
+        try
+        { 
+          if (queue.offer(end,HANDOFF_POLL_MS,TimeUnit.MILLISECONDS))
+          { pending--;
+          }
+        }
+        catch (InterruptedException x)
+        { interrupted=true;
+        }
+      }
+      
+      if (interrupted)
+      { 
+        for (Thread worker: workers)
+        { worker.interrupt();
+        }
+      }
+      
+      for (Thread worker: workers)
+      {
+        while (worker.isAlive())
+        {
+          try
+          { worker.join();
+          }
+          catch (InterruptedException x)
+          { 
+            interrupted=true;
+            worker.interrupt();
+          }
+        }
+      }
+      
+      if (interrupted)
+      { Thread.currentThread().interrupt();
+      }
+    }
+    
+    private boolean anyAlive(List<Thread> workers)
+    {
+      for (Thread worker: workers)
+      { 
+        if (worker.isAlive())
+        { return true;
+        }
+      }
+      return false;
+    }
+    
+    private Thread startWorker(final BlockingQueue<List<I>> queue)
+    {
+      Thread thread
+        =new Thread(getDeclarationInfo()+" worker")
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            List<I> chunk;
+            while ((chunk=queue.take())!=end)
+            { runChunk(chunk);
+            }
+          }
+          catch (InterruptedException x)
+          { 
+            log.log(Level.WARNING,"Interrupted",x);
+            fail(x);
+          }
+          catch (Throwable x)
+          { 
+            log.log(Level.SEVERE,"Worker failed",x);
+            fail(x);
+          }
+        }
+      };
+      thread.start();
+      return thread;
+    }
+    
+    private synchronized void fail(Throwable x)
+    { 
+      if (failure==null)
+      { failure=x;
+      }
+    }
+    
+    private void runChunk(List<I> chunk)
+    {
+      for (I value: chunk)
+      {
+        SubTask subtask=new SubTask(value);
+        try
+        { subtask.run();
+        }
+        catch (RuntimeException x)
+        { 
+          synchronized (exceptionList)
+          { exceptionList.add(x);
+          }
+          log.log(Level.WARNING,"Item resulted in Exception: "+x,x);
+        }
+        itemCompleted(subtask.getCompletedTaskCommand());
+      }
+    }
+    
+    private void itemCompleted(TaskCommand<I,R> completedCommand)
+    {
+      synchronized (exceptionList)
+      {
+        setUnitsCompletedInTask(++completed);
+        if (completedCommand==null)
+        { return;
+        }
+        
+        if (completedCommand.getException()!=null)
+        { 
+          exceptionList.add(completedCommand.getException());
+          log.log
+            (Level.WARNING,"Command resulted in Exception: "
+            +completedCommand.getException()
+            ,completedCommand.getException()
+            );
+        }
+        postItemResult(completedCommand);
+        if (retainResults)
+        { addResult(completedCommand);
+        }
+      }
+    }
+  }
+  
   /** 
    * <p>Sets up a value (the batch item) in a ThreadLocal context and executes
    *   the configured command within that context
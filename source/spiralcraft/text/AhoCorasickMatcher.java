@@ -0,0 +1,237 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * <p>Implements the Aho-Corasick algorithm to find occurrences of any
+ *   of a set of terms in a single pass over a string of characters.
+ * </p>
+ * 
+ * <p>The terms are compiled into a deterministic automaton when the
+ *   matcher is constructed. The matcher itself is immutable and may be
+ *   shared between threads- the caller holds the current state, which
+ *   is advanced one character at a time via step(), and the terms
+ *   that end at a given state are returned by getMatches().
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class AhoCorasickMatcher
+{
+  private static final int[] NO_MATCHES=new int[0];
+  
+  private final int termCount;
+  private final boolean ignoreCase;
+  private final char[] alphabet;
+  private final int[] asciiColumns=new int[128];
+  private final int[] transitions;
+  private final int[][] matches;
+  
+  /**
+   * Construct a new AhoCorasickMatcher which matches the specified terms.
+   *   Empty terms never match.
+   *   
+   * @param terms The terms to match
+   * @param ignoreCase Whether to compare characters in lower case form
+   */
+  public AhoCorasickMatcher(CharSequence[] terms,boolean ignoreCase)
+  {
+    this.termCount=terms.length;
+    this.ignoreCase=ignoreCase;
+    
+    // Build the trie
+    ArrayList<HashMap<Character,Integer>> trie
+      =new ArrayList<HashMap<Character,Integer>>();
+    ArrayList<ArrayList<Integer>> outputs=new ArrayList<ArrayList<Integer>>();
+    trie.add(new HashMap<Character,Integer>());
+    outputs.add(null);
+    TreeSet<Character> chars=new TreeSet<Character>();
+    
+    for (int i=0;i<terms.length;i++)
+    {
+      CharSequence term=terms[i];
+      if (term==null || term.length()==0)
+      { continue;
+      }
+      
+      int state=0;
+      for (int j=0;j<term.length();j++)
+      { 
+        char c=fold(term.charAt(j));
+        chars.add(c);
+        Integer next=trie.get(state).get(c);
+        if (next==null)
+        { 
+          next=trie.size();
+          trie.add(new HashMap<Character,Integer>());
+          outputs.add(null);
+          trie.get(state).put(c,next);
+        }
+        state=next;
+      }
+      if (outputs.get(state)==null)
+      { outputs.set(state,new ArrayList<Integer>());
+      }
+      outputs.get(state).add(i);
+    }
+    
+    alphabet=new char[chars.size()];
+    Arrays.fill(asciiColumns,-1);
+    int col=0;
+    for (char c:chars)
+    { 
+      if (c<asciiColumns.length)
+      { asciiColumns[c]=col;
+      }
+      alphabet[col++]=c;
+    }
+    
+    // Compute failure links breadth first and fill in the transition
+    //   table so that every state has a transition for every character
+    int stateCount=trie.size();
+    int width=alphabet.length;
+    transitions=new int[stateCount*width];
+    matches=new int[stateCount][];
+    int[] fail=new int[stateCount];
+    int[] queue=new int[stateCount];
+    int head=0;
+    int tail=0;
+    
+    matches[0]=NO_MATCHES;
+    for (int a=0;a<width;a++)
+    {
+      Integer child=trie.get(0).get(alphabet[a]);
+      if (child!=null)
+      { 
+        transitions[a]=child;
+        fail[child]=0;
+        queue[tail++]=child;
+      }
+    }
+    
+    while (head<tail)
+    {
+      int state=queue[head++];
+      matches[state]=mergeMatches(outputs.get(state),matches[fail[state]]);
+      for (int a=0;a<width;a++)
+      {
+        Integer child=trie.get(state).get(alphabet[a]);
+        int fallback=transitions[fail[state]*width+a];
+        if (child!=null)
+        {
+          transitions[state*width+a]=child;
+          fail[child]=fallback;
+          queue[tail++]=child;
+        }
+        else
+        { transitions[state*width+a]=fallback;
+        }
+      }
+    }
+  }
+  
+  /**
+   * @return The number of terms this matcher was constructed with
+   */
+  public int getTermCount()
+  { return termCount;
+  }
+  
+  /**
+   * @return The state which precedes any input
+   */
+  public int getInitialState()
+  { return 0;
+  }
+  
+  /**
+   * Advance the automaton by one character of input
+   * 
+   * @return The new state
+   */
+  public final int step(int state,char c)
+  { 
+    if (ignoreCase)
+    { c=Character.toLowerCase(c);
+    }
+    
+    int col;
+    if (c<asciiColumns.length)
+    { col=asciiColumns[c];
+    }
+    else
+    { 
+      col=Arrays.binarySearch(alphabet,c);
+      if (col<0)
+      { col=-1;
+      }
+    }
+    
+    if (col<0)
+    { return 0;
+    }
+    return transitions[state*alphabet.length+col];
+  }
+  
+  /**
+   * @return The indexes of the terms which end at the specified state. The
+   *   returned array is shared and must not be modified.
+   */
+  public final int[] getMatches(int state)
+  { return matches[state];
+  }
+  
+  /**
+   * @return Whether the text contains any of the terms
+   */
+  public boolean find(CharSequence text)
+  {
+    int state=0;
+    int len=text.length();
+    for (int i=0;i<len;i++)
+    { 
+      state=step(state,text.charAt(i));
+      if (matches[state].length>0)
+      { return true;
+      }
+    }
+    return false;
+  }
+  
+  private char fold(char c)
+  { return ignoreCase?Character.toLowerCase(c):c;
+  }
+  
+  private static int[] mergeMatches(ArrayList<Integer> own,int[] inherited)
+  {
+    if (own==null)
+    { return inherited;
+    }
+    
+    int[] ret=new int[own.size()+inherited.length];
+    int i=0;
+    for (int term:own)
+    { ret[i++]=term;
+    }
+    System.arraycopy(inherited,0,ret,i,inherited.length);
+    return ret;
+  }
+}
@@ -4,54 +4,85 @@ package spiralcraft.text;
  * Computes a relevance score for a specified set of terms against 
  *   one or more input text fragments.
  * 
+ * <p>The terms are compiled once into a case-insensitive
+ *   AhoCorasickMatcher, so scoring makes a single pass over the text 
+ *   regardless of the number of terms.
+ * </p>
+ * 
  * @author mike
  *
  */
 public class RelevanceCalculator
 {
-//  private final String[] terms;
-  private final KmpMatcher[] masterTermMatchers;
+  private final AhoCorasickMatcher matcher;
   
   public RelevanceCalculator(String[] terms)
-  {
-//    this.terms=terms;
-    masterTermMatchers=new KmpMatcher[terms.length];
-    for (int i=0;i<masterTermMatchers.length;i++)
-    { masterTermMatchers[i]=new KmpMatcher(terms[i].toLowerCase());
-    }
-    
+  { this(new AhoCorasickMatcher(terms,true));
   }
 
+  /**
+   * Construct a RelevanceCalculator which shares an already compiled
+   *   matcher
+   */
+  public RelevanceCalculator(AhoCorasickMatcher matcher)
+  { this.matcher=matcher;
+  }
+  
+  public AhoCorasickMatcher getMatcher()
+  { return matcher;
+  }
+  
+  /**
+   * <p>Each term found in the text contributes a fixed weight plus the
+   *   number of times it occurs.
+   * </p>
+   * 
+   * <p>Scoring does not allocate unless more than 64 terms are configured.
+   * </p>
+   */
   public int score(CharSequence text)
   {
     if (text==null)
     { return 0;
     }
     
-    KmpMatcher[] termMatchers=new KmpMatcher[masterTermMatchers.length];
-    for (int i=0;i<termMatchers.length;i++)
-    { termMatchers[i]=new KmpMatcher(masterTermMatchers[i]);
-    }
-    int[] termMatchCounts=new int[termMatchers.length];
-    for (int i=0;i<text.length();i++)
+    int termCount=matcher.getTermCount();
+    long found=0;
+    long[] foundOverflow=termCount>64?new long[(termCount+63)/64]:null;
+    int distinctCount=0;
+    int matchCount=0;
+    
+    int state=matcher.getInitialState();
+    int len=text.length();
+    for (int i=0;i<len;i++)
     {
-      char c=Character.toLowerCase(text.charAt(i));
-      for (int j=0;j<termMatchers.length;j++)
-      { 
-        if (termMatchers[j].match(c))
-        { termMatchCounts[j]++;
+      state=matcher.step(state,text.charAt(i));
+      int[] matches=matcher.getMatches(state);
+      for (int j=0;j<matches.length;j++)
+      {
+        int term=matches[j];
+        matchCount++;
+        if (foundOverflow==null)
+        {
+          long bit=1L<<term;
+          if ((found & bit)==0)
+          { 
+            found|=bit;
+            distinctCount++;
+          }
+        }
+        else
+        {
+          long bit=1L<<(term & 63);
+          if ((foundOverflow[term>>>6] & bit)==0)
+          { 
+            foundOverflow[term>>>6]|=bit;
+            distinctCount++;
+          }
         }
       }
     }
-    int score=0;
-    for (int i=0;i<termMatchCounts.length;i++)
-    { 
-      if (termMatchCounts[i]>0)
-      { score+=((8*256)+termMatchCounts[i]);
-      }
-    }
-    return score;
-    
+    return distinctCount*(8*256)+matchCount;
   }
   
-}
\ No newline at end of file
+}
@@ -20,12 +20,24 @@ import spiralcraft.common.DisposableContext;
 
 // import spiralcraft.log.ClassLog;
 
+import java.util.IdentityHashMap;
+
 import spiralcraft.pool.ThreadPool;
 import spiralcraft.util.thread.ThreadLocalStack;
 
 /**
- * Schedules Runnable items to be executed at
+ * <p>Schedules Runnable items to be executed at
  *   specific points in time.
+ * </p>
+ * 
+ * <p>Pending items are kept in a hierarchical timing wheel with a 
+ *   resolution of 1ms, so scheduling and cancelling an item take constant
+ *   time regardless of how many items are pending. Each level of the wheel
+ *   has 64 slots, and each slot of a level spans the entire range of the
+ *   level below it. As time advances, items in higher level slots are
+ *   redistributed to lower levels until they are due. Items due beyond the
+ *   range of the wheel (about 2 years) are held in an overflow list.
+ * </p>
  */
 public class Scheduler
 {
@@ -56,7 +68,34 @@ public class Scheduler
   { return stack.get();
   }
     
-  private ScheduledItem _nextItem;
+  private static final int SLOT_BITS=6;
+  private static final int SLOTS=1<<SLOT_BITS;
+  private static final int SLOT_MASK=SLOTS-1;
+  private static final int LEVELS=6;
+  private static final int SPAN_BITS=SLOT_BITS*LEVELS;
+  
+  private static final int READY=-1;
+  private static final int OVERFLOW=-2;
+  private static final int DETACHED=-3;
+  
+  private final Bucket[][] _wheel=new Bucket[LEVELS][SLOTS];
+  { 
+    for (Bucket[] level:_wheel)
+    { 
+      for (int i=0;i<SLOTS;i++)
+      { level[i]=new Bucket();
+      }
+    }
+  }
+  private final long[] _occupied=new long[LEVELS];
+  private final Bucket _ready=new Bucket();
+  private final Bucket _overflow=new Bucket();
+  private final IdentityHashMap<Runnable,ScheduledItem> _byRunnable
+    =new IdentityHashMap<Runnable,ScheduledItem>();
+  private long _wheelTime=Clock.instance().approxTimeMillis();
+  private long _wakeTime=Long.MIN_VALUE;
+  private int _pendingCount;
+  
   private final Object _sync=new Object();
   private int id=NEXT_ID++;
   private final Dispatcher dispatcher=new Dispatcher();
@@ -116,77 +155,81 @@ public class Scheduler
     
   }
   
-  public void scheduleIn(Runnable runnable,long msFromNow)
-  { scheduleAt(runnable,Clock.instance().approxTimeMillis()+msFromNow);
+  public ScheduledItem scheduleIn(Runnable runnable,long msFromNow)
+  { return scheduleAt(runnable,Clock.instance().approxTimeMillis()+msFromNow);
   }
 
-  public void scheduleNow(Runnable runnable)
-  { scheduleIn(runnable,0);
+  public ScheduledItem scheduleNow(Runnable runnable)
+  { return scheduleIn(runnable,0);
   }
 
-  public void scheduleAt(Runnable runnable,long duetime)
+  /**
+   * Schedule the Runnable to be run at the specified time
+   * 
+   * @return A handle which can be used to cancel this specific execution
+   */
+  public ScheduledItem scheduleAt(Runnable runnable,long duetime)
   {
     synchronized (_sync)
     {
-
       ScheduledItem thisItem=new ScheduledItem(runnable,duetime);
-
-      if (_nextItem==null || duetime<_nextItem.duetime)
+      ScheduledItem same=_byRunnable.put(runnable,thisItem);
+      if (same!=null)
       { 
-        // Insert earlier due task at the head of the queue.
-        // Notify dispatcher.
-        thisItem.nextItem=_nextItem;
-        _nextItem=thisItem;
-        _sync.notify();
+        thisItem.nextSame=same;
+        same.prevSame=thisItem;
       }
-      else
-      {
-        ScheduledItem next=_nextItem;
-        while (next!=null)
-        {
-          if (next.nextItem==null || duetime<next.nextItem.duetime)
-          { 
-            // Insert at this point.
-            thisItem.nextItem=next.nextItem;
-            next.nextItem=thisItem;
-            next=null;
-          }
-          else
-          { next=next.nextItem;
-          }
-        }
+      
+      insert(thisItem);
+      _pendingCount++;
+      if (duetime<_wakeTime || thisItem.level==READY)
+      { 
+        // Dispatcher is waiting for something later.
+        _sync.notify();
       }
+      return thisItem;
     }
   }
 
+  /**
+   * Cancel the earliest pending execution of the specified Runnable
+   * 
+   * @return true if a pending execution was cancelled
+   */
   public boolean cancel(Runnable runnable)
   {
     synchronized (_sync)
     {
-      ScheduledItem last=null;
-      ScheduledItem next=_nextItem;
-      while (next!=null)
-      { 
-        if (next.runnable==runnable)
-        { 
-          if (last!=null)
-          { last.nextItem=next.nextItem;
-          }
-          else
-          { _nextItem=next.nextItem;
-          }
-          return true;
-        }
-        else
-        { 
-          last=next;
-          next=next.nextItem;
+      ScheduledItem earliest=null;
+      for (ScheduledItem item=_byRunnable.get(runnable)
+          ;item!=null
+          ;item=item.nextSame
+          )
+      {
+        if (earliest==null || item.duetime<earliest.duetime)
+        { earliest=item;
         }
       }
+      
+      if (earliest!=null)
+      { 
+        release(earliest);
+        return true;
+      }
       return false;
     }
   }
 
+  /**
+   * @return The number of items waiting to be dispatched
+   */
+  public int getPendingCount()
+  { 
+    synchronized (_sync)
+    { return _pendingCount;
+    }
+  }
+  
   protected void runNext()
     throws InterruptedException
   {
@@ -203,25 +246,33 @@ public class Scheduler
         _started=true;
       }
 
-      long time=0;
-      while (_nextItem==null 
-             || _nextItem.duetime> (time=Clock.instance().approxTimeMillis()) 
-             )
-      { 
+      while (true)
+      {
         if (shutdown)
         { return;
         }
-        if (_nextItem==null)
-        { _sync.wait();
+        
+        long time=Clock.instance().approxTimeMillis();
+        advance(time);
+        if (_ready.head!=null)
+        { break;
         }
-        else
-        { _sync.wait(_nextItem.duetime-time);
+        
+        long wake=nextWakeTime();
+        if (wake==Long.MAX_VALUE)
+        { 
+          _wakeTime=wake;
+          _sync.wait();
         }
+        else if (wake>time)
+        { 
+          _wakeTime=wake;
+          _sync.wait(wake-time);
+        }
+        _wakeTime=Long.MIN_VALUE;
       }
-      next=_nextItem;
-      if (_nextItem!=null)
-      { _nextItem=_nextItem.nextItem;
-      }
+      next=_ready.head;
+      release(next);
     }
 
     if (next!=null && !shutdown)
@@ -246,6 +297,161 @@ public class Scheduler
     }
   }
 
+  /**
+   * Place an item in the ready list, the wheel, or the overflow list
+   *   according to its duetime relative to the wheel time.
+   */
+  private void insert(ScheduledItem item)
+  {
+    if (item.duetime<=_wheelTime)
+    { _ready.add(item,READY,0);
+    }
+    else
+    {
+      // The highest bit that differs from the wheel time determines the
+      //   level. All items at a level are due after the current slot of
+      //   that level.
+      int level
+        =(63-Long.numberOfLeadingZeros(item.duetime ^ _wheelTime))/SLOT_BITS;
+      if (level>=LEVELS)
+      { _overflow.add(item,OVERFLOW,0);
+      }
+      else
+      {
+        int slot=(int) ((item.duetime>>>(level*SLOT_BITS)) & SLOT_MASK);
+        _wheel[level][slot].add(item,level,slot);
+        _occupied[level]|=1L<<slot;
+      }
+    }
+  }
+  
+  /**
+   * Remove an item from its list and from the Runnable index
+   */
+  private void release(ScheduledItem item)
+  {
+    unlink(item);
+    if (item.prevSame!=null)
+    { item.prevSame.nextSame=item.nextSame;
+    }
+    else if (item.nextSame!=null)
+    { _byRunnable.put(item.runnable,item.nextSame);
+    }
+    else
+    { _byRunnable.remove(item.runnable);
+    }
+    if (item.nextSame!=null)
+    { item.nextSame.prevSame=item.prevSame;
+    }
+    item.prevSame=null;
+    item.nextSame=null;
+    _pendingCount--;
+  }
+  
+  private void unlink(ScheduledItem item)
+  {
+    switch (item.level)
+    {
+      case READY:
+        _ready.remove(item);
+        break;
+      case OVERFLOW:
+        _overflow.remove(item);
+        break;
+      case DETACHED:
+        break;
+      default:
+        Bucket bucket=_wheel[item.level][item.slot];
+        bucket.remove(item);
+        if (bucket.head==null)
+        { _occupied[item.level]&=~(1L<<item.slot);
+        }
+    }
+    item.level=DETACHED;
+  }
+  
+  /**
+   * Advance the wheel to the specified time, moving items that have become
+   *   due to the ready list and redistributing the items in higher level
+   *   slots whose time span has begun.
+   */
+  private void advance(long time)
+  {
+    long previous=_wheelTime;
+    if (time<=previous)
+    { return;
+    }
+    _wheelTime=time;
+    
+    for (int level=0;level<LEVELS;level++)
+    {
+      int shift=level*SLOT_BITS;
+      long delta=(time>>>shift)-(previous>>>shift);
+      if (delta<=0)
+      { break;
+      }
+      
+      int start=(int) ((previous>>>shift) & SLOT_MASK);
+      int count=(int) Math.min(delta,SLOT_MASK);
+      for (int i=0;i<=count;i++)
+      { 
+        int slot=(start+i) & SLOT_MASK;
+        if ((_occupied[level] & (1L<<slot))!=0)
+        { 
+          _occupied[level]&=~(1L<<slot);
+          redistribute(_wheel[level][slot].detach());
+        }
+      }
+    }
+    
+    if ((time>>>SPAN_BITS)!=(previous>>>SPAN_BITS) && _overflow.head!=null)
+    { redistribute(_overflow.detach());
+    }
+  }
+  
+  private void redistribute(ScheduledItem item)
+  {
+    while (item!=null)
+    {
+      ScheduledItem next=item.next;
+      item.next=null;
+      item.prev=null;
+      insert(item);
+      item=next;
+    }
+  }
+  
+  /**
+   * @return The time at which the earliest occupied slot begins, which is
+   *   the exact duetime of the earliest item if it is in the first level
+   */
+  private long nextWakeTime()
+  {
+    if (_ready.head!=null)
+    { return _wheelTime;
+    }
+    
+    for (int level=0;level<LEVELS;level++)
+    {
+      long occupied=_occupied[level];
+      if (occupied!=0)
+      {
+        int shift=level*SLOT_BITS;
+        int current=(int) ((_wheelTime>>>shift) & SLOT_MASK);
+        int slot=Long.numberOfTrailingZeros(occupied & (-1L<<current));
+        if (slot==64)
+        { slot=Long.numberOfTrailingZeros(occupied)+SLOTS;
+        }
+        long base=(_wheelTime>>>(shift+SLOT_BITS))<<(shift+SLOT_BITS);
+        return base+((long) slot<<shift);
+      }
+    }
+    
+    if (_overflow.head!=null)
+    { return ((_wheelTime>>>SPAN_BITS)+1)<<SPAN_BITS;
+    }
+    return Long.MAX_VALUE;
+  }
   
   class Dispatcher
     implements Runnable
@@ -275,19 +481,115 @@ public class Scheduler
     }
   }
 
-  private class ScheduledItem
+  /**
+   * A pending execution of a Runnable, which can be cancelled
+   */
+  public class ScheduledItem
   {
-    public final long duetime;
-    public final Runnable runnable;
-    public ScheduledItem nextItem;
+    private final long duetime;
+    private final Runnable runnable;
+    
+    private ScheduledItem prev;
+    private ScheduledItem next;
+    private int level=DETACHED;
+    private int slot;
+    
+    private ScheduledItem prevSame;
+    private ScheduledItem nextSame;
 
-    public ScheduledItem(Runnable runnable,long duetime)
+    ScheduledItem(Runnable runnable,long duetime)
     { 
       this.duetime=duetime;
       this.runnable=runnable;
     }
+    
+    public long getDuetime()
+    { return duetime;
+    }
+    
+    public Runnable getRunnable()
+    { return runnable;
+    }
+    
+    /**
+     * @return Whether this item is still waiting to be dispatched
+     */
+    public boolean isPending()
+    { 
+      synchronized (_sync)
+      { return level!=DETACHED;
+      }
+    }
 
+    /**
+     * Cancel this execution if it is still pending
+     * 
+     * @return true if the execution was cancelled
+     */
+    public boolean cancel()
+    {
+      synchronized (_sync)
+      {
+        if (level==DETACHED)
+        { return false;
+        }
+        release(this);
+        return true;
+      }
+    }
   }
 
+  /**
+   * A FIFO list of ScheduledItems
+   */
+  private static class Bucket
+  {
+    ScheduledItem head;
+    ScheduledItem tail;
+    
+    void add(ScheduledItem item,int level,int slot)
+    {
+      item.level=level;
+      item.slot=slot;
+      item.prev=tail;
+      item.next=null;
+      if (tail!=null)
+      { tail.next=item;
+      }
+      else
+      { head=item;
+      }
+      tail=item;
+    }
+    
+    void remove(ScheduledItem item)
+    {
+      if (item.prev!=null)
+      { item.prev.next=item.next;
+      }
+      else
+      { head=item.next;
+      }
+      if (item.next!=null)
+      { item.next.prev=item.prev;
+      }
+      else
+      { tail=item.prev;
+      }
+      item.prev=null;
+      item.next=null;
+    }
+    
+    /**
+     * Remove and return the chain of items
+     */
+    ScheduledItem detach()
+    {
+      ScheduledItem ret=head;
+      head=null;
+      tail=null;
+      return ret;
+    }
+  }
   
 }
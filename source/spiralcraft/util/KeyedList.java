@@ -16,7 +16,9 @@ package spiralcraft.util;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
@@ -162,6 +164,21 @@ public class KeyedList<T>
     { return _map.keySet();
     }
     
+    /**
+     * @return A read-only, key ordered view of this Index if it was created
+     *   with a NavigableMap implementation, otherwise null
+     */
+    @SuppressWarnings("unchecked")
+    public NavigableMap<Tkey,List<Tdata>> navigableMap()
+    { 
+      if (_map.map instanceof NavigableMap)
+      { 
+        return Collections.unmodifiableNavigableMap
+          ((NavigableMap<Tkey,List<Tdata>>) _map.map);
+      }
+      return null;
+    }
+    
     public boolean containsKey(Tkey key)
     { 
       List<Tdata> list=get(key);
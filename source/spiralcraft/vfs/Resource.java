@@ -21,6 +21,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import spiralcraft.util.Path;
 
@@ -99,6 +103,65 @@ public interface Resource
    */
   boolean supportsWrite();
 
+  /**
+   * <p>Read the resource data through a channel.
+   * </p>
+   * 
+   * <p>Resources backed by a filesystem return a FileChannel, which allows
+   *   copy operations to transfer data without passing it through the heap.
+   *   Other resources adapt the InputStream.
+   * </p>
+   *
+   *@return A ReadableByteChannel, or null if the resource can't be read.
+   *@throws IOException if there was an unexpected problem reading.
+   */
+  ReadableByteChannel getReadableChannel()
+    throws IOException;
+  
+  /**
+   * <p>Write to the resource through a channel. Closing the channel
+   *   commits the data written.
+   * </p>
+   *
+   *@return A WritableByteChannel, or null if the resource can't be written to.
+   *@throws IOException if there was an unexpected problem opening a channel
+   *        for writing.
+   */
+  WritableByteChannel getWritableChannel()
+    throws IOException;
+  
+  /**
+   * <p>Open a channel that supports random access to the resource data.
+   * </p>
+   * 
+   * <p>Resources that cannot be natively accessed at random may support 
+   *   read access only, by buffering the content in memory.
+   * </p>
+   * 
+   * @param write Whether the channel should permit writes.
+   * @return A SeekableByteChannel
+   * @throws IOException if random access is not supported in the requested
+   *   mode, or there was an unexpected problem opening the channel
+   */
+  SeekableByteChannel getSeekableChannel(boolean write)
+    throws IOException;
+  
+  /**
+   * <p>Provide read-only access to the entire content of the resource as a
+   *   ByteBuffer.
+   * </p>
+   * 
+   * <p>Resources backed by a filesystem map the file into memory. Other 
+   *   resources read the content into a heap buffer.
+   * </p>
+   * 
+   * @return A read-only ByteBuffer positioned at the start of the content
+   * @throws IOException if the resource cannot be read or is too large to
+   *   map into a single buffer
+   */
+  ByteBuffer map()
+    throws IOException;
+
   /**
    * <p>Return the children of this resource, if any. A Resource may only
    *   be a child of a single parent, thus defining a Resource tree.
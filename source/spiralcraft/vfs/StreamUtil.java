@@ -18,6 +18,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 
 /**
@@ -97,6 +101,53 @@ public class StreamUtil
     return count;
   }
   
+  /**
+   * <p>Copy the remaining content of a ReadableByteChannel to a 
+   *   WritableByteChannel.
+   * </p>
+   * 
+   * <p>When the source is a FileChannel, the transfer is delegated to
+   *   FileChannel.transferTo(), which lets the operating system move the
+   *   data directly when the target is also a file or a socket. Otherwise the
+   *   data is copied through a heap buffer, which JDK channels move through
+   *   their own cached direct buffers.
+   * </p>
+   * 
+   * @return The number of bytes copied
+   */
+  public static long transfer(ReadableByteChannel in,WritableByteChannel out)
+    throws IOException
+  {
+    long count=0;
+    if (in instanceof FileChannel)
+    {
+      FileChannel file=(FileChannel) in;
+      long position=file.position();
+      long size=file.size();
+      while (position<size)
+      { 
+        long transferred=file.transferTo(position,size-position,out);
+        if (transferred<=0)
+        { break;
+        }
+        position+=transferred;
+        count+=transferred;
+      }
+      file.position(position);
+    }
+    else
+    {
+      ByteBuffer buffer=ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+      while (in.read(buffer)>=0 || buffer.position()>0)
+      { 
+        buffer.flip();
+        count+=out.write(buffer);
+        buffer.compact();
+      }
+    }
+    return count;
+  }
+  
   public static byte[] readBytes(InputStream in)
     throws IOException
   {
@@ -27,6 +27,7 @@ import spiralcraft.vfs.Resource;
 import spiralcraft.vfs.ResourceFilter;
 import spiralcraft.vfs.UnresolvableURIException;
 import spiralcraft.vfs.filters.ContentRegexFilter;
+import spiralcraft.vfs.filters.ContentTermFilter;
 import spiralcraft.vfs.filters.ListFilter;
 
 
@@ -88,16 +89,22 @@ public class Search
            )
         { return true;
         }
-        else if (option=="-name")
+        else if (option=="name")
         { setPattern(new PathPattern(nextArgument()));
         }
-        else if (option=="-contains")
+        else if (option=="contains")
         { setContains(nextArgument());
         }
-        else if (option=="-prepend")
+        else if (option=="containsAny")
+        { setContainsTerms(nextArgument().split(","),false);
+        }
+        else if (option=="containsAll")
+        { setContainsTerms(nextArgument().split(","),true);
+        }
+        else if (option=="prepend")
         { addOperation(new PrependOperation());
         }
-        else if (option=="-print")
+        else if (option=="print")
         { addOperation(new PrintOperation());
         }
         else
@@ -277,6 +284,14 @@ public class Search
   { _contentFilter=new ContentRegexFilter(contains);
   }
   
+  /**
+   * Search for resources that contain any (or all) of the specified literal
+   *   terms, which are matched in a single pass over the content.
+   */
+  public void setContainsTerms(String[] terms,boolean matchAll)
+  { _contentFilter=new ContentTermFilter(terms,false,matchAll);
+  }
+  
   public void addOperation(Operation op)
   { 
     if (_currentOperation!=null)
@@ -270,6 +270,57 @@ public class ClasspathResource
   { return null;
   }
   
+  /**
+   * The modification time of the file or archive entry that supplies this
+   *   resource, or 0 if the resource does not exist
+   */
+  @Override
+  public long getLastModified()
+    throws IOException
+  { 
+    URL url=getURL();
+    if (url==null)
+    { return 0;
+    }
+    URLConnection connection=url.openConnection();
+    try
+    { return connection.getLastModified();
+    }
+    finally
+    { closeConnection(connection);
+    }
+  }
+  
+  /**
+   * The length of the file or archive entry that supplies this resource,
+   *   or 0 if the resource does not exist
+   */
+  @Override
+  public long getSize()
+    throws IOException
+  { 
+    URL url=getURL();
+    if (url==null)
+    { return 0;
+    }
+    URLConnection connection=url.openConnection();
+    try
+    { return Math.max(connection.getContentLengthLong(),0);
+    }
+    finally
+    { closeConnection(connection);
+    }
+  }
+  
+  private void closeConnection(URLConnection connection)
+    throws IOException
+  {
+    // A file: connection opens a stream to read its headers
+    if (connection.getURL().getProtocol().equals("file"))
+    { connection.getInputStream().close();
+    }
+  }
+  
   @Override
   public URL getURL()
   { return _classLoader.get().getResource(_path);
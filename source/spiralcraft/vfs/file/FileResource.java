@@ -31,6 +31,12 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 public class FileResource
   extends AbstractResource
@@ -123,6 +129,78 @@ public class FileResource
   { return true;
   }
 
+  @Override
+  public ReadableByteChannel getReadableChannel()
+    throws IOException
+  { 
+    if (_file.isDirectory())
+    { 
+      throw new NotStreamableException
+        (getURI(),"Directory is not streamable");
+    }
+    return FileChannel.open(_file.toPath(),StandardOpenOption.READ);
+  }
+  
+  @Override
+  public WritableByteChannel getWritableChannel()
+    throws IOException
+  {
+    if (_file.isDirectory())
+    { return null;
+    }
+    return FileChannel.open
+      (_file.toPath()
+      ,StandardOpenOption.WRITE
+      ,StandardOpenOption.CREATE
+      ,StandardOpenOption.TRUNCATE_EXISTING
+      );
+  }
+  
+  @Override
+  public SeekableByteChannel getSeekableChannel(boolean write)
+    throws IOException
+  {
+    if (_file.isDirectory())
+    { 
+      throw new NotStreamableException
+        (getURI(),"Directory is not streamable");
+    }
+    if (write)
+    { 
+      return FileChannel.open
+        (_file.toPath()
+        ,StandardOpenOption.READ
+        ,StandardOpenOption.WRITE
+        ,StandardOpenOption.CREATE
+        );
+    }
+    else
+    { return FileChannel.open(_file.toPath(),StandardOpenOption.READ);
+    }
+  }
+  
+  /**
+   * Maps the file into memory. The mapping remains valid after this method
+   *   returns, and is released when the buffer is garbage collected.
+   */
+  @Override
+  public ByteBuffer map()
+    throws IOException
+  {
+    try (FileChannel channel
+          =(FileChannel) getSeekableChannel(false)
+        )
+    {
+      long size=channel.size();
+      if (size>Integer.MAX_VALUE)
+      { 
+        throw new IOException
+          ("File "+_file.getPath()+" is too large to map ("+size+" bytes)");
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY,0,size);
+    }
+  }
+  
   @Override
   public Container asContainer()
   { 
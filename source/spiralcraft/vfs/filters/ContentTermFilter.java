@@ -0,0 +1,144 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.filters;
+
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+import spiralcraft.text.AhoCorasickMatcher;
+import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.ResourceFilter;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import java.util.BitSet;
+
+/**
+ * <p>A ResourceFilter which accepts resources with content which contains
+ *   any (or all) of a set of literal terms.
+ * </p>
+ * 
+ * <p>The content is streamed once through an AhoCorasickMatcher, and
+ *   reading stops as soon as the outcome is known.
+ * </p>
+ * 
+ * <p>Content is decoded as ISO-8859-1 unless another Charset is specified.
+ *   This decodes any input without error, one char per byte, so it finds
+ *   ASCII and Latin-1 terms in any ASCII compatible encoding. Terms with
+ *   other characters only match when the content's Charset is specified.
+ * </p>
+ */
+public class ContentTermFilter
+  implements ResourceFilter
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(ContentTermFilter.class);
+  
+  private final AhoCorasickMatcher matcher;
+  private final boolean matchAll;
+  private final Charset charset;
+
+  public ContentTermFilter(String[] terms,boolean ignoreCase,boolean matchAll)
+  { this(new AhoCorasickMatcher(terms,ignoreCase),matchAll);
+  }
+  
+  /**
+   * Construct a ContentTermFilter which shares an already compiled matcher
+   */
+  public ContentTermFilter(AhoCorasickMatcher matcher,boolean matchAll)
+  { this(matcher,matchAll,StandardCharsets.ISO_8859_1);
+  }
+  
+  /**
+   * Construct a ContentTermFilter which decodes content with the specified
+   *   Charset
+   */
+  public ContentTermFilter
+    (AhoCorasickMatcher matcher,boolean matchAll,Charset charset)
+  { 
+    this.matcher=matcher;
+    this.matchAll=matchAll;
+    this.charset=charset;
+  }
+
+  @Override
+  public boolean accept(Resource resource)
+  {
+    if (resource.asContainer()!=null)
+    { return false;
+    }
+    
+    InputStream in=null;
+    try
+    {
+      in=resource.getInputStream();
+      if (in==null)
+      { return false;
+      }
+      
+      Reader reader=new InputStreamReader(in,charset);
+      BitSet found=matchAll?new BitSet(matcher.getTermCount()):null;
+      int remaining=matcher.getTermCount();
+      char[] buffer=new char[8192];
+      int state=matcher.getInitialState();
+      int count;
+      while ((count=reader.read(buffer))>=0)
+      {
+        for (int i=0;i<count;i++)
+        {
+          state=matcher.step(state,buffer[i]);
+          int[] matches=matcher.getMatches(state);
+          if (matches.length>0)
+          {
+            if (!matchAll)
+            { return true;
+            }
+            for (int term:matches)
+            { 
+              if (!found.get(term))
+              {
+                found.set(term);
+                if (--remaining==0)
+                { return true;
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+    catch (IOException x)
+    { log.log(Level.WARNING,"Error reading "+resource.getURI(),x);
+    }
+    finally
+    {
+      if (in!=null)
+      { 
+        try
+        { in.close();
+        }
+        catch (IOException x)
+        { }
+      }
+    }
+    return false;
+  }
+
+}
@@ -1,23 +1,50 @@
 package spiralcraft.vfs.jar;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 import spiralcraft.io.InputStreamWrapper;
 import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
 import spiralcraft.time.Clock;
+import spiralcraft.time.Scheduler;
 import spiralcraft.util.string.StringPool;
 
 /**
- * Caches information about jar files for sharing by multiple JarFileResource.
+ * <p>Caches information about jar files for sharing by multiple 
+ *   JarFileResource.
+ * </p>
  * 
+ * <p>The directory of the jar is read once into an immutable index, which is
+ *   rebuilt only when the jar file's modification time or size changes. The
+ *   index maps entry names to entries and directory paths to their immediate
+ *   children, so lookups and directory listings do not enumerate the jar.
+ * </p>
+ * 
+ * <p>A single JarFile is shared by all readers and closed after it has been
+ *   idle for the number of milliseconds given by the 
+ *   spiralcraft.vfs.jar.JarCache.idleCloseMs system property (default 30000).
+ *   When the jar changes, the previous JarFile remains open until the streams
+ *   read from it are closed.
+ * </p>
+ * 
+ * <p>Each JarFile is paired with the index read from the same version of
+ *   the jar, and entries are always read through the index that belongs to
+ *   the JarFile they are read from.
+ * </p>
  * 
  * @author mike
  *
@@ -25,7 +52,19 @@ import spiralcraft.util.string.StringPool;
 public class JarCache
 {
   private static final ClassLog log=ClassLog.getInstance(JarCache.class);
-  private static final HashMap<String,JarCache> fileCache = new HashMap<>();
+  private static final Level logLevel
+    =ClassLog.getInitialDebugLevel(JarCache.class,Level.INFO);
+  
+  private static final ConcurrentHashMap<String,JarCache> fileCache 
+    = new ConcurrentHashMap<>();
+  
+  private static final long IDLE_CLOSE_MS
+    =Long.getLong("spiralcraft.vfs.jar.JarCache.idleCloseMs",30000);
+  
+  private static final long CHECK_INTERVAL_MS=5000;
+  
+  private static final LongAdder opens=new LongAdder();
+  private static final LongAdder rescans=new LongAdder();
   
   public static final JarCache get(File file)
   {
@@ -33,127 +72,276 @@ public class JarCache
     JarCache jarCache=fileCache.get(absPath);
     if (jarCache==null)
     {
-      synchronized (fileCache)
-      {
-        jarCache=fileCache.get(absPath);
-        if (jarCache==null)
-        { 
-          jarCache=new JarCache(absPath);
-          fileCache.put(absPath,jarCache);
-        }
+      jarCache=new JarCache(absPath);
+      JarCache existing=fileCache.putIfAbsent(absPath,jarCache);
+      if (existing!=null)
+      { jarCache=existing;
       }
-      
     }
     return jarCache;
   }
   
+  /**
+   * @return The number of times a JarCache has opened a jar file
+   */
+  public static long getOpenCount()
+  { return opens.sum();
+  }
+  
+  /**
+   * @return The number of times a JarCache has read the directory of a jar
+   *   file
+   */
+  public static long getRescanCount()
+  { return rescans.sum();
+  }
+  
   private final File file;
-  private volatile JarFile jarFile;
-  private long lastModified=0;
-  private final LinkedList<JarEntry> entryList=new LinkedList<JarEntry>();
-  private final HashMap<String,JarEntry> entries=new HashMap<String,JarEntry>();
-  private final HashMap<String,JarEntry> dirEntries=new HashMap<String,JarEntry>();
-  private int openCount;
-  private long lastChecked=0;
+  private volatile Index index;
+  private volatile long lastChecked;
+  private Handle handle;
+  private long lastReleased;
+  private Scheduler.ScheduledItem closer;
+  private volatile long idleCloseMs=IDLE_CLOSE_MS;
+  private volatile long checkIntervalMs=CHECK_INTERVAL_MS;
+  
+  private final Runnable closeIdle
+    =new Runnable()
+    {
+      @Override
+      public void run()
+      { closeIdle();
+      }
+    };
   
   JarCache(String absPath)
   { this.file=new File(absPath);
   }
+  
+  /**
+   * The number of milliseconds the JarFile stays open after the last stream
+   *   read from it is closed. Defaults to the value of the 
+   *   spiralcraft.vfs.jar.JarCache.idleCloseMs system property.
+   */
+  public void setIdleCloseMs(long idleCloseMs)
+  { this.idleCloseMs=idleCloseMs;
+  }
+  
+  /**
+   * The minimum number of milliseconds between checks of the jar file's
+   *   modification time and size. Defaults to 5000.
+   */
+  public void setCheckIntervalMs(long checkIntervalMs)
+  { this.checkIntervalMs=checkIntervalMs;
+  }
+  
+  /**
+   * @return Whether the current version of the jar is open
+   */
+  public synchronized boolean isOpen()
+  { return handle!=null;
+  }
 
-  private synchronized void check()
+  /**
+   * Return the index, rebuilding it if the jar has changed since it was
+   *   last checked
+   */
+  private Index check()
     throws IOException
   {
+    Index index=this.index;
     long time=Clock.instance().approxTimeMillis();
-    if (openCount==0 
-       && time-lastChecked > 5000 
-       && ( lastModified==0
-           || file.lastModified()>lastModified
-         )
-       )
+    if (index!=null && time-lastChecked<=checkIntervalMs)
+    { return index;
+    }
+    
+    synchronized (this)
     {
-      lastModified=file.lastModified();
-      entryList.clear();
-      entries.clear();
-      dirEntries.clear();
-      openCountInc();
-      try
+      index=this.index;
+      if (index!=null && time-lastChecked<=checkIntervalMs)
+      { return index;
+      }
+      
+      if (index==null || index.isStale(file))
       {
-        
-        Enumeration<JarEntry> en=jarFile.entries();
-        while (en.hasMoreElements())
+        if (handle!=null)
         { 
-          JarEntry entry=en.nextElement();
-          entryList.add(entry);
-          String entryName=entry.getName();
-          entries.put(entryName, entry);
-          if (entryName.endsWith("/"))
-          { dirEntries.put(entryName.substring(0,entryName.length()-1), entry);
-          }
-          // log.fine(file+"  +>  "+entry.getName());
-        }    
-      }
-      finally
-      { openCountDec();
+          // Stop handing out the JarFile for the old content
+          retire(handle);
+          handle=null;
+        }
+        
+        // Opening the jar indexes it. Release it right away so that it
+        //   is closed if it stays idle.
+        Handle handle=open();
+        handle.refs++;
+        release(handle);
+        index=handle.index;
       }
       lastChecked=time;
+      return index;
     }
   }
   
-  private synchronized void openCountInc()
+  /**
+   * Open the JarFile, indexing it if its content differs from the current
+   *   index. Must be called with the lock held and no current handle.
+   */
+  private Handle open()
+    throws IOException
+  {
+    long lastModified=file.lastModified();
+    long length=file.length();
+    JarFile jarFile=new JarFile(file);
+    opens.increment();
+    if (logLevel.isFine())
+    { log.fine("Opened "+file);
+    }
+    
+    Index index=this.index;
+    if (index==null 
+        || index.lastModified!=lastModified 
+        || index.length!=length
+        )
+    {
+      try
+      { index=new Index(jarFile,lastModified,length);
+      }
+      catch (RuntimeException x)
+      { 
+        jarFile.close();
+        throw x;
+      }
+      rescans.increment();
+      if (logLevel.isFine())
+      { log.fine("Indexed "+file+": "+index.entryList.size()+" entries");
+      }
+      this.index=index;
+    }
+    handle=new Handle(jarFile,index);
+    return handle;
+  }
+  
+  /**
+   * Obtain a reference to an open JarFile for the current content of the 
+   *   jar, together with its index, opening it if needed
+   */
+  private synchronized Handle acquire()
     throws IOException
   { 
-    // log.fine(file+" openCount="+openCount);
-    if (openCount==0)
-    { 
-      // log.fine("Opening "+file);
-      jarFile=new JarFile(file);
+    check();
+    if (handle==null)
+    { open();
     }
-    openCount++;
+    handle.refs++;
+    return handle;
   }
 
-  private synchronized void openCountDec()
-    throws IOException
+  private synchronized void release(Handle handle)
   { 
-    openCount--;
-    if (openCount==0)
+    handle.refs--;
+    if (handle.refs<0)
+    { throw new IllegalStateException(file+" refs="+handle.refs);
+    }
+    if (handle.refs==0)
+    {
+      if (handle.retired)
+      { handle.close();
+      }
+      else
+      { 
+        lastReleased=Clock.instance().approxTimeMillis();
+        if (closer==null)
+        { closer=Scheduler.instance().scheduleIn(closeIdle,idleCloseMs);
+        }
+      }
+    }
+  }
+  
+  private synchronized void retire(Handle handle)
+  {
+    handle.retired=true;
+    if (handle.refs==0)
+    { handle.close();
+    }
+  }
+  
+  private synchronized void closeIdle()
+  {
+    closer=null;
+    if (handle==null || handle.refs>0)
+    { return;
+    }
+    
+    long idle=Clock.instance().approxTimeMillis()-lastReleased;
+    if (idle>=idleCloseMs)
     { 
-      jarFile.close();
-      jarFile=null;
-      // log.fine("Closed "+file);
+      handle.close();
+      handle=null;
+      if (logLevel.isFine())
+      { log.fine("Closed idle "+file);
+      }
     }
-    if (openCount<0)
-    { throw new IllegalStateException(file+" openCount="+openCount);
+    else
+    { closer=Scheduler.instance().scheduleIn(closeIdle,idleCloseMs-idle);
     }
   }
   
   public JarEntry getJarEntry(String path)
     throws IOException
-  {
-    check();
-    JarEntry entry=entries.get(path);
-    if (entry==null)
-    { entry=dirEntries.get(path);
+  { 
+    if (path.startsWith("/"))
+    { path=path.substring(1);
     }
-    return entry;
+    return check().entries.get(path);
   }
   
-  public synchronized Enumeration<JarEntry> entries()
+  /**
+   * List the names of the entries immediately contained in the specified
+   *   directory, in the order they appear in the jar. 
+   * 
+   * @param path The directory path, without leading or trailing slashes, or
+   *   "" for the root of the jar
+   * @return The entry names, or null if no entries are contained in the 
+   *   directory.
+   */
+  public String[] listChildren(String path)
     throws IOException
-  { 
-    check();
-    return Collections.enumeration(entryList);
+  { return check().children.get(path);
   }
   
-  public synchronized InputStream getInputStream(JarEntry entry)
+  public Enumeration<JarEntry> entries()
+    throws IOException
+  { return Collections.enumeration(check().entryList);
+  }
+  
+  /**
+   * Read the content of the entry with the same name as the specified 
+   *   entry in the current version of the jar
+   */
+  public InputStream getInputStream(JarEntry entry)
     throws IOException
   {
-    check();
-    openCountInc();
-    if (jarFile==null)
-    { log.fine(file+" is closed. openCount="+openCount);
+    final Handle handle=acquire();
+    InputStream in;
+    try
+    { 
+      JarEntry current=handle.index.entries.get(entry.getName());
+      if (current==null)
+      { 
+        throw new FileNotFoundException
+          (entry.getName()+" no longer exists in "+file);
+      }
+      in=handle.jarFile.getInputStream(current);
+    }
+    catch (IOException | RuntimeException x)
+    { 
+      release(handle);
+      throw x;
     }
+    
     InputStream ret=
-      new InputStreamWrapper(jarFile.getInputStream(entry))
+      new InputStreamWrapper(in)
       {
         private boolean closed;
         
@@ -169,12 +357,114 @@ public class JarCache
             { super.close();
             }
             finally
-            { openCountDec();
+            { release(handle);
             }
           }
         } 
       };
     return ret;
   }
+  
+  /**
+   * A reference counted JarFile
+   */
+  private class Handle
+  {
+    final JarFile jarFile;
+    final Index index;
+    int refs;
+    boolean retired;
+    
+    Handle(JarFile jarFile,Index index)
+    { 
+      this.jarFile=jarFile;
+      this.index=index;
+    }
+    
+    void close()
+    {
+      try
+      { jarFile.close();
+      }
+      catch (IOException x)
+      { log.warning("Error closing "+file+": "+x);
+      }
+    }
+  }
+  
+  /**
+   * An immutable snapshot of the directory of a jar file
+   */
+  private static class Index
+  {
+    final long lastModified;
+    final long length;
+    final List<JarEntry> entryList;
+    
+    /**
+     * Entries by name. Directory entries are also mapped by their name 
+     *   without the trailing slash.
+     */
+    final Map<String,JarEntry> entries;
+    
+    /**
+     * The names of the entries immediately contained in each directory
+     */
+    final Map<String,String[]> children;
+    
+    /**
+     * Whether the jar file has been modified since it was indexed
+     */
+    boolean isStale(File file)
+    { return file.lastModified()!=lastModified || file.length()!=length;
+    }
+    
+    Index(JarFile jarFile,long lastModified,long length)
+    {
+      this.lastModified=lastModified;
+      this.length=length;
+      
+      ArrayList<JarEntry> entryList=new ArrayList<JarEntry>();
+      HashMap<String,JarEntry> entries=new HashMap<String,JarEntry>();
+      LinkedHashMap<String,List<String>> children
+        =new LinkedHashMap<String,List<String>>();
+      
+      Enumeration<JarEntry> en=jarFile.entries();
+      while (en.hasMoreElements())
+      { 
+        JarEntry entry=en.nextElement();
+        entryList.add(entry);
+        String entryName=entry.getName();
+        entries.put(entryName, entry);
+        
+        String name=entryName;
+        if (name.endsWith("/"))
+        { 
+          name=name.substring(0,name.length()-1);
+          entries.putIfAbsent(name,entry);
+        }
+        int slash=name.lastIndexOf('/');
+        String parent=slash<0?"":name.substring(0,slash);
+        List<String> list=children.get(parent);
+        if (list==null)
+        { 
+          list=new ArrayList<String>();
+          children.put(parent,list);
+        }
+        list.add(entryName);
+      }
+      
+      HashMap<String,String[]> childArrays
+        =new HashMap<String,String[]>(children.size()*2);
+      for (Map.Entry<String,List<String>> entry:children.entrySet())
+      { 
+        List<String> list=entry.getValue();
+        childArrays.put(entry.getKey(),list.toArray(new String[list.size()]));
+      }
+      
+      this.entryList=Collections.unmodifiableList(entryList);
+      this.entries=Collections.unmodifiableMap(entries);
+      this.children=Collections.unmodifiableMap(childArrays);
+    }
+  }
 }
-
@@ -24,9 +24,6 @@ import spiralcraft.vfs.UnresolvableURIException;
 import spiralcraft.vfs.spi.AbstractResource;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.List;
 import java.util.jar.JarEntry;
 import java.io.File;
 import java.io.InputStream;
@@ -203,42 +200,22 @@ public class JarFileResource
   private void makeContents()
     throws IOException
   { 
-    Enumeration<JarEntry> entries=jarCache.entries();
     String pathString=path.format("/");
-    if (!pathString.endsWith("/"))
-    { 
-      if (pathString.length()>0)
-      { pathString=pathString+"/";
-      }
-    }
-    else
-    { 
-      if (pathString.length()==1)
-      { pathString="";
-      }
+    if (pathString.startsWith("/"))
+    { pathString=pathString.substring(1);
     }
-    List<Resource> children=new ArrayList<Resource>();
-    while (entries.hasMoreElements())
-    {
-      JarEntry entry=entries.nextElement();
-      String entryName=entry.getName();
-      if (entryName.startsWith(pathString)
-          && entryName.length()>pathString.length()
-          )
-      { 
-        int slash=entryName.indexOf('/',pathString.length());
-        if (slash<0 || slash==entryName.length()-1)
-        { 
-          //log.fine("Added "+entry.getName());
-          // Only add immediate children
-          children.add
-            (new JarFileResource(file,new Path(entryName,'/')));
-        }
-      }
+    if (pathString.endsWith("/"))
+    { pathString=pathString.substring(0,pathString.length()-1);
     }
     
-    if (children.size()>0)
-    { _contents=children.toArray(new Resource[children.size()]);
+    String[] names=jarCache.listChildren(pathString);
+    if (names!=null)
+    { 
+      Resource[] children=new Resource[names.length];
+      for (int i=0;i<names.length;i++)
+      { children[i]=new JarFileResource(file,new Path(names[i],'/'));
+      }
+      _contents=children;
     }
     else
     { _contents=null;
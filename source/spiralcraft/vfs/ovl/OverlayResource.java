@@ -22,6 +22,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.LinkedHashMap;
 
 import spiralcraft.common.ContextualException;
@@ -173,6 +177,52 @@ public class OverlayResource
   { return overlay.getOutputStream();
   }
 
+  @Override
+  public ReadableByteChannel getReadableChannel()
+    throws IOException
+  {
+    if (overlay.exists())
+    { return overlay.getReadableChannel();
+    }
+    else
+    { return base.getReadableChannel();
+    }
+  }
+
+  @Override
+  public WritableByteChannel getWritableChannel()
+    throws IOException
+  { return overlay.getWritableChannel();
+  }
+
+  /**
+   * Random access writes are directed to the overlay, which must already
+   *   contain the resource.
+   */
+  @Override
+  public SeekableByteChannel getSeekableChannel(boolean write)
+    throws IOException
+  {
+    if (write || overlay.exists())
+    { return overlay.getSeekableChannel(write);
+    }
+    else
+    { return base.getSeekableChannel(write);
+    }
+  }
+
+  @Override
+  public ByteBuffer map()
+    throws IOException
+  {
+    if (overlay.exists())
+    { return overlay.map();
+    }
+    else
+    { return base.map();
+    }
+  }
+  
   @Override
   public boolean exists()
     throws IOException
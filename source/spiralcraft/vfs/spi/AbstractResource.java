@@ -19,9 +19,15 @@ import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import spiralcraft.util.Path;
 import spiralcraft.util.URIUtil;
@@ -135,6 +141,79 @@ public abstract class AbstractResource
   { return false;
   }
 
+  /**
+   * Default implementation adapts the InputStream
+   */
+  @Override
+  public ReadableByteChannel getReadableChannel()
+    throws IOException
+  { 
+    InputStream in=getInputStream();
+    if (in==null)
+    { return null;
+    }
+    return Channels.newChannel(in);
+  }
+  
+  /**
+   * Default implementation adapts the OutputStream, flushing it when the
+   *   channel is closed.
+   */
+  @Override
+  public WritableByteChannel getWritableChannel()
+    throws IOException
+  { 
+    final OutputStream out=getOutputStream();
+    if (out==null)
+    { return null;
+    }
+    return Channels.newChannel
+      (new FilterOutputStream(out)
+        {
+          @Override
+          public void write(byte[] bytes,int off,int len)
+            throws IOException
+          { out.write(bytes,off,len);
+          }
+        }
+      );
+  }
+  
+  /**
+   * Default implementation supports read access only, over the content
+   *   returned by map()
+   */
+  @Override
+  public SeekableByteChannel getSeekableChannel(boolean write)
+    throws IOException
+  { 
+    if (write)
+    { 
+      throw new IOException
+        ("Resource "+getURI()+" does not support random access writes");
+    }
+    return new ByteBufferChannel(map());
+  }
+  
+  /**
+   * Default implementation reads the content into a heap buffer
+   */
+  @Override
+  public ByteBuffer map()
+    throws IOException
+  {
+    InputStream in=getInputStream();
+    if (in==null)
+    { throw new IOException("Resource "+getURI()+" cannot be read");
+    }
+    try
+    { return ByteBuffer.wrap(StreamUtil.readBytes(in)).asReadOnlyBuffer();
+    }
+    finally
+    { in.close();
+    }
+  }
+  
   @Override
   public boolean setLastModified(long lastModified)
   { return false;
@@ -264,10 +343,12 @@ public abstract class AbstractResource
   }
   
   /**
-   * Default implementation opens an InputStream from
-   *   the source and copies bytes read to a new OutputStream.
+   * Default implementation opens a ReadableByteChannel from
+   *   the source and transfers its content to a new WritableByteChannel,
+   *   which avoids copying through the heap when both Resources are
+   *   backed by files.
    *
-   * If the InputStream is null, and the source is has a Container
+   * If the source channel is null, and the source is has a Container
    *   aspect, this resource will ensure that it has a Container
    *   aspect as well.
    */
@@ -286,10 +367,11 @@ public abstract class AbstractResource
         ("Resource "+getURI()+" does not support write operations");
     }
     
-    InputStream in=null;
+    ReadableByteChannel in=null;
+    WritableByteChannel out=null;
     try
     {
-      in=source.getInputStream();
+      in=source.getReadableChannel();
       if (in==null)
       { 
         if (source.asContainer()!=null)
@@ -297,11 +379,29 @@ public abstract class AbstractResource
         }
       }
       else
-      { write(in);
+      { 
+        out=getWritableChannel();
+        if (out==null)
+        { throw new IOException("Resource "+getURI()+" cannot be written");
+        }
+        StreamUtil.transfer(in,out);
+        
+        // Close explicitly so a failure to commit is reported
+        WritableByteChannel closing=out;
+        out=null;
+        closing.close();
       }
     }
     finally
     {
+      if (out!=null)
+      {
+        try
+        { out.close();
+        }
+        catch (IOException x)
+        { }
+      }
       if (in!=null)
       {
         try
@@ -0,0 +1,124 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * <p>A read-only SeekableByteChannel over the content of a ByteBuffer, used
+ *   to provide random access to Resources that cannot be natively accessed
+ *   at random.
+ * </p>
+ * 
+ * @author mike
+ */
+public class ByteBufferChannel
+  implements SeekableByteChannel
+{
+  private final ByteBuffer buffer;
+  private long position;
+  private boolean open=true;
+  
+  /**
+   * @param buffer The content, from position 0 to the buffer's limit
+   */
+  public ByteBufferChannel(ByteBuffer buffer)
+  { this.buffer=buffer.duplicate();
+  }
+  
+  @Override
+  public int read(ByteBuffer dst)
+    throws IOException
+  {
+    ensureOpen();
+    if (position>=buffer.limit())
+    { return -1;
+    }
+    int count
+      =(int) Math.min(buffer.limit()-position,dst.remaining());
+    ByteBuffer slice=buffer.duplicate();
+    slice.position((int) position);
+    slice.limit((int) position+count);
+    dst.put(slice);
+    position+=count;
+    return count;
+  }
+
+  @Override
+  public int write(ByteBuffer src)
+    throws IOException
+  { 
+    ensureOpen();
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public long position()
+    throws IOException
+  { 
+    ensureOpen();
+    return position;
+  }
+
+  @Override
+  public SeekableByteChannel position(long newPosition)
+    throws IOException
+  {
+    ensureOpen();
+    if (newPosition<0)
+    { throw new IllegalArgumentException("Negative position "+newPosition);
+    }
+    position=newPosition;
+    return this;
+  }
+
+  @Override
+  public long size()
+    throws IOException
+  { 
+    ensureOpen();
+    return buffer.limit();
+  }
+
+  @Override
+  public SeekableByteChannel truncate(long size)
+    throws IOException
+  { 
+    ensureOpen();
+    throw new NonWritableChannelException();
+  }
+
+  @Override
+  public boolean isOpen()
+  { return open;
+  }
+
+  @Override
+  public void close()
+  { open=false;
+  }
+  
+  private void ensureOpen()
+    throws ClosedChannelException
+  {
+    if (!open)
+    { throw new ClosedChannelException();
+    }
+  }
+}
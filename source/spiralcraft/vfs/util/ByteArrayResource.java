@@ -21,6 +21,7 @@ import java.io.ByteArrayInputStream;
 import java.io.OutputStream;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
 
 import spiralcraft.vfs.StreamUtil;
 import spiralcraft.vfs.spi.AbstractResource;
@@ -76,6 +77,16 @@ public class ByteArrayResource
     };
   }
   
+  @Override
+  public ByteBuffer map()
+    throws IOException
+  { 
+    if (_bytes==null)
+    { throw new IOException("Resource "+getURI()+" has been deleted");
+    }
+    return ByteBuffer.wrap(_bytes).asReadOnlyBuffer();
+  }
+  
   @Override
   public boolean supportsRead()
   { return true;
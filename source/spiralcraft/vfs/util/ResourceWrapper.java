@@ -20,6 +20,10 @@ import java.io.OutputStream;
 
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 import spiralcraft.util.Path;
 import spiralcraft.vfs.Container;
@@ -91,6 +95,27 @@ public abstract class ResourceWrapper
   { return getDelegate().getOutputStream();
   }
 
+  @Override
+  public ReadableByteChannel getReadableChannel() throws IOException
+  { return getDelegate().getReadableChannel();
+  }
+
+  @Override
+  public WritableByteChannel getWritableChannel() throws IOException
+  { return getDelegate().getWritableChannel();
+  }
+
+  @Override
+  public SeekableByteChannel getSeekableChannel(boolean write)
+    throws IOException
+  { return getDelegate().getSeekableChannel(write);
+  }
+
+  @Override
+  public ByteBuffer map() throws IOException
+  { return getDelegate().map();
+  }
+
   @Override
   public Resource getParent()
     throws IOException
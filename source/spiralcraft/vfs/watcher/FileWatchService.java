@@ -0,0 +1,482 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.watcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import spiralcraft.common.Disposable;
+import spiralcraft.common.DisposableContext;
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+
+/**
+ * <p>Notifies ResourceWatchers of changes to the files they watch, using
+ *   the change notification service of the operating system via 
+ *   java.nio.file.WatchService.
+ * </p>
+ * 
+ * <p>A single instance is shared by all watchers. Each directory that 
+ *   contains a watched file is registered once, and the events for the
+ *   directory are routed to the watchers of the affected file names.
+ *   Events that arrive in a burst are coalesced, so a watcher is notified
+ *   once for a series of writes to its file.
+ * </p>
+ * 
+ * <p>Watchers are referenced weakly and are dropped when they are no longer
+ *   in use. When a directory can no longer be watched (eg. it was deleted),
+ *   its watchers are notified and revert to polling.
+ * </p>
+ * 
+ * <p>The service can be disabled by setting the 
+ *   spiralcraft.vfs.watcher.FileWatchService.disabled system property to
+ *   true, in which case all watchers poll.
+ * </p>
+ * 
+ * @author mike
+ */
+public class FileWatchService
+{
+  private static final ClassLog log
+    =ClassLog.getInstance(FileWatchService.class);
+  private static final Level logLevel
+    =ClassLog.getInitialDebugLevel(FileWatchService.class,Level.INFO);
+  
+  private static final boolean DISABLED
+    =Boolean.getBoolean("spiralcraft.vfs.watcher.FileWatchService.disabled");
+  
+  /**
+   * The quiet period that ends a burst of events
+   */
+  private static final int COALESCE_MS=50;
+  
+  /**
+   * The longest a burst of events will be held before dispatch
+   */
+  private static final int MAX_COALESCE_MS=500;
+  
+  /**
+   * The interval at which the service purges the registrations of watchers
+   *   that have been garbage collected
+   */
+  private static final int PURGE_MS=30000;
+  
+  private static FileWatchService INSTANCE;
+  private static boolean unavailable;
+  
+  /**
+   * @return The shared FileWatchService, or null if the platform does not
+   *   provide a WatchService or the service has been disabled.
+   */
+  public static synchronized FileWatchService getInstance()
+  {
+    if (INSTANCE==null && !DISABLED && !unavailable)
+    {
+      try
+      { INSTANCE=new FileWatchService();
+      }
+      catch (IOException x)
+      { 
+        unavailable=true;
+        log.warning("File change notification unavailable, polling: "+x);
+      }
+    }
+    return INSTANCE;
+  }
+  
+  private final WatchService watchService;
+  private final HashMap<Path,Directory> directories
+    =new HashMap<Path,Directory>();
+  private final HashMap<WatchKey,Directory> keys
+    =new HashMap<WatchKey,Directory>();
+  
+  private final Disposable disposer=
+    new Disposable() 
+    { 
+      @Override
+      public void dispose() 
+      { FileWatchService.this.dispose();
+      } 
+    };
+  
+  FileWatchService()
+    throws IOException
+  { 
+    watchService=FileSystems.getDefault().newWatchService();
+    Thread thread
+      =new Thread
+        (new Runnable()
+          {
+            @Override
+            public void run()
+            { FileWatchService.this.run();
+            }
+          }
+        ,"FileWatchService"
+        );
+    thread.setDaemon(true);
+    thread.start();
+    DisposableContext.register(disposer);
+  }
+  
+  /**
+   * Route change events for the specified file to the watcher.
+   * 
+   * @return true if the file's directory is being watched, false if the 
+   *   watcher must poll.
+   */
+  boolean register(ResourceWatcher watcher,File file)
+  {
+    Path path=file.toPath().toAbsolutePath().normalize();
+    Path dir=path.getParent();
+    if (dir==null || path.getFileName()==null)
+    { return false;
+    }
+    
+    synchronized (directories)
+    {
+      Directory directory=directories.get(dir);
+      if (directory==null)
+      {
+        WatchKey key;
+        try
+        { 
+          key=dir.register
+            (watchService
+            ,StandardWatchEventKinds.ENTRY_CREATE
+            ,StandardWatchEventKinds.ENTRY_MODIFY
+            ,StandardWatchEventKinds.ENTRY_DELETE
+            );
+        }
+        catch (IOException | ClosedWatchServiceException x)
+        { 
+          if (logLevel.isDebug())
+          { log.debug("Polling "+path+": "+x);
+          }
+          return false;
+        }
+        directory=new Directory(key);
+        directories.put(dir,directory);
+        keys.put(key,directory);
+      }
+      directory.add(path.getFileName().toString(),watcher);
+    }
+    return true;
+  }
+  
+  /**
+   * Stop routing change events for the specified file to the watcher
+   */
+  void unregister(ResourceWatcher watcher,File file)
+  {
+    Path path=file.toPath().toAbsolutePath().normalize();
+    Path dir=path.getParent();
+    if (dir==null || path.getFileName()==null)
+    { return;
+    }
+    synchronized (directories)
+    {
+      Directory directory=directories.get(dir);
+      if (directory!=null)
+      { 
+        directory.remove(path.getFileName().toString(),watcher);
+        if (directory.isEmpty())
+        { 
+          directory.key.cancel();
+          directories.remove(dir);
+          keys.remove(directory.key);
+        }
+      }
+    }
+  }
+  
+  private void dispose()
+  {
+    try
+    { watchService.close();
+    }
+    catch (IOException x)
+    { 
+    }
+  }
+  
+  private void run()
+  {
+    long nextPurge=System.currentTimeMillis()+PURGE_MS;
+    try
+    {
+      while (true)
+      {
+        long now=System.currentTimeMillis();
+        if (now>=nextPurge)
+        { 
+          purge();
+          nextPurge=now+PURGE_MS;
+        }
+        
+        WatchKey key
+          =watchService.poll(nextPurge-now,TimeUnit.MILLISECONDS);
+        if (key==null)
+        { continue;
+        }
+        
+        LinkedHashSet<ResourceWatcher> changed
+          =new LinkedHashSet<ResourceWatcher>();
+        LinkedHashSet<ResourceWatcher> lost
+          =new LinkedHashSet<ResourceWatcher>();
+        
+        long deadline=System.currentTimeMillis()+MAX_COALESCE_MS;
+        while (key!=null)
+        {
+          collect(key,changed,lost);
+          long remaining=deadline-System.currentTimeMillis();
+          if (remaining<=0)
+          { break;
+          }
+          key=watchService.poll
+            (Math.min(COALESCE_MS,remaining),TimeUnit.MILLISECONDS);
+        }
+        
+        for (ResourceWatcher watcher:lost)
+        { 
+          try
+          { watcher.unwatched();
+          }
+          catch (RuntimeException | Error x)
+          { 
+            log.log
+              (Level.WARNING
+              ,"Error reverting watcher of "+watcher.resource.getURI()
+                +" to polling"
+              ,x
+              );
+          }
+        }
+        for (ResourceWatcher watcher:changed)
+        { 
+          try
+          { watcher.fileChanged();
+          }
+          catch (RuntimeException | Error x)
+          { 
+            log.log
+              (Level.WARNING
+              ,"Error notifying watcher of "+watcher.resource.getURI()
+              ,x
+              );
+          }
+        }
+      }
+    }
+    catch (InterruptedException | ClosedWatchServiceException x)
+    { 
+    }
+  }
+  
+  /**
+   * Drop the registrations of watchers that have been garbage collected,
+   *   and stop watching directories that no longer have any watchers
+   */
+  private void purge()
+  {
+    synchronized (directories)
+    {
+      Iterator<Directory> it=directories.values().iterator();
+      while (it.hasNext())
+      {
+        Directory directory=it.next();
+        if (directory.purge())
+        {
+          directory.key.cancel();
+          keys.remove(directory.key);
+          it.remove();
+        }
+      }
+    }
+  }
+  
+  private void collect
+    (WatchKey key
+    ,LinkedHashSet<ResourceWatcher> changed
+    ,LinkedHashSet<ResourceWatcher> lost
+    )
+  {
+    List<WatchEvent<?>> events=key.pollEvents();
+    synchronized (directories)
+    {
+      Directory directory=keys.get(key);
+      if (directory==null)
+      { 
+        key.cancel();
+        return;
+      }
+      
+      for (WatchEvent<?> event:events)
+      { 
+        if (event.kind()==StandardWatchEventKinds.OVERFLOW)
+        { directory.collectAll(changed);
+        }
+        else
+        { directory.collect(event.context().toString(),changed);
+        }
+      }
+      
+      if (!key.reset() || directory.isEmpty())
+      { 
+        if (key.isValid())
+        { key.cancel();
+        }
+        else
+        { directory.collectAll(lost);
+        }
+        keys.remove(key);
+        directories.values().remove(directory);
+      }
+    }
+  }
+  
+  /**
+   * The watchers registered for files in a directory
+   */
+  private static class Directory
+  {
+    final WatchKey key;
+    private final HashMap<String,List<WeakReference<ResourceWatcher>>> files
+      =new HashMap<String,List<WeakReference<ResourceWatcher>>>();
+    
+    Directory(WatchKey key)
+    { this.key=key;
+    }
+    
+    void add(String name,ResourceWatcher watcher)
+    {
+      List<WeakReference<ResourceWatcher>> list=files.get(name);
+      if (list==null)
+      { 
+        list=new ArrayList<WeakReference<ResourceWatcher>>(1);
+        files.put(name,list);
+      }
+      list.add(new WeakReference<ResourceWatcher>(watcher));
+    }
+    
+    void remove(String name,ResourceWatcher watcher)
+    {
+      List<WeakReference<ResourceWatcher>> list=files.get(name);
+      if (list!=null)
+      {
+        Iterator<WeakReference<ResourceWatcher>> it=list.iterator();
+        while (it.hasNext())
+        { 
+          ResourceWatcher ref=it.next().get();
+          if (ref==null || ref==watcher)
+          { it.remove();
+          }
+        }
+        if (list.isEmpty())
+        { files.remove(name);
+        }
+      }
+    }
+    
+    void collect(String name,LinkedHashSet<ResourceWatcher> target)
+    {
+      List<WeakReference<ResourceWatcher>> list=files.get(name);
+      if (list!=null && collect(list,target))
+      { files.remove(name);
+      }
+    }
+    
+    void collectAll(LinkedHashSet<ResourceWatcher> target)
+    {
+      Iterator<List<WeakReference<ResourceWatcher>>> it
+        =files.values().iterator();
+      while (it.hasNext())
+      {
+        if (collect(it.next(),target))
+        { it.remove();
+        }
+      }
+    }
+    
+    boolean isEmpty()
+    { return files.isEmpty();
+    }
+    
+    /**
+     * Remove references to watchers that have been garbage collected
+     * 
+     * @return true if the directory no longer has any watchers
+     */
+    boolean purge()
+    {
+      Iterator<List<WeakReference<ResourceWatcher>>> it
+        =files.values().iterator();
+      while (it.hasNext())
+      {
+        List<WeakReference<ResourceWatcher>> list=it.next();
+        Iterator<WeakReference<ResourceWatcher>> refs=list.iterator();
+        while (refs.hasNext())
+        {
+          if (refs.next().get()==null)
+          { refs.remove();
+          }
+        }
+        if (list.isEmpty())
+        { it.remove();
+        }
+      }
+      return files.isEmpty();
+    }
+    
+    /**
+     * Add the live watchers in the list to the target, purging collected
+     *   references
+     * 
+     * @return true if the list is now empty
+     */
+    private boolean collect
+      (List<WeakReference<ResourceWatcher>> list
+      ,LinkedHashSet<ResourceWatcher> target
+      )
+    {
+      Iterator<WeakReference<ResourceWatcher>> it=list.iterator();
+      while (it.hasNext())
+      { 
+        ResourceWatcher watcher=it.next().get();
+        if (watcher==null)
+        { it.remove();
+        }
+        else
+        { target.add(watcher);
+        }
+      }
+      return list.isEmpty();
+    }
+  }
+}
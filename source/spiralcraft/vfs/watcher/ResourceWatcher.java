@@ -1,9 +1,15 @@
 package spiralcraft.vfs.watcher;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
 import spiralcraft.time.Clock;
+import spiralcraft.time.Scheduler;
 import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.file.FileResource;
 
 /**
  * <p>Watches a Resource for updates and calls a handler when the Resource is 
@@ -14,6 +20,14 @@ import spiralcraft.vfs.Resource;
  * <p>The Resource will be checked for an update every pollInterval seconds.
  * </p>
  * 
+ * <p>When the Resource is a file, the shared FileWatchService is used to
+ *   learn of changes from the operating system instead. check() will only
+ *   examine the Resource after a change has been reported, and does not wait
+ *   for the poll interval to elapse. If the file's directory cannot be
+ *   watched, the watcher polls. The file is registered with the
+ *   FileWatchService on the first call to check().
+ * </p>
+ * 
  * <p>When an update is detected, the handleUpdate() method will be called.
  * </p>
  * 
@@ -25,6 +39,14 @@ import spiralcraft.vfs.Resource;
  */
 public class ResourceWatcher
 {
+  private static final ClassLog log
+    =ClassLog.getInstance(ResourceWatcher.class);
+  
+  /**
+   * The minimum delay before a pushed update that failed without requesting
+   *   a hold-off is retried
+   */
+  private static final int MIN_RETRY_MS=1000;
 
   protected final Resource resource;
   private final int pollIntervalMS;
@@ -34,6 +56,27 @@ public class ResourceWatcher
   private long holdOffUntil;
   private boolean firstTime=true;
   
+  private final File file;
+  private boolean registered;
+  private volatile boolean watched;
+  
+  /**
+   * Counts reported changes. The watcher has pending changes while this 
+   *   differs from the count that was last handled successfully.
+   */
+  private final AtomicInteger changes=new AtomicInteger(1);
+  private int handledChanges;
+  private volatile boolean pushUpdates;
+  private Scheduler.ScheduledItem retry;
+  
+  private final Runnable pushTask
+    =new Runnable()
+    {
+      @Override
+      public void run()
+      { push();
+      }
+    };
   
   public ResourceWatcher
     (Resource resource
@@ -44,7 +87,71 @@ public class ResourceWatcher
     this.resource=resource;
     this.pollIntervalMS=pollIntervalMS;
     this.handler=handler;
-    
+    this.file
+      =resource instanceof FileResource
+      ?((FileResource) resource).getFile()
+      :null;
+  }
+  
+  /**
+   * Register the file with the FileWatchService, if it is available
+   */
+  private void register()
+  {
+    registered=true;
+    FileWatchService service
+      =file!=null?FileWatchService.getInstance():null;
+    if (service!=null)
+    { watched=service.register(this,file);
+    }
+  }
+  
+  /**
+   * <p>Whether handleUpdate() should be called as soon as the 
+   *   FileWatchService reports a change, instead of on the next call to
+   *   check(). Handlers are called from the FileWatchService thread, and
+   *   updates deferred by a hold-off are retried by the Scheduler. 
+   * </p>
+   * 
+   * <p>Has no effect when the Resource is polled.
+   * </p>
+   */
+  public void setPushUpdates(boolean pushUpdates)
+  { this.pushUpdates=pushUpdates;
+  }
+  
+  /**
+   * @return true if changes to the Resource are reported by the 
+   *   FileWatchService, false if the Resource is polled or has not yet
+   *   been checked
+   */
+  public boolean isEventDriven()
+  { return watched;
+  }
+  
+  /**
+   * Stop receiving notifications from the FileWatchService. Subsequent calls
+   *   to check() will poll.
+   */
+  public void stop()
+  {
+    synchronized (this)
+    { registered=true;
+    }
+    if (watched)
+    { 
+      watched=false;
+      changes.incrementAndGet();
+      FileWatchService.getInstance().unregister(this,file);
+    }
+    synchronized (this)
+    {
+      if (retry!=null)
+      { 
+        retry.cancel();
+        retry=null;
+      }
+    }
   }
   
   /**
@@ -87,34 +194,111 @@ public class ResourceWatcher
   public synchronized void check()
     throws IOException
   {
+    if (!registered)
+    { register();
+    }
+    
     long time=Clock.instance().approxTimeMillis();
     
     if (time<holdOffUntil)
     { return;
     }
-    if (time<lastChecked+pollIntervalMS)
+    if (watched)
+    { 
+      if (!isChanged())
+      { return;
+      }
+    }
+    else if (time<lastChecked+pollIntervalMS)
     { return;
     }
     
+    // Changes reported after this point remain pending
+    int seenChanges=changes.get();
     long lastModified=resource.getLastModified();
     if (lastModified!=this.lastModified || firstTime)
     { 
-      firstTime=false;
       int result=handler.handleUpdate(resource);
+      firstTime=false;
       if (result>=0)
       { 
         this.lastModified=resource.getLastModified();
+        handledChanges=seenChanges;
         if (result>0)
         { this.holdOffUntil=Clock.instance().approxTimeMillis()+result;
         }
       }
       else
       { 
+        // Retry the same update after the hold-off
         result=-result;
         this.holdOffUntil=Clock.instance().approxTimeMillis()+result;
       }
-    }  
+    }
+    else
+    { handledChanges=seenChanges;
+    }
     lastChecked=Clock.instance().approxTimeMillis();
   }
 
+  /**
+   * Called by the FileWatchService when the file has changed
+   */
+  void fileChanged()
+  { 
+    changes.incrementAndGet();
+    if (pushUpdates)
+    { push();
+    }
+  }
+  
+  /**
+   * Called by the FileWatchService when the file's directory can no longer
+   *   be watched. 
+   */
+  void unwatched()
+  { 
+    watched=false;
+    changes.incrementAndGet();
+    if (pushUpdates)
+    { push();
+    }
+  }
+  
+  private synchronized boolean isChanged()
+  { return changes.get()!=handledChanges;
+  }
+  
+  private void push()
+  {
+    try
+    { check();
+    }
+    catch (IOException x)
+    { log.warning("Error checking "+resource.getURI()+": "+x);
+    }
+    catch (RuntimeException x)
+    { 
+      log.log
+        (Level.WARNING,"Error handling update of "+resource.getURI(),x);
+    }
+    
+    synchronized (this)
+    {
+      if (retry!=null && retry.isPending())
+      { return;
+      }
+      retry=null;
+      if (watched && isChanged())
+      { 
+        // Held off or failed. A failure that did not set a hold-off is 
+        //   retried after a minimum delay.
+        retry=Scheduler.instance().scheduleAt
+          (pushTask
+          ,Math.max
+            (holdOffUntil,Clock.instance().approxTimeMillis()+MIN_RETRY_MS)
+          );
+      }
+    }
+  }
 }
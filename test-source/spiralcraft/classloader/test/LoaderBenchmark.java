@@ -0,0 +1,209 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.classloader.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import spiralcraft.cli.Arguments;
+import spiralcraft.classloader.JarArchive;
+import spiralcraft.classloader.Loader;
+import spiralcraft.exec.Executable;
+import spiralcraft.vfs.file.FileResource;
+
+/**
+ * Measures the time for a Loader to start and load a few thousand classes
+ *   spread across dozens of jar archives, from one or more threads.
+ */
+public class LoaderBenchmark
+  implements Executable
+{
+
+  private int _archives=40;
+  private int _classes=4000;
+  private int _threads=4;
+  private int _rounds=5;
+
+  @Override
+  public void execute(String ... args)
+  {
+    new Arguments()
+    {
+
+      @Override
+      protected boolean processOption(String option)
+      {
+        if (option=="archives")
+        { _archives=Integer.parseInt(nextArgument());
+        }
+        else if (option=="classes")
+        { _classes=Integer.parseInt(nextArgument());
+        }
+        else if (option=="threads")
+        { _threads=Integer.parseInt(nextArgument());
+        }
+        else if (option=="rounds")
+        { _rounds=Integer.parseInt(nextArgument());
+        }
+        else
+        { return false;
+        }
+        return true;
+      }
+    }.process(args);
+
+    try
+    { run();
+    }
+    catch (Throwable x)
+    { x.printStackTrace();
+    }
+  }
+
+  public void run()
+    throws Throwable
+  {
+    File dir=Files.createTempDirectory("LoaderBenchmark").toFile();
+    try
+    {
+      File[] jars=new File[_archives];
+      String[] names=new String[_classes];
+      JarOutputStream[] out=new JarOutputStream[_archives];
+      for (int i=0;i<_archives;i++)
+      { 
+        jars[i]=new File(dir,"lib"+i+".jar");
+        out[i]=new JarOutputStream(new FileOutputStream(jars[i]));
+      }
+      
+      // Each archive holds a few packages of its own
+      for (int i=0;i<_classes;i++)
+      {
+        int archive=i%_archives;
+        String name
+          ="bench/a"+archive+"/p"+((i/_archives)%4)+"/C"+i;
+        names[i]=name.replace('/','.');
+        out[archive].putNextEntry(new JarEntry(name+".class"));
+        out[archive].write(classFile(name));
+        out[archive].closeEntry();
+      }
+      for (JarOutputStream jar:out)
+      { jar.close();
+      }
+      
+      for (int round=0;round<_rounds;round++)
+      {
+        for (int threads=1;threads<=_threads;threads*=2)
+        { load(jars,names,threads);
+        }
+      }
+    }
+    finally
+    {
+      for (File file:dir.listFiles())
+      { file.delete();
+      }
+      dir.delete();
+    }
+  }
+  
+  private void load(File[] jars,final String[] names,int threads)
+    throws Exception
+  {
+    long time=System.nanoTime();
+    final Loader loader=new Loader(getClass().getClassLoader());
+    for (File jar:jars)
+    { loader.addArchive(new JarArchive(new FileResource(jar)));
+    }
+    loader.start();
+    long started=System.nanoTime();
+    
+    final Exception[] failure=new Exception[1];
+    Thread[] workers=new Thread[threads];
+    for (int t=0;t<threads;t++)
+    {
+      final int offset=t;
+      final int stride=threads;
+      workers[t]=new Thread()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            for (int i=offset;i<names.length;i+=stride)
+            { loader.loadClass(names[i]);
+            }
+          }
+          catch (Exception x)
+          { failure[0]=x;
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread worker:workers)
+    { worker.join();
+    }
+    long loaded=System.nanoTime();
+    loader.stop();
+    
+    if (failure[0]!=null)
+    { throw failure[0];
+    }
+    System.err.println
+      (names.length+" classes from "+jars.length+" archives, "+threads
+      +" threads: start "+((started-time)/1000000)+" ms, load "
+      +((loaded-started)/1000000)+" ms ("
+      +((double) (loaded-started)/names.length/1000)+" us/class)"
+      );
+  }
+  
+  /**
+   * An empty public class, with no members, extending java.lang.Object
+   */
+  private static byte[] classFile(String name)
+    throws IOException
+  {
+    ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+    DataOutputStream out=new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(52);
+    out.writeShort(5);
+    out.writeByte(7);
+    out.writeShort(2);
+    out.writeByte(1);
+    out.writeUTF(name);
+    out.writeByte(7);
+    out.writeShort(4);
+    out.writeByte(1);
+    out.writeUTF("java/lang/Object");
+    out.writeShort(0x0021);
+    out.writeShort(1);
+    out.writeShort(3);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.flush();
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,326 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.classloader.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import spiralcraft.classloader.Archive;
+import spiralcraft.classloader.JarArchive;
+import spiralcraft.classloader.Loader;
+import spiralcraft.common.LifecycleException;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.vfs.file.FileResource;
+
+/**
+ * Checks that the package index of a Loader finds the same archive as a 
+ *   linear scan of its archives when some archives are precedent or cannot
+ *   enumerate their packages, and that closed archives are not searched or
+ *   reopened.
+ */
+public class LoaderTest
+  extends Test
+{
+  
+  private static final String[] PATHS
+    ={"a.txt","p/a.txt","p/b.txt","q/c.txt","r/d.txt","s/e.txt","t/f.txt"};
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("Loader package index search order",checkSearchOrder());
+          check("Loader closed archives",checkClosed());
+        }
+        catch (IOException | LifecycleException x)
+        { report(new TestResult("Loader",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Every path is found in the archive a linear scan would find first, and
+   *   all the archives containing a path are listed in scan order
+   */
+  private String checkSearchOrder()
+    throws IOException,LifecycleException
+  {
+    List<MapArchive> precedent=new ArrayList<MapArchive>();
+    precedent.add(new MapArchive("P1",false,"p/b.txt","t/f.txt"));
+    precedent.add(new MapArchive("P2",true,"p/b.txt","s/e.txt"));
+    precedent.add(new MapArchive("P3",false,"s/e.txt"));
+    
+    List<MapArchive> local=new ArrayList<MapArchive>();
+    local.add(new MapArchive("L1",true,"p/a.txt"));
+    local.add(new MapArchive("L2",false,"a.txt","p/a.txt","p/b.txt"));
+    local.add(new MapArchive("L3",true,"a.txt","p/b.txt","q/c.txt","s/e.txt"));
+    local.add(new MapArchive("L4",false,"q/c.txt","r/d.txt","t/f.txt"));
+    local.add(new MapArchive("L5",true,"r/d.txt"));
+    
+    Loader loader=new Loader(new ClassLoader(null) { });
+    for (MapArchive archive:precedent)
+    { loader.addPrecedentArchive(archive);
+    }
+    for (MapArchive archive:local)
+    { loader.addArchive(archive);
+    }
+    loader.start();
+    try
+    {
+      for (String path:PATHS)
+      {
+        List<String> expected=new ArrayList<String>();
+        for (MapArchive archive:precedent)
+        { 
+          if (archive.contains(path))
+          { expected.add(archive.name);
+          }
+        }
+        for (MapArchive archive:local)
+        { 
+          if (archive.contains(path))
+          { expected.add(archive.name);
+          }
+        }
+        
+        String found=read(loader.getResourceAsStream(path));
+        if (!expected.get(0).equals(found))
+        { return path+" was read from "+found+" instead of "+expected.get(0);
+        }
+        
+        URL url=loader.getResource(path);
+        if (url==null || !url.getPath().startsWith("/"+expected.get(0)+"/"))
+        { return path+" resolved to "+url+" instead of "+expected.get(0);
+        }
+        
+        List<String> all=new ArrayList<String>();
+        for (URL resource:Collections.list(loader.getResources(path)))
+        { all.add(resource.getPath().split("/")[1]);
+        }
+        if (!all.equals(expected))
+        { return path+" was listed in "+all+" instead of "+expected;
+        }
+      }
+      
+      if (loader.getResource("p/missing.txt")!=null
+          || loader.getResource("u/missing.txt")!=null
+          )
+      { return "Found a missing path";
+      }
+      return null;
+    }
+    finally
+    { loader.stop();
+    }
+  }
+  
+  /**
+   * A closed archive is left out of the index instead of being reopened to
+   *   read its packages, and is searched again once reopened
+   */
+  private String checkClosed()
+    throws IOException,LifecycleException
+  {
+    File file=new File("out/loader/closed.jar");
+    file.getParentFile().mkdirs();
+    JarOutputStream out=new JarOutputStream(new FileOutputStream(file));
+    try
+    {
+      out.putNextEntry(new JarEntry("p/a.txt"));
+      out.write("jar".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+    finally
+    { out.close();
+    }
+    
+    JarArchive jarArchive=new JarArchive(new FileResource(file));
+    MapArchive mapArchive=new MapArchive("M",false,"p/b.txt");
+    Loader loader=new Loader(new ClassLoader(null) { });
+    loader.addArchive(jarArchive);
+    loader.addArchive(mapArchive);
+    loader.start();
+    if (!"jar".equals(read(loader.getResourceAsStream("p/a.txt"))))
+    { return "Could not read from the open jar";
+    }
+    
+    loader.stop();
+    int indexed=mapArchive.packageRequests;
+    if (loader.getResource("p/a.txt")!=null 
+        || loader.getResource("p/b.txt")!=null
+        )
+    { return "Found a path in a closed archive";
+    }
+    if (mapArchive.packageRequests!=indexed)
+    { return "Closed archive was indexed";
+    }
+    try
+    { 
+      jarArchive.getPackages();
+      return "Closed jar was reopened";
+    }
+    catch (IOException x)
+    { }
+    
+    loader.start();
+    try
+    {
+      if (!"jar".equals(read(loader.getResourceAsStream("p/a.txt")))
+          || !"M".equals(read(loader.getResourceAsStream("p/b.txt")))
+          )
+      { return "Could not read from the reopened archives";
+      }
+    }
+    finally
+    { loader.stop();
+    }
+    return null;
+  }
+  
+  private String read(InputStream in)
+    throws IOException
+  {
+    if (in==null)
+    { return null;
+    }
+    try
+    { return new String(in.readAllBytes(),StandardCharsets.UTF_8);
+    }
+    finally
+    { in.close();
+    }
+  }
+  
+  /**
+   * An archive of paths whose content is the archive name, which may 
+   *   decline to enumerate its packages
+   */
+  private static class MapArchive
+    extends Archive
+  {
+    final String name;
+    private final boolean unindexed;
+    private final Map<String,String> contents
+      =new LinkedHashMap<String,String>();
+    volatile int packageRequests;
+    
+    MapArchive(String name,boolean unindexed,String ... paths)
+    {
+      this.name=name;
+      this.unindexed=unindexed;
+      for (String path:paths)
+      { contents.put(path,name);
+      }
+    }
+    
+    boolean contains(String path)
+    { return contents.containsKey(path);
+    }
+    
+    @Override
+    public Set<String> getPackages()
+    {
+      packageRequests++;
+      if (unindexed)
+      { return null;
+      }
+      Set<String> packages=new HashSet<String>();
+      packages.add("");
+      for (String path:contents.keySet())
+      { packages.add(path.substring(0,path.lastIndexOf('/')+1));
+      }
+      return packages;
+    }
+    
+    @Override
+    protected Entry loadEntry(final String path)
+    {
+      if (!contents.containsKey(path))
+      { return null;
+      }
+      
+      return new Entry()
+      {
+        @Override
+        public byte[] getData()
+        { return contents.get(path).getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public URL getResource()
+          throws IOException
+        { return URI.create("file:/"+name+"/"+path).toURL();
+        }
+        
+        @Override
+        public InputStream getResourceAsStream()
+        { return new ByteArrayInputStream(getData());
+        }
+      };
+    }
+    
+    @Override
+    public void open()
+    { reopened();
+    }
+    
+    @Override
+    public String toString()
+    { return super.toString()+":"+name;
+    }
+  }
+}
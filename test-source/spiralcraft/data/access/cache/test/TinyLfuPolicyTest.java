@@ -0,0 +1,181 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.access.cache.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import spiralcraft.data.access.cache.TinyLfuPolicy;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks the admission and eviction decisions of the TinyLfuPolicy used by
+ *   a bounded EntityCache.
+ */
+public class TinyLfuPolicyTest
+  extends Test
+{
+  
+  // A window of 1 key and a main space of 99 keys
+  private static final int CAPACITY=100;
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+      { 
+        check("TinyLfuPolicy capacity 1",checkSingleCapacity());
+        check("TinyLfuPolicy frequency admission",checkAdmission());
+        check("TinyLfuPolicy protected promotion",checkPromotion());
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * With a capacity of 1 the window takes the whole capacity, and each new
+   *   key displaces the previous one.
+   */
+  private String checkSingleCapacity()
+  {
+    TinyLfuPolicy<String> policy=new TinyLfuPolicy<String>(1);
+    if (policy.onInsert("a")!=null)
+    { return "First key was not retained";
+    }
+    for (String key: new String[] {"b","c","d"})
+    {
+      String previous=String.valueOf((char) (key.charAt(0)-1));
+      List<String> evicted=policy.onInsert(key);
+      if (evicted==null || !evicted.equals(List.of(previous)))
+      { return "Inserting '"+key+"' evicted "+evicted;
+      }
+      if (policy.size()!=1)
+      { return "Size is "+policy.size()+" after inserting '"+key+"'";
+      }
+    }
+    policy.onRemove("d");
+    if (policy.size()!=0)
+    { return "Size is "+policy.size()+" after removing the only key";
+    }
+    return null;
+  }
+  
+  /**
+   * A key leaving the window only displaces the eldest key on probation if
+   *   it has been accessed more often.
+   */
+  private String checkAdmission()
+  {
+    TinyLfuPolicy<Integer> policy=fill();
+    if (policy==null)
+    { return "Keys were evicted before the capacity was reached";
+    }
+    
+    // Key 99 leaves the window having been seen as often as key 0
+    List<Integer> evicted=policy.onInsert(100);
+    if (evicted==null || !evicted.equals(List.of(99)))
+    { return "Cold candidate: evicted "+evicted;
+    }
+    
+    // Key 100 is accessed while in the window, and the accesses are applied
+    //   when the next key is inserted
+    for (int i=0;i<4;i++)
+    { policy.onAccess(100);
+    }
+    evicted=policy.onInsert(101);
+    if (evicted==null || !evicted.equals(List.of(0)))
+    { return "Hot candidate: evicted "+evicted;
+    }
+    if (policy.size()!=CAPACITY)
+    { return "Size is "+policy.size();
+    }
+    return null;
+  }
+  
+  /**
+   * A key accessed while on probation is protected, so later admissions 
+   *   displace the keys that remain on probation instead.
+   */
+  private String checkPromotion()
+  {
+    TinyLfuPolicy<Integer> policy=fill();
+    if (policy==null)
+    { return "Keys were evicted before the capacity was reached";
+    }
+    
+    // Key 0 is the eldest key on probation until it is accessed
+    policy.onAccess(0);
+    
+    List<Integer> victims=new ArrayList<Integer>();
+    for (int key=100;key<104;key++)
+    {
+      List<Integer> evicted=policy.onInsert(key);
+      if (evicted!=null)
+      { victims.addAll(evicted);
+      }
+      for (int i=0;i<4;i++)
+      { policy.onAccess(key);
+      }
+    }
+    
+    // The first insert displaces key 99 from the window, and each hot key 
+    //   then displaces the eldest key remaining on probation.
+    if (!victims.equals(List.of(99,1,2,3)))
+    { return "Evicted "+victims;
+    }
+    return null;
+  }
+  
+  /**
+   * Insert keys 0-99 so that key 99 is in the window and the rest are on
+   *   probation, eldest first.
+   * 
+   * @return The policy, or null if any key was evicted
+   */
+  private TinyLfuPolicy<Integer> fill()
+  {
+    TinyLfuPolicy<Integer> policy=new TinyLfuPolicy<Integer>(CAPACITY);
+    for (int key=0;key<CAPACITY;key++)
+    { 
+      List<Integer> evicted=policy.onInsert(key);
+      if (evicted!=null && !evicted.isEmpty())
+      { return null;
+      }
+    }
+    return policy;
+  }
+  
+}
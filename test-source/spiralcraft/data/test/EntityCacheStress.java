@@ -0,0 +1,337 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import spiralcraft.common.ContextualException;
+import spiralcraft.data.DataException;
+import spiralcraft.data.Field;
+import spiralcraft.data.JournalTuple;
+import spiralcraft.data.Key;
+import spiralcraft.data.KeyTuple;
+import spiralcraft.data.Tuple;
+import spiralcraft.data.Type;
+import spiralcraft.data.access.SerialCursor;
+import spiralcraft.data.access.cache.CacheIndex;
+import spiralcraft.data.access.cache.EntityCache;
+import spiralcraft.data.access.cache.KeyedDataProvider;
+import spiralcraft.data.spi.ArrayDeltaTuple;
+import spiralcraft.data.spi.EditableArrayTuple;
+import spiralcraft.data.spi.ListCursor;
+import spiralcraft.lang.Focus;
+import spiralcraft.lang.util.LangUtil;
+import spiralcraft.log.Level;
+import spiralcraft.meter.MeterContext;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.ParallelTask;
+import spiralcraft.task.Scenario;
+import spiralcraft.task.Task;
+import spiralcraft.util.KeyFunction;
+
+/**
+ * <p>Drives an EntityCache with concurrent readers and transactional
+ *   writers, reports the read throughput, and verifies that every cached
+ *   result is consistent with the writes applied to it.
+ * </p>
+ * 
+ * @author mike
+ *
+ */
+public class EntityCacheStress
+  extends Scenario<Void,Void>
+{
+  
+  private String typeURI="class:/spiralcraft/data/test/example/Customer";
+  private int readerCount=8;
+  private int writerCount=1;
+  private int keyCount=1000;
+  private int capacity;
+  private long durationMs=1000;
+  
+  private final AtomicLong reads=new AtomicLong();
+  private final AtomicLong writes=new AtomicLong();
+  private final AtomicLong errors=new AtomicLong();
+  
+  private Type<?> type;
+  private EntityCache cache;
+  private CacheIndex index;
+  private KeyFunction<KeyTuple,Tuple> keyFunction;
+  private Field<Integer> idField;
+  private Field<String> nameField;
+  private String[] written;
+  private MeterContext meterContext;
+  
+  public void setTypeURI(String typeURI)
+  { this.typeURI=typeURI;
+  }
+  
+  public void setReaderCount(int readerCount)
+  { this.readerCount=readerCount;
+  }
+
+  public void setWriterCount(int writerCount)
+  { this.writerCount=writerCount;
+  }
+  
+  public void setKeyCount(int keyCount)
+  { this.keyCount=keyCount;
+  }
+  
+  /**
+   * The capacity of the EntityCache, or 0 for softly referenced results
+   */
+  public void setCapacity(int capacity)
+  { this.capacity=capacity;
+  }
+  
+  public void setDurationMs(long durationMs)
+  { this.durationMs=durationMs;
+  }
+  
+  public long getReads()
+  { return reads.get();
+  }
+  
+  public long getWrites()
+  { return writes.get();
+  }
+  
+  public long getErrors()
+  { return errors.get();
+  }
+  
+  @Override
+  protected Focus<?> bindImports(Focus<?> focusChain)
+    throws ContextualException
+  { 
+    meterContext=LangUtil.findInstance(MeterContext.class,focusChain);
+    return focusChain;
+  }
+  
+  @Override
+  protected Task task()
+  {
+    ArrayList<Task> list=new ArrayList<Task>();
+    for (int i=0;i<readerCount;i++)
+    { list.add(new Reader());
+    }
+    for (int i=0;i<writerCount;i++)
+    { list.add(new Writer(i));
+    }
+    
+    return new ParallelTask<Task>(list)
+    {
+      @Override
+      public void work()
+      {
+        try
+        { setup();
+        }
+        catch (DataException x)
+        { 
+          addException(x);
+          return;
+        }
+        
+        long time=System.nanoTime();
+        super.work();
+        long elapsed=System.nanoTime()-time;
+        
+        log.info
+          ("EntityCacheStress: "+readerCount+" readers, "+writerCount
+          +" writers: "+reads.get()+" reads ("
+          +(reads.get()*1000000000L/Math.max(1,elapsed))+"/s), "
+          +writes.get()+" writes in "+(elapsed/1000000)+" ms"
+          );
+        
+        try
+        { verify();
+        }
+        catch (DataException x)
+        { addException(x);
+        }
+        if (errors.get()>0)
+        { 
+          addException
+            (new DataException
+              ("EntityCacheStress: "+errors.get()+" inconsistent results")
+            );
+        }
+      }
+    };
+  }
+  
+  @SuppressWarnings("unchecked")
+  private void setup()
+    throws DataException
+  {
+    type=Type.resolve(typeURI);
+    cache=new EntityCache(type);
+    cache.setCapacity(capacity);
+    if (meterContext!=null)
+    { cache.installMeter(meterContext);
+    }
+    Key<Tuple> key=(Key<Tuple>) type.getPrimaryKey();
+    keyFunction=key.getKeyFunction();
+    index=cache.getIndex(key);
+    idField=type.getField("id");
+    nameField=type.getField("displayName");
+    written=new String[keyCount];
+    
+    // Populate the cache so that readers measure the hit path
+    for (int id=0;id<keyCount;id++)
+    { fetch(id);
+    }
+  }
+  
+  private void verify()
+    throws DataException
+  {
+    for (int id=0;id<keyCount;id++)
+    {
+      JournalTuple tuple=fetch(id);
+      if (tuple==null)
+      { continue;
+      }
+      if (written[id]!=null && !written[id].equals(nameField.getValue(tuple)))
+      { 
+        errors.incrementAndGet();
+        log.log
+          (Level.SEVERE
+          ,"Key "+id+": expected '"+written[id]+"', found '"
+            +nameField.getValue(tuple)+"'"
+          );
+      }
+    }
+  }
+  
+  private Tuple create(int id)
+    throws DataException
+  {
+    EditableArrayTuple tuple=new EditableArrayTuple(type);
+    idField.setValue(tuple,id);
+    nameField.setValue(tuple,"Customer "+id);
+    return tuple;
+  }
+  
+  /**
+   * Fetch the single result for the specified id, recording an error if the
+   *   result is not consistent.
+   */
+  private JournalTuple fetch(int id)
+    throws DataException
+  {
+    final Tuple prototype=create(id);
+    SerialCursor<JournalTuple> cursor
+      =index.fetch
+        (keyFunction.key(prototype)
+        ,new KeyedDataProvider()
+          {
+            @Override
+            public SerialCursor<Tuple> fetch(KeyTuple tuple)
+            { 
+              return new ListCursor<Tuple>
+                (prototype.getFieldSet(),prototype);
+            }
+          }
+        );
+    try
+    {
+      JournalTuple ret=null;
+      int count=0;
+      while (cursor.next())
+      { 
+        ret=cursor.getTuple();
+        count++;
+      }
+      if (count!=1 || !Integer.valueOf(id).equals(idField.getValue(ret)))
+      { 
+        errors.incrementAndGet();
+        log.log
+          (Level.SEVERE,"Key "+id+": "+count+" results, last="+ret);
+      }
+      return ret;
+    }
+    finally
+    { cursor.close();
+    }
+  }
+  
+  class Reader
+    extends AbstractTask
+  {
+    @Override
+    public void work()
+    {
+      long end=System.currentTimeMillis()+durationMs;
+      ThreadLocalRandom random=ThreadLocalRandom.current();
+      try
+      {
+        while (!isStopRequested() && System.currentTimeMillis()<end)
+        { 
+          for (int i=0;i<100;i++)
+          { fetch(random.nextInt(keyCount));
+          }
+          reads.addAndGet(100);
+        }
+      }
+      catch (DataException x)
+      { addException(x);
+      }
+    }
+  }
+  
+  /**
+   * Updates the keys in its own partition, so that writers never conflict
+   *   with each other and the expected final value of each key is known.
+   */
+  class Writer
+    extends AbstractTask
+  {
+    private final int partition;
+    
+    Writer(int partition)
+    { this.partition=partition;
+    }
+    
+    @Override
+    public void work()
+    {
+      long end=System.currentTimeMillis()+durationMs;
+      ThreadLocalRandom random=ThreadLocalRandom.current();
+      int version=0;
+      try
+      {
+        while (!isStopRequested() && System.currentTimeMillis()<end)
+        { 
+          int id=random.nextInt(keyCount/writerCount)*writerCount+partition;
+          JournalTuple current=fetch(id);
+          EditableArrayTuple edited=new EditableArrayTuple(current);
+          String value="Customer "+id+" v"+(++version);
+          nameField.setValue(edited,value);
+          cache.update(new ArrayDeltaTuple(current,edited));
+          written[id]=value;
+          writes.incrementAndGet();
+        }
+      }
+      catch (DataException x)
+      { addException(x);
+      }
+    }
+  }
+}
@@ -0,0 +1,355 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.data.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import spiralcraft.data.DataException;
+import spiralcraft.data.Type;
+import spiralcraft.data.TypeResolver;
+import spiralcraft.log.ClassLog;
+import spiralcraft.log.Level;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks that the TypeResolver loads a Type once when it is requested
+ *   concurrently, resolves Types that refer to each other when they are
+ *   requested from different threads, and preloads a set of Types.
+ * 
+ * Each check writes new Type definitions to the file system, so that the
+ *   Types have not been loaded by earlier tests.
+ */
+public class TypeResolverTest
+  extends Test
+{
+  
+  private static final ClassLog log
+    =ClassLog.getInstance(TypeResolverTest.class);
+  
+  private static final long TIMEOUT=30000;
+  
+  private final File dir=new File("out/typeresolver").getAbsoluteFile();
+  private int threadCount=8;
+  private int cycleTrials=20;
+  
+  public void setThreadCount(int threadCount)
+  { this.threadCount=threadCount;
+  }
+  
+  public void setCycleTrials(int cycleTrials)
+  { this.cycleTrials=cycleTrials;
+  }
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("TypeResolver concurrent resolution",checkSameURI());
+          check("TypeResolver cross-thread cycle",checkCycle());
+          check("TypeResolver preload",checkPreload());
+        }
+        catch (IOException | DataException x)
+        { 
+          report
+            (new TestResult("TypeResolver",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Every thread that requests the same Type receives the same instance
+   */
+  private String checkSameURI()
+    throws IOException,InterruptedException
+  {
+    File typeDir=new File(dir,"same");
+    writeType(typeDir,"Item","detail","Detail");
+    writeType(typeDir,"Detail",null,null);
+    URI uri=uri(typeDir,"Item");
+    
+    URI[][] uris=new URI[threadCount][];
+    for (int i=0;i<threadCount;i++)
+    { uris[i]=new URI[] {uri};
+    }
+    Type<?>[][] results=resolveConcurrently(uris);
+    if (results==null)
+    { return "Concurrent resolution did not complete";
+    }
+    
+    Type<?> first=results[0][0];
+    for (int i=0;i<threadCount;i++)
+    {
+      if (results[i][0]==null)
+      { return "Thread "+i+" did not resolve "+uri;
+      }
+      if (results[i][0]!=first)
+      { return "Thread "+i+" resolved a different instance of "+uri;
+      }
+    }
+    return checkReference(first,"detail",uri(typeDir,"Detail"));
+  }
+  
+  /**
+   * Two Types that refer to each other resolve to consistent instances
+   *   when each is requested by a different thread at the same time.
+   */
+  private String checkCycle()
+    throws IOException,InterruptedException,DataException
+  {
+    for (int trial=0;trial<cycleTrials;trial++)
+    {
+      File typeDir=new File(dir,"cycle"+trial);
+      writeType(typeDir,"A","b","B");
+      writeType(typeDir,"B","a","A");
+      URI a=uri(typeDir,"A");
+      URI b=uri(typeDir,"B");
+      
+      Type<?>[][] results
+        =resolveConcurrently(new URI[][] {{a},{b}});
+      if (results==null)
+      { return "Trial "+trial+" did not complete";
+      }
+      for (Type<?>[] result:results)
+      {
+        if (result[0]==null)
+        { return "Trial "+trial+": a thread did not resolve its Type";
+        }
+      }
+      
+      TypeResolver resolver=TypeResolver.getTypeResolver();
+      if (resolver.resolve(a)!=results[0][0] 
+          || resolver.resolve(b)!=results[1][0]
+          )
+      { return "Trial "+trial+": resolved instances were not published";
+      }
+      String failure=checkReference(results[0][0],"b",b);
+      if (failure==null)
+      { failure=checkReference(results[1][0],"a",a);
+      }
+      if (failure!=null)
+      { return "Trial "+trial+": "+failure;
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Preloading a chain of Types loads and links each of them
+   */
+  private String checkPreload()
+    throws IOException,DataException
+  {
+    File typeDir=new File(dir,"preload");
+    int count=threadCount*2;
+    URI[] uris=new URI[count];
+    for (int i=0;i<count;i++)
+    { 
+      if (i<count-1)
+      { writeType(typeDir,"P"+i,"next","P"+(i+1));
+      }
+      else
+      { writeType(typeDir,"P"+i,null,null);
+      }
+      uris[i]=uri(typeDir,"P"+i);
+    }
+    
+    TypeResolver resolver=TypeResolver.getTypeResolver();
+    resolver.preload(uris);
+    
+    List<URI> loaded=new ArrayList<URI>();
+    for (Type<?> type:resolver.getLoadedTypes())
+    { loaded.add(type.getURI());
+    }
+    for (int i=0;i<count;i++)
+    {
+      if (!loaded.contains(uris[i]))
+      { return uris[i]+" was not preloaded";
+      }
+      Type<?> type=resolver.resolve(uris[i]);
+      if (!type.isLinked())
+      { return uris[i]+" was not linked";
+      }
+      if (i<count-1)
+      {
+        String failure=checkReference(type,"next",uris[i+1]);
+        if (failure!=null)
+        { return failure;
+        }
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Resolve each set of URIs in its own thread, with all threads starting
+   *   together.
+   * 
+   * @return The Types resolved by each thread, or null if any thread did 
+   *   not finish within the timeout
+   */
+  private Type<?>[][] resolveConcurrently(final URI[][] uris)
+    throws InterruptedException
+  {
+    final Type<?>[][] results=new Type<?>[uris.length][];
+    final CountDownLatch start=new CountDownLatch(1);
+    Thread[] threads=new Thread[uris.length];
+    for (int i=0;i<uris.length;i++)
+    {
+      final int index=i;
+      results[i]=new Type<?>[uris[i].length];
+      threads[i]
+        =new Thread
+          (new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              try
+              { 
+                start.await();
+                for (int j=0;j<uris[index].length;j++)
+                { 
+                  results[index][j]
+                    =TypeResolver.getTypeResolver().resolve(uris[index][j]);
+                }
+              }
+              catch (InterruptedException | DataException x)
+              { log.log(Level.WARNING,"Resolution failed",x);
+              }
+            }
+          }
+          ,"TypeResolverTest-"+i
+          );
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    start.countDown();
+    
+    long deadline=System.currentTimeMillis()+TIMEOUT;
+    for (Thread thread:threads)
+    { 
+      thread.join(Math.max(1,deadline-System.currentTimeMillis()));
+      if (thread.isAlive())
+      { return null;
+      }
+    }
+    return results;
+  }
+  
+  private String checkReference(Type<?> type,String fieldName,URI expected)
+  {
+    if (type.getField(fieldName)==null)
+    { return type.getURI()+" has no field '"+fieldName+"'";
+    }
+    Type<?> fieldType=type.getField(fieldName).getType();
+    if (!fieldType.getURI().equals(expected))
+    { return type.getURI()+"."+fieldName+" refers to "+fieldType.getURI();
+    }
+    try
+    {
+      if (fieldType!=TypeResolver.getTypeResolver().resolve(expected))
+      { 
+        return type.getURI()+"."+fieldName
+          +" refers to an unpublished instance of "+expected;
+      }
+    }
+    catch (DataException x)
+    { return "Error resolving "+expected+": "+x;
+    }
+    return null;
+  }
+  
+  private URI uri(File typeDir,String name)
+  { return URI.create(typeDir.toURI().toString()+name);
+  }
+  
+  /**
+   * Write a Type definition with an optional field that refers to another
+   *   Type in the same directory
+   */
+  private void writeType
+    (File typeDir,String name,String fieldName,String fieldTypeName)
+    throws IOException
+  {
+    StringBuilder xml=new StringBuilder();
+    xml.append("<meta:Type\n")
+      .append("  xmlns:meta=\"class:/spiralcraft/data/types/meta/\"\n")
+      .append("  xmlns:t=\"").append(typeDir.toURI()).append("\"\n")
+      .append("  >\n")
+      .append("  <fields>\n");
+    if (fieldName!=null)
+    {
+      xml.append("    <meta:Field>\n")
+        .append("      <name>").append(fieldName).append("\n")
+        .append("      </name>\n")
+        .append("      <type><t:").append(fieldTypeName).append(".type/>\n")
+        .append("      </type>\n")
+        .append("    </meta:Field>\n");
+    }
+    xml.append("    <meta:Field>\n")
+      .append("      <name>name\n")
+      .append("      </name>\n")
+      .append("      <type><String.type/>\n")
+      .append("      </type>\n")
+      .append("    </meta:Field>\n")
+      .append("  </fields>\n")
+      .append("</meta:Type>\n");
+    
+    typeDir.mkdirs();
+    OutputStream out
+      =new FileOutputStream(new File(typeDir,name+".type.xml"));
+    try
+    { out.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    finally
+    { out.close();
+    }
+  }
+}
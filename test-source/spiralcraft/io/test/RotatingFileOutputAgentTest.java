@@ -0,0 +1,392 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.io.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import spiralcraft.common.LifecycleException;
+import spiralcraft.io.RotatingFileOutputAgent;
+import spiralcraft.io.RotatingFileOutputAgent.Durability;
+import spiralcraft.io.TimestampFileSequence;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks when each Durability mode of the RotatingFileOutputAgent writes and
+ *   syncs its buffered output, and that output is not lost when the file
+ *   rotates or is closed underneath the agent.
+ */
+public class RotatingFileOutputAgentTest
+  extends Test
+{
+  
+  private static final long TIMEOUT=10000;
+  
+  private static final byte[] RECORD
+    =("0123456789012345678901234567890123456789012345678"
+      +"90123456789012345678901234567890123456789012345\n"
+     ).getBytes(StandardCharsets.UTF_8);
+  
+  private final File dir=new File("out/rotatingfile");
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("RotatingFileOutputAgent RECORD",checkRecord());
+          check("RotatingFileOutputAgent PERIODIC",checkPeriodic());
+          check
+            ("RotatingFileOutputAgent PERIODIC interval"
+            ,checkPeriodicInterval()
+            );
+          check("RotatingFileOutputAgent NONE",checkNone());
+          check("RotatingFileOutputAgent rotation",checkRotation());
+          check("RotatingFileOutputAgent reopen",checkReopen());
+        }
+        catch (IOException | LifecycleException x)
+        { 
+          report
+            (new TestResult("RotatingFileOutputAgent",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Every record is written and synced before write() returns
+   */
+  private String checkRecord()
+    throws IOException,LifecycleException
+  {
+    TestAgent agent=newAgent("record",Durability.RECORD);
+    agent.start();
+    try
+    {
+      for (int i=1;i<=10;i++)
+      { 
+        agent.write(RECORD);
+        if (agent.getActiveFile().length()!=i*RECORD.length)
+        { return "Record "+i+" was not written";
+        }
+        if (agent.getSyncCount()!=i)
+        { return "Synced "+agent.getSyncCount()+" times for "+i+" records";
+        }
+      }
+      
+      // Pumping an empty buffer does not sync again
+      agent.flush();
+      if (agent.getSyncCount()!=10)
+      { return "Synced with no new output";
+      }
+    }
+    finally
+    { agent.stop();
+    }
+    return checkContent(agent,10);
+  }
+  
+  /**
+   * Records are buffered until syncThresholdKB accumulates, and are then
+   *   written and synced as a group
+   */
+  private String checkPeriodic()
+    throws IOException,LifecycleException
+  {
+    TestAgent agent=newAgent("periodic",Durability.PERIODIC);
+    agent.setSyncThresholdKB(1);
+    agent.start();
+    try
+    {
+      int count=0;
+      while ((count+1)*RECORD.length<1024)
+      { 
+        agent.write(RECORD);
+        count++;
+      }
+      if (agent.getActiveFile().length()!=0)
+      { return "Wrote "+agent.getActiveFile().length()+" bytes below threshold";
+      }
+      if (agent.getSyncCount()!=0)
+      { return "Synced below threshold";
+      }
+      
+      agent.write(RECORD);
+      count++;
+      if (agent.getActiveFile().length()!=count*RECORD.length)
+      { return "Did not write the group at the threshold";
+      }
+      if (agent.getSyncCount()!=1)
+      { return "Synced "+agent.getSyncCount()+" times for one group";
+      }
+      
+      agent.write(RECORD);
+      agent.stop();
+      if (agent.getSyncCount()!=2)
+      { return "Did not sync the remaining output on close";
+      }
+      return checkContent(agent,count+1);
+    }
+    finally
+    { agent.stop();
+    }
+  }
+  
+  /**
+   * Buffered records are written and synced once syncIntervalMs elapses,
+   *   even if no more output arrives
+   */
+  private String checkPeriodicInterval()
+    throws IOException,LifecycleException,InterruptedException
+  {
+    TestAgent agent=newAgent("interval",Durability.PERIODIC);
+    agent.setSyncIntervalMs(500);
+    agent.start();
+    try
+    {
+      agent.write(RECORD);
+      if (agent.getActiveFile().length()!=0)
+      { return "Wrote the record before the interval";
+      }
+      
+      long time=System.currentTimeMillis();
+      while (agent.getSyncCount()==0
+            && System.currentTimeMillis()-time<TIMEOUT
+            )
+      { Thread.sleep(10);
+      }
+      if (agent.getSyncCount()!=1)
+      { return "Synced "+agent.getSyncCount()+" times after the interval";
+      }
+      if (agent.getActiveFile().length()!=RECORD.length)
+      { return "Did not write the record after the interval";
+      }
+    }
+    finally
+    { agent.stop();
+    }
+    return checkContent(agent,1);
+  }
+  
+  /**
+   * Records are written on the same schedule as PERIODIC, but are only
+   *   synced when the file is closed
+   */
+  private String checkNone()
+    throws IOException,LifecycleException
+  {
+    TestAgent agent=newAgent("none",Durability.NONE);
+    agent.setSyncThresholdKB(1);
+    agent.start();
+    try
+    {
+      int count=0;
+      while (count*RECORD.length<2048)
+      { 
+        agent.write(RECORD);
+        count++;
+      }
+      if (agent.getActiveFile().length()<1024)
+      { return "Did not write at the threshold";
+      }
+      if (agent.getSyncCount()!=0)
+      { return "Synced "+agent.getSyncCount()+" times before close";
+      }
+      
+      agent.stop();
+      if (agent.getSyncCount()!=1)
+      { return "Synced "+agent.getSyncCount()+" times on close";
+      }
+      return checkContent(agent,count);
+    }
+    finally
+    { agent.stop();
+    }
+  }
+  
+  /**
+   * Buffered output is written to the file being rotated out, and output
+   *   after the rotation goes to a new active file
+   */
+  private String checkRotation()
+    throws IOException,LifecycleException
+  {
+    TestAgent agent=newAgent("rotation",Durability.PERIODIC);
+    agent.setMaxLengthKB(1);
+    agent.setSyncThresholdKB(64);
+    agent.start();
+    int count=0;
+    try
+    {
+      while (count*RECORD.length<1024)
+      { 
+        agent.write(RECORD);
+        count++;
+      }
+      
+      String[] paths=agent.getFileSequence().listFilePaths();
+      if (paths.length!=1 || agent.getActiveFile().exists())
+      { return "Did not rotate the file: "+Arrays.toString(paths);
+      }
+      if (new File(dir,paths[0]).length()!=count*RECORD.length)
+      { return "Rotated file does not contain the buffered output";
+      }
+      
+      agent.write(RECORD);
+      agent.write(RECORD);
+    }
+    finally
+    { agent.stop();
+    }
+    
+    if (agent.getActiveFile().length()!=2*RECORD.length)
+    { return "Active file does not contain the output after rotation";
+    }
+    return checkContent(agent,count+2);
+  }
+  
+  /**
+   * Output is not lost when the file is closed after prepare()
+   */
+  private String checkReopen()
+    throws IOException,LifecycleException
+  {
+    TestAgent agent=newAgent("reopen",Durability.RECORD);
+    agent.start();
+    try
+    {
+      agent.write(RECORD);
+      agent.closeFile();
+      agent.output(RECORD);
+      if (agent.getActiveFile().length()!=2*RECORD.length)
+      { return "Output after close was not written";
+      }
+    }
+    finally
+    { agent.stop();
+    }
+    return checkContent(agent,2);
+  }
+  
+  /**
+   * The files of the sequence, in order, contain the expected number of
+   *   records
+   */
+  private String checkContent(TestAgent agent,int count)
+    throws IOException
+  {
+    String[] paths=agent.getFileSequence().listFilePaths();
+    Arrays.sort(paths);
+    ByteArrayOutputStream content=new ByteArrayOutputStream();
+    for (String path:paths)
+    { 
+      File file=new File(dir,path);
+      if (!file.equals(agent.getActiveFile()))
+      { content.write(Files.readAllBytes(file.toPath()));
+      }
+    }
+    if (agent.getActiveFile().exists())
+    { content.write(Files.readAllBytes(agent.getActiveFile().toPath()));
+    }
+    
+    ByteArrayOutputStream expected=new ByteArrayOutputStream();
+    for (int i=0;i<count;i++)
+    { expected.write(RECORD);
+    }
+    if (!Arrays.equals(content.toByteArray(),expected.toByteArray()))
+    { 
+      return "Files contain "+content.size()+" bytes instead of "
+        +expected.size();
+    }
+    return null;
+  }
+  
+  private TestAgent newAgent(String prefix,Durability durability)
+  {
+    dir.mkdirs();
+    File[] files=dir.listFiles();
+    for (File file:files)
+    { 
+      if (file.getName().startsWith(prefix))
+      { file.delete();
+      }
+    }
+    
+    TimestampFileSequence sequence=new TimestampFileSequence();
+    sequence.setDirectory(dir);
+    sequence.setPrefix(prefix);
+    sequence.setSuffix(".log");
+    
+    TestAgent agent=new TestAgent();
+    agent.setFileSequence(sequence);
+    agent.setDurability(durability);
+    agent.setAsyncIO(false);
+    agent.setSyncIntervalMs(60000);
+    return agent;
+  }
+  
+  /**
+   * Exposes the file operations of the agent
+   */
+  static class TestAgent
+    extends RotatingFileOutputAgent
+  {
+    File getActiveFile()
+    { return getFileSequence().getActiveFile();
+    }
+    
+    /**
+     * Close the file without stopping the agent
+     */
+    void closeFile()
+    { destroy();
+    }
+    
+    @Override
+    protected void output(byte[] bytes)
+      throws IOException
+    { super.output(bytes);
+    }
+  }
+}
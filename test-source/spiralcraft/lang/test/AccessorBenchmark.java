@@ -0,0 +1,119 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.test;
+
+import java.lang.reflect.Method;
+
+import spiralcraft.cli.Arguments;
+import spiralcraft.exec.Executable;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.SimpleFocus;
+import spiralcraft.lang.reflect.BeanAccessor;
+import spiralcraft.lang.spi.ChannelCompiler;
+import spiralcraft.lang.spi.SimpleChannel;
+
+
+/**
+ * Compares the cost of reading a bean property reflectively, through a
+ *   generated BeanAccessor, and through interpreted and compiled
+ *   expression Channels.
+ */
+public class AccessorBenchmark
+  implements Executable
+{
+
+  private int _repeats=10000000;
+  private int _rounds=5;
+  private volatile Object sink;
+
+  @Override
+  public void execute(String ... args)
+  {
+    new Arguments()
+    {
+
+      @Override
+      protected boolean processOption(String option)
+      {
+        if (option=="repeats")
+        { _repeats=Integer.parseInt(nextArgument());
+        }
+        else if (option=="rounds")
+        { _rounds=Integer.parseInt(nextArgument());
+        }
+        else
+        { return false;
+        }
+        return true;
+      }
+    }.process(args);
+
+    try
+    { run();
+    }
+    catch (Throwable x)
+    { x.printStackTrace();
+    }
+  }
+
+  public void run()
+    throws Throwable
+  {
+    Bar bar=new Bar();
+    Method method=Bar.class.getMethod("getTheField");
+    BeanAccessor.Getter getter=BeanAccessor.getter(method);
+    Channel<String> interpreted
+      =new SimpleFocus<Bar>(new SimpleChannel<Bar>(Bar.class,bar,true))
+        .bind(Expression.<String>parse(".theField.length()"));
+    Channel<String> compiled=ChannelCompiler.compile(interpreted);
+
+    for (int round=0;round<_rounds;round++)
+    {
+      long time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { sink=method.invoke(bar);
+      }
+      report("Method.invoke",time);
+
+      time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { sink=getter.get(bar);
+      }
+      report("BeanAccessor",time);
+
+      time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { sink=interpreted.get();
+      }
+      report("Interpreted .theField.length()",time);
+
+      time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { sink=compiled.get();
+      }
+      report("Compiled .theField.length()",time);
+    }
+  }
+
+  private void report(String name,long start)
+  {
+    long elapsed=System.nanoTime()-start;
+    System.err.println
+      (name+": "+_repeats+" repeats in "+(elapsed/1000000)+" ms ("
+      +((double) elapsed/_repeats)+" ns/op)"
+      );
+  }
+}
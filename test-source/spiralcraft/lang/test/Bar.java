@@ -12,6 +12,10 @@ public class Bar
   
   private Object object;
   
+  private int count=7;
+  
+  private Long total;
+  
   public String getTheField()
   { return publicField;
   }
@@ -36,6 +40,22 @@ public class Bar
   { this.object=object;
   }
   
+  public int getCount()
+  { return count;
+  }
+  
+  public void setCount(int count)
+  { this.count=count;
+  }
+  
+  public Long getTotal()
+  { return total;
+  }
+  
+  public void setTotal(Long total)
+  { this.total=total;
+  }
+  
   @Override
   public String toString()
   { 
@@ -0,0 +1,267 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.test;
+
+import java.net.URI;
+import java.util.HashMap;
+
+import spiralcraft.common.namespace.NamespaceContext;
+import spiralcraft.common.namespace.StandardPrefixResolver;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.ExpressionCache;
+import spiralcraft.lang.ParseException;
+import spiralcraft.lang.parser.ExpressionParser;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.util.ContextDictionary;
+
+/**
+ * Checks that Expression.parse() returns cached Expressions only when the
+ *   namespace prefixes they were parsed with are bound the same way, that
+ *   deprecated syntax is not cached, and that the ExpressionCache evicts
+ *   unreferenced entries first when it is full.
+ */
+public class ExpressionCacheTest
+  extends Test
+{
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("ExpressionCache hit and miss",checkHitAndMiss());
+          check("ExpressionCache prefix binding",checkPrefixBinding());
+          check("ExpressionCache deprecated syntax",checkDeprecated());
+          check("ExpressionCache eviction",checkEviction());
+        }
+        catch (ParseException x)
+        { report(new TestResult("ExpressionCache",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * The first parse of a text misses and caches the Expression, and later
+   *   parses return the same Expression
+   */
+  private String checkHitAndMiss()
+    throws ParseException
+  {
+    ExpressionCache cache=Expression.getCache();
+    String text="\"ExpressionCacheTest\".length()+1";
+    
+    if (cache.get(text)!=null)
+    { return "Found '"+text+"' before parsing it";
+    }
+    long misses=cache.getMisses();
+    Expression<?> expression=Expression.parse(text);
+    if (cache.getMisses()-misses!=1)
+    { return "First parse did not miss";
+    }
+    
+    long hits=cache.getHits();
+    if (Expression.parse(text)!=expression)
+    { return "Second parse returned a different Expression";
+    }
+    if (cache.getHits()-hits!=1)
+    { return "Second parse did not hit";
+    }
+    if (cache.get(text)!=expression)
+    { return "Cache does not contain the parsed Expression";
+    }
+    return null;
+  }
+  
+  /**
+   * An Expression that resolved a prefix is not returned once the prefix
+   *   is bound to a different namespace
+   */
+  private String checkPrefixBinding()
+    throws ParseException
+  {
+    ExpressionCache cache=Expression.getCache();
+    String text="[#ect:Foo] { a:=1 }";
+    
+    Expression<?> a=parse(text,"class:/spiralcraft/lang/test/a/");
+    if (!dump(a).contains("class:/spiralcraft/lang/test/a/Foo"))
+    { return "Prefix was not resolved: "+dump(a);
+    }
+    
+    ExpressionParser parser=new ExpressionParser();
+    parser.parse("1+1");
+    if (parser.getPrefixBindings()!=null)
+    { return "Unprefixed parse recorded "+parser.getPrefixBindings();
+    }
+    
+    NamespaceContext.push(resolver("class:/spiralcraft/lang/test/b/"));
+    try
+    {
+      if (cache.get(text)!=null)
+      { return "Returned an Expression parsed with a different binding";
+      }
+    }
+    finally
+    { NamespaceContext.pop();
+    }
+    
+    Expression<?> b=parse(text,"class:/spiralcraft/lang/test/b/");
+    if (!dump(b).contains("class:/spiralcraft/lang/test/b/Foo"))
+    { return "Re-parse did not use the new binding: "+dump(b);
+    }
+    if (parse(text,"class:/spiralcraft/lang/test/b/")!=b)
+    { return "Did not cache the Expression parsed with the new binding";
+    }
+    
+    if (cache.get(text)!=null)
+    { return "Returned an Expression parsed with a resolver outside of one";
+    }
+    return null;
+  }
+  
+  /**
+   * Deprecated syntax is parsed every time so the deprecation is reported.
+   *   The smoke tests run with strict deprecation, so lenient parsing is
+   *   enabled locally.
+   */
+  private String checkDeprecated()
+    throws ParseException
+  {
+    ExpressionCache cache=Expression.getCache();
+    String[] texts
+      ={"[@ect:Bar] foo"
+       ,"{ [#ect:Foo] a:=1 }"
+       };
+    
+    HashMap<String,String> lenient=new HashMap<String,String>();
+    lenient.put("spiralcraft.lang.strictDeprecation","false");
+    ContextDictionary.pushInstance
+      (new ContextDictionary(ContextDictionary.getInstance(),lenient,true));
+    NamespaceContext.push(resolver("class:/spiralcraft/lang/test/"));
+    try
+    {
+      for (String text:texts)
+      {
+        ExpressionParser parser=new ExpressionParser();
+        parser.parse(text);
+        if (parser.isCacheable())
+        { return "'"+text+"' is cacheable";
+        }
+        
+        Expression.parse(text);
+        if (cache.get(text)!=null)
+        { return "Cached '"+text+"'";
+        }
+      }
+    }
+    finally
+    { 
+      NamespaceContext.pop();
+      ContextDictionary.popInstance();
+    }
+    return null;
+  }
+  
+  /**
+   * A full cache evicts an entry that has not been read since the clock 
+   *   hand last passed it, and shrinks when the capacity is reduced
+   */
+  private String checkEviction()
+    throws ParseException
+  {
+    ExpressionCache cache=new ExpressionCache(3);
+    Expression<?> a=Expression.parse("1");
+    cache.put("a",a,null);
+    cache.put("b",Expression.parse("2"),null);
+    cache.put("c",Expression.parse("3"),null);
+    
+    for (int i=0;i<10;i++)
+    {
+      if (cache.get("a")!=a)
+      { return "Referenced entry was evicted after "+i+" inserts";
+      }
+      cache.put("x"+i,Expression.parse("4"),null);
+      if (cache.getSize()!=3)
+      { return "Size is "+cache.getSize()+" at capacity 3";
+      }
+    }
+    if (cache.getEvictions()!=10)
+    { return "Evicted "+cache.getEvictions()+" entries for 10 inserts";
+    }
+    
+    cache.setCapacity(1);
+    if (cache.getSize()!=1)
+    { return "Size is "+cache.getSize()+" after reducing capacity to 1";
+    }
+    
+    cache.setCapacity(0);
+    cache.put("d",Expression.parse("5"),null);
+    if (cache.getSize()!=0 || cache.get("d")!=null)
+    { return "Cached an entry with capacity 0";
+    }
+    return null;
+  }
+  
+  private Expression<?> parse(String text,String namespace)
+    throws ParseException
+  {
+    NamespaceContext.push(resolver(namespace));
+    try
+    { return Expression.parse(text);
+    }
+    finally
+    { NamespaceContext.pop();
+    }
+  }
+  
+  private StandardPrefixResolver resolver(String namespace)
+  {
+    StandardPrefixResolver resolver=new StandardPrefixResolver();
+    resolver.mapPrefix("ect",URI.create(namespace));
+    return resolver;
+  }
+  
+  private String dump(Expression<?> expression)
+  { 
+    StringBuffer out=new StringBuffer();
+    expression.dumpParseTree(out);
+    return out.toString();
+  }
+}
@@ -0,0 +1,137 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.lang.test;
+
+import java.net.URI;
+
+import spiralcraft.cli.Arguments;
+import spiralcraft.common.namespace.NamespaceContext;
+import spiralcraft.common.namespace.StandardPrefixResolver;
+import spiralcraft.exec.Executable;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.ExpressionCache;
+import spiralcraft.lang.parser.ExpressionParser;
+
+
+/**
+ * Compares the cost of obtaining an Expression by parsing its text,
+ *   by parsing and interning it in the Expression pool, and through the
+ *   ExpressionCache consulted by Expression.parse().
+ */
+public class ExpressionParseBenchmark
+  implements Executable
+{
+
+  private static final String[] EXPRESSIONS
+    ={".theField.length()"
+    ,"[@example:Customer].type"
+    ,".score > 21 && .active"
+    ,"[*dtask:Fetch{[*query:Scan{[@example:Fact].type}]}].()#{.owner.id}"
+    ,"customer.address.city.[*fn:Compile]"
+    ,"x==null?\"none\":x.toString()+\" (\"+y+\")\""
+    };
+  
+  private int _repeats=100000;
+  private int _rounds=5;
+  private volatile Object sink;
+
+  @Override
+  public void execute(String ... args)
+  {
+    new Arguments()
+    {
+
+      @Override
+      protected boolean processOption(String option)
+      {
+        if (option=="repeats")
+        { _repeats=Integer.parseInt(nextArgument());
+        }
+        else if (option=="rounds")
+        { _rounds=Integer.parseInt(nextArgument());
+        }
+        else
+        { return false;
+        }
+        return true;
+      }
+    }.process(args);
+
+    try
+    { run();
+    }
+    catch (Throwable x)
+    { x.printStackTrace();
+    }
+  }
+
+  public void run()
+    throws Throwable
+  {
+    StandardPrefixResolver resolver=new StandardPrefixResolver();
+    resolver.mapPrefix
+      ("example",URI.create("class:/spiralcraft/data/test/example/"));
+    resolver.mapPrefix("dtask",URI.create("class:/spiralcraft/data/task/"));
+    resolver.mapPrefix("query",URI.create("class:/spiralcraft/data/query/"));
+    resolver.mapPrefix("fn",URI.create("class:/spiralcraft/lang/functions/"));
+    NamespaceContext.push(resolver);
+    try
+    { run(Expression.getCache());
+    }
+    finally
+    { NamespaceContext.pop();
+    }
+  }
+  
+  private void run(ExpressionCache cache)
+    throws Throwable
+  {
+    for (int round=0;round<_rounds;round++)
+    {
+      long time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { 
+        sink=new ExpressionParser()
+          .parse(EXPRESSIONS[i%EXPRESSIONS.length]);
+      }
+      report("Cold parse",time);
+
+      time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { 
+        String text=EXPRESSIONS[i%EXPRESSIONS.length];
+        sink=Expression.create
+          (new ExpressionParser().parse(text).getRootNode(),text);
+      }
+      report("Parse and pool",time);
+
+      time=System.nanoTime();
+      for (int i=0;i<_repeats;i++)
+      { sink=Expression.parse(EXPRESSIONS[i%EXPRESSIONS.length]);
+      }
+      report("Cached parse",time);
+    }
+    System.err.println(cache);
+  }
+
+  private void report(String name,long start)
+  {
+    long elapsed=System.nanoTime()-start;
+    System.err.println
+      (name+": "+_repeats+" repeats in "+(elapsed/1000000)+" ms ("
+      +((double) elapsed/_repeats)+" ns/op)"
+      );
+  }
+}
@@ -0,0 +1,413 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.log.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import spiralcraft.common.LifecycleException;
+import spiralcraft.log.Event;
+import spiralcraft.log.EventHandler;
+import spiralcraft.log.GenericLog;
+import spiralcraft.log.GenericLog.OverflowPolicy;
+import spiralcraft.log.Level;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks the async mode of GenericLog: delivery from the background 
+ *   thread, each OverflowPolicy, flush(), and that no events are lost
+ *   when async mode is disabled while other threads are logging.
+ */
+public class AsyncLogTest
+  extends Test
+{
+  
+  private static final long TIMEOUT=10000;
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        check("Async delivery",checkDelivery());
+        check("Async overflow BLOCK",checkBlock());
+        check("Async overflow DISCARD",checkDiscard());
+        check("Async overflow DISCARD_OLDEST",checkDiscardOldest());
+        check("Async overflow CALLER_RUNS",checkCallerRuns());
+        check("Async flush",checkFlush());
+        check("Async stop while logging",checkStop());
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Events are delivered in order from a thread other than the caller
+   */
+  private String checkDelivery()
+  {
+    Recorder recorder=new Recorder();
+    GenericLog log=createLog(recorder,8192,OverflowPolicy.BLOCK);
+    for (int i=0;i<100;i++)
+    { log.log(Level.INFO,Integer.toString(i));
+    }
+    log.flush();
+    log.setAsync(false);
+    
+    String failure=recorder.expect(sequence(0,100));
+    if (failure!=null)
+    { return failure;
+    }
+    for (Thread thread:recorder.threads())
+    { 
+      if (thread==Thread.currentThread())
+      { return "Event delivered in the logging thread";
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * A caller waits for space in a full buffer
+   */
+  private String checkBlock()
+    throws InterruptedException
+  {
+    final Recorder recorder=new Recorder();
+    final GenericLog log=createLog(recorder,2,OverflowPolicy.BLOCK);
+    if (!fill(log,recorder))
+    { return "Delivery did not start";
+    }
+    
+    Thread caller=log(log,"3");
+    caller.join(200);
+    if (!caller.isAlive())
+    { return "Caller did not wait for space in the buffer";
+    }
+    
+    recorder.release();
+    caller.join(TIMEOUT);
+    if (caller.isAlive())
+    { return "Caller still waiting after the buffer drained";
+    }
+    log.setAsync(false);
+    return recorder.expect(sequence(0,4));
+  }
+  
+  /**
+   * New events are discarded when the buffer is full, and the number
+   *   discarded is reported after the batch that was being delivered
+   */
+  private String checkDiscard()
+    throws InterruptedException
+  {
+    Recorder recorder=new Recorder();
+    GenericLog log=createLog(recorder,2,OverflowPolicy.DISCARD);
+    if (!fill(log,recorder))
+    { return "Delivery did not start";
+    }
+    log.log(Level.INFO,"3");
+    log.log(Level.INFO,"4");
+    
+    recorder.release();
+    log.setAsync(false);
+    return recorder.expect
+      (List.of("0","Log buffer overflow: discarded 2 events","1","2"));
+  }
+  
+  /**
+   * The oldest buffered events are discarded to make room for new events
+   */
+  private String checkDiscardOldest()
+    throws InterruptedException
+  {
+    Recorder recorder=new Recorder();
+    GenericLog log=createLog(recorder,2,OverflowPolicy.DISCARD_OLDEST);
+    if (!fill(log,recorder))
+    { return "Delivery did not start";
+    }
+    log.log(Level.INFO,"3");
+    log.log(Level.INFO,"4");
+    
+    recorder.release();
+    log.setAsync(false);
+    return recorder.expect
+      (List.of("0","Log buffer overflow: discarded 2 events","3","4"));
+  }
+  
+  /**
+   * Events that do not fit in the buffer are delivered by the caller
+   */
+  private String checkCallerRuns()
+    throws InterruptedException
+  {
+    Recorder recorder=new Recorder();
+    GenericLog log=createLog(recorder,2,OverflowPolicy.CALLER_RUNS);
+    if (!fill(log,recorder))
+    { return "Delivery did not start";
+    }
+    
+    // The handlers are busy with event 0, so the caller waits to deliver
+    Thread caller=log(log,"3");
+    long time=System.currentTimeMillis();
+    while (caller.getState()!=Thread.State.BLOCKED
+            && System.currentTimeMillis()-time<TIMEOUT
+          )
+    { Thread.sleep(1);
+    }
+    if (caller.getState()!=Thread.State.BLOCKED)
+    { return "Caller did not deliver the overflow event";
+    }
+    recorder.release();
+    caller.join(TIMEOUT);
+    log.setAsync(false);
+    
+    List<String> messages=recorder.messages();
+    if (messages.size()!=4 || !messages.containsAll(sequence(0,4)))
+    { return "Delivered "+messages;
+    }
+    if (recorder.threads().get(messages.indexOf("3"))!=caller)
+    { return "Overflow event was not delivered by the caller";
+    }
+    return null;
+  }
+  
+  /**
+   * flush() returns once the buffered events have been delivered
+   */
+  private String checkFlush()
+  {
+    Recorder recorder=new Recorder();
+    recorder.delayMs=5;
+    GenericLog log=createLog(recorder,8192,OverflowPolicy.BLOCK);
+    for (int i=0;i<20;i++)
+    { log.log(Level.INFO,Integer.toString(i));
+    }
+    log.flush();
+    String failure=recorder.expect(sequence(0,20));
+    log.setAsync(false);
+    return failure;
+  }
+  
+  /**
+   * Events logged while async mode is being disabled are all delivered
+   */
+  private String checkStop()
+    throws InterruptedException
+  {
+    final Recorder recorder=new Recorder();
+    final GenericLog log=createLog(recorder,16,OverflowPolicy.BLOCK);
+    final int threadCount=4;
+    final int eventCount=500;
+    final CountDownLatch started=new CountDownLatch(threadCount);
+    Thread[] threads=new Thread[threadCount];
+    for (int i=0;i<threadCount;i++)
+    {
+      threads[i]
+        =new Thread
+          (new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              started.countDown();
+              for (int j=0;j<eventCount;j++)
+              { log.log(Level.INFO,Integer.toString(j));
+              }
+            }
+          }
+          );
+      threads[i].start();
+    }
+    started.await();
+    log.setAsync(false);
+    for (Thread thread:threads)
+    { 
+      thread.join(TIMEOUT);
+      if (thread.isAlive())
+      { return "Logging thread blocked after async mode was disabled";
+      }
+    }
+    
+    int count=recorder.messages().size();
+    if (count!=threadCount*eventCount)
+    { return "Delivered "+count+" of "+(threadCount*eventCount)+" events";
+    }
+    return null;
+  }
+  
+  private GenericLog createLog
+    (Recorder recorder,int bufferSize,OverflowPolicy overflowPolicy)
+  {
+    GenericLog log=new GenericLog();
+    log.setHandlers(recorder);
+    log.setBufferSize(bufferSize);
+    log.setOverflowPolicy(overflowPolicy);
+    log.setAsync(true);
+    return log;
+  }
+  
+  /**
+   * Log event 0, which the Recorder holds in delivery until released, and
+   *   events 1 and 2, which fill a buffer of 2.
+   * 
+   * @return false if event 0 was not delivered
+   */
+  private boolean fill(GenericLog log,Recorder recorder)
+    throws InterruptedException
+  {
+    recorder.hold();
+    log.log(Level.INFO,"0");
+    if (!recorder.held.await(TIMEOUT,TimeUnit.MILLISECONDS))
+    { return false;
+    }
+    log.log(Level.INFO,"1");
+    log.log(Level.INFO,"2");
+    return true;
+  }
+  
+  /**
+   * Log a message from a new thread
+   */
+  private Thread log(final GenericLog log,final String message)
+  {
+    Thread thread
+      =new Thread
+        (new Runnable()
+        {
+          @Override
+          public void run()
+          { log.log(Level.INFO,message);
+          }
+        }
+        );
+    thread.start();
+    return thread;
+  }
+  
+  private List<String> sequence(int start,int end)
+  {
+    ArrayList<String> ret=new ArrayList<String>();
+    for (int i=start;i<end;i++)
+    { ret.add(Integer.toString(i));
+    }
+    return ret;
+  }
+  
+  /**
+   * Records the events delivered and the threads that delivered them, 
+   *   optionally holding event 0 until released
+   */
+  private static class Recorder
+    implements EventHandler
+  {
+    private final ArrayList<String> messages=new ArrayList<String>();
+    private final ArrayList<Thread> threads=new ArrayList<Thread>();
+    final CountDownLatch held=new CountDownLatch(1);
+    private volatile CountDownLatch gate;
+    volatile long delayMs;
+    
+    void hold()
+    { gate=new CountDownLatch(1);
+    }
+    
+    void release()
+    { gate.countDown();
+    }
+    
+    @Override
+    public void handleEvent(Event event)
+    {
+      CountDownLatch gate=this.gate;
+      if (gate!=null && "0".equals(event.getMessage()))
+      { 
+        held.countDown();
+        try
+        { gate.await(TIMEOUT,TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException x)
+        { Thread.currentThread().interrupt();
+        }
+      }
+      if (delayMs>0)
+      { 
+        try
+        { Thread.sleep(delayMs);
+        }
+        catch (InterruptedException x)
+        { Thread.currentThread().interrupt();
+        }
+      }
+      synchronized (this)
+      { 
+        messages.add(event.getMessage());
+        threads.add(Thread.currentThread());
+      }
+    }
+    
+    synchronized List<String> messages()
+    { return new ArrayList<String>(messages);
+    }
+    
+    synchronized List<Thread> threads()
+    { return new ArrayList<Thread>(threads);
+    }
+    
+    String expect(List<String> expected)
+    {
+      List<String> messages=messages();
+      if (!messages.equals(expected))
+      { return "Expected "+expected+", delivered "+messages;
+      }
+      return null;
+    }
+    
+    @Override
+    public void start()
+      throws LifecycleException
+    { 
+    }
+    
+    @Override
+    public void stop()
+      throws LifecycleException
+    {
+    }
+  }
+}
@@ -0,0 +1,218 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.meter.test;
+
+import java.io.IOException;
+
+import spiralcraft.log.Level;
+import spiralcraft.meter.HistogramRegister;
+import spiralcraft.meter.Meter;
+import spiralcraft.meter.MeterContext;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks the HistogramRegister bucket arithmetic and percentiles, and the
+ *   text exposition format written by MeterContext.export()
+ */
+public class MeterTest
+  extends Test
+{
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("Histogram bucket bounds",checkBuckets());
+          check("Histogram percentiles",checkPercentiles());
+          check("Histogram Register methods",checkRegisterMethods());
+          check("Histogram export",checkExport());
+        }
+        catch (IOException x)
+        { 
+          report(new TestResult("Histogram export",false,"Caught exception",x));
+          log.log(Level.WARNING,"Error",x);
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Every bucket must hold exactly the values between its bounds, and the
+   *   buckets must cover all non-negative longs without gaps
+   */
+  private String checkBuckets()
+  {
+    if (HistogramRegister.bucketIndex(-5)!=0)
+    { return "Negative value not in bucket 0";
+    }
+    if (HistogramRegister.bucketIndex(Long.MAX_VALUE)
+        !=HistogramRegister.BUCKETS-1
+        )
+    { return "Long.MAX_VALUE not in last bucket";
+    }
+    if (HistogramRegister.bucketUpperBound(HistogramRegister.BUCKETS-1)
+        !=Long.MAX_VALUE
+        )
+    { return "Last bucket does not end at Long.MAX_VALUE";
+    }
+    
+    long expectedLower=0;
+    for (int i=0;i<HistogramRegister.BUCKETS;i++)
+    {
+      long lower=HistogramRegister.bucketLowerBound(i);
+      long upper=HistogramRegister.bucketUpperBound(i);
+      if (lower!=expectedLower)
+      { return "Bucket "+i+" starts at "+lower+", expected "+expectedLower;
+      }
+      if (upper<lower)
+      { return "Bucket "+i+" is empty";
+      }
+      if (HistogramRegister.bucketIndex(lower)!=i
+          || HistogramRegister.bucketIndex(upper)!=i
+          )
+      { return "Bounds of bucket "+i+" map to another bucket";
+      }
+      if (i>=16)
+      {
+        // Bucket width is at most 1/16th of the values it holds
+        if ((upper-lower+1)*16>lower)
+        { return "Bucket "+i+" is wider than 1/16th of "+lower;
+        }
+      }
+      expectedLower=upper+1;
+    }
+    return null;
+  }
+  
+  private String checkPercentiles()
+  {
+    HistogramRegister histogram=new HistogramRegister("latency");
+    for (long i=1;i<=1000;i++)
+    { histogram.record(i);
+    }
+    HistogramRegister.Snapshot snapshot=histogram.snapshot();
+    if (snapshot.getCount()!=1000 
+        || snapshot.getSum()!=500500
+        || snapshot.getMin()!=1
+        || snapshot.getMax()!=1000
+        )
+    { return "Wrong totals";
+    }
+    
+    long[] values
+      ={snapshot.getValueAtPercentile(50)
+       ,snapshot.getValueAtPercentile(99)
+       ,snapshot.getValueAtPercentile(100)
+       };
+    long[] expected={500,990,1000};
+    for (int i=0;i<values.length;i++)
+    {
+      if (values[i]<expected[i] || values[i]>expected[i]+expected[i]/16)
+      { return "Percentile value "+values[i]+" not within 1/16 of "+expected[i];
+      }
+    }
+    if (snapshot.getValueAtPercentile(100)!=1000)
+    { return "100th percentile is not the maximum";
+    }
+    
+    HistogramRegister other=new HistogramRegister("other");
+    other.record(5000);
+    histogram.merge(other);
+    if (histogram.snapshot().getCount()!=1001
+        || histogram.snapshot().getMax()!=5000
+        )
+    { return "Merge lost values";
+    }
+    return null;
+  }
+  
+  private String checkRegisterMethods()
+  {
+    HistogramRegister histogram=new HistogramRegister("adjusted");
+    histogram.inc();
+    histogram.incrementValue();
+    histogram.dec();
+    histogram.decrementValue();
+    histogram.adj(100);
+    histogram.adjustValue(100);
+    histogram.setValue(7);
+    
+    HistogramRegister.Snapshot snapshot=histogram.snapshot();
+    if (histogram.getValue()!=7 || snapshot.getCount()!=7)
+    { return "Expected 7 recorded values, found "+snapshot.getCount();
+    }
+    if (snapshot.getSum()!=209 || snapshot.getMin()!=0)
+    { return "Wrong values recorded: sum="+snapshot.getSum();
+    }
+    if (!histogram.hasChanged() 
+        || histogram.readValue()!=7 
+        || histogram.hasChanged()
+        )
+    { return "Changed flag not maintained";
+    }
+    return null;
+  }
+  
+  private String checkExport()
+    throws IOException
+  {
+    MeterContext context=new MeterContext(null,"test") { };
+    Meter meter=context.meter("service");
+    HistogramRegister histogram=meter.histogram("latency");
+    histogram.record(3);
+    histogram.record(3);
+    histogram.record(40);
+    
+    StringBuilder out=new StringBuilder();
+    context.export(out);
+    String expected
+      ="# TYPE test_service_latency histogram\n"
+      +"test_service_latency_bucket{le=\"3\"} 2\n"
+      +"test_service_latency_bucket{le=\"41\"} 3\n"
+      +"test_service_latency_bucket{le=\"+Inf\"} 3\n"
+      +"test_service_latency_sum 46\n"
+      +"test_service_latency_count 3\n";
+    if (!out.toString().equals(expected))
+    { return "Unexpected export: "+out;
+    }
+    return null;
+  }
+}
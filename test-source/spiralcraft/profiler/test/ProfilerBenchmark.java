@@ -0,0 +1,231 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.profiler.test;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import spiralcraft.cli.Arguments;
+import spiralcraft.common.declare.DeclarationInfo;
+import spiralcraft.exec.Executable;
+import spiralcraft.lang.Channel;
+import spiralcraft.lang.Expression;
+import spiralcraft.lang.SimpleFocus;
+import spiralcraft.lang.spi.SimpleChannel;
+import spiralcraft.lang.test.Bar;
+import spiralcraft.profiler.ProfilerAgent;
+
+/**
+ * Measures the overhead of the ProfilerAgent in each mode on a workload
+ *   of expression evaluations, with calls entered and exited at the
+ *   granularity of a bound context. Each round is run with 1 worker thread
+ *   and with doubling numbers of threads up to the "threads" option.
+ * 
+ * <p>Unprofiled and SAMPLE runs are alternated "trials" times and their 
+ *   median times compared, so that a single slow run caused by the 
+ *   scheduler or the garbage collector does not dominate the result. The
+ *   CPU time consumed by the worker threads is reported alongside the 
+ *   elapsed time, as it isolates the cost of entering and exiting calls
+ *   from other activity on the machine.
+ * </p>
+ */
+public class ProfilerBenchmark
+  implements Executable
+{
+
+  private int _repeats=200000;
+  private int _threads=4;
+  private int _rounds=3;
+  private int _trials=5;
+  private boolean _export;
+  private final AtomicLong workerCpuNanos=new AtomicLong();
+
+  @Override
+  public void execute(String ... args)
+  {
+    new Arguments()
+    {
+
+      @Override
+      protected boolean processOption(String option)
+      {
+        if (option=="repeats")
+        { _repeats=Integer.parseInt(nextArgument());
+        }
+        else if (option=="threads")
+        { _threads=Integer.parseInt(nextArgument());
+        }
+        else if (option=="rounds")
+        { _rounds=Integer.parseInt(nextArgument());
+        }
+        else if (option=="trials")
+        { _trials=Integer.parseInt(nextArgument());
+        }
+        else if (option=="export")
+        { _export=true;
+        }
+        else
+        { return false;
+        }
+        return true;
+      }
+    }.process(args);
+
+    try
+    { run();
+    }
+    catch (Throwable x)
+    { x.printStackTrace();
+    }
+  }
+
+  public void run()
+    throws Throwable
+  {
+    for (int round=0;round<_rounds;round++)
+    {
+      for (int threads=1;threads<=_threads;threads*=2)
+      { 
+        boolean last=round==_rounds-1 && threads*2>_threads;
+        runRound(threads,_export && last);
+      }
+    }
+  }
+  
+  private void runRound(int threads,boolean export)
+    throws Throwable
+  {
+    long[] baseTimes=new long[_trials];
+    long[] baseCpu=new long[_trials];
+    long[] sampleTimes=new long[_trials];
+    long[] sampleCpu=new long[_trials];
+    ProfilerAgent agent=null;
+    for (int trial=0;trial<_trials;trial++)
+    {
+      baseTimes[trial]=time(null,threads);
+      baseCpu[trial]=workerCpuNanos.get();
+      
+      agent=new ProfilerAgent();
+      agent.setMode(ProfilerAgent.Mode.SAMPLE);
+      agent.start();
+      sampleTimes[trial]=time(agent,threads);
+      sampleCpu[trial]=workerCpuNanos.get();
+      agent.stop();
+    }
+    long base=median(baseTimes);
+    long cpu=median(baseCpu);
+    report("No profiler",threads,base,base,cpu,cpu);
+    report("SAMPLE",threads,median(sampleTimes),base,median(sampleCpu),cpu);
+    if (export)
+    { System.err.println(agent.exportCollapsed(new StringBuilder()));
+    }
+      
+    // Run last- the recorded Call trees add GC pressure
+    agent=new ProfilerAgent();
+    agent.setMode(ProfilerAgent.Mode.INSTRUMENT);
+    agent.start();
+    report
+      ("INSTRUMENT",threads,time(agent,threads),base,workerCpuNanos.get(),cpu);
+    agent.stop();
+    agent=null;
+    System.gc();
+  }
+  
+  private long time(final ProfilerAgent agent,int threadCount)
+    throws Exception
+  {
+    final DeclarationInfo outerInfo
+      =new DeclarationInfo
+        (null,URI.create("class:/spiralcraft/lang/test/Outer")
+        ,URI.create("class:/spiralcraft/profiler/test/Bench.assy.xml#line=1")
+        );
+    final DeclarationInfo innerInfo
+      =new DeclarationInfo
+        (null,URI.create("class:/spiralcraft/lang/test/Inner")
+        ,URI.create("class:/spiralcraft/profiler/test/Bench.assy.xml#line=2")
+        );
+    
+    Thread[] threads=new Thread[threadCount];
+    final Channel<?>[] channels=new Channel<?>[threadCount];
+    for (int i=0;i<threadCount;i++)
+    {
+      channels[i]
+        =new SimpleFocus<Bar>(new SimpleChannel<Bar>(Bar.class,new Bar(),true))
+          .bind(Expression.parse(".theField.length()+.count*2"));
+    }
+    
+    workerCpuNanos.set(0);
+    long start=System.nanoTime();
+    for (int t=0;t<threadCount;t++)
+    { 
+      final Channel<?> channel=channels[t];
+      threads[t]=new Thread()
+      {
+        @Override
+        public void run()
+        {
+          for (int i=0;i<_repeats;i++)
+          {
+            if (agent!=null)
+            { agent.enter("Outer#handle",outerInfo);
+            }
+            for (int j=0;j<4;j++)
+            {
+              if (agent!=null)
+              { agent.enter("Inner#computeSelection",innerInfo);
+              }
+              for (int k=0;k<10;k++)
+              { channel.get();
+              }
+              if (agent!=null)
+              { agent.exit("Inner#computeSelection",innerInfo,null);
+              }
+            }
+            if (agent!=null)
+            { agent.exit("Outer#handle",outerInfo,null);
+            }
+          }
+          workerCpuNanos.addAndGet
+            (ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime());
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread thread:threads)
+    { thread.join();
+    }
+    return System.nanoTime()-start;
+  }
+
+  private long median(long[] times)
+  {
+    long[] sorted=times.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length/2];
+  }
+  
+  private void report
+    (String name,int threads,long elapsed,long base,long cpu,long baseCpu)
+  {
+    System.err.println
+      (name+": "+threads+"x"+_repeats+" repeats in "+(elapsed/1000000)
+      +" ms ("+String.format("%+.1f",(elapsed-base)*100D/base)+"%)"
+      +", worker CPU "+(cpu/1000000)
+      +" ms ("+String.format("%+.1f",(cpu-baseCpu)*100D/baseCpu)+"%)"
+      );
+  }
+}
@@ -0,0 +1,361 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.profiler.test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import spiralcraft.common.declare.DeclarationInfo;
+import spiralcraft.profiler.ProfileNode;
+import spiralcraft.profiler.ProfilerAgent;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+
+/**
+ * Checks that the ProfilerAgent merges the profiles of several threads,
+ *   keeps them apart when asked to, and exports them in the collapsed stack
+ *   format, in both the INSTRUMENT and SAMPLE modes.
+ */
+public class ProfilerTest
+  extends Test
+{
+  private static final DeclarationInfo OUTER_INFO
+    =new DeclarationInfo
+      (null,null,URI.create("class:/spiralcraft/profiler/test/Outer"));
+  private static final DeclarationInfo INNER_INFO
+    =new DeclarationInfo
+      (null,null,URI.create("class:/spiralcraft/profiler/test/Inner"));
+  
+  private static final String OUTER="Outer#handle";
+  
+  // The semicolon separates frames in the collapsed format
+  private static final String INNER="Inner#compute;1";
+  
+  private static final String OUTER_FRAME
+    ="Outer#handle:class:/spiralcraft/profiler/test/Outer";
+  private static final String INNER_FRAME
+    ="Inner#compute;1:class:/spiralcraft/profiler/test/Inner";
+  private static final String INNER_COLLAPSED
+    ="Inner#compute:1:class:/spiralcraft/profiler/test/Inner";
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("Profiler merged INSTRUMENT profile",checkMergedInstrument());
+          check("Profiler per-thread INSTRUMENT profile",checkPerThread());
+          check("Profiler INSTRUMENT collapsed export",checkInstrumentExport());
+          check("Profiler SAMPLE profile and export",checkSample());
+        }
+        catch (IOException x)
+        { report(new TestResult("Profiler",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Calls through the same frames in different threads are combined
+   */
+  private String checkMergedInstrument()
+    throws InterruptedException
+  {
+    ProfilerAgent agent=instrument();
+    ProfileNode root=agent.getMergedProfile(true);
+    
+    ProfileNode outer=onlyChild(root);
+    if (outer==null || !outer.getFrame().equals(OUTER_FRAME))
+    { return "Expected a single "+OUTER_FRAME+" frame: "+frames(root);
+    }
+    if (outer.getCount()!=4)
+    { return "Merged "+outer.getCount()+" outer calls instead of 4";
+    }
+    
+    ProfileNode inner=onlyChild(outer);
+    if (inner==null || !inner.getFrame().equals(INNER_FRAME))
+    { return "Expected a single "+INNER_FRAME+" frame: "+frames(outer);
+    }
+    if (inner.getCount()!=4)
+    { return "Merged "+inner.getCount()+" inner calls instead of 4";
+    }
+    
+    // Each inner call sleeps for 2ms, as does each outer call around it
+    if (inner.getTotalNanos()<8000000 || outer.getSelfNanos()<8000000)
+    { 
+      return "Inner time "+inner.getTotalNanos()
+        +"ns, outer self time "+outer.getSelfNanos()+"ns";
+    }
+    if (outer.getTotalNanos()!=outer.getSelfNanos()+inner.getTotalNanos())
+    { return "Outer total time is not the sum of its self and inner time";
+    }
+    return null;
+  }
+  
+  /**
+   * Each thread's profile is kept under a node named for the thread
+   */
+  private String checkPerThread()
+    throws InterruptedException
+  {
+    ProfilerAgent agent=instrument();
+    ProfileNode root=agent.getMergedProfile(false);
+    
+    Set<String> threads=new HashSet<String>();
+    for (ProfileNode thread:root.getChildren())
+    {
+      threads.add(thread.getFrame());
+      ProfileNode outer=onlyChild(thread);
+      if (outer==null 
+          || !outer.getFrame().equals(OUTER_FRAME) 
+          || outer.getCount()!=2
+          )
+      { return "Thread "+thread.getFrame()+" contains "+frames(thread);
+      }
+    }
+    
+    if (!threads.equals(Set.of("profiled-0","profiled-1")))
+    { return "Profile contains threads "+threads;
+    }
+    return null;
+  }
+  
+  /**
+   * Each stack is written on one line, with frames separated by semicolons
+   *   and weighted by its self time in microseconds
+   */
+  private String checkInstrumentExport()
+    throws InterruptedException,IOException
+  {
+    ProfilerAgent agent=instrument();
+    StringBuilder out=new StringBuilder();
+    agent.exportCollapsed(out);
+    String failure=checkFormat(out);
+    if (failure!=null)
+    { return failure;
+    }
+    
+    Map<String,Long> stacks=parse(out.toString());
+    for (String thread:new String[] {"profiled-0","profiled-1"})
+    {
+      Long outer=stacks.get(thread+";"+OUTER_FRAME);
+      Long inner=stacks.get(thread+";"+OUTER_FRAME+";"+INNER_COLLAPSED);
+      if (outer==null || inner==null)
+      { return "Missing stacks for "+thread+" in "+stacks.keySet();
+      }
+      if (outer<4000 || inner<4000)
+      { return thread+" outer self time "+outer+"us, inner "+inner+"us";
+      }
+    }
+    return null;
+  }
+  
+  /**
+   * Samples count the frames on the stack of each thread, and the innermost
+   *   frame of each sample weights its stack in the export
+   */
+  private String checkSample()
+    throws InterruptedException,IOException
+  {
+    final ProfilerAgent agent=new ProfilerAgent();
+    agent.setMode(ProfilerAgent.Mode.SAMPLE);
+    agent.setSampleIntervalMs(1);
+    agent.start();
+    Thread[] threads=new Thread[2];
+    for (int i=0;i<threads.length;i++)
+    {
+      threads[i]
+        =new Thread("sampled-"+i)
+        {
+          @Override
+          public void run()
+          { 
+            agent.enter(OUTER,OUTER_INFO);
+            agent.enter(INNER,INNER_INFO);
+            try
+            { Thread.sleep(300);
+            }
+            catch (InterruptedException x)
+            { }
+            agent.exit(INNER,INNER_INFO,null);
+            agent.exit(OUTER,OUTER_INFO,null);
+          }
+        };
+      threads[i].start();
+    }
+    for (Thread thread:threads)
+    { thread.join();
+    }
+    agent.stop();
+    
+    ProfileNode outer=onlyChild(agent.getMergedProfile(false));
+    if (outer==null || !outer.getFrame().equals(OUTER_FRAME))
+    { return "Samples were not merged across threads";
+    }
+    ProfileNode inner=onlyChild(outer);
+    if (inner==null || !inner.getFrame().equals(INNER_FRAME))
+    { return "Expected a single inner frame: "+frames(outer);
+    }
+    
+    // Two threads were sampled for 300ms at 1ms intervals
+    if (inner.getSelfCount()<20)
+    { return "Recorded "+inner.getSelfCount()+" samples";
+    }
+    if (outer.getSelfCount()>inner.getSelfCount()/10
+        || outer.getCount()!=outer.getSelfCount()+inner.getCount()
+        )
+    { 
+      return "Outer frame has "+outer.getSelfCount()+" self samples out of "
+        +outer.getCount();
+    }
+    
+    StringBuilder out=new StringBuilder();
+    agent.exportCollapsed(out);
+    String failure=checkFormat(out);
+    if (failure!=null)
+    { return failure;
+    }
+    Long weight=parse(out.toString()).get(OUTER_FRAME+";"+INNER_COLLAPSED);
+    if (weight==null || weight!=inner.getSelfCount())
+    { return "Inner stack has weight "+weight+" in "+out;
+    }
+    return null;
+  }
+  
+  /**
+   * Run two threads that each make two outer calls, each containing one
+   *   inner call
+   */
+  private ProfilerAgent instrument()
+    throws InterruptedException
+  {
+    final ProfilerAgent agent=new ProfilerAgent();
+    agent.setMode(ProfilerAgent.Mode.INSTRUMENT);
+    agent.start();
+    Thread[] threads=new Thread[2];
+    for (int i=0;i<threads.length;i++)
+    {
+      threads[i]
+        =new Thread("profiled-"+i)
+        {
+          @Override
+          public void run()
+          { 
+            try
+            {
+              for (int j=0;j<2;j++)
+              {
+                agent.enter(OUTER,OUTER_INFO);
+                Thread.sleep(2);
+                agent.enter(INNER,INNER_INFO);
+                Thread.sleep(2);
+                agent.exit(INNER,INNER_INFO,null);
+                agent.exit(OUTER,OUTER_INFO,null);
+              }
+            }
+            catch (InterruptedException x)
+            { }
+          }
+        };
+      threads[i].start();
+    }
+    for (Thread thread:threads)
+    { thread.join();
+    }
+    agent.stop();
+    return agent;
+  }
+  
+  /**
+   * Check that every line consists of frames separated by semicolons, 
+   *   followed by a space and a positive weight
+   */
+  private String checkFormat(CharSequence collapsed)
+  {
+    String text=collapsed.toString();
+    if (text.isEmpty() || !text.endsWith("\n"))
+    { return "Export is empty or unterminated: '"+text+"'";
+    }
+    for (String line:text.split("\n"))
+    {
+      if (!line.matches("[^; ]+(;[^; ]+)* [1-9][0-9]*"))
+      { return "Malformed line '"+line+"'";
+      }
+    }
+    return null;
+  }
+  
+  private Map<String,Long> parse(String collapsed)
+  {
+    Map<String,Long> stacks=new HashMap<String,Long>();
+    for (String line:collapsed.split("\n"))
+    {
+      int space=line.lastIndexOf(' ');
+      stacks.put
+        (line.substring(0,space),Long.parseLong(line.substring(space+1)));
+    }
+    return stacks;
+  }
+  
+  private ProfileNode onlyChild(ProfileNode node)
+  {
+    ProfileNode child=null;
+    for (ProfileNode candidate:node.getChildren())
+    { 
+      if (child!=null)
+      { return null;
+      }
+      child=candidate;
+    }
+    return child;
+  }
+  
+  private String frames(ProfileNode node)
+  {
+    StringBuilder frames=new StringBuilder();
+    for (ProfileNode child:node.getChildren())
+    { frames.append("[").append(child.getFrame()).append("]");
+    }
+    return frames.toString();
+  }
+}
@@ -0,0 +1,347 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.sax.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import spiralcraft.sax.Node;
+import spiralcraft.sax.ParseTree;
+import spiralcraft.sax.ParseTreeFactory;
+import spiralcraft.sax.XmlEventCache;
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.file.FileResource;
+
+/**
+ * Checks that the XmlEventCache replays the XML files in the source tree 
+ *   into the same ParseTrees, with the same node positions, as a direct
+ *   parse, that it detects content changes that preserve the size and
+ *   modification time of a file, and that it replays skipped entities.
+ */
+public class XmlEventCacheTest
+  extends Test
+{
+  
+  private static final String[] SOURCE_DIRS={"../source","../test-source"};
+  
+  private final File dir=new File("out/xmleventcache");
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("XmlEventCache replay equivalence",checkEquivalence());
+          check("XmlEventCache content invalidation",checkInvalidation());
+          check("XmlEventCache skipped entity",checkSkippedEntity());
+        }
+        catch (IOException | SAXException x)
+        { report(new TestResult("XmlEventCache",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Every well formed XML file in the source tree is recorded on the first
+   *   parse and replayed on the second into a tree that serializes the same
+   *   and has the same node positions as a direct parse
+   */
+  private String checkEquivalence()
+    throws IOException
+  {
+    XmlEventCache cache=newCache("equivalence");
+    List<Path> files=new ArrayList<Path>();
+    for (String sourceDir:SOURCE_DIRS)
+    {
+      try (Stream<Path> stream=Files.walk(Paths.get(sourceDir)))
+      { 
+        Iterator<Path> it=stream.iterator();
+        while (it.hasNext())
+        {
+          Path path=it.next();
+          if (path.toString().endsWith(".xml"))
+          { files.add(path);
+          }
+        }
+      }
+    }
+    
+    int compared=0;
+    for (Path path:files)
+    {
+      Resource resource=new FileResource(path.toFile());
+      ParseTree direct;
+      try
+      { direct=ParseTreeFactory.fromResource(resource);
+      }
+      catch (SAXException x)
+      { 
+        // Not well formed, so there is nothing to cache
+        continue;
+      }
+      
+      try
+      {
+        ParseTree recorded=ParseTreeFactory.fromResource(resource,cache);
+        long hits=cache.getHits();
+        ParseTree replayed=ParseTreeFactory.fromResource(resource,cache);
+        if (cache.getHits()!=hits+1)
+        { return path+" was not replayed";
+        }
+        
+        String expected=ParseTreeFactory.toString(direct);
+        String expectedPositions=positions(direct);
+        if (!ParseTreeFactory.toString(recorded).equals(expected)
+            || !positions(recorded).equals(expectedPositions)
+            )
+        { return "Recording changed the parse of "+path;
+        }
+        if (!ParseTreeFactory.toString(replayed).equals(expected))
+        { return "Replay of "+path+" differs from a direct parse";
+        }
+        if (!positions(replayed).equals(expectedPositions))
+        { return "Replay of "+path+" has different node positions";
+        }
+      }
+      catch (SAXException x)
+      { return "Caught "+x+" replaying "+path;
+      }
+      compared++;
+    }
+    
+    if (compared<100)
+    { return "Only compared "+compared+" files";
+    }
+    return null;
+  }
+  
+  /**
+   * Changing the content of a file invalidates its entry, even if the size
+   *   and modification time of the file are preserved
+   */
+  private String checkInvalidation()
+    throws IOException,SAXException
+  {
+    XmlEventCache cache=newCache("invalidation");
+    Path path=dir.toPath().resolve("changed.xml");
+    Files.write(path,"<a><b>one</b></a>".getBytes(StandardCharsets.UTF_8));
+    FileTime time=Files.getLastModifiedTime(path);
+    Resource resource=new FileResource(path.toFile());
+    
+    ParseTreeFactory.fromResource(resource,cache);
+    ParseTreeFactory.fromResource(resource,cache);
+    if (cache.getHits()!=1 || cache.getMisses()!=1)
+    { 
+      return "Unchanged file had "+cache.getHits()+" hits and "
+        +cache.getMisses()+" misses";
+    }
+    
+    Files.write(path,"<a><b>two</b></a>".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(path,time);
+    ParseTree tree=ParseTreeFactory.fromResource(resource,cache);
+    if (cache.getMisses()!=2)
+    { return "Changed file was replayed";
+    }
+    if (!ParseTreeFactory.toString(tree).contains("two"))
+    { return "Changed file parsed to "+ParseTreeFactory.toString(tree);
+    }
+    
+    tree=ParseTreeFactory.fromResource(resource,cache);
+    if (cache.getHits()!=2 || !ParseTreeFactory.toString(tree).contains("two"))
+    { return "New content was not cached";
+    }
+    return null;
+  }
+  
+  /**
+   * A reference to an entity that the parser does not read is reported to 
+   *   the handler on replay as it is on a direct parse
+   */
+  private String checkSkippedEntity()
+    throws IOException,SAXException
+  {
+    XmlEventCache cache=newCache("skipped");
+    Path path=dir.toPath().resolve("skipped.xml");
+    Files.write
+      (path
+      ,("<?xml version=\"1.0\"?>\n"
+        +"<!DOCTYPE a SYSTEM \"external.dtd\">\n"
+        +"<a>before&undeclared;after</a>"
+       ).getBytes(StandardCharsets.UTF_8)
+      );
+    Resource resource=new FileResource(path.toFile());
+    
+    EventLog direct=new EventLog();
+    try
+    {
+      SAXParserFactory factory=SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.newSAXParser()
+        .parse(new ByteArrayInputStream(Files.readAllBytes(path)),direct);
+    }
+    catch (ParserConfigurationException x)
+    { return "Caught "+x;
+    }
+    if (!direct.toString().contains("skippedEntity undeclared"))
+    { return "Parser did not skip the entity: "+direct;
+    }
+    
+    EventLog recorded=new EventLog();
+    cache.parse(resource,recorded);
+    EventLog replayed=new EventLog();
+    cache.parse(resource,replayed);
+    if (cache.getHits()!=1)
+    { return "Document was not replayed";
+    }
+    if (!recorded.toString().equals(direct.toString()))
+    { return "Recording changed the events: "+recorded;
+    }
+    if (!replayed.toString().equals(direct.toString()))
+    { return "Replayed "+replayed+" instead of "+direct;
+    }
+    return null;
+  }
+  
+  private XmlEventCache newCache(String name)
+    throws IOException
+  {
+    XmlEventCache cache=new XmlEventCache(dir.toPath().resolve(name));
+    cache.clear();
+    return cache;
+  }
+  
+  private String positions(ParseTree tree)
+  {
+    StringBuilder positions=new StringBuilder();
+    positions(tree.getDocument(),positions);
+    return positions.toString();
+  }
+  
+  private void positions(Node node,StringBuilder positions)
+  {
+    if (node.getPosition()!=null)
+    { positions.append(node.getPosition()).append('\n');
+    }
+    if (node.getChildren()!=null)
+    { 
+      for (Node child:node.getChildren())
+      { positions(child,positions);
+      }
+    }
+  }
+  
+  /**
+   * Records the content events it receives, with their positions
+   */
+  private static class EventLog
+    extends DefaultHandler
+  {
+    private final StringBuilder events=new StringBuilder();
+    private Locator locator;
+    
+    @Override
+    public InputSource resolveEntity(String publicId,String systemId)
+    { 
+      // The external subset is empty, so the entity is not declared
+      return new InputSource(new StringReader(""));
+    }
+    
+    @Override
+    public void setDocumentLocator(Locator locator)
+    { this.locator=locator;
+    }
+    
+    private void event(String event)
+    { 
+      events.append(event)
+        .append(" @").append(locator.getLineNumber())
+        .append(":").append(locator.getColumnNumber())
+        .append("\n");
+    }
+    
+    @Override
+    public void startElement
+      (String uri,String localName,String qName,Attributes attributes)
+    { event("startElement "+qName);
+    }
+    
+    @Override
+    public void endElement(String uri,String localName,String qName)
+    { event("endElement "+qName);
+    }
+    
+    @Override
+    public void characters(char[] ch,int start,int length)
+    { event("characters "+new String(ch,start,length));
+    }
+    
+    @Override
+    public void skippedEntity(String name)
+    { event("skippedEntity "+name);
+    }
+    
+    @Override
+    public String toString()
+    { return events.toString();
+    }
+  }
+}
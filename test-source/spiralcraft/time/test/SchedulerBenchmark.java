@@ -0,0 +1,131 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.time.test;
+
+import java.util.Random;
+
+import spiralcraft.cli.Arguments;
+import spiralcraft.exec.Executable;
+import spiralcraft.time.Clock;
+import spiralcraft.time.Scheduler;
+
+/**
+ * Measures the throughput of scheduling and cancelling items in the
+ *   Scheduler with 10^3 to 10^6 items outstanding.
+ */
+public class SchedulerBenchmark
+  implements Executable
+{
+
+  private int _maxItems=1000000;
+  private int _rounds=3;
+
+  @Override
+  public void execute(String ... args)
+  {
+    new Arguments()
+    {
+
+      @Override
+      protected boolean processOption(String option)
+      {
+        if (option=="maxItems")
+        { _maxItems=Integer.parseInt(nextArgument());
+        }
+        else if (option=="rounds")
+        { _rounds=Integer.parseInt(nextArgument());
+        }
+        else
+        { return false;
+        }
+        return true;
+      }
+    }.process(args);
+
+    try
+    { run();
+    }
+    catch (Throwable x)
+    { x.printStackTrace();
+    }
+  }
+
+  public void run()
+    throws Throwable
+  {
+    Scheduler scheduler=new Scheduler();
+    Runnable noop=new Runnable()
+    {
+      @Override
+      public void run()
+      { }
+    };
+    Random random=new Random(0);
+    
+    for (int round=0;round<_rounds;round++)
+    {
+      for (int items=1000;items<=_maxItems;items*=10)
+      {
+        // Due times spread between 1 minute and 1 day out, so nothing is 
+        //   dispatched during the measurement
+        long now=Clock.instance().approxTimeMillis();
+        long[] duetimes=new long[items];
+        for (int i=0;i<items;i++)
+        { duetimes[i]=now+60000+(long) (random.nextDouble()*86400000L);
+        }
+        Scheduler.ScheduledItem[] handles=new Scheduler.ScheduledItem[items];
+        
+        long time=System.nanoTime();
+        for (int i=0;i<items;i++)
+        { handles[i]=scheduler.scheduleAt(noop,duetimes[i]);
+        }
+        report("scheduleAt",items,time);
+        
+        time=System.nanoTime();
+        for (int i=0;i<items;i++)
+        { handles[i].cancel();
+        }
+        report("ScheduledItem.cancel",items,time);
+        
+        Runnable[] runnables=new Runnable[items];
+        for (int i=0;i<items;i++)
+        { 
+          runnables[i]=new Runnable()
+          {
+            @Override
+            public void run()
+            { }
+          };
+          scheduler.scheduleAt(runnables[i],duetimes[i]);
+        }
+        
+        time=System.nanoTime();
+        for (int i=0;i<items;i++)
+        { scheduler.cancel(runnables[i]);
+        }
+        report("cancel(Runnable)",items,time);
+      }
+    }
+  }
+
+  private void report(String name,int items,long start)
+  {
+    long elapsed=System.nanoTime()-start;
+    System.err.println
+      (name+": "+items+" outstanding in "+(elapsed/1000000)+" ms ("
+      +((double) elapsed/items)+" ns/op)"
+      );
+  }
+}
@@ -0,0 +1,279 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.time.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.time.Clock;
+import spiralcraft.time.Scheduler;
+
+/**
+ * Checks that the Scheduler's timing wheel dispatches items in duetime
+ *   order and not before they are due, including items that cascade down
+ *   from higher levels of the wheel, and that cancelled and far-future
+ *   items are not dispatched.
+ */
+public class SchedulerTest
+  extends Test
+{
+  private static final long DAY=24L*60*60*1000;
+  
+  // Dispatch may lag the duetime by the Clock precision plus scheduling
+  //   delays
+  private static final long MAX_LATENESS=1000;
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        check("Scheduler ordering and cascade",checkOrdering());
+        check("Scheduler cancel",checkCancel());
+        check("Scheduler far-future deadlines",checkFarFuture());
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Items are scheduled out of order at delays which place them on the
+   *   first three levels of the wheel. 4200ms always differs from the
+   *   current time in bit 12 or above, so that item starts on level 2 and
+   *   must cascade through level 1.
+   */
+  private String checkOrdering()
+    throws InterruptedException
+  {
+    Scheduler scheduler=new Scheduler();
+    long[] delays={4200,300,1800,40,900};
+    CountDownLatch latch=new CountDownLatch(delays.length);
+    List<Recorder> dispatched
+      =Collections.synchronizedList(new ArrayList<Recorder>());
+    
+    long now=Clock.instance().approxTimeMillis();
+    List<Recorder> expected=new ArrayList<Recorder>();
+    for (long delay:delays)
+    { 
+      Recorder recorder=new Recorder(now+delay,dispatched,latch);
+      scheduler.scheduleAt(recorder,recorder.duetime);
+      expected.add(recorder);
+    }
+    if (scheduler.getPendingCount()!=delays.length)
+    { return "Pending count is "+scheduler.getPendingCount();
+    }
+    
+    if (!latch.await(10,TimeUnit.SECONDS))
+    { return "Only "+dispatched.size()+" of "+delays.length+" items ran";
+    }
+    
+    Collections.sort
+      (expected
+      ,new Comparator<Recorder>()
+      {
+        @Override
+        public int compare(Recorder r1,Recorder r2)
+        { return Long.compare(r1.duetime,r2.duetime);
+        }
+      }
+      );
+    synchronized (dispatched)
+    {
+      if (!dispatched.equals(expected))
+      { return "Items ran out of order";
+      }
+    }
+    for (Recorder recorder:expected)
+    { 
+      String failure=recorder.checkTime();
+      if (failure!=null)
+      { return failure;
+      }
+    }
+    if (scheduler.getPendingCount()!=0)
+    { return "Pending count is "+scheduler.getPendingCount()+" after dispatch";
+    }
+    return null;
+  }
+  
+  private String checkCancel()
+    throws InterruptedException
+  {
+    Scheduler scheduler=new Scheduler();
+    CountDownLatch latch=new CountDownLatch(1);
+    List<Recorder> dispatched
+      =Collections.synchronizedList(new ArrayList<Recorder>());
+    long now=Clock.instance().approxTimeMillis();
+    
+    Recorder cancelled=new Recorder(now+300,dispatched,latch);
+    Scheduler.ScheduledItem item
+      =scheduler.scheduleAt(cancelled,cancelled.duetime);
+    if (!item.cancel() || item.isPending() || item.cancel())
+    { return "ScheduledItem.cancel() did not cancel exactly once";
+    }
+    
+    // Scheduler.cancel() removes the earliest pending execution
+    Recorder repeated=new Recorder(now+600,dispatched,latch);
+    Scheduler.ScheduledItem later
+      =scheduler.scheduleAt(repeated,repeated.duetime);
+    Scheduler.ScheduledItem earlier
+      =scheduler.scheduleAt(repeated,now+200);
+    if (!scheduler.cancel(repeated) 
+        || earlier.isPending() 
+        || !later.isPending()
+        )
+    { return "Scheduler.cancel() did not cancel the earliest execution";
+    }
+    if (scheduler.getPendingCount()!=1)
+    { return "Pending count is "+scheduler.getPendingCount();
+    }
+    
+    if (!latch.await(10,TimeUnit.SECONDS))
+    { return "Remaining execution did not run";
+    }
+    // Allow the cancelled items' time to pass
+    Thread.sleep(200);
+    synchronized (dispatched)
+    {
+      if (dispatched.size()!=1 || dispatched.get(0)!=repeated)
+      { return "Cancelled items ran: "+dispatched.size()+" items dispatched";
+      }
+    }
+    String failure=repeated.checkTime();
+    if (failure!=null)
+    { return failure;
+    }
+    if (scheduler.cancel(repeated) || scheduler.getPendingCount()!=0)
+    { return "Dispatched item is still pending";
+    }
+    return null;
+  }
+  
+  /**
+   * Items due in 40 days occupy the top level of the wheel, and items due
+   *   in 3 years are beyond its range. Neither may be dispatched early, or
+   *   wake the dispatcher in a way that delays a near item.
+   */
+  private String checkFarFuture()
+    throws InterruptedException
+  {
+    Scheduler scheduler=new Scheduler();
+    CountDownLatch latch=new CountDownLatch(1);
+    List<Recorder> dispatched
+      =Collections.synchronizedList(new ArrayList<Recorder>());
+    long now=Clock.instance().approxTimeMillis();
+    
+    Recorder topLevel=new Recorder(now+40*DAY,dispatched,null);
+    Recorder overflow=new Recorder(now+3*365*DAY,dispatched,null);
+    Recorder near=new Recorder(now+500,dispatched,latch);
+    Scheduler.ScheduledItem topItem
+      =scheduler.scheduleAt(topLevel,topLevel.duetime);
+    Scheduler.ScheduledItem overflowItem
+      =scheduler.scheduleAt(overflow,overflow.duetime);
+    scheduler.scheduleAt(near,near.duetime);
+    
+    if (!latch.await(10,TimeUnit.SECONDS))
+    { return "Near item did not run";
+    }
+    String failure=near.checkTime();
+    if (failure!=null)
+    { return failure;
+    }
+    synchronized (dispatched)
+    {
+      if (dispatched.size()!=1)
+      { return "Far-future items ran early";
+      }
+    }
+    if (!topItem.isPending() 
+        || !overflowItem.isPending()
+        || scheduler.getPendingCount()!=2
+        )
+    { return "Far-future items are no longer pending";
+    }
+    
+    if (!scheduler.cancel(overflow) || !topItem.cancel())
+    { return "Could not cancel far-future items";
+    }
+    if (scheduler.getPendingCount()!=0)
+    { return "Pending count is "+scheduler.getPendingCount()+" after cancel";
+    }
+    return null;
+  }
+  
+  private static class Recorder
+    implements Runnable
+  {
+    final long duetime;
+    private final List<Recorder> dispatched;
+    private final CountDownLatch latch;
+    private volatile long runTime;
+    
+    Recorder(long duetime,List<Recorder> dispatched,CountDownLatch latch)
+    { 
+      this.duetime=duetime;
+      this.dispatched=dispatched;
+      this.latch=latch;
+    }
+    
+    @Override
+    public void run()
+    { 
+      runTime=System.currentTimeMillis();
+      dispatched.add(this);
+      if (latch!=null)
+      { latch.countDown();
+      }
+    }
+    
+    String checkTime()
+    {
+      if (runTime<duetime)
+      { return "Item due at "+duetime+" ran early at "+runTime;
+      }
+      if (runTime>duetime+MAX_LATENESS)
+      { return "Item due at "+duetime+" ran late at "+runTime;
+      }
+      return null;
+    }
+  }
+}
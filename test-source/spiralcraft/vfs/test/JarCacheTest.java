@@ -0,0 +1,373 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.util.Path;
+import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.jar.JarCache;
+import spiralcraft.vfs.jar.JarFileResource;
+
+/**
+ * Checks that JarFileResource lists the contents of jar directories, and 
+ *   that the JarCache shares one open JarFile among readers, closes it when
+ *   idle, and re-reads the jar when it changes.
+ */
+public class JarCacheTest
+  extends Test
+{
+  
+  private static final long TIMEOUT=10000;
+  
+  private final File dir=new File("out/jarcache");
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("JarFileResource contents",checkContents());
+          check("JarCache shared JarFile",checkSharing());
+          check("JarCache idle close",checkIdleClose());
+          check("JarCache rescan",checkRescan());
+        }
+        catch (IOException x)
+        { report(new TestResult("JarCache",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * Directories list their immediate children in jar order, and entries
+   *   read back their content
+   */
+  private String checkContents()
+    throws IOException
+  {
+    File file=new File(dir,"contents.jar");
+    writeJar
+      (file
+      ,"a/",null
+      ,"a/x.txt","x"
+      ,"a/b/",null
+      ,"a/b/y.txt","y"
+      ,"z.txt","z"
+      );
+    
+    String failure;
+    JarFileResource root=new JarFileResource(file,new Path("/",'/'));
+    failure=checkNames(root,"a","z.txt");
+    if (failure!=null)
+    { return failure;
+    }
+    
+    Resource a=root.getChild("a");
+    if (a.asContainer()==null)
+    { return a.getURI()+" is not a container";
+    }
+    failure=checkNames(a,"x.txt","b");
+    if (failure!=null)
+    { return failure;
+    }
+    
+    Resource b=a.asContainer().listChildren()[1];
+    failure=checkNames(b,"y.txt");
+    if (failure!=null)
+    { return failure;
+    }
+    
+    Resource y=b.asContainer().listChildren()[0];
+    String content=read(y);
+    if (!content.equals("y"))
+    { return y.getURI()+" contains '"+content+"'";
+    }
+    
+    Resource z=root.getChild("z.txt");
+    if (z.asContainer()!=null)
+    { return z.getURI()+" is a container";
+    }
+    if (!z.exists() || root.getChild("missing.txt").exists())
+    { return "Entry existence is wrong";
+    }
+    return null;
+  }
+  
+  /**
+   * Concurrent readers share a single open JarFile
+   */
+  private String checkSharing()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"sharing.jar");
+    writeJar(file,"x.txt","x","y.txt","y");
+    JarCache.get(file).setIdleCloseMs(60000);
+    final JarFileResource x=new JarFileResource(file,new Path("/x.txt",'/'));
+    
+    long opens=JarCache.getOpenCount();
+    final AtomicReference<String> failure=new AtomicReference<>();
+    List<Thread> threads=new ArrayList<>();
+    for (int i=0;i<8;i++)
+    {
+      Thread thread
+        =new Thread()
+        {
+          @Override
+          public void run()
+          { 
+            try
+            {
+              for (int j=0;j<50;j++)
+              { 
+                String content=read(x);
+                if (!content.equals("x"))
+                { failure.compareAndSet(null,"Read '"+content+"'");
+                }
+              }
+            }
+            catch (IOException e)
+            { failure.compareAndSet(null,"Caught "+e);
+            }
+          }
+        };
+      threads.add(thread);
+      thread.start();
+    }
+    for (Thread thread:threads)
+    { thread.join();
+    }
+    
+    if (failure.get()!=null)
+    { return failure.get();
+    }
+    long opened=JarCache.getOpenCount()-opens;
+    if (opened!=1)
+    { return "Opened the jar "+opened+" times for 400 reads";
+    }
+    return null;
+  }
+  
+  /**
+   * The JarFile stays open while a stream is being read, and is closed once
+   *   it has been idle for the idle close time
+   */
+  private String checkIdleClose()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"idle.jar");
+    writeJar(file,"x.txt","x");
+    JarCache cache=JarCache.get(file);
+    cache.setIdleCloseMs(200);
+    JarFileResource x=new JarFileResource(file,new Path("/x.txt",'/'));
+    
+    InputStream in=x.getInputStream();
+    try
+    {
+      Thread.sleep(600);
+      if (!cache.isOpen())
+      { return "Jar was closed while a stream was open";
+      }
+    }
+    finally
+    { in.close();
+    }
+    
+    long time=System.currentTimeMillis();
+    while (cache.isOpen() && System.currentTimeMillis()-time<TIMEOUT)
+    { Thread.sleep(10);
+    }
+    if (cache.isOpen())
+    { return "Idle jar was not closed";
+    }
+    
+    long opens=JarCache.getOpenCount();
+    String content=read(x);
+    if (!content.equals("x"))
+    { return "Read '"+content+"' after idle close";
+    }
+    if (JarCache.getOpenCount()-opens!=1)
+    { return "Jar was not reopened after idle close";
+    }
+    return null;
+  }
+  
+  /**
+   * A changed jar is re-read, while streams read from the previous version
+   *   remain readable
+   */
+  private String checkRescan()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"rescan.jar");
+    writeJar(file,"x.txt","old","gone.txt","gone");
+    JarCache cache=JarCache.get(file);
+    cache.setCheckIntervalMs(0);
+    JarFileResource x=new JarFileResource(file,new Path("/x.txt",'/'));
+    JarFileResource gone
+      =new JarFileResource(file,new Path("/gone.txt",'/'));
+    
+    long rescans=JarCache.getRescanCount();
+    JarEntry goneEntry=cache.getJarEntry("gone.txt");
+    InputStream in=x.getInputStream();
+    try
+    {
+      // Replace the file rather than overwriting it, as a build would
+      File temp=new File(dir,"rescan.jar.tmp");
+      writeJar(temp,"x.txt","new content","y.txt","y");
+      Files.move
+        (temp.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING);
+      
+      // Let the approximate clock advance past the last check
+      Thread.sleep(300);
+      String content=read(x);
+      if (!content.equals("new content"))
+      { return "Read '"+content+"' from the changed jar";
+      }
+      if (gone.exists())
+      { return "Removed entry still exists";
+      }
+      if (!Arrays.equals(cache.listChildren(""),new String[] {"x.txt","y.txt"}))
+      { return "Listed "+Arrays.toString(cache.listChildren(""));
+      }
+      
+      try
+      { 
+        cache.getInputStream(goneEntry).close();
+        return "Read a removed entry";
+      }
+      catch (IOException expected)
+      { }
+      
+      content=readFully(in);
+      if (!content.equals("old"))
+      { return "Read '"+content+"' from the stream opened before the change";
+      }
+    }
+    finally
+    { in.close();
+    }
+    
+    long rescanned=JarCache.getRescanCount()-rescans;
+    if (rescanned!=2)
+    { return "Indexed the jar "+rescanned+" times for 2 versions";
+    }
+    return null;
+  }
+  
+  private String checkNames(Resource container,String ... names)
+    throws IOException
+  {
+    Resource[] children=container.asContainer().listChildren();
+    String[] actual=new String[children.length];
+    for (int i=0;i<children.length;i++)
+    { actual[i]=children[i].getLocalName();
+    }
+    if (!Arrays.equals(actual,names))
+    { 
+      return container.getURI()+" lists "+Arrays.toString(actual)
+        +" instead of "+Arrays.toString(names);
+    }
+    return null;
+  }
+  
+  private String read(Resource resource)
+    throws IOException
+  { 
+    InputStream in=resource.getInputStream();
+    try
+    { return readFully(in);
+    }
+    finally
+    { in.close();
+    }
+  }
+  
+  private String readFully(InputStream in)
+    throws IOException
+  {
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    byte[] buffer=new byte[256];
+    int count;
+    while ((count=in.read(buffer))>-1)
+    { out.write(buffer,0,count);
+    }
+    return new String(out.toByteArray(),StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * Write a jar containing the specified names and contents. A null content
+   *   denotes a directory.
+   */
+  private void writeJar(File file,String ... namesAndContents)
+    throws IOException
+  {
+    file.getParentFile().mkdirs();
+    JarOutputStream out=new JarOutputStream(new FileOutputStream(file));
+    try
+    {
+      for (int i=0;i<namesAndContents.length;i+=2)
+      { 
+        out.putNextEntry(new JarEntry(namesAndContents[i]));
+        if (namesAndContents[i+1]!=null)
+        { out.write(namesAndContents[i+1].getBytes(StandardCharsets.UTF_8));
+        }
+        out.closeEntry();
+      }
+    }
+    finally
+    { out.close();
+    }
+  }
+}
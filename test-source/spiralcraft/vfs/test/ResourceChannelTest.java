@@ -0,0 +1,456 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.StreamUtil;
+import spiralcraft.vfs.file.FileResource;
+import spiralcraft.vfs.spi.ByteBufferChannel;
+import spiralcraft.vfs.util.ByteArrayResource;
+
+/**
+ * Checks that data round-trips through the channel accessors and map() of
+ *   file and non-file Resources, and that copyFrom() copies between them.
+ */
+public class ResourceChannelTest
+  extends Test
+{
+  
+  private final File dir=new File("out/resourcechannel");
+  
+  /**
+   * Larger than the StreamUtil buffer, so copies take more than one pass
+   */
+  private final byte[] content=content(3*StreamUtil.DEFAULT_BUFFER_SIZE+17);
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          dir.mkdirs();
+          check("FileResource channels",checkFileChannels());
+          check("FileResource map",checkFileMap());
+          check("Heap buffer channels",checkHeapChannels());
+          check("ByteBufferChannel",checkByteBufferChannel());
+          check("StreamUtil transfer",checkTransfer());
+          check("Resource copyFrom",checkCopyFrom());
+        }
+        catch (IOException x)
+        { report(new TestResult("ResourceChannel",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * A file written through its writable channel reads back through its
+   *   readable and seekable channels, which are FileChannels
+   */
+  private String checkFileChannels()
+    throws IOException
+  {
+    File file=new File(dir,"channels.bin");
+    Files.write(file.toPath(),content(10));
+    FileResource resource=new FileResource(file);
+    
+    WritableByteChannel out=resource.getWritableChannel();
+    try
+    { write(out,content);
+    }
+    finally
+    { out.close();
+    }
+    if (!Arrays.equals(Files.readAllBytes(file.toPath()),content))
+    { return "Writable channel did not replace the file content";
+    }
+    
+    ReadableByteChannel in=resource.getReadableChannel();
+    try
+    {
+      if (!(in instanceof FileChannel))
+      { return "Readable channel is a "+in.getClass().getName();
+      }
+      if (!Arrays.equals(read(in),content))
+      { return "Readable channel content differs";
+      }
+    }
+    finally
+    { in.close();
+    }
+    
+    SeekableByteChannel seekable=resource.getSeekableChannel(true);
+    try
+    {
+      seekable.position(100);
+      write(seekable,new byte[] {1,2,3});
+      if (seekable.size()!=content.length)
+      { return "Seekable write changed the size to "+seekable.size();
+      }
+    }
+    finally
+    { seekable.close();
+    }
+    
+    seekable=resource.getSeekableChannel(false);
+    try
+    {
+      seekable.position(99);
+      ByteBuffer buffer=ByteBuffer.allocate(5);
+      seekable.read(buffer);
+      byte[] expected
+        ={content[99],1,2,3,content[103]};
+      if (!Arrays.equals(buffer.array(),expected))
+      { return "Seekable read "+Arrays.toString(buffer.array());
+      }
+    }
+    finally
+    { seekable.close();
+    }
+    return null;
+  }
+  
+  /**
+   * A mapped file is a direct, read-only view of the whole file
+   */
+  private String checkFileMap()
+    throws IOException
+  {
+    File file=new File(dir,"map.bin");
+    Files.write(file.toPath(),content);
+    ByteBuffer buffer=new FileResource(file).map();
+    if (!buffer.isDirect() || !buffer.isReadOnly())
+    { return "Mapped buffer is not a direct read-only buffer";
+    }
+    if (buffer.position()!=0 || buffer.remaining()!=content.length)
+    { return "Mapped buffer has "+buffer.remaining()+" bytes remaining";
+    }
+    if (!Arrays.equals(bytes(buffer),content))
+    { return "Mapped content differs";
+    }
+    
+    File empty=new File(dir,"empty.bin");
+    Files.write(empty.toPath(),new byte[0]);
+    if (new FileResource(empty).map().remaining()!=0)
+    { return "Mapped an empty file with content";
+    }
+    return null;
+  }
+  
+  /**
+   * A Resource without native channels adapts its streams, and maps and
+   *   seeks over a read-only heap buffer
+   */
+  private String checkHeapChannels()
+    throws IOException
+  {
+    ByteArrayResource resource=new ByteArrayResource();
+    WritableByteChannel out=resource.getWritableChannel();
+    try
+    { write(out,content);
+    }
+    finally
+    { out.close();
+    }
+    if (!Arrays.equals(resource.getBackingStore(),content))
+    { return "Writable channel did not commit on close";
+    }
+    
+    ReadableByteChannel in=resource.getReadableChannel();
+    try
+    {
+      if (in instanceof FileChannel)
+      { return "Readable channel is a FileChannel";
+      }
+      if (!Arrays.equals(read(in),content))
+      { return "Readable channel content differs";
+      }
+    }
+    finally
+    { in.close();
+    }
+    
+    ByteBuffer buffer=resource.map();
+    if (buffer.isDirect() || !buffer.isReadOnly())
+    { return "Mapped buffer is not a read-only heap buffer";
+    }
+    if (!Arrays.equals(bytes(buffer),content))
+    { return "Mapped content differs";
+    }
+    
+    SeekableByteChannel seekable=resource.getSeekableChannel(false);
+    try
+    {
+      if (!(seekable instanceof ByteBufferChannel))
+      { return "Seekable channel is a "+seekable.getClass().getName();
+      }
+      if (!Arrays.equals(read(seekable),content))
+      { return "Seekable channel content differs";
+      }
+    }
+    finally
+    { seekable.close();
+    }
+    
+    try
+    { 
+      resource.getSeekableChannel(true).close();
+      return "Opened a writable seekable channel";
+    }
+    catch (IOException expected)
+    { }
+    return null;
+  }
+  
+  /**
+   * A ByteBufferChannel reads from its position, reports end of content,
+   *   and refuses writes and use after close
+   */
+  private String checkByteBufferChannel()
+    throws IOException
+  {
+    ByteBuffer source=ByteBuffer.wrap(content(10));
+    source.position(5);
+    SeekableByteChannel channel=new ByteBufferChannel(source);
+    if (channel.size()!=10 || channel.position()!=0)
+    { return "Channel does not span the whole buffer";
+    }
+    
+    channel.position(7);
+    ByteBuffer buffer=ByteBuffer.allocate(8);
+    if (channel.read(buffer)!=3 || channel.position()!=10)
+    { return "Read "+buffer.position()+" bytes from position 7 of 10";
+    }
+    buffer.flip();
+    if (!Arrays.equals(bytes(buffer),Arrays.copyOfRange(content(10),7,10)))
+    { return "Read the wrong bytes";
+    }
+    if (channel.read(ByteBuffer.allocate(1))!=-1)
+    { return "Did not report the end of the content";
+    }
+    channel.position(20);
+    if (channel.read(ByteBuffer.allocate(1))!=-1)
+    { return "Read past the end of the content";
+    }
+    if (source.position()!=5)
+    { return "Reads moved the position of the source buffer";
+    }
+    
+    try
+    { 
+      channel.write(ByteBuffer.allocate(1));
+      return "Wrote to a read-only channel";
+    }
+    catch (NonWritableChannelException expected)
+    { }
+    
+    channel.close();
+    if (channel.isOpen())
+    { return "Channel is open after close";
+    }
+    try
+    { 
+      channel.read(ByteBuffer.allocate(1));
+      return "Read from a closed channel";
+    }
+    catch (ClosedChannelException expected)
+    { }
+    return null;
+  }
+  
+  /**
+   * A transfer copies from the current position of a FileChannel to its
+   *   end and advances the position, and copies other channels completely
+   */
+  private String checkTransfer()
+    throws IOException
+  {
+    File file=new File(dir,"transfer.bin");
+    Files.write(file.toPath(),content);
+    FileResource resource=new FileResource(file);
+    
+    ByteArrayResource target=new ByteArrayResource();
+    FileChannel in=(FileChannel) resource.getReadableChannel();
+    try
+    {
+      in.position(1000);
+      WritableByteChannel out=target.getWritableChannel();
+      try
+      { 
+        long count=StreamUtil.transfer(in,out);
+        if (count!=content.length-1000)
+        { return "Transferred "+count+" bytes from a FileChannel";
+        }
+      }
+      finally
+      { out.close();
+      }
+      if (in.position()!=content.length)
+      { return "FileChannel position is "+in.position()+" after transfer";
+      }
+    }
+    finally
+    { in.close();
+    }
+    if (!Arrays.equals
+          (target.getBackingStore()
+          ,Arrays.copyOfRange(content,1000,content.length)
+          )
+       )
+    { return "FileChannel transfer content differs";
+    }
+    
+    File copy=new File(dir,"transfer.copy.bin");
+    ReadableByteChannel heapIn=target.getReadableChannel();
+    try
+    {
+      WritableByteChannel out=new FileResource(copy).getWritableChannel();
+      try
+      { 
+        long count=StreamUtil.transfer(heapIn,out);
+        if (count!=content.length-1000)
+        { return "Transferred "+count+" bytes from a stream channel";
+        }
+      }
+      finally
+      { out.close();
+      }
+    }
+    finally
+    { heapIn.close();
+    }
+    if (!Arrays.equals(Files.readAllBytes(copy.toPath()),target.getBackingStore()))
+    { return "Stream channel transfer content differs";
+    }
+    return null;
+  }
+  
+  /**
+   * copyFrom() copies between every combination of file and non-file
+   *   Resources, replacing longer existing content
+   */
+  private String checkCopyFrom()
+    throws IOException
+  {
+    File source=new File(dir,"copy.source.bin");
+    Files.write(source.toPath(),content);
+    File target=new File(dir,"copy.target.bin");
+    Files.write(target.toPath(),content(content.length+100));
+    
+    FileResource fileSource=new FileResource(source);
+    FileResource fileTarget=new FileResource(target);
+    fileTarget.copyFrom(fileSource);
+    if (!Arrays.equals(Files.readAllBytes(target.toPath()),content))
+    { return "File to file copy differs";
+    }
+    
+    ByteArrayResource heapTarget=new ByteArrayResource();
+    heapTarget.copyFrom(fileSource);
+    if (!Arrays.equals(heapTarget.getBackingStore(),content))
+    { return "File to heap copy differs";
+    }
+    
+    Resource heapSource=new ByteArrayResource(content(1000));
+    fileTarget.copyFrom(heapSource);
+    if (!Arrays.equals(Files.readAllBytes(target.toPath()),content(1000)))
+    { return "Heap to file copy differs";
+    }
+    
+    ByteArrayResource heapCopy=new ByteArrayResource();
+    heapCopy.copyFrom(heapSource);
+    if (!Arrays.equals(heapCopy.getBackingStore(),content(1000)))
+    { return "Heap to heap copy differs";
+    }
+    return null;
+  }
+  
+  private static byte[] content(int length)
+  {
+    byte[] bytes=new byte[length];
+    for (int i=0;i<length;i++)
+    { bytes[i]=(byte) (i*31+i/251);
+    }
+    return bytes;
+  }
+  
+  private static byte[] bytes(ByteBuffer buffer)
+  { 
+    byte[] bytes=new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+  
+  private static void write(WritableByteChannel out,byte[] bytes)
+    throws IOException
+  {
+    ByteBuffer buffer=ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining())
+    { out.write(buffer);
+    }
+  }
+  
+  private static byte[] read(ReadableByteChannel in)
+    throws IOException
+  {
+    ByteBuffer buffer=ByteBuffer.allocate(4096);
+    ByteArrayOutputStream out=new ByteArrayOutputStream();
+    while (in.read(buffer)>=0)
+    { 
+      buffer.flip();
+      out.write(buffer.array(),0,buffer.limit());
+      buffer.clear();
+    }
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,335 @@
+//
+// Copyright (c) 2026 Michael Toth
+// Spiralcraft Inc., All Rights Reserved
+//
+// This package is part of the Spiralcraft project and is licensed under
+// a multiple-license framework.
+//
+// You may not use this file except in compliance with the terms found in the
+// SPIRALCRAFT-LICENSE.txt file at the top of this distribution, or available
+// at http://www.spiralcraft.org/licensing/SPIRALCRAFT-LICENSE.txt.
+//
+// Unless otherwise agreed to in writing, this software is distributed on an
+// "AS IS" basis, WITHOUT WARRANTY OF ANY KIND, either express or implied.
+//
+package spiralcraft.vfs.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import spiralcraft.task.AbstractTask;
+import spiralcraft.task.Task;
+import spiralcraft.test.Test;
+import spiralcraft.test.TestFailedException;
+import spiralcraft.test.TestResult;
+import spiralcraft.vfs.Resource;
+import spiralcraft.vfs.file.FileResource;
+import spiralcraft.vfs.watcher.ResourceWatcher;
+import spiralcraft.vfs.watcher.WatcherHandler;
+
+/**
+ * Checks that a ResourceWatcher of a file is notified once for a burst of
+ *   changes, honors a hold-off requested by its handler, backs off when
+ *   checking the file fails, and polls when the file's directory cannot be
+ *   watched.
+ */
+public class ResourceWatcherTest
+  extends Test
+{
+  
+  private static final long TIMEOUT=10000;
+  
+  // Clock.approxTimeMillis() lags the system clock by up to 100ms
+  private static final long CLOCK_PRECISION=100;
+  
+  private final File dir=new File("out/watcher");
+  
+  @Override
+  protected Task task()
+  {
+    return new AbstractTask()
+    {      
+      @Override
+      protected void work()
+        throws InterruptedException
+      { 
+        try
+        {
+          check("ResourceWatcher event coalescing",checkCoalescing());
+          check("ResourceWatcher hold-off",checkHoldOff());
+          check("ResourceWatcher retry back-off",checkRetryBackOff());
+          check("ResourceWatcher polling fallback",checkPollingFallback());
+        }
+        catch (IOException x)
+        { 
+          report
+            (new TestResult("ResourceWatcher",false,"Caught exception",x));
+        }
+      }
+      
+      private void check(String testName,String failure)
+      { report(new TestResult(testName,failure==null,failure));
+      }
+      
+      private void report(TestResult result)
+      {
+        if (testGroup!=null)
+        { testGroup.addTestResult(result);
+        }
+        if (throwFailure && !result.getPassed())
+        { addException(new TestFailedException(result));
+        }
+        addResult(result);
+      }
+    };
+  }
+  
+  /**
+   * A series of writes in quick succession results in a single update
+   */
+  private String checkCoalescing()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"coalesce.txt");
+    write(file,"initial");
+    Recorder recorder=new Recorder(0);
+    ResourceWatcher watcher
+      =new ResourceWatcher(new FileResource(file),1000,recorder);
+    watcher.setPushUpdates(true);
+    try
+    {
+      watcher.check();
+      if (!watcher.isEventDriven())
+      { return "Watcher of "+file+" is not event driven";
+      }
+      if (recorder.count.get()!=1)
+      { return "Initial check made "+recorder.count.get()+" updates";
+      }
+      
+      Thread.sleep(20);
+      for (int i=0;i<10;i++)
+      { 
+        write(file,"write "+i);
+        Thread.sleep(2);
+      }
+      if (!recorder.await(2,TIMEOUT))
+      { return "Writes were not reported";
+      }
+      
+      // Allow any further notifications to arrive
+      Thread.sleep(1000);
+      if (recorder.count.get()!=2)
+      { return "10 writes made "+(recorder.count.get()-1)+" updates";
+      }
+      return null;
+    }
+    finally
+    { watcher.stop();
+    }
+  }
+  
+  /**
+   * A change reported during the hold-off requested by the handler is
+   *   handled once the hold-off expires
+   */
+  private String checkHoldOff()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"holdoff.txt");
+    write(file,"initial");
+    int holdOff=1000;
+    Recorder recorder=new Recorder(holdOff);
+    ResourceWatcher watcher
+      =new ResourceWatcher(new FileResource(file),1000,recorder);
+    watcher.setPushUpdates(true);
+    try
+    {
+      watcher.check();
+      long firstCall=recorder.lastCall;
+      
+      Thread.sleep(20);
+      write(file,"changed");
+      if (!recorder.await(2,TIMEOUT))
+      { return "Change during the hold-off was not handled";
+      }
+      long delay=recorder.lastCall-firstCall;
+      if (delay<holdOff-CLOCK_PRECISION)
+      { return "Change was handled "+delay+"ms after the previous update";
+      }
+      return null;
+    }
+    finally
+    { watcher.stop();
+    }
+  }
+  
+  /**
+   * A pushed update whose handler fails is not retried continuously, and
+   *   succeeds once the handler recovers
+   */
+  private String checkRetryBackOff()
+    throws IOException,InterruptedException
+  {
+    File file=new File(dir,"retry.txt");
+    write(file,"initial");
+    Recorder recorder=new Recorder(0);
+    ResourceWatcher watcher
+      =new ResourceWatcher(new FileResource(file),1000,recorder);
+    watcher.setPushUpdates(true);
+    try
+    {
+      watcher.check();
+      
+      recorder.failing=true;
+      Thread.sleep(20);
+      write(file,"changed");
+      long time=System.currentTimeMillis();
+      while (recorder.failures.get()==0 
+              && System.currentTimeMillis()-time<TIMEOUT
+            )
+      { Thread.sleep(10);
+      }
+      if (recorder.failures.get()==0)
+      { return "Change was not reported";
+      }
+      Thread.sleep(2500);
+      int failures=recorder.failures.get();
+      if (failures>5)
+      { return failures+" failed updates in 2.5 seconds";
+      }
+      
+      recorder.failing=false;
+      if (!recorder.await(2,TIMEOUT))
+      { return "Update was not retried";
+      }
+      return null;
+    }
+    finally
+    { watcher.stop();
+    }
+  }
+  
+  /**
+   * A watcher polls when its file's directory does not exist, or when the
+   *   directory is deleted while it is being watched
+   */
+  private String checkPollingFallback()
+    throws IOException,InterruptedException
+  {
+    ResourceWatcher missing
+      =new ResourceWatcher
+        (new FileResource(new File(dir,"missing/file.txt"))
+        ,200
+        ,new Recorder(0)
+        );
+    missing.check();
+    if (missing.isEventDriven())
+    { return "Watcher of a file in a missing directory is event driven";
+    }
+    
+    File subdir=new File(dir,"lost");
+    File file=new File(subdir,"file.txt");
+    subdir.mkdirs();
+    write(file,"initial");
+    Recorder recorder=new Recorder(0);
+    ResourceWatcher watcher
+      =new ResourceWatcher(new FileResource(file),200,recorder);
+    try
+    {
+      watcher.check();
+      if (!watcher.isEventDriven())
+      { return "Watcher of "+file+" is not event driven";
+      }
+      
+      file.delete();
+      subdir.delete();
+      long time=System.currentTimeMillis();
+      while (watcher.isEventDriven() 
+              && System.currentTimeMillis()-time<TIMEOUT
+            )
+      { Thread.sleep(10);
+      }
+      if (watcher.isEventDriven())
+      { return "Watcher is still event driven after its directory was deleted";
+      }
+      
+      subdir.mkdirs();
+      write(file,"recreated");
+      time=System.currentTimeMillis();
+      while (recorder.count.get()<2
+              && System.currentTimeMillis()-time<TIMEOUT
+            )
+      { 
+        watcher.check();
+        Thread.sleep(50);
+      }
+      if (recorder.count.get()<2)
+      { return "Polling did not detect the recreated file";
+      }
+      return null;
+    }
+    finally
+    { watcher.stop();
+    }
+  }
+  
+  private void write(File file,String content)
+    throws IOException
+  {
+    file.getParentFile().mkdirs();
+    OutputStream out=new FileOutputStream(file);
+    try
+    { out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    finally
+    { out.close();
+    }
+  }
+  
+  /**
+   * Counts successful updates and returns a fixed result, or fails while
+   *   failing is set
+   */
+  private static class Recorder
+    implements WatcherHandler
+  {
+    final AtomicInteger count=new AtomicInteger();
+    final AtomicInteger failures=new AtomicInteger();
+    private final int result;
+    volatile long lastCall;
+    volatile boolean failing;
+    
+    Recorder(int result)
+    { this.result=result;
+    }
+    
+    @Override
+    public int handleUpdate(Resource resource)
+    { 
+      if (failing)
+      { 
+        failures.incrementAndGet();
+        throw new IllegalStateException("Simulated failure");
+      }
+      lastCall=System.currentTimeMillis();
+      count.incrementAndGet();
+      return result;
+    }
+    
+    boolean await(int expected,long timeout)
+      throws InterruptedException
+    {
+      long time=System.currentTimeMillis();
+      while (count.get()<expected 
+              && System.currentTimeMillis()-time<timeout
+            )
+      { Thread.sleep(10);
+      }
+      return count.get()>=expected;
+    }
+  }
+}